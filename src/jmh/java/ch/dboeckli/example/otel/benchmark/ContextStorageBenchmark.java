@@ -0,0 +1,130 @@
+package ch.dboeckli.example.otel.benchmark;
+
+import ch.dboeckli.example.otel.tracing.ScopedValueContextStorage;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.ContextKey;
+import io.opentelemetry.context.ContextStorage;
+import io.opentelemetry.context.Scope;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Attaching and detaching a context with the thread-local storage of the SDK
+ * ({@code threadLocal}) and the {@link ScopedValueContextStorage} ({@code scopedValue}):
+ * <ul>
+ * <li>{@code attachDetach}: {@code makeCurrent()} and {@code close()}, the imperative
+ * fallback of the scoped value storage</li>
+ * <li>{@code bind}: {@link ScopedValueContextStorage#call}, only different from
+ * {@code attachDetach} for {@code scopedValue}</li>
+ * <li>{@code nested}: controller and service context on top of the filter context</li>
+ * <li>{@code current}: one read of the current context</li>
+ * <li>{@code currentInsideBinding}: one binding and 100 reads, as when a request logs and
+ * starts spans</li>
+ * </ul>
+ * The filter context is attached imperatively for the whole trial, as by the servlet
+ * filters.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Dlogback.configurationFile=logback-benchmark.xml",
+        "-Dio.opentelemetry.context.contextStorageProvider="
+                + "ch.dboeckli.example.otel.tracing.ScopedValueContextStorageProvider" })
+@State(org.openjdk.jmh.annotations.Scope.Thread)
+public class ContextStorageBenchmark {
+
+    private static final ContextKey<String> KEY = ContextKey.named("benchmark");
+
+    @Param({ "threadLocal", "scopedValue" })
+    public String storage;
+
+    private final Context filter = Context.root().with(KEY, "filter");
+
+    private final Context controller = filter.with(KEY, "controller");
+
+    private final Context service = controller.with(KEY, "service");
+
+    private ContextStorage contextStorage;
+
+    private Scope requestScope;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        contextStorage = "scopedValue".equals(storage) ? ContextStorage.get() : ContextStorage.defaultStorage();
+        if ("scopedValue".equals(storage) && !(contextStorage instanceof ScopedValueContextStorage)) {
+            // run and call would fall back to makeCurrent() on another storage
+            throw new IllegalStateException("OpenTelemetry uses " + contextStorage + ", not the scoped value storage");
+        }
+        requestScope = contextStorage.attach(filter);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        requestScope.close();
+    }
+
+    @Benchmark
+    public Context attachDetach() {
+        try (Scope ignored = contextStorage.attach(controller)) {
+            return contextStorage.current();
+        }
+    }
+
+    @Benchmark
+    public Context bind() {
+        if (contextStorage instanceof ScopedValueContextStorage) {
+            return ScopedValueContextStorage.call(controller, contextStorage::current);
+        }
+        return attachDetach();
+    }
+
+    @Benchmark
+    public Context nested() {
+        if (contextStorage instanceof ScopedValueContextStorage) {
+            return ScopedValueContextStorage.call(controller,
+                    () -> ScopedValueContextStorage.call(service, contextStorage::current));
+        }
+        try (Scope ignored = contextStorage.attach(controller)) {
+            try (Scope nested = contextStorage.attach(service)) {
+                return contextStorage.current();
+            }
+        }
+    }
+
+    @Benchmark
+    public Context current() {
+        return contextStorage.current();
+    }
+
+    @Benchmark
+    public Context currentInsideBinding() {
+        if (contextStorage instanceof ScopedValueContextStorage) {
+            return ScopedValueContextStorage.call(controller, () -> readCurrent(100));
+        }
+        try (Scope ignored = contextStorage.attach(controller)) {
+            return readCurrent(100);
+        }
+    }
+
+    private Context readCurrent(int times) {
+        Context current = null;
+        for (int i = 0; i < times; i++) {
+            current = contextStorage.current();
+        }
+        return current;
+    }
+
+}
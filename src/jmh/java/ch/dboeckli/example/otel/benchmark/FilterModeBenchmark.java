@@ -0,0 +1,85 @@
+package ch.dboeckli.example.otel.benchmark;
+
+import ch.dboeckli.example.otel.tracing.BaggageTaggingFilter;
+import ch.dboeckli.example.otel.tracing.DebugCapture;
+import ch.dboeckli.example.otel.tracing.TelemetryFilter;
+import ch.dboeckli.example.otel.tracing.TraceDebugFilter;
+import ch.dboeckli.example.otel.tracing.TraceParentFilter;
+import ch.dboeckli.example.otel.tracing.TracingFilterProperties;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fused {@link TelemetryFilter} against the legacy chain of {@link TraceParentFilter},
+ * {@link TraceDebugFilter} and {@link BaggageTaggingFilter}
+ * ({@code tracing.filter.mode}), all concerns enabled, with and without an active
+ * {@link DebugCapture} session.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+@State(Scope.Thread)
+public class FilterModeBenchmark {
+
+    private static final FilterChain TERMINAL = (request, response) -> {
+    };
+
+    @Param({ "fused", "legacy" })
+    public String mode;
+
+    /**
+     * {@code on} starts a debug capture session for every request, most of them are then
+     * rejected by the rate limit.
+     */
+    @Param({ "off", "on" })
+    public String capture;
+
+    private FilterChain chain;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        TracingFilterProperties properties = new TracingFilterProperties();
+        DebugCapture debugCapture = new DebugCapture(properties);
+        if ("on".equals(capture)) {
+            debugCapture.enable(null, null, null, null, properties.getDebug().getMaxDuration(), null);
+        }
+        if ("fused".equals(mode)) {
+            TelemetryFilter telemetryFilter = new TelemetryFilter(properties, debugCapture);
+            chain = (request, response) -> telemetryFilter.doFilter(request, response, TERMINAL);
+        }
+        else {
+            TraceParentFilter traceParentFilter = new TraceParentFilter();
+            TraceDebugFilter traceDebugFilter = new TraceDebugFilter(debugCapture);
+            BaggageTaggingFilter baggageTaggingFilter = new BaggageTaggingFilter();
+            FilterChain baggageChain = (request, response) -> baggageTaggingFilter.doFilter(request, response,
+                    TERMINAL);
+            FilterChain debugChain = (request, response) -> traceDebugFilter.doFilter(request, response, baggageChain);
+            chain = (request, response) -> traceParentFilter.doFilter(request, response, debugChain);
+        }
+    }
+
+    @Benchmark
+    public void filterChain(TelemetryBenchmarkState state) throws ServletException, IOException {
+        try (TelemetryBenchmarkState.ServerSpan ignored = state.startServerSpan()) {
+            chain.doFilter(state.request, state.response);
+        }
+    }
+
+}
@@ -0,0 +1,154 @@
+package ch.dboeckli.example.otel.benchmark;
+
+import ch.dboeckli.example.otel.log.logback.ConsoleLineEncoder;
+import ch.dboeckli.example.otel.log.logback.EcsJsonEncoder;
+import ch.dboeckli.example.otel.log.logback.LogstashJsonEncoder;
+import ch.dboeckli.example.otel.log.logback.MultiFormatAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import ch.qos.logback.core.encoder.Encoder;
+import co.elastic.logging.logback.EcsEncoder;
+import net.logstash.logback.encoder.LogstashEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing one event as console line, Logstash JSON and ECS JSON: three independent
+ * appenders with the stock encoders ({@code separate}) against
+ * {@link MultiFormatAppender} with the encoders sharing the extracted fields
+ * ({@code shared}). All output goes to a discarding stream, so only formatting and
+ * extraction are measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+@State(Scope.Thread)
+public class LogFanOutBenchmark {
+
+    private static final String APPLICATION_NAME = "spring-with-otel";
+
+    private static final String CONSOLE_PATTERN = "%d{yyyy-MM-dd HH:mm:ss.SSS} [%thread] %-5level " + APPLICATION_NAME
+            + " %logger - [%X{trace_id}-%X{span_id}] %msg%n MDC=%X%n";
+
+    @Param({ "separate", "shared" })
+    public String setup;
+
+    private final LoggerContext loggerContext = new LoggerContext();
+
+    private List<Appender<ILoggingEvent>> appenders;
+
+    private ILoggingEvent event;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        loggerContext.setMDCAdapter(new LogbackMDCAdapter());
+        loggerContext.putProperty("application_name", APPLICATION_NAME);
+        if ("shared".equals(setup)) {
+            MultiFormatAppender multiFormat = new MultiFormatAppender();
+            multiFormat.setContext(loggerContext);
+            multiFormat.addAppender(discarding(consoleLineEncoder()));
+            multiFormat.addAppender(discarding(logstashJsonEncoder()));
+            multiFormat.addAppender(discarding(ecsJsonEncoder()));
+            multiFormat.start();
+            appenders = List.of(multiFormat);
+        }
+        else {
+            appenders = List.of(discarding(patternLayoutEncoder()), discarding(logstashEncoder()),
+                    discarding(ecsEncoder()));
+        }
+
+        Logger logger = loggerContext.getLogger("ch.dboeckli.example.otel.rest.HelloController");
+        LoggingEvent loggingEvent = new LoggingEvent(Logger.class.getName(), logger, ch.qos.logback.classic.Level.INFO,
+                "Say Hello to {}", null, new Object[] { "world" });
+        loggingEvent.setMDCPropertyMap(Map.of("trace_id", "4bf92f3577b34da6a3ce929d0e0e4736", "span_id",
+                "00f067aa0ba902b7", "trace_flags", "01", "baggage.addedBaggageByFilter", "echo"));
+        event = loggingEvent;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        appenders.forEach(Appender::stop);
+    }
+
+    @Benchmark
+    public void append() {
+        for (int i = 0; i < appenders.size(); i++) {
+            appenders.get(i).doAppend(event);
+        }
+    }
+
+    private Appender<ILoggingEvent> discarding(Encoder<ILoggingEvent> encoder) {
+        encoder.setContext(loggerContext);
+        encoder.start();
+        OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>();
+        appender.setContext(loggerContext);
+        appender.setEncoder(encoder);
+        appender.setImmediateFlush(false);
+        appender.setOutputStream(OutputStream.nullOutputStream());
+        appender.start();
+        return appender;
+    }
+
+    private Encoder<ILoggingEvent> patternLayoutEncoder() {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setPattern(CONSOLE_PATTERN);
+        return encoder;
+    }
+
+    private Encoder<ILoggingEvent> logstashEncoder() {
+        LogstashEncoder encoder = new LogstashEncoder();
+        encoder.setCustomFields("{\"app_name\":\"" + APPLICATION_NAME + "\"}");
+        List.of("trace_id", "span_id", "trace_flags").forEach(encoder::addIncludeMdcKeyName);
+        return encoder;
+    }
+
+    private Encoder<ILoggingEvent> ecsEncoder() {
+        EcsEncoder encoder = new EcsEncoder();
+        encoder.setServiceName(APPLICATION_NAME);
+        return encoder;
+    }
+
+    private Encoder<ILoggingEvent> consoleLineEncoder() {
+        ConsoleLineEncoder encoder = new ConsoleLineEncoder();
+        encoder.setApplicationName(APPLICATION_NAME);
+        return encoder;
+    }
+
+    private Encoder<ILoggingEvent> logstashJsonEncoder() {
+        LogstashJsonEncoder encoder = new LogstashJsonEncoder();
+        encoder.setCustomFields("{\"app_name\":\"" + APPLICATION_NAME + "\"}");
+        List.of("trace_id", "span_id", "trace_flags").forEach(encoder::addIncludeMdcKeyName);
+        return encoder;
+    }
+
+    private Encoder<ILoggingEvent> ecsJsonEncoder() {
+        EcsJsonEncoder encoder = new EcsJsonEncoder();
+        encoder.setServiceName(APPLICATION_NAME);
+        return encoder;
+    }
+
+}
@@ -0,0 +1,115 @@
+package ch.dboeckli.example.otel.benchmark;
+
+import ch.dboeckli.example.otel.log.logback.LogstashJsonEncoder;
+import ch.dboeckli.example.otel.log.logback.MappedRollingFileAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.rolling.RollingFileAppender;
+import ch.qos.logback.core.rolling.SizeAndTimeBasedRollingPolicy;
+import ch.qos.logback.core.util.FileSize;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Events per second written to the JSON log file by the stock {@link RollingFileAppender}
+ * ({@code rolling}) against the {@link MappedRollingFileAppender} ({@code mapped}), both
+ * with the {@link LogstashJsonEncoder}, {@code immediateFlush=false} and the
+ * {@link SizeAndTimeBasedRollingPolicy} of {@code logback-spring.xml}, writing into a
+ * temporary directory.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+@State(Scope.Thread)
+public class LogFileAppenderBenchmark {
+
+    @Param({ "rolling", "mapped" })
+    public String appender;
+
+    private final LoggerContext loggerContext = new LoggerContext();
+
+    private Path directory;
+
+    private RollingFileAppender<ILoggingEvent> fileAppender;
+
+    private ILoggingEvent event;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        loggerContext.setMDCAdapter(new LogbackMDCAdapter());
+        loggerContext.putProperty("application_name", "spring-with-otel");
+        directory = Files.createTempDirectory("log-file-appender-benchmark");
+
+        fileAppender = "mapped".equals(appender) ? new MappedRollingFileAppender() : new RollingFileAppender<>();
+        fileAppender.setContext(loggerContext);
+        fileAppender.setName("JSON_FILE");
+        fileAppender.setFile(directory.resolve("spring.log").toString());
+        fileAppender.setImmediateFlush(false);
+
+        SizeAndTimeBasedRollingPolicy<ILoggingEvent> policy = new SizeAndTimeBasedRollingPolicy<>();
+        policy.setContext(loggerContext);
+        policy.setParent(fileAppender);
+        policy.setFileNamePattern(directory.resolve("application.%d{yyyy-MM-dd}.%i.json.gz").toString());
+        policy.setMaxFileSize(FileSize.valueOf("100MB"));
+        policy.setMaxHistory(30);
+        policy.setTotalSizeCap(FileSize.valueOf("5GB"));
+        policy.start();
+        fileAppender.setRollingPolicy(policy);
+
+        LogstashJsonEncoder encoder = new LogstashJsonEncoder();
+        encoder.setContext(loggerContext);
+        encoder.setCustomFields("{\"app_name\":\"spring-with-otel\"}");
+        encoder.addIncludeMdcKeyName("trace_id");
+        encoder.addIncludeMdcKeyName("span_id");
+        encoder.start();
+        fileAppender.setEncoder(encoder);
+        fileAppender.start();
+
+        Logger logger = loggerContext.getLogger("ch.dboeckli.example.otel.rest.HelloController");
+        LoggingEvent loggingEvent = new LoggingEvent(Logger.class.getName(), logger, ch.qos.logback.classic.Level.INFO,
+                "Say Hello to {}", null, new Object[] { "world" });
+        loggingEvent.setMDCPropertyMap(Map.of("trace_id", "4bf92f3577b34da6a3ce929d0e0e4736", "span_id",
+                "00f067aa0ba902b7", "trace_flags", "01"));
+        event = loggingEvent;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fileAppender.stop();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public void append() {
+        fileAppender.doAppend(event);
+    }
+
+}
@@ -0,0 +1,121 @@
+package ch.dboeckli.example.otel.benchmark;
+
+import ch.dboeckli.example.otel.export.AdaptiveExport;
+import ch.dboeckli.example.otel.export.AdaptiveExportProperties;
+import ch.dboeckli.example.otel.export.AdaptiveSpanExporter;
+import ch.dboeckli.example.otel.export.OtlpSpill;
+import ch.dboeckli.example.otel.test.otlp.OtlpReceiver;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.exporter.otlp.http.trace.OtlpHttpSpanExporter;
+import io.opentelemetry.sdk.testing.trace.TestSpanData;
+import io.opentelemetry.sdk.trace.IdGenerator;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.data.StatusData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exporting batches of 512 spans over OTLP/HTTP to the in-process {@link OtlpReceiver},
+ * with the stock exporter ({@code plain}) and behind {@link AdaptiveSpanExporter}
+ * ({@code adaptive}), against a fast, a slow and a throttling collector. While throttled,
+ * {@code plain} waits in the retries of the SDK and {@code adaptive} refuses batches
+ * during its backoff, the score is the batches the caller gets rid of per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+@State(Scope.Benchmark)
+public class OtlpExportBenchmark {
+
+    private static final int BATCH_SIZE = 512;
+
+    @Param({ "plain", "adaptive" })
+    public String exporter;
+
+    @Param({ "0", "20" })
+    public int latencyMillis;
+
+    /**
+     * Requests per second the receiver accepts, {@code 0} for all.
+     */
+    @Param({ "0", "50" })
+    public int throttle;
+
+    private OtlpReceiver receiver;
+
+    private SpanExporter spanExporter;
+
+    private List<SpanData> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        receiver = OtlpReceiver.start().setLatency(Duration.ofMillis(latencyMillis)).throttle(throttle);
+        SpanExporter otlp = OtlpHttpSpanExporter.builder()
+            .setEndpoint(receiver.endpoint(OtlpSpill.Signal.TRACES).toString())
+            .build();
+        spanExporter = "adaptive".equals(exporter) ? new AdaptiveSpanExporter(otlp,
+                new AdaptiveExport(OtlpSpill.Signal.TRACES, new AdaptiveExportProperties())) : otlp;
+        batch = batch();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        spanExporter.shutdown().join(10, TimeUnit.SECONDS);
+        receiver.close();
+    }
+
+    @Benchmark
+    public boolean export() {
+        return spanExporter.export(batch).join(30, TimeUnit.SECONDS).isSuccess();
+    }
+
+    private static List<SpanData> batch() {
+        IdGenerator ids = IdGenerator.random();
+        List<SpanData> spans = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            spans.add(TestSpanData.builder()
+                .setSpanContext(SpanContext.create(ids.generateTraceId(), ids.generateSpanId(), TraceFlags.getSampled(),
+                        TraceState.getDefault()))
+                .setName("GET /hello")
+                .setKind(SpanKind.SERVER)
+                .setStartEpochNanos(1_000_000L * i)
+                .setEndEpochNanos(1_000_000L * i + 250_000)
+                .setHasEnded(true)
+                .setStatus(StatusData.unset())
+                .setAttributes(Attributes.builder()
+                    .put("http.request.method", "GET")
+                    .put("url.path", "/hello")
+                    .put("http.response.status_code", 200)
+                    .build())
+                .setTotalAttributeCount(3)
+                .setTotalRecordedEvents(0)
+                .setTotalRecordedLinks(0)
+                .build());
+        }
+        return spans;
+    }
+
+}
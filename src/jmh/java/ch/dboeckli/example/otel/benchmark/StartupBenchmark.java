@@ -0,0 +1,147 @@
+package ch.dboeckli.example.otel.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time from launching the application until the readiness probe reports
+ * {@code ACCEPTING_TRAFFIC} ({@code timeToReady}) and until the first {@code /hello}
+ * answered ({@code timeToFirstHello}), every operation is a fresh JVM.
+ * <p>
+ * {@code cache=none} starts the extracted jar as is, {@code cache=aot} with the JDK AOT
+ * cache and the Spring AOT context of the training run. Both need the output of
+ * {@code mvn -Paot-cache package} in {@code target/aot-cache} and a JDK 25.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+
+    private static final Path AOT_CACHE_DIRECTORY = Path.of("target", "aot-cache");
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+    @Param({ "none", "aot" })
+    public String cache;
+
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+    private List<String> command;
+
+    private int port;
+
+    private Process process;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path jar = applicationJar();
+        command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        if ("aot".equals(cache)) {
+            Path aotCache = AOT_CACHE_DIRECTORY.resolve("spring-with-otel.aot");
+            if (!Files.isRegularFile(aotCache)) {
+                throw new IllegalStateException("No AOT cache at " + aotCache + ", run mvn -Paot-cache package");
+            }
+            command.add("-XX:AOTCache=" + aotCache.getFileName());
+            command.add("-Dspring.aot.enabled=true");
+        }
+        command.addAll(List.of("-jar", jar.getFileName().toString(), "--spring.profiles.active=local",
+                "--otel.traces.exporter=none", "--otel.metrics.exporter=none", "--otel.logs.exporter=none"));
+    }
+
+    @Setup(Level.Invocation)
+    public void launch() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        List<String> invocation = new ArrayList<>(command);
+        invocation.add("--server.port=" + port);
+        process = new ProcessBuilder(invocation).directory(AOT_CACHE_DIRECTORY.toFile())
+            .redirectErrorStream(true)
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+            .start();
+    }
+
+    @TearDown(Level.Invocation)
+    public void stop() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+
+    @Benchmark
+    public int timeToReady() throws InterruptedException {
+        return awaitOk("/actuator/health/readiness");
+    }
+
+    @Benchmark
+    public int timeToFirstHello() throws InterruptedException {
+        return awaitOk("/hello");
+    }
+
+    private int awaitOk(String path) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+            .timeout(Duration.ofSeconds(5))
+            .build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        int attempts = 0;
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Application exited with " + process.exitValue());
+            }
+            attempts++;
+            try {
+                if (httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return attempts;
+                }
+            }
+            catch (IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(10);
+        }
+        throw new IllegalStateException(path + " not available after " + STARTUP_TIMEOUT);
+    }
+
+    private static Path applicationJar() throws IOException {
+        if (!Files.isDirectory(AOT_CACHE_DIRECTORY)) {
+            throw new IllegalStateException(
+                    "No extracted application in " + AOT_CACHE_DIRECTORY + ", run mvn -Paot-cache package");
+        }
+        try (Stream<Path> files = Files.list(AOT_CACHE_DIRECTORY)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".jar"))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No jar in " + AOT_CACHE_DIRECTORY));
+        }
+    }
+
+}
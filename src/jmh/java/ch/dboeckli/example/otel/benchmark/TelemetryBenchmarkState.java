@@ -0,0 +1,151 @@
+package ch.dboeckli.example.otel.benchmark;
+
+import io.opentelemetry.api.baggage.propagation.W3CBaggagePropagator;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import jakarta.servlet.http.HttpServletRequest;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.info.BuildProperties;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Shared benchmark state: an OpenTelemetry SDK wired either to a discarding exporter or
+ * to a real {@link BatchSpanProcessor}, and a reusable request with or without incoming
+ * W3C headers.
+ * <p>
+ * The servlet instrumentation normally opens the server span before our filters run.
+ * {@link #startServerSpan()} simulates that step so the filters see the same
+ * {@code Span.current()} as in production.
+ */
+@State(Scope.Thread)
+public class TelemetryBenchmarkState {
+
+    static final String INCOMING_TRACEPARENT = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+
+    static final String INCOMING_BAGGAGE = "testBaggage=hallo,tenant=acme";
+
+    private static final TextMapGetter<HttpServletRequest> REQUEST_GETTER = new TextMapGetter<>() {
+
+        @Override
+        public Iterable<String> keys(HttpServletRequest carrier) {
+            return Collections.list(carrier.getHeaderNames());
+        }
+
+        @Override
+        public String get(HttpServletRequest carrier, String key) {
+            return carrier == null ? null : carrier.getHeader(key);
+        }
+
+    };
+
+    /**
+     * {@code noop}: spans end in a {@link SimpleSpanProcessor} with a discarding
+     * exporter. {@code batch}: spans are queued in a real {@link BatchSpanProcessor} (the
+     * exporter still discards, so no network is involved).
+     */
+    @Param({ "noop", "batch" })
+    public String exporter;
+
+    /**
+     * Whether the request carries an incoming {@code traceparent} and {@code baggage}
+     * header.
+     */
+    @Param({ "true", "false" })
+    public boolean incomingHeaders;
+
+    OpenTelemetrySdk openTelemetry;
+
+    BuildProperties buildProperties;
+
+    MockHttpServletRequest request;
+
+    MockHttpServletResponse response;
+
+    private Tracer serverTracer;
+
+    private TextMapPropagator propagator;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        SpanExporter discarding = SpanExporter.composite(List.of());
+        SpanProcessor processor = "batch".equals(exporter) ? BatchSpanProcessor.builder(discarding).build()
+                : SimpleSpanProcessor.create(discarding);
+
+        openTelemetry = OpenTelemetrySdk.builder()
+            .setTracerProvider(SdkTracerProvider.builder().addSpanProcessor(processor).build())
+            .setPropagators(ContextPropagators.create(TextMapPropagator
+                .composite(W3CTraceContextPropagator.getInstance(), W3CBaggagePropagator.getInstance())))
+            .build();
+        serverTracer = openTelemetry.getTracer("benchmark-server");
+        propagator = openTelemetry.getPropagators().getTextMapPropagator();
+
+        Properties properties = new Properties();
+        properties.setProperty("version", "benchmark");
+        buildProperties = new BuildProperties(properties);
+
+        request = new MockHttpServletRequest("GET", "/hello");
+        if (incomingHeaders) {
+            request.addHeader("traceparent", INCOMING_TRACEPARENT);
+            request.addHeader("baggage", INCOMING_BAGGAGE);
+        }
+        response = new MockHttpServletResponse();
+    }
+
+    /**
+     * The filters only set headers, so the response does not grow between invocations and
+     * a reset per iteration is enough. A per-invocation fixture would add its own overhead
+     * to these nanosecond-scale measurements.
+     */
+    @Setup(Level.Iteration)
+    public void resetResponse() {
+        response.reset();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        openTelemetry.close();
+    }
+
+    /**
+     * Extracts the incoming context and opens a server span like the servlet
+     * instrumentation does. The returned handle must be closed after the measured work.
+     */
+    ServerSpan startServerSpan() {
+        Context parent = propagator.extract(Context.root(), request, REQUEST_GETTER);
+        Span span = serverTracer.spanBuilder("GET /hello").setParent(parent).setSpanKind(SpanKind.SERVER).startSpan();
+        return new ServerSpan(span, span.storeInContext(parent).makeCurrent());
+    }
+
+    record ServerSpan(Span span, io.opentelemetry.context.Scope scope) implements AutoCloseable {
+
+        @Override
+        public void close() {
+            scope.close();
+            span.end();
+        }
+
+    }
+
+}
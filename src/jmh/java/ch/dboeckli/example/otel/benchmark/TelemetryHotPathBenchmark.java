@@ -0,0 +1,128 @@
+package ch.dboeckli.example.otel.benchmark;
+
+import ch.dboeckli.example.otel.rest.HelloController;
+import ch.dboeckli.example.otel.service.HelloService;
+import ch.dboeckli.example.otel.tracing.BaggageTaggingFilter;
+import ch.dboeckli.example.otel.tracing.DebugCapture;
+import ch.dboeckli.example.otel.tracing.TraceDebugFilter;
+import ch.dboeckli.example.otel.tracing.TraceParentFilter;
+import ch.dboeckli.example.otel.tracing.TracingFilterProperties;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the per-request telemetry hot path: every tracing filter, the controller and
+ * the service in isolation, and the whole filter chain in front of the controller.
+ * <p>
+ * Each filter benchmark runs inside a simulated server span, so subtract
+ * {@link #serverSpanBaseline} to get the cost of the filter alone. Run with the
+ * {@code gc} profiler (default in the benchmark profile) to get
+ * {@code gc.alloc.rate.norm}, the bytes allocated per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+@State(Scope.Thread)
+public class TelemetryHotPathBenchmark {
+
+    private static final FilterChain TERMINAL = (request, response) -> {
+    };
+
+    private TraceParentFilter traceParentFilter;
+
+    private TraceDebugFilter traceDebugFilter;
+
+    private BaggageTaggingFilter baggageTaggingFilter;
+
+    private HelloService helloService;
+
+    private HelloController helloController;
+
+    private FilterChain fullChain;
+
+    @Setup(Level.Trial)
+    public void setUp(TelemetryBenchmarkState state) {
+        traceParentFilter = new TraceParentFilter();
+        traceDebugFilter = new TraceDebugFilter(new DebugCapture(new TracingFilterProperties()));
+        baggageTaggingFilter = new BaggageTaggingFilter();
+        helloService = new HelloService(state.openTelemetry, "spring-with-otel", state.buildProperties,
+                Duration.ofSeconds(5));
+        helloController = new HelloController(helloService, false);
+
+        FilterChain controllerChain = (request, response) -> helloController.hello();
+        FilterChain baggageChain = (request, response) -> baggageTaggingFilter.doFilter(request, response,
+                controllerChain);
+        FilterChain debugChain = (request, response) -> traceDebugFilter.doFilter(request, response, baggageChain);
+        fullChain = (request, response) -> traceParentFilter.doFilter(request, response, debugChain);
+    }
+
+    @Benchmark
+    public void serverSpanBaseline(TelemetryBenchmarkState state) {
+        try (TelemetryBenchmarkState.ServerSpan ignored = state.startServerSpan()) {
+            // only the simulated server span, no filter
+        }
+    }
+
+    @Benchmark
+    public void traceParentFilter(TelemetryBenchmarkState state) throws ServletException, IOException {
+        try (TelemetryBenchmarkState.ServerSpan ignored = state.startServerSpan()) {
+            traceParentFilter.doFilter(state.request, state.response, TERMINAL);
+        }
+    }
+
+    @Benchmark
+    public void traceDebugFilter(TelemetryBenchmarkState state) throws ServletException, IOException {
+        try (TelemetryBenchmarkState.ServerSpan ignored = state.startServerSpan()) {
+            traceDebugFilter.doFilter(state.request, state.response, TERMINAL);
+        }
+    }
+
+    @Benchmark
+    public void baggageTaggingFilter(TelemetryBenchmarkState state) throws ServletException, IOException {
+        try (TelemetryBenchmarkState.ServerSpan ignored = state.startServerSpan()) {
+            baggageTaggingFilter.doFilter(state.request, state.response, TERMINAL);
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<String> controllerHello(TelemetryBenchmarkState state) {
+        try (TelemetryBenchmarkState.ServerSpan ignored = state.startServerSpan()) {
+            return helloController.hello();
+        }
+    }
+
+    @Benchmark
+    public String serviceProcessHello(TelemetryBenchmarkState state) {
+        try (TelemetryBenchmarkState.ServerSpan ignored = state.startServerSpan()) {
+            return helloService.processHello();
+        }
+    }
+
+    @Benchmark
+    public void fullChain(TelemetryBenchmarkState state, Blackhole blackhole) throws ServletException, IOException {
+        try (TelemetryBenchmarkState.ServerSpan ignored = state.startServerSpan()) {
+            fullChain.doFilter(state.request, state.response);
+            blackhole.consume(state.response.getHeader("traceparent"));
+        }
+    }
+
+}
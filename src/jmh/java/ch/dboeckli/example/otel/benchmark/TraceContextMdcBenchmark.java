@@ -0,0 +1,144 @@
+package ch.dboeckli.example.otel.benchmark;
+
+import ch.dboeckli.example.otel.log.logback.TraceContextMdcAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import io.opentelemetry.api.baggage.Baggage;
+import io.opentelemetry.api.baggage.BaggageBuilder;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.instrumentation.logback.mdc.v1_0.OpenTelemetryAppender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logging one event inside a span with {@code baggageEntries} baggage entries through the
+ * OpenTelemetry MDC appender ({@code otel}) and the {@link TraceContextMdcAppender}
+ * ({@code lazy}). The attached appender stands in for the asynchronous appender and the
+ * encoders: it prepares the event for deferred processing and then reads either the trace
+ * id only ({@code traceId}) or every MDC entry ({@code fullMdc}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+@State(Scope.Thread)
+public class TraceContextMdcBenchmark {
+
+    @Param({ "otel", "lazy" })
+    public String mdc;
+
+    @Param({ "1", "5", "20" })
+    public int baggageEntries;
+
+    @Param({ "traceId", "fullMdc" })
+    public String consumer;
+
+    private final LoggerContext loggerContext = new LoggerContext();
+
+    private Logger logger;
+
+    private Appender<ILoggingEvent> appender;
+
+    private io.opentelemetry.context.Scope scope;
+
+    private Blackhole blackhole;
+
+    @Setup(Level.Trial)
+    public void setUp(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        loggerContext.setMDCAdapter(new LogbackMDCAdapter());
+        loggerContext.getMDCAdapter().put("request_path", "/hello");
+
+        Appender<ILoggingEvent> reader = new ReadingAppender("fullMdc".equals(consumer));
+        reader.setContext(loggerContext);
+        reader.start();
+        if ("lazy".equals(mdc)) {
+            TraceContextMdcAppender lazy = new TraceContextMdcAppender();
+            lazy.setContext(loggerContext);
+            lazy.addAppender(reader);
+            appender = lazy;
+        }
+        else {
+            OpenTelemetryAppender otel = new OpenTelemetryAppender();
+            otel.setContext(loggerContext);
+            otel.setAddBaggage(true);
+            otel.addAppender(reader);
+            appender = otel;
+        }
+        appender.start();
+
+        logger = loggerContext.getLogger("ch.dboeckli.example.otel.rest.HelloController");
+        logger.setLevel(ch.qos.logback.classic.Level.INFO);
+        logger.setAdditive(false);
+        logger.addAppender(appender);
+
+        BaggageBuilder baggage = Baggage.builder();
+        for (int i = 0; i < baggageEntries; i++) {
+            baggage.put("entry" + i, "value" + i);
+        }
+        SpanContext spanContext = SpanContext.create("4bf92f3577b34da6a3ce929d0e0e4736", "00f067aa0ba902b7",
+                TraceFlags.getSampled(), TraceState.getDefault());
+        scope = Context.root().with(Span.wrap(spanContext)).with(baggage.build()).makeCurrent();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scope.close();
+        appender.stop();
+    }
+
+    @Benchmark
+    public void log() {
+        logger.info("Say Hello to {}", "world");
+    }
+
+    private final class ReadingAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+        private final boolean fullMdc;
+
+        private ReadingAppender(boolean fullMdc) {
+            this.fullMdc = fullMdc;
+        }
+
+        @Override
+        protected void append(ILoggingEvent event) {
+            event.prepareForDeferredProcessing();
+            Map<String, String> properties = event.getMDCPropertyMap();
+            if (fullMdc) {
+                for (Map.Entry<String, String> entry : properties.entrySet()) {
+                    blackhole.consume(entry.getKey());
+                    blackhole.consume(entry.getValue());
+                }
+            }
+            else {
+                blackhole.consume(properties.get("trace_id"));
+            }
+        }
+
+    }
+
+}
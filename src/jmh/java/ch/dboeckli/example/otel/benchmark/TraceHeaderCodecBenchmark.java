@@ -0,0 +1,89 @@
+package ch.dboeckli.example.otel.benchmark;
+
+import ch.dboeckli.example.otel.tracing.LimitedBaggagePropagator;
+import ch.dboeckli.example.otel.tracing.TraceHeaderMetrics;
+import ch.dboeckli.example.otel.tracing.W3cTraceContextCodec;
+import io.opentelemetry.api.baggage.propagation.W3CBaggagePropagator;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link W3cTraceContextCodec} against the previous {@code String.format} traceparent
+ * rendering and the stock {@link W3CBaggagePropagator}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+@State(Scope.Thread)
+public class TraceHeaderCodecBenchmark {
+
+    private static final TextMapGetter<Map<String, String>> GETTER = new TextMapGetter<>() {
+
+        @Override
+        public Iterable<String> keys(Map<String, String> carrier) {
+            return carrier.keySet();
+        }
+
+        @Override
+        public String get(Map<String, String> carrier, String key) {
+            return carrier == null ? null : carrier.get(key);
+        }
+
+    };
+
+    private final SpanContext spanContext = SpanContext.create("4bf92f3577b34da6a3ce929d0e0e4736", "00f067aa0ba902b7",
+            TraceFlags.getSampled(), TraceState.getDefault());
+
+    private final String traceparent = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+
+    private final Map<String, String> carrier = Map.of("baggage",
+            "testBaggage=hallo,tenant=acme;ttl=60,encoded=a%20b,region=eu-central-1");
+
+    private final W3CBaggagePropagator w3cBaggagePropagator = W3CBaggagePropagator.getInstance();
+
+    private final LimitedBaggagePropagator limitedBaggagePropagator = new LimitedBaggagePropagator(
+            new TraceHeaderMetrics());
+
+    @Benchmark
+    public String encodeTraceparentFormat() {
+        return String.format("00-%s-%s-01", spanContext.getTraceId(), spanContext.getSpanId());
+    }
+
+    @Benchmark
+    public String encodeTraceparentCodec() {
+        return W3cTraceContextCodec.encodeTraceparent(spanContext);
+    }
+
+    @Benchmark
+    public W3cTraceContextCodec.Check checkTraceparent() {
+        return W3cTraceContextCodec.checkTraceparent(traceparent);
+    }
+
+    @Benchmark
+    public Context extractBaggageW3c() {
+        return w3cBaggagePropagator.extract(Context.root(), carrier, GETTER);
+    }
+
+    @Benchmark
+    public Context extractBaggageLimited() {
+        return limitedBaggagePropagator.extract(Context.root(), carrier, GETTER);
+    }
+
+}
@@ -0,0 +1,141 @@
+package ch.dboeckli.example.otel.benchmark;
+
+import ch.dboeckli.example.otel.SpringApplication;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@code concurrency} simultaneous requests to {@code /hello} answered by Tomcat on its
+ * pool of platform threads ({@code platform}) or on virtual threads ({@code virtual}), in
+ * a JVM sized like the pod ({@code helm-charts/values.yaml}: 500m CPU, 1Gi). The score is
+ * the time for the whole batch, the requests per second are {@code concurrency} divided
+ * by it.
+ * <p>
+ * The auxiliary counters show what the threads cost after each batch: the peak number of
+ * platform threads, the committed thread stacks from Native Memory Tracking and the
+ * resident set size of the process. Virtual thread stacks live on the heap and are
+ * included in the resident set size only.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-XX:ActiveProcessorCount=1", "-Xmx512m", "-XX:NativeMemoryTracking=summary" })
+@State(Scope.Benchmark)
+public class VirtualThreadBenchmark {
+
+    @Param({ "platform", "virtual" })
+    public String threads;
+
+    @Param({ "200", "1000" })
+    public int concurrency;
+
+    private ConfigurableApplicationContext context;
+
+    private HttpClient httpClient;
+
+    private HttpRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // command line arguments, default properties would lose against
+        // application-local.yaml
+        context = new SpringApplicationBuilder(SpringApplication.class).profiles("local")
+            .run("--server.port=0", "--spring.threads.virtual.enabled=" + "virtual".equals(threads),
+                    "--logging.config=classpath:logback-benchmark.xml", "--spring.docker.compose.enabled=false",
+                    "--otel.traces.exporter=none", "--otel.metrics.exporter=none", "--otel.logs.exporter=none");
+        String port = context.getEnvironment().getRequiredProperty("local.server.port");
+        // the client must not add platform threads of its own
+        httpClient = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/hello")).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        httpClient.close();
+        context.close();
+    }
+
+    @Benchmark
+    public int requests(Memory memory) {
+        List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            responses.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()));
+        }
+        int ok = 0;
+        for (CompletableFuture<HttpResponse<Void>> response : responses) {
+            if (response.join().statusCode() == 200) {
+                ok++;
+            }
+        }
+        return ok;
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Memory {
+
+        private static final Pattern THREAD_STACKS = Pattern
+            .compile("Thread \\(reserved=\\d+KB, committed=(\\d+)KB\\)");
+
+        private static final Pattern RSS = Pattern.compile("VmRSS:\\s+(\\d+) kB");
+
+        public long peakPlatformThreads;
+
+        public long threadStacksCommittedKb;
+
+        public long residentSetKb;
+
+        @TearDown(Level.Invocation)
+        public void sample() throws JMException, IOException {
+            peakPlatformThreads = ManagementFactory.getThreadMXBean().getPeakThreadCount();
+            String nativeMemory = (String) ManagementFactory.getPlatformMBeanServer()
+                .invoke(new ObjectName("com.sun.management:type=DiagnosticCommand"), "vmNativeMemory",
+                        new Object[] { new String[] { "summary" } }, new String[] { String[].class.getName() });
+            threadStacksCommittedKb = find(THREAD_STACKS, nativeMemory);
+            Path status = Path.of("/proc/self/status");
+            if (Files.isReadable(status)) {
+                residentSetKb = find(RSS, Files.readString(status));
+            }
+        }
+
+        private static long find(Pattern pattern, String text) {
+            Matcher matcher = pattern.matcher(text);
+            return matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+        }
+
+    }
+
+}
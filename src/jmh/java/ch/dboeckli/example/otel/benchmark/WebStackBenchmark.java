@@ -0,0 +1,84 @@
+package ch.dboeckli.example.otel.benchmark;
+
+import ch.dboeckli.example.otel.SpringApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load on {@code /hello} answered by the servlet stack on Tomcat ({@code servlet}) and by
+ * the {@code reactive} profile on Netty ({@code reactive}), with 32 clients in a JVM with
+ * two processors shared by server and clients. Tracing is fully enabled: every request is
+ * sampled, all concerns of the tracing filters run and the spans go through the span
+ * processor, only the export itself is switched off since there is no collector.
+ * <p>
+ * The throughput mode gives the requests per second, the sample mode the latency
+ * distribution with {@code p0.99}.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(32)
+@Fork(value = 1, jvmArgsAppend = { "-XX:ActiveProcessorCount=2", "-Xmx512m" })
+@State(Scope.Benchmark)
+public class WebStackBenchmark {
+
+    @Param({ "servlet", "reactive" })
+    public String stack;
+
+    private ConfigurableApplicationContext context;
+
+    private HttpClient httpClient;
+
+    private HttpRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] profiles = "reactive".equals(stack) ? new String[] { "local", "reactive" } : new String[] { "local" };
+        // command line arguments, default properties would lose against
+        // application-local.yaml
+        context = new SpringApplicationBuilder(SpringApplication.class).profiles(profiles)
+            .run("--server.port=0", "--logging.config=classpath:logback-benchmark.xml",
+                    "--spring.docker.compose.enabled=false", "--otel.traces.sampler.arg=1.0",
+                    "--tracing.sampling.enabled=false",
+                    "--otel.traces.exporter=none", "--otel.metrics.exporter=none", "--otel.logs.exporter=none");
+        String port = context.getEnvironment().getRequiredProperty("local.server.port");
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/hello"))
+            .header("baggage", "client=benchmark")
+            .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        httpClient.close();
+        context.close();
+    }
+
+    @Benchmark
+    public int hello() throws IOException, InterruptedException {
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+}
@@ -2,14 +2,23 @@ package ch.dboeckli.example.otel;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 
 @SpringBootApplication
 @Slf4j
 public class SpringApplication {
 
+    /**
+     * Startup steps kept for the startup trace, later steps are dropped.
+     */
+    static final int STARTUP_STEP_CAPACITY = 2048;
+
     public static void main(String[] args) {
         log.info("Starting Spring 6 Application...");
-        org.springframework.boot.SpringApplication.run(SpringApplication.class, args);
+        org.springframework.boot.SpringApplication application = new org.springframework.boot.SpringApplication(
+                SpringApplication.class);
+        application.setApplicationStartup(new BufferingApplicationStartup(STARTUP_STEP_CAPACITY));
+        application.run(args);
     }
 
 }
@@ -0,0 +1,241 @@
+package ch.dboeckli.example.otel.concurrent;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs independent subtasks in parallel, one virtual thread each, so the latency of a
+ * fan-out is the one of its slowest subtask instead of the sum.
+ * <p>
+ * Every fan-out is structured like a {@code StructuredTaskScope}: the subtasks run in an
+ * executor owned by the call, and the call returns only after every subtask has
+ * completed or was cancelled and has terminated. {@code StructuredTaskScope} itself is
+ * still a preview API in JDK 25, the policies and exceptions follow its joiners so the
+ * implementation can move over once it is final.
+ * <ul>
+ * <li>{@link #invokeAll}: all subtasks have to succeed, the first failure cancels the
+ * others ({@code allSuccessfulOrThrow})</li>
+ * <li>{@link #invokeAny}: the first successful subtask wins and cancels the others, fails
+ * only when all fail ({@code anySuccessfulResultOrThrow})</li>
+ * </ul>
+ * A {@code fan-out} span is started below the current context, every subtask runs in its
+ * own child span with the current context, including the baggage, and every subtask
+ * cancelled because of a failure, a first success or the deadline is recorded as a
+ * {@code subtask-cancelled} event on the {@code fan-out} span.
+ */
+public final class StructuredFanOut {
+
+    static final AttributeKey<String> POLICY = AttributeKey.stringKey("fan_out.policy");
+
+    static final AttributeKey<Long> SUBTASKS = AttributeKey.longKey("fan_out.subtasks");
+
+    static final AttributeKey<String> SUBTASK = AttributeKey.stringKey("fan_out.subtask");
+
+    static final AttributeKey<String> CANCEL_REASON = AttributeKey.stringKey("fan_out.cancel_reason");
+
+    static final AttributeKey<Boolean> CANCELLED = AttributeKey.booleanKey("fan_out.cancelled");
+
+    private static final ThreadFactory THREAD_FACTORY = Thread.ofVirtual().name("fan-out-", 0).factory();
+
+    private final Tracer tracer;
+
+    private final Duration defaultDeadline;
+
+    public StructuredFanOut(Tracer tracer, Duration defaultDeadline) {
+        this.tracer = tracer;
+        this.defaultDeadline = defaultDeadline;
+    }
+
+    /**
+     * Returns the results of all subtasks in the order of the subtasks.
+     * @param deadline for the whole fan-out, the default deadline when {@code null}
+     * @throws FailedException with the exception of the first failed subtask
+     * @throws TimeoutException when not all subtasks completed within the deadline
+     */
+    public <T> List<T> invokeAll(List<Subtask<T>> subtasks, @Nullable Duration deadline) throws InterruptedException {
+        return fanOut(Policy.SHUTDOWN_ON_FAILURE, subtasks, deadline);
+    }
+
+    /**
+     * Returns the result of the first successful subtask.
+     * @param deadline for the whole fan-out, the default deadline when {@code null}
+     * @throws FailedException when all subtasks failed, with the first failure as cause
+     * @throws TimeoutException when no subtask succeeded within the deadline
+     */
+    public <T> T invokeAny(List<Subtask<T>> subtasks, @Nullable Duration deadline) throws InterruptedException {
+        return fanOut(Policy.FIRST_SUCCESS, subtasks, deadline).getFirst();
+    }
+
+    private <T> List<T> fanOut(Policy policy, List<Subtask<T>> subtasks, @Nullable Duration deadline)
+            throws InterruptedException {
+        if (subtasks.isEmpty()) {
+            throw new IllegalArgumentException("No subtasks to fan out");
+        }
+        long deadlineNanos = System.nanoTime() + (deadline == null ? defaultDeadline : deadline).toNanos();
+        Span fanOutSpan = tracer.spanBuilder("fan-out")
+            .setSpanKind(SpanKind.INTERNAL)
+            .setAttribute(POLICY, policy.name())
+            .setAttribute(SUBTASKS, (long) subtasks.size())
+            .startSpan();
+        Context context = Context.current().with(fanOutSpan);
+
+        // closing the executor waits for every subtask, cancelled ones included
+        try (ExecutorService executor = Executors.newThreadPerTaskExecutor(THREAD_FACTORY)) {
+            CompletionService<T> completion = new ExecutorCompletionService<>(executor);
+            List<Future<T>> futures = new ArrayList<>(subtasks.size());
+            for (Subtask<T> subtask : subtasks) {
+                futures.add(completion.submit(() -> runTraced(context, subtask)));
+            }
+            List<T> results = join(policy, subtasks, futures, completion, deadlineNanos, fanOutSpan);
+            fanOutSpan.setStatus(StatusCode.OK);
+            return results;
+        }
+        catch (RuntimeException | InterruptedException e) {
+            fanOutSpan.recordException(e);
+            fanOutSpan.setStatus(StatusCode.ERROR);
+            throw e;
+        }
+        finally {
+            fanOutSpan.end();
+        }
+    }
+
+    private <T> List<T> join(Policy policy, List<Subtask<T>> subtasks, List<Future<T>> futures,
+            CompletionService<T> completion, long deadlineNanos, Span fanOutSpan) throws InterruptedException {
+        Object[] results = new Object[subtasks.size()];
+        Throwable firstFailure = null;
+        for (int completed = 0; completed < subtasks.size(); completed++) {
+            Future<T> done;
+            try {
+                long remaining = deadlineNanos - System.nanoTime();
+                done = remaining > 0 ? completion.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            }
+            catch (InterruptedException e) {
+                cancelPending(subtasks, futures, fanOutSpan, "interrupted");
+                throw e;
+            }
+            if (done == null) {
+                cancelPending(subtasks, futures, fanOutSpan, "deadline");
+                throw new TimeoutException("Fan-out of " + subtasks.size() + " subtasks exceeded its deadline");
+            }
+            int index = futures.indexOf(done);
+            try {
+                T result = done.get();
+                if (policy == Policy.FIRST_SUCCESS) {
+                    cancelPending(subtasks, futures, fanOutSpan, "first-success");
+                    return Collections.singletonList(result);
+                }
+                results[index] = result;
+            }
+            catch (ExecutionException e) {
+                if (policy == Policy.SHUTDOWN_ON_FAILURE) {
+                    cancelPending(subtasks, futures, fanOutSpan, "failure");
+                    throw new FailedException("Subtask " + subtasks.get(index).name() + " failed", e.getCause());
+                }
+                if (firstFailure == null) {
+                    firstFailure = e.getCause();
+                }
+            }
+        }
+        if (policy == Policy.FIRST_SUCCESS) {
+            throw new FailedException("All " + subtasks.size() + " subtasks failed", firstFailure);
+        }
+        @SuppressWarnings("unchecked")
+        List<T> all = (List<T>) Arrays.asList(results);
+        return all;
+    }
+
+    private <T> T runTraced(Context parent, Subtask<T> subtask) throws Exception {
+        Span span = tracer.spanBuilder(subtask.name()).setParent(parent).setSpanKind(SpanKind.INTERNAL).startSpan();
+        // the thread belongs to this subtask only, so the scope cannot leak into other work
+        try (Scope ignored = parent.with(span).makeCurrent()) {
+            T result = subtask.task().call();
+            span.setStatus(StatusCode.OK);
+            return result;
+        }
+        catch (InterruptedException e) {
+            span.setAttribute(CANCELLED, true);
+            throw e;
+        }
+        catch (Exception e) {
+            if (Thread.currentThread().isInterrupted()) {
+                span.setAttribute(CANCELLED, true);
+            }
+            else {
+                span.recordException(e);
+                span.setStatus(StatusCode.ERROR);
+            }
+            throw e;
+        }
+        finally {
+            span.end();
+        }
+    }
+
+    private static <T> void cancelPending(List<Subtask<T>> subtasks, List<Future<T>> futures, Span fanOutSpan,
+            String reason) {
+        for (int i = 0; i < futures.size(); i++) {
+            if (futures.get(i).cancel(true)) {
+                fanOutSpan.addEvent("subtask-cancelled",
+                        Attributes.of(SUBTASK, subtasks.get(i).name(), CANCEL_REASON, reason));
+            }
+        }
+    }
+
+    /**
+     * One subtask of a fan-out, its name becomes the name of its span.
+     */
+    public record Subtask<T>(String name, Callable<T> task) {
+    }
+
+    enum Policy {
+
+        SHUTDOWN_ON_FAILURE, FIRST_SUCCESS
+
+    }
+
+    /**
+     * The fan-out failed, the cause is the exception of the failed subtask.
+     */
+    public static class FailedException extends RuntimeException {
+
+        FailedException(String message, Throwable cause) {
+            super(message, cause);
+        }
+
+    }
+
+    /**
+     * The fan-out did not complete within its deadline, pending subtasks were cancelled.
+     */
+    public static class TimeoutException extends RuntimeException {
+
+        TimeoutException(String message) {
+            super(message);
+        }
+
+    }
+
+}
@@ -0,0 +1,85 @@
+package ch.dboeckli.example.otel.concurrent;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.EventSettings;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records the JFR event {@code jdk.VirtualThreadPinned} in the timer
+ * {@code jvm.threads.virtual.pinned}. A virtual thread is pinned when it blocks while it
+ * cannot unmount from its carrier, e.g. inside a native frame or a class initializer, or
+ * before JDK 24 inside a {@code synchronized} block. Every pinned virtual thread occupies
+ * one of the few carrier threads, so a rising count explains latency that the request
+ * spans alone do not.
+ * <p>
+ * Only registered with {@code spring.threads.virtual.enabled=true}. Pinning shorter than
+ * {@code threads.virtual.pinned-threshold} is not recorded by JFR. Stack traces of the
+ * pinned threads are recorded and logged only if debug logging is on when the binder is
+ * bound.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+@Slf4j
+public class VirtualThreadPinningMetrics implements MeterBinder {
+
+    static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private final Duration threshold;
+
+    private final List<Timer> timers = new CopyOnWriteArrayList<>();
+
+    private RecordingStream recordingStream;
+
+    public VirtualThreadPinningMetrics(@Value("${threads.virtual.pinned-threshold:20ms}") Duration threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public synchronized void bindTo(MeterRegistry registry) {
+        timers.add(Timer.builder("jvm.threads.virtual.pinned")
+            .description("Virtual threads blocked while pinned to their carrier thread")
+            .register(registry));
+        if (recordingStream != null) {
+            return;
+        }
+        recordingStream = new RecordingStream();
+        // a stack trace costs a stack walk per pinning, only taken for the debug log
+        boolean stackTraces = log.isDebugEnabled();
+        EventSettings settings = recordingStream.enable(PINNED_EVENT).withThreshold(threshold);
+        if (stackTraces) {
+            settings.withStackTrace();
+        }
+        else {
+            settings.withoutStackTrace();
+        }
+        recordingStream.onEvent(PINNED_EVENT, event -> {
+            Duration duration = event.getDuration();
+            timers.forEach(timer -> timer.record(duration));
+            if (stackTraces) {
+                log.debug("Virtual thread pinned for {}: {}", duration, event.getStackTrace());
+            }
+        });
+        recordingStream.startAsync();
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (recordingStream != null) {
+            recordingStream.close();
+            recordingStream = null;
+        }
+    }
+
+}
@@ -0,0 +1,302 @@
+package ch.dboeckli.example.otel.export;
+
+import io.opentelemetry.exporter.internal.FailedExportException;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+
+import java.io.InterruptedIOException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Paces the exports of one signal by the answers of the collector.
+ * <ul>
+ * <li>Batches are split into chunks of at most {@link #getBatchLimit()} items, exported
+ * one after the other. The limit grows by {@code additiveIncrease} with every accepted
+ * chunk and shrinks by {@code decreaseFactor} when the collector is overloaded (429, 503,
+ * 502, 504, 408, 413 or a timeout).</li>
+ * <li>After a failed chunk, exports are refused for a jittered, exponentially growing
+ * backoff between {@code initialBackoff} and {@code maxBackoff}.</li>
+ * <li>After {@code failureThreshold} failures in a row the circuit opens for
+ * {@code openDuration}. Then a single probe goes through, the circuit closes when it
+ * succeeds and opens again when it fails.</li>
+ * </ul>
+ * Refused batches fail right away without touching the network and are counted per
+ * reason. Any other 4xx means the batch is bad, not the collector, and does not count as
+ * a failure.
+ * <p>
+ * The status is read from the {@code FailedExportException} of the OTLP exporters, an
+ * internal API of OpenTelemetry ({@code io.opentelemetry.exporter.internal}) without
+ * compatibility guarantees that may break with any OpenTelemetry upgrade.
+ */
+public class AdaptiveExport {
+
+    static final String BACKOFF = "backoff";
+
+    static final String CIRCUIT_OPEN = "circuit_open";
+
+    /**
+     * State of the circuit breaker.
+     */
+    public enum Circuit {
+
+        CLOSED, HALF_OPEN, OPEN
+
+    }
+
+    enum Outcome {
+
+        SUCCESS, OVERLOADED, FAILED, REJECTED
+
+    }
+
+    private final OtlpSpill.Signal signal;
+
+    private final int minBatchSize;
+
+    private final int maxBatchSize;
+
+    private final int additiveIncrease;
+
+    private final double decreaseFactor;
+
+    private final long initialBackoffNanos;
+
+    private final long maxBackoffNanos;
+
+    private final int failureThreshold;
+
+    private final long openNanos;
+
+    private final LongSupplier nanoClock;
+
+    final LongAdder droppedBackoff = new LongAdder();
+
+    final LongAdder droppedOpen = new LongAdder();
+
+    final LongAdder overloaded = new LongAdder();
+
+    final LongAdder failed = new LongAdder();
+
+    final LongAdder rejected = new LongAdder();
+
+    final LongAdder opened = new LongAdder();
+
+    private int batchLimit;
+
+    private int consecutiveFailures;
+
+    private long backoffNanos;
+
+    private long notBeforeNanos;
+
+    private Circuit circuit = Circuit.CLOSED;
+
+    private long openUntilNanos;
+
+    private boolean probing;
+
+    public AdaptiveExport(OtlpSpill.Signal signal, AdaptiveExportProperties properties) {
+        this(signal, properties, System::nanoTime);
+    }
+
+    AdaptiveExport(OtlpSpill.Signal signal, AdaptiveExportProperties properties, LongSupplier nanoClock) {
+        if (properties.getMinBatchSize() <= 0 || properties.getMaxBatchSize() < properties.getMinBatchSize()) {
+            throw new IllegalArgumentException("Need 0 < minBatchSize <= maxBatchSize, was "
+                    + properties.getMinBatchSize() + " and " + properties.getMaxBatchSize());
+        }
+        if (properties.getDecreaseFactor() <= 0 || properties.getDecreaseFactor() >= 1) {
+            throw new IllegalArgumentException("decreaseFactor must be between 0 and 1, was "
+                    + properties.getDecreaseFactor());
+        }
+        this.signal = signal;
+        this.minBatchSize = properties.getMinBatchSize();
+        this.maxBatchSize = properties.getMaxBatchSize();
+        this.additiveIncrease = Math.max(1, properties.getAdditiveIncrease());
+        this.decreaseFactor = properties.getDecreaseFactor();
+        this.initialBackoffNanos = properties.getInitialBackoff().toNanos();
+        this.maxBackoffNanos = Math.max(initialBackoffNanos, properties.getMaxBackoff().toNanos());
+        this.failureThreshold = Math.max(1, properties.getFailureThreshold());
+        this.openNanos = properties.getOpenDuration().toNanos();
+        this.nanoClock = nanoClock;
+        this.batchLimit = maxBatchSize;
+        this.notBeforeNanos = nanoClock.getAsLong();
+    }
+
+    /**
+     * Exports the items in chunks through {@code delegate}, or fails right away while
+     * backing off or while the circuit is open. Fails as soon as one chunk fails, the
+     * chunks before it stay exported. The failure is then a {@link PartialExportException}
+     * with the failed chunk and the ones after it, which an {@link OtlpSpill} spills
+     * instead of the whole batch.
+     */
+    public <T> CompletableResultCode export(Collection<T> items,
+            Function<Collection<T>, CompletableResultCode> delegate) {
+        if (items.isEmpty()) {
+            return delegate.apply(items);
+        }
+        String refusal = admit();
+        if (refusal != null) {
+            (refusal.equals(BACKOFF) ? droppedBackoff : droppedOpen).add(items.size());
+            return CompletableResultCode.ofFailure();
+        }
+        CompletableResultCode result = new CompletableResultCode();
+        exportFrom(List.copyOf(items), 0, delegate, result);
+        return result;
+    }
+
+    private <T> void exportFrom(List<T> batch, int from, Function<Collection<T>, CompletableResultCode> delegate,
+            CompletableResultCode result) {
+        int to = Math.min(batch.size(), from + getBatchLimit());
+        CompletableResultCode chunk = delegate.apply(batch.subList(from, to));
+        chunk.whenComplete(() -> {
+            Outcome outcome = classify(chunk);
+            record(outcome);
+            if (outcome != Outcome.SUCCESS) {
+                result.failExceptionally(new PartialExportException(batch.subList(from, batch.size())));
+            }
+            else if (to == batch.size()) {
+                result.succeed();
+            }
+            else {
+                exportFrom(batch, to, delegate, result);
+            }
+        });
+    }
+
+    /**
+     * @return {@code null} if an export may go out now, else the reason why not
+     */
+    synchronized String admit() {
+        long now = nanoClock.getAsLong();
+        if (circuit == Circuit.OPEN) {
+            if (now - openUntilNanos < 0) {
+                return CIRCUIT_OPEN;
+            }
+            circuit = Circuit.HALF_OPEN;
+        }
+        if (circuit == Circuit.HALF_OPEN) {
+            if (probing) {
+                return CIRCUIT_OPEN;
+            }
+            probing = true;
+            return null;
+        }
+        return now - notBeforeNanos < 0 ? BACKOFF : null;
+    }
+
+    synchronized void record(Outcome outcome) {
+        switch (outcome) {
+            case SUCCESS -> {
+                batchLimit = Math.min(maxBatchSize, batchLimit + additiveIncrease);
+                recovered();
+            }
+            case REJECTED -> {
+                rejected.increment();
+                recovered();
+            }
+            case OVERLOADED -> {
+                overloaded.increment();
+                batchLimit = Math.max(minBatchSize, (int) (batchLimit * decreaseFactor));
+                backOff();
+            }
+            case FAILED -> {
+                failed.increment();
+                backOff();
+            }
+        }
+    }
+
+    private void recovered() {
+        consecutiveFailures = 0;
+        backoffNanos = 0;
+        circuit = Circuit.CLOSED;
+        probing = false;
+    }
+
+    private void backOff() {
+        long now = nanoClock.getAsLong();
+        consecutiveFailures++;
+        backoffNanos = backoffNanos == 0 ? initialBackoffNanos : Math.min(maxBackoffNanos, backoffNanos * 2);
+        // equal jitter: at least half the backoff, so retries of many instances spread out
+        long half = backoffNanos / 2;
+        notBeforeNanos = now + half + ThreadLocalRandom.current().nextLong(half + 1);
+        if (circuit == Circuit.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (circuit != Circuit.OPEN) {
+                opened.increment();
+            }
+            circuit = Circuit.OPEN;
+            openUntilNanos = now + openNanos;
+            probing = false;
+        }
+    }
+
+    static Outcome classify(CompletableResultCode result) {
+        if (result.isSuccess()) {
+            return Outcome.SUCCESS;
+        }
+        if (result.getFailureThrowable() instanceof FailedExportException.HttpExportException failure) {
+            var response = failure.getResponse();
+            if (response != null) {
+                return classify(response.statusCode());
+            }
+            Throwable cause = failure.getCause();
+            if (cause instanceof InterruptedIOException || cause instanceof HttpTimeoutException) {
+                return Outcome.OVERLOADED;
+            }
+        }
+        return Outcome.FAILED;
+    }
+
+    static Outcome classify(int status) {
+        return switch (status) {
+            case 408, 413, 429, 502, 503, 504 -> Outcome.OVERLOADED;
+            default -> {
+                if (status >= 200 && status < 300) {
+                    yield Outcome.SUCCESS;
+                }
+                yield status >= 400 && status < 500 ? Outcome.REJECTED : Outcome.FAILED;
+            }
+        };
+    }
+
+    public OtlpSpill.Signal getSignal() {
+        return signal;
+    }
+
+    public synchronized int getBatchLimit() {
+        return batchLimit;
+    }
+
+    public synchronized Circuit getCircuit() {
+        if (circuit == Circuit.OPEN && nanoClock.getAsLong() - openUntilNanos >= 0) {
+            return Circuit.HALF_OPEN;
+        }
+        return circuit;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * Time until exports go out again, zero if they do now.
+     */
+    public synchronized Duration getRemainingBackoff() {
+        long now = nanoClock.getAsLong();
+        long until = circuit == Circuit.OPEN ? Math.max(openUntilNanos, notBeforeNanos) : notBeforeNanos;
+        return Duration.ofNanos(Math.max(0, until - now));
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveExport{signal=" + signal.tag() + ", circuit=" + getCircuit() + ", batchLimit="
+                + getBatchLimit() + "}";
+    }
+
+}
@@ -0,0 +1,58 @@
+package ch.dboeckli.example.otel.export;
+
+import io.opentelemetry.exporter.otlp.http.logs.OtlpHttpLogRecordExporter;
+import io.opentelemetry.exporter.otlp.http.metrics.OtlpHttpMetricExporter;
+import io.opentelemetry.exporter.otlp.http.trace.OtlpHttpSpanExporter;
+import io.opentelemetry.sdk.autoconfigure.spi.AutoConfigurationCustomizerProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+/**
+ * Wraps the OTLP/HTTP span, metric and log exporters in their adaptive counterparts,
+ * switched on with {@code telemetry.adaptive-export.enabled=true}. Ordered first, so the
+ * pacing sits right at the exporter, inside the spill: batches refused while backing off
+ * or while the circuit is open go to disk when the spill is on.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(AdaptiveExportProperties.class)
+@ConditionalOnProperty(prefix = "telemetry.adaptive-export", name = "enabled")
+public class AdaptiveExportConfiguration {
+
+    @Bean
+    public AdaptiveExportMetrics adaptiveExportMetrics() {
+        return new AdaptiveExportMetrics();
+    }
+
+    @Bean
+    public AdaptiveExportHealthIndicator otlpExportHealthIndicator(AdaptiveExportMetrics metrics) {
+        return new AdaptiveExportHealthIndicator(metrics);
+    }
+
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public AutoConfigurationCustomizerProvider adaptiveExporterCustomizer(AdaptiveExportProperties properties,
+            AdaptiveExportMetrics metrics) {
+        return customizer -> customizer
+            .addSpanExporterCustomizer((exporter, config) -> exporter instanceof OtlpHttpSpanExporter
+                    ? new AdaptiveSpanExporter(exporter, adaptive(OtlpSpill.Signal.TRACES, properties, metrics))
+                    : exporter)
+            .addMetricExporterCustomizer((exporter, config) -> exporter instanceof OtlpHttpMetricExporter
+                    ? new AdaptiveMetricExporter(exporter, adaptive(OtlpSpill.Signal.METRICS, properties, metrics))
+                    : exporter)
+            .addLogRecordExporterCustomizer((exporter, config) -> exporter instanceof OtlpHttpLogRecordExporter
+                    ? new AdaptiveLogRecordExporter(exporter, adaptive(OtlpSpill.Signal.LOGS, properties, metrics))
+                    : exporter);
+    }
+
+    private static AdaptiveExport adaptive(OtlpSpill.Signal signal, AdaptiveExportProperties properties,
+            AdaptiveExportMetrics metrics) {
+        AdaptiveExport adaptive = new AdaptiveExport(signal, properties);
+        metrics.register(adaptive);
+        return adaptive;
+    }
+
+}
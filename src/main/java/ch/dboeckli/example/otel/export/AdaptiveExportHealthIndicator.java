@@ -0,0 +1,41 @@
+package ch.dboeckli.example.otel.export;
+
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import java.util.Map;
+
+/**
+ * Reports {@link #DEGRADED} while an OTLP export backs off or its circuit is not closed,
+ * with circuit, batch limit and remaining backoff per signal. Telemetry that does not
+ * reach the collector must not take the application out of the load balancer, so
+ * {@code DEGRADED} is ordered after {@code UP} in
+ * {@code management.endpoint.health.status.order} and never decides the overall status.
+ */
+public class AdaptiveExportHealthIndicator extends AbstractHealthIndicator {
+
+    public static final Status DEGRADED = new Status("DEGRADED", "Telemetry export is throttled");
+
+    private final AdaptiveExportMetrics metrics;
+
+    public AdaptiveExportHealthIndicator(AdaptiveExportMetrics metrics) {
+        super("OTLP export health check failed");
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected void doHealthCheck(Health.Builder builder) {
+        boolean degraded = false;
+        for (AdaptiveExport export : metrics.getExports()) {
+            AdaptiveExport.Circuit circuit = export.getCircuit();
+            long backoffMillis = export.getRemainingBackoff().toMillis();
+            degraded |= circuit != AdaptiveExport.Circuit.CLOSED || backoffMillis > 0;
+            builder.withDetail(export.getSignal().tag(),
+                    Map.of("circuit", circuit, "batchLimit", export.getBatchLimit(), "consecutiveFailures",
+                            export.getConsecutiveFailures(), "backoffMillis", backoffMillis));
+        }
+        builder.status(degraded ? DEGRADED : Status.UP);
+    }
+
+}
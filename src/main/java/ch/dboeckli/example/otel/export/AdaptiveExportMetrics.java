@@ -0,0 +1,86 @@
+package ch.dboeckli.example.otel.export;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * State of the {@link AdaptiveExport}s per signal: {@code telemetry.export.batch.limit},
+ * {@code telemetry.export.circuit} ({@code 0} closed, {@code 1} half open, {@code 2}
+ * open), {@code telemetry.export.circuit.opened}, {@code telemetry.export.failures} with
+ * tag {@code reason} ({@code overloaded}, {@code failed}, {@code rejected}) and
+ * {@code telemetry.export.refused} with tag {@code reason} ({@code backoff},
+ * {@code circuit_open}), counting the items dropped without an export.
+ * <p>
+ * The exports are created while the OpenTelemetry SDK is built and may register after the
+ * meters, which report zero until then.
+ */
+public class AdaptiveExportMetrics implements MeterBinder {
+
+    private final Map<OtlpSpill.Signal, AdaptiveExport> exports = new ConcurrentHashMap<>();
+
+    void register(AdaptiveExport export) {
+        exports.put(export.getSignal(), export);
+    }
+
+    public Collection<AdaptiveExport> getExports() {
+        return exports.values();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (OtlpSpill.Signal signal : OtlpSpill.Signal.values()) {
+            Gauge
+                .builder("telemetry.export.batch.limit", this,
+                        metrics -> metrics.read(signal, AdaptiveExport::getBatchLimit))
+                .description("Current upper bound for items per OTLP request")
+                .tag("signal", signal.tag())
+                .register(registry);
+            Gauge
+                .builder("telemetry.export.circuit", this,
+                        metrics -> metrics.read(signal, export -> export.getCircuit().ordinal()))
+                .description("Circuit of the OTLP export, 0 closed, 1 half open, 2 open")
+                .tag("signal", signal.tag())
+                .register(registry);
+            FunctionCounter
+                .builder("telemetry.export.circuit.opened", this,
+                        metrics -> metrics.read(signal, export -> export.opened.sum()))
+                .description("Times the circuit of the OTLP export opened")
+                .tag("signal", signal.tag())
+                .register(registry);
+            failures(registry, signal, "overloaded", export -> export.overloaded.sum());
+            failures(registry, signal, "failed", export -> export.failed.sum());
+            failures(registry, signal, "rejected", export -> export.rejected.sum());
+            refused(registry, signal, AdaptiveExport.BACKOFF, export -> export.droppedBackoff.sum());
+            refused(registry, signal, AdaptiveExport.CIRCUIT_OPEN, export -> export.droppedOpen.sum());
+        }
+    }
+
+    private void failures(MeterRegistry registry, OtlpSpill.Signal signal, String reason,
+            ToDoubleFunction<AdaptiveExport> count) {
+        FunctionCounter.builder("telemetry.export.failures", this, metrics -> metrics.read(signal, count))
+            .description("Failed OTLP requests")
+            .tags("signal", signal.tag(), "reason", reason)
+            .register(registry);
+    }
+
+    private void refused(MeterRegistry registry, OtlpSpill.Signal signal, String reason,
+            ToDoubleFunction<AdaptiveExport> count) {
+        FunctionCounter.builder("telemetry.export.refused", this, metrics -> metrics.read(signal, count))
+            .description("Items dropped without an export while backing off or while the circuit is open")
+            .tags("signal", signal.tag(), "reason", reason)
+            .register(registry);
+    }
+
+    private double read(OtlpSpill.Signal signal, ToDoubleFunction<AdaptiveExport> value) {
+        AdaptiveExport export = exports.get(signal);
+        return export == null ? 0 : value.applyAsDouble(export);
+    }
+
+}
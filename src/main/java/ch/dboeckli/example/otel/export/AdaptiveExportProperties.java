@@ -0,0 +1,54 @@
+package ch.dboeckli.example.otel.export;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the {@link AdaptiveExport} ({@code telemetry.adaptive-export.*}), the
+ * same for every signal.
+ */
+@ConfigurationProperties(prefix = "telemetry.adaptive-export")
+@Getter
+@Setter
+public class AdaptiveExportProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Lower bound of the batch limit while the collector is overloaded.
+     */
+    private int minBatchSize = 32;
+
+    /**
+     * Upper bound and starting value of the batch limit.
+     */
+    private int maxBatchSize = 512;
+
+    /**
+     * Items the batch limit grows by with every accepted chunk.
+     */
+    private int additiveIncrease = 32;
+
+    /**
+     * Factor the batch limit is multiplied with when the collector is overloaded.
+     */
+    private double decreaseFactor = 0.5;
+
+    private Duration initialBackoff = Duration.ofSeconds(1);
+
+    private Duration maxBackoff = Duration.ofSeconds(30);
+
+    /**
+     * Failed exports in a row that open the circuit.
+     */
+    private int failureThreshold = 5;
+
+    /**
+     * Time the circuit stays open before a probe export goes through.
+     */
+    private Duration openDuration = Duration.ofSeconds(30);
+
+}
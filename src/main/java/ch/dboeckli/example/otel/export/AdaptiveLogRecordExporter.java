@@ -0,0 +1,43 @@
+package ch.dboeckli.example.otel.export;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.logs.data.LogRecordData;
+import io.opentelemetry.sdk.logs.export.LogRecordExporter;
+
+import java.util.Collection;
+
+/**
+ * Log record exporter paced by an {@link AdaptiveExport}.
+ */
+public class AdaptiveLogRecordExporter implements LogRecordExporter {
+
+    private final LogRecordExporter delegate;
+
+    private final AdaptiveExport adaptive;
+
+    public AdaptiveLogRecordExporter(LogRecordExporter delegate, AdaptiveExport adaptive) {
+        this.delegate = delegate;
+        this.adaptive = adaptive;
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<LogRecordData> logs) {
+        return adaptive.export(logs, delegate::export);
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return delegate.flush();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        return delegate.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveLogRecordExporter{delegate=" + delegate + ", adaptive=" + adaptive + "}";
+    }
+
+}
@@ -0,0 +1,63 @@
+package ch.dboeckli.example.otel.export;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.common.export.MemoryMode;
+import io.opentelemetry.sdk.metrics.Aggregation;
+import io.opentelemetry.sdk.metrics.InstrumentType;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.export.MetricExporter;
+
+import java.util.Collection;
+
+/**
+ * Metric exporter paced by an {@link AdaptiveExport}. Always asks for immutable data, the
+ * chunks after the first are exported when the previous one completed.
+ */
+public class AdaptiveMetricExporter implements MetricExporter {
+
+    private final MetricExporter delegate;
+
+    private final AdaptiveExport adaptive;
+
+    public AdaptiveMetricExporter(MetricExporter delegate, AdaptiveExport adaptive) {
+        this.delegate = delegate;
+        this.adaptive = adaptive;
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<MetricData> metrics) {
+        return adaptive.export(metrics, delegate::export);
+    }
+
+    @Override
+    public AggregationTemporality getAggregationTemporality(InstrumentType instrumentType) {
+        return delegate.getAggregationTemporality(instrumentType);
+    }
+
+    @Override
+    public Aggregation getDefaultAggregation(InstrumentType instrumentType) {
+        return delegate.getDefaultAggregation(instrumentType);
+    }
+
+    @Override
+    public MemoryMode getMemoryMode() {
+        return MemoryMode.IMMUTABLE_DATA;
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return delegate.flush();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        return delegate.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveMetricExporter{delegate=" + delegate + ", adaptive=" + adaptive + "}";
+    }
+
+}
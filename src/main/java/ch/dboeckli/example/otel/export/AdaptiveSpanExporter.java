@@ -0,0 +1,43 @@
+package ch.dboeckli.example.otel.export;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import java.util.Collection;
+
+/**
+ * Span exporter paced by an {@link AdaptiveExport}.
+ */
+public class AdaptiveSpanExporter implements SpanExporter {
+
+    private final SpanExporter delegate;
+
+    private final AdaptiveExport adaptive;
+
+    public AdaptiveSpanExporter(SpanExporter delegate, AdaptiveExport adaptive) {
+        this.delegate = delegate;
+        this.adaptive = adaptive;
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<SpanData> spans) {
+        return adaptive.export(spans, delegate::export);
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return delegate.flush();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        return delegate.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveSpanExporter{delegate=" + delegate + ", adaptive=" + adaptive + "}";
+    }
+
+}
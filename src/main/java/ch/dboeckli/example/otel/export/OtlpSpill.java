@@ -0,0 +1,374 @@
+package ch.dboeckli.example.otel.export;
+
+import io.opentelemetry.exporter.internal.marshal.Marshaler;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Spills the OTLP batches of one signal to a {@link SpillQueue} while the collector is
+ * not reachable and replays them in order once it is back.
+ * <p>
+ * A failed live export marks the collector as down. From then on, and as long as the
+ * queue holds a backlog, new batches are serialized straight into the queue instead of
+ * going through the exporter, so that the SDK queues drain and the heap stays flat. A
+ * replay thread posts the records as {@code application/x-protobuf} to the OTLP/HTTP
+ * endpoint of the signal, at most {@code replayRatePerSecond} per second, and retries
+ * every {@code retryInterval} while the collector answers with 429, 5xx or not at all,
+ * later if the collector asks for it with {@code Retry-After}.
+ * Records older than {@code maxAge} are discarded unsent, records rejected with another
+ * 4xx as well. Live exports resume once the backlog is replayed.
+ * <p>
+ * Serializes with the OTLP marshalers of {@code opentelemetry-exporter-otlp-common}, the
+ * same code the OTLP exporters use. They are internal API of OpenTelemetry
+ * ({@code io.opentelemetry.exporter.internal}), without compatibility guarantees, and may
+ * break with any OpenTelemetry upgrade.
+ */
+@Slf4j
+public class OtlpSpill implements Closeable {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Upper bound for a {@code Retry-After} of the collector.
+     */
+    static final Duration MAX_RETRY_AFTER = Duration.ofMinutes(5);
+
+    /**
+     * Telemetry signal with the path of its OTLP/HTTP endpoint.
+     */
+    public enum Signal {
+
+        TRACES("/v1/traces"), METRICS("/v1/metrics"), LOGS("/v1/logs");
+
+        private final String path;
+
+        Signal(String path) {
+            this.path = path;
+        }
+
+        public String path() {
+            return path;
+        }
+
+        public String tag() {
+            return name().toLowerCase();
+        }
+
+        /**
+         * The signal whose endpoint path is {@code path}, if any.
+         */
+        public static Optional<Signal> ofPath(String path) {
+            for (Signal signal : values()) {
+                if (signal.path.equals(path)) {
+                    return Optional.of(signal);
+                }
+            }
+            return Optional.empty();
+        }
+
+    }
+
+    private final Signal signal;
+
+    private final SpillQueue queue;
+
+    private final HttpClient httpClient;
+
+    private final URI endpoint;
+
+    private final Map<String, String> headers;
+
+    private final Duration requestTimeout;
+
+    private final long replayIntervalNanos;
+
+    private final long retryIntervalNanos;
+
+    private final long maxAgeMillis;
+
+    private final Thread replayer;
+
+    final LongAdder spilled = new LongAdder();
+
+    final LongAdder replayed = new LongAdder();
+
+    final LongAdder expired = new LongAdder();
+
+    final LongAdder rejected = new LongAdder();
+
+    private volatile boolean running = true;
+
+    private volatile boolean collectorDown;
+
+    public OtlpSpill(Signal signal, SpillQueue queue, URI endpoint, Map<String, String> headers,
+            Duration requestTimeout, double replayRatePerSecond, Duration retryInterval, Duration maxAge) {
+        if (replayRatePerSecond <= 0) {
+            throw new IllegalArgumentException("replayRatePerSecond must be positive, was " + replayRatePerSecond);
+        }
+        this.signal = signal;
+        this.queue = queue;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(requestTimeout).build();
+        this.endpoint = endpoint;
+        this.headers = Map.copyOf(headers);
+        this.requestTimeout = requestTimeout;
+        this.replayIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / replayRatePerSecond);
+        this.retryIntervalNanos = retryInterval.toNanos();
+        this.maxAgeMillis = maxAge.toMillis();
+        this.replayer = Thread.ofPlatform()
+            .daemon()
+            .name("otlp-spill-replay-" + signal.tag())
+            .unstarted(this::replayLoop);
+        replayer.start();
+    }
+
+    /**
+     * Whether new batches go to the queue instead of the exporter.
+     */
+    public boolean isSpilling() {
+        return collectorDown || !queue.isEmpty();
+    }
+
+    /**
+     * Completes with the live export, or with spilling the batch if the live export
+     * failed. Of a batch that an {@link AdaptiveExport} got through in part only the
+     * items not yet exported are spilled, so the accepted chunks are not sent twice.
+     */
+    public <T> CompletableResultCode exportLive(CompletableResultCode liveExport, List<T> batch,
+            Function<List<T>, Marshaler> marshaler) {
+        CompletableResultCode result = new CompletableResultCode();
+        liveExport.whenComplete(() -> {
+            if (liveExport.isSuccess()) {
+                result.succeed();
+                return;
+            }
+            collectorDown = true;
+            if (spill(marshaler.apply(unexported(liveExport, batch))).isSuccess()) {
+                result.succeed();
+            }
+            else {
+                result.fail();
+            }
+        });
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> unexported(CompletableResultCode liveExport, List<T> batch) {
+        // the adaptive export hands back a sub list of the very batch it was given
+        return liveExport.getFailureThrowable() instanceof PartialExportException partial
+                ? (List<T>) partial.getUnexported() : batch;
+    }
+
+    /**
+     * Serializes the batch straight into the queue.
+     */
+    public CompletableResultCode spill(Marshaler batch) {
+        int size = batch.getBinarySerializedSize();
+        try {
+            if (queue.append(size, System.currentTimeMillis(),
+                    target -> batch.writeBinaryTo(new ByteBufferOutputStream(target)))) {
+                spilled.increment();
+                LockSupport.unpark(replayer);
+                return CompletableResultCode.ofSuccess();
+            }
+            log.warn("Dropped {} batch of {} bytes, it does not fit into a spill segment", signal.tag(), size);
+        }
+        catch (IOException | RuntimeException e) {
+            log.warn("Could not spill {} batch", signal.tag(), e);
+        }
+        rejected.increment();
+        return CompletableResultCode.ofFailure();
+    }
+
+    public Signal getSignal() {
+        return signal;
+    }
+
+    public long getBacklogBytes() {
+        return queue.backlogBytes();
+    }
+
+    public long getBacklogRecords() {
+        return queue.backlogRecords();
+    }
+
+    public long getEvictedRecords() {
+        return queue.evictedRecords();
+    }
+
+    public boolean isCollectorDown() {
+        return collectorDown;
+    }
+
+    /**
+     * Closes the spill for the shutdown of an exporter. A failure is logged and reported
+     * in the result, so that the SDK still shuts down the other exporters.
+     */
+    public CompletableResultCode shutdown() {
+        try {
+            close();
+            return CompletableResultCode.ofSuccess();
+        }
+        catch (IOException | RuntimeException e) {
+            log.warn("Could not close the {} spill", signal.tag(), e);
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        LockSupport.unpark(replayer);
+        try {
+            replayer.join(requestTimeout.toMillis() + 1000);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        httpClient.close();
+        queue.close();
+    }
+
+    private void replayLoop() {
+        while (running) {
+            try {
+                SpillQueue.Record record = queue.peek();
+                if (record == null) {
+                    collectorDown = false;
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                else if (System.currentTimeMillis() - record.createdMillis() > maxAgeMillis) {
+                    queue.commit(record);
+                    expired.increment();
+                }
+                else {
+                    replay(record);
+                }
+            }
+            catch (IOException | RuntimeException e) {
+                log.warn("Replay of spilled {} failed", signal.tag(), e);
+                LockSupport.parkNanos(this, retryIntervalNanos);
+            }
+        }
+    }
+
+    private void replay(SpillQueue.Record record) throws IOException {
+        Answer answer = post(record.payload());
+        int status = answer.status();
+        if (status >= 200 && status < 300) {
+            queue.commit(record);
+            replayed.increment();
+            LockSupport.parkNanos(this, replayIntervalNanos);
+        }
+        else if (status >= 400 && status < 500 && status != 408 && status != 429) {
+            log.warn("Collector rejected spilled {} batch with status {}, dropping it", signal.tag(), status);
+            queue.commit(record);
+            rejected.increment();
+        }
+        else {
+            collectorDown = true;
+            LockSupport.parkNanos(this, Math.max(retryIntervalNanos, answer.retryAfter().toNanos()));
+        }
+    }
+
+    /**
+     * Status {@code -1} if the collector did not answer.
+     */
+    private Answer post(byte[] payload) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(endpoint)
+            .timeout(requestTimeout)
+            .header("Content-Type", "application/x-protobuf")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(payload));
+        headers.forEach(request::header);
+        try {
+            HttpResponse<Void> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.discarding());
+            return new Answer(response.statusCode(),
+                    retryAfter(response.headers().firstValue("Retry-After").orElse(null), Instant.now()));
+        }
+        catch (IOException e) {
+            return new Answer(-1, Duration.ZERO);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Answer(-1, Duration.ZERO);
+        }
+    }
+
+    /**
+     * The wait a {@code Retry-After} header asks for, in seconds or as HTTP date, capped at
+     * {@link #MAX_RETRY_AFTER}. Zero if there is none or it cannot be parsed.
+     */
+    static Duration retryAfter(@Nullable String header, Instant now) {
+        if (header == null || header.isBlank()) {
+            return Duration.ZERO;
+        }
+        Duration wait;
+        try {
+            wait = Duration.ofSeconds(Long.parseLong(header.strip()));
+        }
+        catch (NumberFormatException e) {
+            try {
+                wait = Duration.between(now,
+                        ZonedDateTime.parse(header.strip(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant());
+            }
+            catch (DateTimeParseException notADate) {
+                return Duration.ZERO;
+            }
+        }
+        if (wait.isNegative()) {
+            return Duration.ZERO;
+        }
+        return wait.compareTo(MAX_RETRY_AFTER) > 0 ? MAX_RETRY_AFTER : wait;
+    }
+
+    @Override
+    public String toString() {
+        return "OtlpSpill{signal=" + signal.tag() + ", endpoint=" + endpoint + "}";
+    }
+
+    private record Answer(int status, Duration retryAfter) {
+    }
+
+    private static final class ByteBufferOutputStream extends OutputStream {
+
+        private final ByteBuffer target;
+
+        private ByteBufferOutputStream(ByteBuffer target) {
+            this.target = target;
+        }
+
+        @Override
+        public void write(int b) {
+            target.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            target.put(bytes, offset, length);
+        }
+
+    }
+
+}
@@ -0,0 +1,26 @@
+package ch.dboeckli.example.otel.export;
+
+import java.util.List;
+
+/**
+ * Failure of an {@link AdaptiveExport} that carries the items the collector has not
+ * accepted, so that an {@link OtlpSpill} spills only those and not the chunks that went
+ * through already.
+ */
+final class PartialExportException extends Exception {
+
+    private final transient List<?> unexported;
+
+    PartialExportException(List<?> unexported) {
+        super(unexported.size() + " items not exported", null, false, false);
+        this.unexported = unexported;
+    }
+
+    /**
+     * The items of the failed chunk and of all chunks after it.
+     */
+    List<?> getUnexported() {
+        return unexported;
+    }
+
+}
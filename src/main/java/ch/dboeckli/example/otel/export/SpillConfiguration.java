@@ -0,0 +1,108 @@
+package ch.dboeckli.example.otel.export;
+
+import io.opentelemetry.exporter.otlp.http.logs.OtlpHttpLogRecordExporter;
+import io.opentelemetry.exporter.otlp.http.metrics.OtlpHttpMetricExporter;
+import io.opentelemetry.exporter.otlp.http.trace.OtlpHttpSpanExporter;
+import io.opentelemetry.sdk.autoconfigure.spi.AutoConfigurationCustomizerProvider;
+import io.opentelemetry.sdk.autoconfigure.spi.ConfigProperties;
+import io.opentelemetry.sdk.logs.export.LogRecordExporter;
+import io.opentelemetry.sdk.metrics.export.MetricExporter;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Wraps the OTLP/HTTP span, metric and log exporters in their spilling counterparts,
+ * switched on with {@code telemetry.spill.enabled=true}, also when they are already
+ * wrapped by an {@link AdaptiveExportConfiguration adaptive export}. Runs right after the
+ * adaptive export customizer, so the spilling exporter wraps the adaptive one and spills
+ * what it refuses, while the customizers ordered later, like the striped batch export,
+ * get the spilling exporters. The replay goes to the endpoint and with the headers of
+ * {@code otel.exporter.otlp.*}.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(SpillProperties.class)
+@ConditionalOnProperty(prefix = "telemetry.spill", name = "enabled")
+public class SpillConfiguration {
+
+    @Bean
+    public SpillMetrics spillMetrics() {
+        return new SpillMetrics();
+    }
+
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE + 10)
+    public AutoConfigurationCustomizerProvider spillingExporterCustomizer(SpillProperties properties,
+            SpillMetrics metrics) {
+        return customizer -> customizer
+            .addSpanExporterCustomizer((exporter, config) -> isOtlpHttp(exporter)
+                    ? new SpillingSpanExporter(exporter, spill(OtlpSpill.Signal.TRACES, properties, metrics, config))
+                    : exporter)
+            .addMetricExporterCustomizer((exporter, config) -> isOtlpHttp(exporter)
+                    ? new SpillingMetricExporter(exporter, spill(OtlpSpill.Signal.METRICS, properties, metrics, config))
+                    : exporter)
+            .addLogRecordExporterCustomizer((exporter, config) -> isOtlpHttp(exporter)
+                    ? new SpillingLogRecordExporter(exporter, spill(OtlpSpill.Signal.LOGS, properties, metrics, config))
+                    : exporter);
+    }
+
+    private static boolean isOtlpHttp(SpanExporter exporter) {
+        return exporter instanceof OtlpHttpSpanExporter || exporter instanceof AdaptiveSpanExporter;
+    }
+
+    private static boolean isOtlpHttp(MetricExporter exporter) {
+        return exporter instanceof OtlpHttpMetricExporter || exporter instanceof AdaptiveMetricExporter;
+    }
+
+    private static boolean isOtlpHttp(LogRecordExporter exporter) {
+        return exporter instanceof OtlpHttpLogRecordExporter || exporter instanceof AdaptiveLogRecordExporter;
+    }
+
+    private static OtlpSpill spill(OtlpSpill.Signal signal, SpillProperties properties, SpillMetrics metrics,
+            ConfigProperties config) {
+        try {
+            SpillQueue queue = new SpillQueue(properties.getDirectory().resolve(signal.tag()),
+                    Math.toIntExact(properties.getSegmentSize().toBytes()), properties.getMaxSize().toBytes());
+            OtlpSpill spill = new OtlpSpill(signal, queue, endpoint(signal, config), headers(signal, config),
+                    config.getDuration("otel.exporter.otlp.timeout", Duration.ofSeconds(10)),
+                    properties.getReplayRatePerSecond(), properties.getRetryInterval(), properties.getMaxAge());
+            metrics.register(spill);
+            return spill;
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Could not open the spill queue for " + signal.tag(), e);
+        }
+    }
+
+    /**
+     * The signal specific endpoint as it is, else the signal path appended to the common
+     * endpoint, as the OTLP/HTTP exporters do.
+     */
+    static URI endpoint(OtlpSpill.Signal signal, ConfigProperties config) {
+        String endpoint = config.getString("otel.exporter.otlp." + signal.tag() + ".endpoint");
+        if (endpoint != null) {
+            return URI.create(endpoint);
+        }
+        String base = config.getString("otel.exporter.otlp.endpoint", "http://localhost:4318");
+        return URI.create(base.endsWith("/") ? base.substring(0, base.length() - 1) + signal.path()
+                : base + signal.path());
+    }
+
+    private static Map<String, String> headers(OtlpSpill.Signal signal, ConfigProperties config) {
+        Map<String, String> headers = new HashMap<>(config.getMap("otel.exporter.otlp.headers"));
+        headers.putAll(config.getMap("otel.exporter.otlp." + signal.tag() + ".headers"));
+        return headers;
+    }
+
+}
@@ -0,0 +1,65 @@
+package ch.dboeckli.example.otel.export;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Backlog and replay of the {@link OtlpSpill}s per signal: {@code telemetry.spill.backlog}
+ * (bytes on disk not yet replayed), {@code telemetry.spill.backlog.batches} and
+ * {@code telemetry.spill.batches} with tag {@code outcome} ({@code spilled},
+ * {@code replayed}, {@code expired}, {@code rejected}, {@code evicted}). The replay rate is
+ * the rate of the {@code replayed} counter.
+ * <p>
+ * The spills are created while the OpenTelemetry SDK is built and may register after the
+ * meters, which report zero until then.
+ */
+public class SpillMetrics implements MeterBinder {
+
+    private final Map<OtlpSpill.Signal, OtlpSpill> spills = new ConcurrentHashMap<>();
+
+    void register(OtlpSpill spill) {
+        spills.put(spill.getSignal(), spill);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (OtlpSpill.Signal signal : OtlpSpill.Signal.values()) {
+            Gauge.builder("telemetry.spill.backlog", this, metrics -> metrics.read(signal, OtlpSpill::getBacklogBytes))
+                .description("Spilled bytes waiting for replay")
+                .baseUnit("bytes")
+                .tag("signal", signal.tag())
+                .register(registry);
+            Gauge
+                .builder("telemetry.spill.backlog.batches", this,
+                        metrics -> metrics.read(signal, OtlpSpill::getBacklogRecords))
+                .description("Spilled batches waiting for replay")
+                .tag("signal", signal.tag())
+                .register(registry);
+            register(registry, signal, "spilled", spill -> spill.spilled.sum());
+            register(registry, signal, "replayed", spill -> spill.replayed.sum());
+            register(registry, signal, "expired", spill -> spill.expired.sum());
+            register(registry, signal, "rejected", spill -> spill.rejected.sum());
+            register(registry, signal, "evicted", OtlpSpill::getEvictedRecords);
+        }
+    }
+
+    private void register(MeterRegistry registry, OtlpSpill.Signal signal, String outcome,
+            ToDoubleFunction<OtlpSpill> count) {
+        FunctionCounter.builder("telemetry.spill.batches", this, metrics -> metrics.read(signal, count))
+            .description("OTLP batches spilled to disk and what became of them")
+            .tags("signal", signal.tag(), "outcome", outcome)
+            .register(registry);
+    }
+
+    private double read(OtlpSpill.Signal signal, ToDoubleFunction<OtlpSpill> value) {
+        OtlpSpill spill = spills.get(signal);
+        return spill == null ? 0 : value.applyAsDouble(spill);
+    }
+
+}
@@ -0,0 +1,51 @@
+package ch.dboeckli.example.otel.export;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Configuration of the {@link OtlpSpill}s ({@code telemetry.spill.*}). Every signal gets
+ * its own queue in a subdirectory of {@link #directory}, the size limit applies per
+ * signal.
+ */
+@ConfigurationProperties(prefix = "telemetry.spill")
+@Getter
+@Setter
+public class SpillProperties {
+
+    private boolean enabled = false;
+
+    private Path directory = Path.of(System.getProperty("java.io.tmpdir"), "otlp-spill");
+
+    /**
+     * Size of one memory-mapped segment file, the upper bound for one batch.
+     */
+    private DataSize segmentSize = DataSize.ofMegabytes(8);
+
+    /**
+     * Disk space per signal, the oldest segment is deleted beyond it.
+     */
+    private DataSize maxSize = DataSize.ofMegabytes(256);
+
+    /**
+     * Spilled batches older than this are discarded instead of replayed.
+     */
+    private Duration maxAge = Duration.ofHours(1);
+
+    /**
+     * Upper bound for replayed batches per second and signal, so the collector is not
+     * flooded when it comes back.
+     */
+    private double replayRatePerSecond = 20;
+
+    /**
+     * Wait before the next replay attempt while the collector is down.
+     */
+    private Duration retryInterval = Duration.ofSeconds(5);
+
+}
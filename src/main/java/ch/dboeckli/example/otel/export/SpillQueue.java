@@ -0,0 +1,377 @@
+package ch.dboeckli.example.otel.export;
+
+import org.springframework.lang.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Persistent FIFO queue of byte records in memory-mapped segment files of
+ * {@code segmentSize} bytes, so the records do not occupy the heap.
+ * <p>
+ * A record is {@code [int length][int crc][long createdMillis][payload]}. The length is
+ * written last and a record is only read when its CRC matches, so a record torn by a
+ * crash ends the segment when the queue is opened again. The read position is kept in the
+ * {@code index} file, written with its own CRC after every {@link #commit}. If the index is
+ * lost, the queue starts over with the oldest segment, records are delivered at least
+ * once.
+ * <p>
+ * At most {@code maxBytes / segmentSize} segments exist: when a new segment would exceed
+ * it, the oldest segment is deleted with its unread records. Every segment is mapped in
+ * its own {@link Arena} and unmapped before it is deleted, so its disk blocks are freed
+ * right away and not when the garbage collector gets to the mapping. All methods are
+ * synchronized, the payload is copied out by {@link #peek()} so that it can be sent
+ * without the lock.
+ */
+public final class SpillQueue implements Closeable {
+
+    static final int HEADER_BYTES = 16;
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private static final int INDEX_BYTES = 16;
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final int maxSegments;
+
+    private final FileChannel index;
+
+    private final ByteBuffer indexBuffer = ByteBuffer.allocate(INDEX_BYTES);
+
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+
+    private long nextSegmentId = 1;
+
+    private int readOffset;
+
+    private long backlogBytes;
+
+    private long backlogRecords;
+
+    private long evictedRecords;
+
+    /**
+     * Payload of a record. Only the {@code length} bytes of the target may be written.
+     */
+    @FunctionalInterface
+    public interface PayloadWriter {
+
+        void write(ByteBuffer target) throws IOException;
+
+    }
+
+    public record Record(long segmentId, int offset, long createdMillis, byte[] payload) {
+    }
+
+    public SpillQueue(Path directory, int segmentSize, long maxBytes) throws IOException {
+        if (segmentSize <= HEADER_BYTES || maxBytes < 2L * segmentSize) {
+            throw new IllegalArgumentException("maxBytes must hold at least two segments of " + segmentSize
+                    + " bytes, was " + maxBytes);
+        }
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        this.maxSegments = (int) Math.min(Integer.MAX_VALUE, maxBytes / segmentSize);
+        this.index = FileChannel.open(directory.resolve("index"), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        recover();
+    }
+
+    /**
+     * Appends a record of {@code length} bytes, deleting the oldest segment if the queue
+     * is full.
+     * @return {@code false} if the record is larger than a segment
+     */
+    public synchronized boolean append(int length, long createdMillis, PayloadWriter writer) throws IOException {
+        int recordBytes = HEADER_BYTES + length;
+        if (length <= 0 || recordBytes > segmentSize) {
+            return false;
+        }
+        Segment segment = segments.peekLast();
+        if (segment == null || segmentSize - segment.end < recordBytes) {
+            segment = roll();
+        }
+        int offset = segment.end;
+        ByteBuffer payload = segment.buffer.slice(offset + HEADER_BYTES, length);
+        writer.write(payload);
+        CRC32C crc = new CRC32C();
+        crc.update(segment.buffer.slice(offset + HEADER_BYTES, length));
+        segment.buffer.putInt(offset + 4, (int) crc.getValue());
+        segment.buffer.putLong(offset + 8, createdMillis);
+        segment.buffer.putInt(offset, length);
+        segment.end += recordBytes;
+        backlogBytes += recordBytes;
+        backlogRecords++;
+        return true;
+    }
+
+    /**
+     * The oldest unread record, {@code null} if there is none.
+     */
+    @Nullable
+    public synchronized Record peek() throws IOException {
+        while (true) {
+            Segment segment = segments.peekFirst();
+            if (segment == null) {
+                return null;
+            }
+            if (readOffset < segment.end) {
+                int length = segment.buffer.getInt(readOffset);
+                byte[] payload = new byte[length];
+                segment.buffer.get(readOffset + HEADER_BYTES, payload);
+                return new Record(segment.id, readOffset, segment.buffer.getLong(readOffset + 8), payload);
+            }
+            if (segments.size() == 1) {
+                return null;
+            }
+            deleteFirst();
+        }
+    }
+
+    /**
+     * Marks the record returned by {@link #peek()} as delivered. Does nothing if the record
+     * was evicted in the meantime.
+     */
+    public synchronized void commit(Record record) throws IOException {
+        Segment segment = segments.peekFirst();
+        if (segment == null || segment.id != record.segmentId() || readOffset != record.offset()) {
+            return;
+        }
+        int recordBytes = HEADER_BYTES + record.payload().length;
+        readOffset += recordBytes;
+        backlogBytes -= recordBytes;
+        backlogRecords--;
+        if (readOffset >= segment.end && segments.size() > 1) {
+            deleteFirst();
+        }
+        else {
+            writeIndex();
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return backlogRecords == 0;
+    }
+
+    /**
+     * Bytes of the unread records including their headers.
+     */
+    public synchronized long backlogBytes() {
+        return backlogBytes;
+    }
+
+    public synchronized long backlogRecords() {
+        return backlogRecords;
+    }
+
+    /**
+     * Unread records deleted with their segment because the queue was full.
+     */
+    public synchronized long evictedRecords() {
+        return evictedRecords;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        Segment last = segments.peekLast();
+        if (last != null) {
+            last.memory.force();
+        }
+        for (Segment segment : segments) {
+            segment.unmap();
+        }
+        segments.clear();
+        index.close();
+    }
+
+    private Segment roll() throws IOException {
+        Segment last = segments.peekLast();
+        if (last != null) {
+            last.memory.force();
+        }
+        if (segments.size() >= maxSegments) {
+            Segment oldest = segments.peekFirst();
+            long evicted = countRecords(oldest, readOffset);
+            evictedRecords += evicted;
+            backlogRecords -= evicted;
+            backlogBytes -= oldest.end - readOffset;
+            deleteFirst();
+        }
+        Segment segment = map(nextSegmentId++, true);
+        segments.addLast(segment);
+        if (segments.size() == 1) {
+            readOffset = 0;
+            writeIndex();
+        }
+        return segment;
+    }
+
+    /**
+     * Deletes the oldest segment, reading continues with the next one.
+     */
+    private void deleteFirst() throws IOException {
+        Segment segment = segments.removeFirst();
+        segment.unmap();
+        Files.deleteIfExists(segment.path);
+        readOffset = 0;
+        writeIndex();
+    }
+
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = new ArrayList<>(listing.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                .toList());
+        }
+        files.sort((left, right) -> Long.compare(segmentId(left), segmentId(right)));
+        for (Path file : files) {
+            Segment segment = map(segmentId(file), false);
+            segment.end = scanEnd(segment);
+            segments.addLast(segment);
+            nextSegmentId = segment.id + 1;
+        }
+        long readSegmentId = 0;
+        int offset = 0;
+        indexBuffer.clear();
+        if (index.read(indexBuffer, 0) == INDEX_BYTES) {
+            indexBuffer.flip();
+            CRC32C crc = new CRC32C();
+            crc.update(indexBuffer.slice(0, 12));
+            if ((int) crc.getValue() == indexBuffer.getInt(12)) {
+                readSegmentId = indexBuffer.getLong(0);
+                offset = indexBuffer.getInt(8);
+            }
+        }
+        Iterator<Segment> iterator = segments.iterator();
+        while (iterator.hasNext()) {
+            Segment segment = iterator.next();
+            if (segment.id < readSegmentId) {
+                segment.unmap();
+                Files.deleteIfExists(segment.path);
+                iterator.remove();
+            }
+        }
+        Segment first = segments.peekFirst();
+        readOffset = first != null && first.id == readSegmentId ? Math.min(offset, first.end) : 0;
+        for (Segment segment : segments) {
+            int start = segment == first ? readOffset : 0;
+            backlogBytes += segment.end - start;
+            backlogRecords += countRecords(segment, start);
+        }
+        writeIndex();
+    }
+
+    /**
+     * End of the last intact record.
+     */
+    private int scanEnd(Segment segment) {
+        int offset = 0;
+        while (offset + HEADER_BYTES <= segmentSize) {
+            int length = segment.buffer.getInt(offset);
+            if (length <= 0 || length > segmentSize - offset - HEADER_BYTES) {
+                break;
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(segment.buffer.slice(offset + HEADER_BYTES, length));
+            if ((int) crc.getValue() != segment.buffer.getInt(offset + 4)) {
+                break;
+            }
+            offset += HEADER_BYTES + length;
+        }
+        return offset;
+    }
+
+    private static long countRecords(Segment segment, int from) {
+        long count = 0;
+        for (int offset = from; offset < segment.end; offset += HEADER_BYTES + segment.buffer.getInt(offset)) {
+            count++;
+        }
+        return count;
+    }
+
+    private void writeIndex() throws IOException {
+        Segment first = segments.peekFirst();
+        indexBuffer.clear();
+        indexBuffer.putLong(0, first == null ? nextSegmentId : first.id);
+        indexBuffer.putInt(8, readOffset);
+        CRC32C crc = new CRC32C();
+        crc.update(indexBuffer.slice(0, 12));
+        indexBuffer.putInt(12, (int) crc.getValue());
+        indexBuffer.limit(INDEX_BYTES);
+        index.write(indexBuffer, 0);
+        index.force(false);
+    }
+
+    private Segment map(long id, boolean create) throws IOException {
+        Path path = directory.resolve("%019d%s".formatted(id, SEGMENT_SUFFIX));
+        try (FileChannel channel = create
+                ? FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the mapping stays valid after the channel is closed, until the arena is closed
+            Arena arena = Arena.ofShared();
+            try {
+                return new Segment(id, path, arena, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize, arena));
+            }
+            catch (IOException | RuntimeException e) {
+                arena.close();
+                throw e;
+            }
+        }
+    }
+
+    private static long segmentId(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static final class Segment {
+
+        private final long id;
+
+        private final Path path;
+
+        private final Arena arena;
+
+        private final MemorySegment memory;
+
+        /**
+         * View of {@link #memory}, valid until {@link #unmap()}.
+         */
+        private final ByteBuffer buffer;
+
+        /**
+         * End of the written records, where the next record goes.
+         */
+        private int end;
+
+        private Segment(long id, Path path, Arena arena, MemorySegment memory) {
+            this.id = id;
+            this.path = path;
+            this.arena = arena;
+            this.memory = memory;
+            this.buffer = memory.asByteBuffer();
+        }
+
+        private void unmap() {
+            arena.close();
+        }
+
+    }
+
+}
@@ -0,0 +1,51 @@
+package ch.dboeckli.example.otel.export;
+
+import io.opentelemetry.exporter.internal.otlp.logs.LogsRequestMarshaler;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.logs.data.LogRecordData;
+import io.opentelemetry.sdk.logs.export.LogRecordExporter;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Log record exporter that spills to an {@link OtlpSpill} while the collector is down.
+ * Serializes with the internal {@code LogsRequestMarshaler} of OpenTelemetry, see
+ * {@link OtlpSpill}.
+ */
+public class SpillingLogRecordExporter implements LogRecordExporter {
+
+    private final LogRecordExporter delegate;
+
+    private final OtlpSpill spill;
+
+    public SpillingLogRecordExporter(LogRecordExporter delegate, OtlpSpill spill) {
+        this.delegate = delegate;
+        this.spill = spill;
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<LogRecordData> logs) {
+        if (spill.isSpilling()) {
+            return spill.spill(LogsRequestMarshaler.create(logs));
+        }
+        List<LogRecordData> batch = List.copyOf(logs);
+        return spill.exportLive(delegate.export(batch), batch, LogsRequestMarshaler::create);
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return delegate.flush();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        return CompletableResultCode.ofAll(List.of(spill.shutdown(), delegate.shutdown()));
+    }
+
+    @Override
+    public String toString() {
+        return "SpillingLogRecordExporter{delegate=" + delegate + ", spill=" + spill + "}";
+    }
+
+}
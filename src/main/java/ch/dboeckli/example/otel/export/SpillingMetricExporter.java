@@ -0,0 +1,71 @@
+package ch.dboeckli.example.otel.export;
+
+import io.opentelemetry.exporter.internal.otlp.metrics.MetricsRequestMarshaler;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.common.export.MemoryMode;
+import io.opentelemetry.sdk.metrics.Aggregation;
+import io.opentelemetry.sdk.metrics.InstrumentType;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.export.MetricExporter;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Metric exporter that spills to an {@link OtlpSpill} while the collector is down.
+ * Always asks for immutable data, a failed batch is serialized after the export returned.
+ * Serializes with the internal {@code MetricsRequestMarshaler} of OpenTelemetry, see
+ * {@link OtlpSpill}.
+ */
+public class SpillingMetricExporter implements MetricExporter {
+
+    private final MetricExporter delegate;
+
+    private final OtlpSpill spill;
+
+    public SpillingMetricExporter(MetricExporter delegate, OtlpSpill spill) {
+        this.delegate = delegate;
+        this.spill = spill;
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<MetricData> metrics) {
+        if (spill.isSpilling()) {
+            return spill.spill(MetricsRequestMarshaler.create(metrics));
+        }
+        List<MetricData> batch = List.copyOf(metrics);
+        return spill.exportLive(delegate.export(batch), batch, MetricsRequestMarshaler::create);
+    }
+
+    @Override
+    public AggregationTemporality getAggregationTemporality(InstrumentType instrumentType) {
+        return delegate.getAggregationTemporality(instrumentType);
+    }
+
+    @Override
+    public Aggregation getDefaultAggregation(InstrumentType instrumentType) {
+        return delegate.getDefaultAggregation(instrumentType);
+    }
+
+    @Override
+    public MemoryMode getMemoryMode() {
+        return MemoryMode.IMMUTABLE_DATA;
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return delegate.flush();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        return CompletableResultCode.ofAll(List.of(spill.shutdown(), delegate.shutdown()));
+    }
+
+    @Override
+    public String toString() {
+        return "SpillingMetricExporter{delegate=" + delegate + ", spill=" + spill + "}";
+    }
+
+}
@@ -0,0 +1,52 @@
+package ch.dboeckli.example.otel.export;
+
+import io.opentelemetry.exporter.internal.otlp.traces.TraceRequestMarshaler;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Span exporter that spills to an {@link OtlpSpill} while the collector is down.
+ * Serializes with the internal {@code TraceRequestMarshaler} of OpenTelemetry, see
+ * {@link OtlpSpill}.
+ */
+public class SpillingSpanExporter implements SpanExporter {
+
+    private final SpanExporter delegate;
+
+    private final OtlpSpill spill;
+
+    public SpillingSpanExporter(SpanExporter delegate, OtlpSpill spill) {
+        this.delegate = delegate;
+        this.spill = spill;
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<SpanData> spans) {
+        if (spill.isSpilling()) {
+            return spill.spill(TraceRequestMarshaler.create(spans));
+        }
+        // the caller may reuse its collection once the result completes
+        List<SpanData> batch = List.copyOf(spans);
+        return spill.exportLive(delegate.export(batch), batch, TraceRequestMarshaler::create);
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return delegate.flush();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        return CompletableResultCode.ofAll(List.of(spill.shutdown(), delegate.shutdown()));
+    }
+
+    @Override
+    public String toString() {
+        return "SpillingSpanExporter{delegate=" + delegate + ", spill=" + spill + "}";
+    }
+
+}
@@ -0,0 +1,82 @@
+package ch.dboeckli.example.otel.log;
+
+import ch.dboeckli.example.otel.log.logback.RingBufferAsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.ILoggerFactory;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binds queue depth, drops and flush latency of every {@link RingBufferAsyncAppender} of
+ * the logback context. Appenders are also found when they are wrapped by another
+ * appender, e.g. the OpenTelemetry MDC appender which adopts all root appenders.
+ */
+@Component
+public class AsyncAppenderMetrics implements MeterBinder {
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        ILoggerFactory loggerFactory = LoggerFactory.getILoggerFactory();
+        if (!(loggerFactory instanceof LoggerContext loggerContext)) {
+            return;
+        }
+        Set<RingBufferAsyncAppender> asyncAppenders = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Logger logger : loggerContext.getLoggerList()) {
+            collect(logger.iteratorForAppenders(), asyncAppenders);
+        }
+        asyncAppenders.forEach(appender -> bind(appender, registry));
+    }
+
+    private void collect(Iterator<Appender<ILoggingEvent>> appenders, Set<RingBufferAsyncAppender> asyncAppenders) {
+        while (appenders.hasNext()) {
+            Appender<ILoggingEvent> appender = appenders.next();
+            if (appender instanceof RingBufferAsyncAppender asyncAppender) {
+                asyncAppenders.add(asyncAppender);
+            }
+            else if (appender instanceof AppenderAttachable<?> attachable) {
+                @SuppressWarnings("unchecked")
+                AppenderAttachable<ILoggingEvent> nested = (AppenderAttachable<ILoggingEvent>) attachable;
+                collect(nested.iteratorForAppenders(), asyncAppenders);
+            }
+        }
+    }
+
+    private void bind(RingBufferAsyncAppender appender, MeterRegistry registry) {
+        String name = appender.getName();
+        Gauge.builder("logback.async.queue.depth", appender, RingBufferAsyncAppender::getQueueDepth)
+            .description("Events waiting in the ring buffer")
+            .tag("appender", name)
+            .register(registry);
+        Gauge.builder("logback.async.queue.capacity", appender, RingBufferAsyncAppender::getQueueCapacity)
+            .description("Capacity of the ring buffer")
+            .tag("appender", name)
+            .register(registry);
+        FunctionCounter.builder("logback.async.dropped", appender, RingBufferAsyncAppender::getDroppedCount)
+            .description("Events dropped by the overflow policy")
+            .tag("appender", name)
+            .tag("policy", appender.getOverflowPolicy().name())
+            .register(registry);
+        FunctionTimer
+            .builder("logback.async.flush", appender, RingBufferAsyncAppender::getFlushCount,
+                    RingBufferAsyncAppender::getFlushTotalNanos, TimeUnit.NANOSECONDS)
+            .description("Time to write and flush one batch to the attached appenders")
+            .tag("appender", name)
+            .register(registry);
+    }
+
+}
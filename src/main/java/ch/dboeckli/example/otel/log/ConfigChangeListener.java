@@ -1,116 +1,221 @@
 package ch.dboeckli.example.otel.log;
 
+import ch.dboeckli.example.otel.tracing.TelemetryPipeline;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.SpanKind;
-import io.opentelemetry.instrumentation.annotations.WithSpan;
-import io.opentelemetry.sdk.OpenTelemetrySdk;
-import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
-import org.apache.commons.lang3.builder.ToStringStyle;
+import org.slf4j.event.Level;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.EventListener;
-import org.springframework.core.env.AbstractEnvironment;
+import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.core.env.EnumerablePropertySource;
-import org.springframework.core.env.Environment;
-import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.PropertySource;
 import org.springframework.stereotype.Component;
 
-import java.lang.reflect.Field;
 import java.util.Arrays;
-import java.util.List;
-import java.util.stream.StreamSupport;
-
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Logs the resolved environment once the application is ready to accept traffic, and on
+ * every later context refresh only the properties that were added, removed or changed
+ * since the last dump.
+ * <p>
+ * The dump runs on a single background thread, off the startup path and in its own span
+ * {@code config.change.listener}. Its duration is recorded in the timer
+ * {@code config.dump} with tag {@code mode} ({@code full}, {@code diff}). Properties
+ * whose name or value contains one of the {@link #SECRET} keywords are masked.
+ */
 @Component
 @Slf4j
 public class ConfigChangeListener {
 
-    private final OpenTelemetry openTelemetry;
+    private static final Pattern SECRET = Pattern.compile("jwt\\.key-value|password|credentials|secret",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final String MASK = "**************************";
+
+    private final ConfigurableEnvironment environment;
+
+    private final TelemetryPipeline telemetryPipeline;
+
+    private final Tracer tracer;
+
+    private final Executor executor;
+
+    private final Timer fullDumpTimer;
+
+    private final Timer diffDumpTimer;
+
+    private final AtomicBoolean ready = new AtomicBoolean();
+
+    /**
+     * Properties of the last dump, only accessed on the dump thread.
+     */
+    private Map<String, String> snapshot;
+
+    @Autowired
+    public ConfigChangeListener(ConfigurableEnvironment environment, OpenTelemetry openTelemetry,
+            TelemetryPipeline telemetryPipeline, MeterRegistry meterRegistry) {
+        this(environment, openTelemetry, telemetryPipeline, meterRegistry,
+                Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "config-dump");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
 
-    public ConfigChangeListener(OpenTelemetry openTelemetry) {
-        this.openTelemetry = openTelemetry;
+    ConfigChangeListener(ConfigurableEnvironment environment, OpenTelemetry openTelemetry,
+            TelemetryPipeline telemetryPipeline, MeterRegistry meterRegistry, Executor executor) {
+        this.environment = environment;
+        this.telemetryPipeline = telemetryPipeline;
+        this.tracer = openTelemetry.getTracer(ConfigChangeListener.class.getName());
+        this.executor = executor;
+        this.fullDumpTimer = dumpTimer(meterRegistry, "full");
+        this.diffDumpTimer = dumpTimer(meterRegistry, "diff");
     }
 
-    private static final List<String> PASSWORD_KEY_LIST = Arrays.asList("jwt.key-value", "password", "credentials",
-            "secret");
+    @EventListener
+    public void onReadiness(AvailabilityChangeEvent<ReadinessState> event) {
+        if (event.getState() == ReadinessState.ACCEPTING_TRAFFIC && ready.compareAndSet(false, true)) {
+            executor.execute(this::dump);
+        }
+    }
 
+    /**
+     * Refreshes before the application is ready are covered by the full dump.
+     */
     @EventListener
-    @WithSpan(value = "config.change.listener", kind = SpanKind.INTERNAL)
     public void doHandleContextRefresh(ContextRefreshedEvent event) {
-        final Environment env = event.getApplicationContext().getEnvironment();
-        log.debug(LogMessage.RECEIVED_CONTEXT_REFRESH_EVENT.getMessage());
-        log.info("Active profiles: {}", Arrays.toString(env.getActiveProfiles()));
-        final MutablePropertySources sources = ((AbstractEnvironment) env).getPropertySources();
-        StreamSupport.stream(sources.spliterator(), false)
-            .filter(EnumerablePropertySource.class::isInstance)
-            .map(ps -> ((EnumerablePropertySource<?>) ps).getPropertyNames())
-            .flatMap(Arrays::stream)
-            .distinct()
-            .forEach(prop -> {
-                String propertyValue = env.getProperty(prop);
-                if (propertyValue != null) {
-
-                    if (PASSWORD_KEY_LIST.stream().anyMatch(prop.toLowerCase()::contains)
-                            || PASSWORD_KEY_LIST.stream().anyMatch(propertyValue.toLowerCase()::contains)) {
-
-                        log.info("{}: {}", prop, "**************************"); // hide
-                                                                                // password
-                    }
-                    else {
-                        log.info("{}: {}", prop, propertyValue);
+        if (ready.get()) {
+            LogMessage.RECEIVED_REFRESH_EVENT_FOR_CONFIG_MAP.log(log, Level.INFO,
+                    event.getApplicationContext().getId());
+            executor.execute(this::dump);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    private void dump() {
+        boolean full = snapshot == null;
+        long start = System.nanoTime();
+        Span span = tracer.spanBuilder("config.change.listener")
+            .setSpanKind(SpanKind.INTERNAL)
+            .setAttribute("config.dump.mode", full ? "full" : "diff")
+            .startSpan();
+        try (Scope ignored = span.makeCurrent()) {
+            Map<String, String> properties = resolveProperties();
+            if (full) {
+                logAll(properties);
+                showTelemetryPipeline();
+            }
+            else {
+                logChanges(snapshot, properties);
+            }
+            snapshot = properties;
+        }
+        catch (RuntimeException e) {
+            span.recordException(e);
+            span.setStatus(StatusCode.ERROR);
+            log.warn("Could not dump the environment", e);
+        }
+        finally {
+            span.end();
+            (full ? fullDumpTimer : diffDumpTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Every enumerable property with its resolved value, {@code null} if it cannot be
+     * resolved.
+     */
+    private Map<String, String> resolveProperties() {
+        Map<String, String> properties = new LinkedHashMap<>();
+        for (PropertySource<?> source : environment.getPropertySources()) {
+            if (source instanceof EnumerablePropertySource<?> enumerable) {
+                for (String name : enumerable.getPropertyNames()) {
+                    if (!properties.containsKey(name)) {
+                        properties.put(name, environment.getProperty(name));
                     }
                 }
-                else {
-                    log.warn("null propertyValue encountered in {}: {}", prop, propertyValue);
-                }
-            });
-        showTracerProvider();
+            }
+        }
+        return properties;
     }
 
-    private void showTracerProvider() {
-        log.info("### OpenTelemetry impl: {}", openTelemetry.getClass().getName());
-        log.info("### TracerProvider impl: {}", openTelemetry.getTracerProvider().getClass().getName());
-
-        if (openTelemetry instanceof OpenTelemetrySdk sdk) {
-            SdkTracerProvider provider = sdk.getSdkTracerProvider();
-            log.info("### SdkTracerProvider: {}",
-                    ReflectionToStringBuilder.toString(provider, ToStringStyle.MULTI_LINE_STYLE));
-
-            try {
-                // sharedState holen
-                Field sharedStateField = SdkTracerProvider.class.getDeclaredField("sharedState");
-                sharedStateField.setAccessible(true);
-                Object sharedState = sharedStateField.get(provider);
-
-                // activeSpanProcessor holen
-                Field processorField = sharedState.getClass().getDeclaredField("activeSpanProcessor");
-                processorField.setAccessible(true);
-                Object processor = processorField.get(sharedState);
-
-                // Der BatchSpanProcessor enthält den OtlpHttpSpanExporter oder
-                // OtlpGrpcSpanExporter
-                log.info("### SpanProcessor: {}", processor.getClass().getName());
-                log.info("### SpanProcessor detail: {}",
-                        ReflectionToStringBuilder.toString(processor, ToStringStyle.MULTI_LINE_STYLE));
-
-                // Worker aus BatchSpanProcessor holen
-                Field workerField = processor.getClass().getDeclaredField("worker");
-                workerField.setAccessible(true);
-                Object worker = workerField.get(processor);
-
-                // spanExporter aus Worker holen
-                Field exporterField = worker.getClass().getDeclaredField("spanExporter");
-                exporterField.setAccessible(true);
-                Object exporter = exporterField.get(worker);
-
-                log.info("### SpanExporter class: {}", exporter.getClass().getName());
-                log.info("### SpanExporter detail: {}",
-                        ReflectionToStringBuilder.toString(exporter, ToStringStyle.MULTI_LINE_STYLE));
+    private void logAll(Map<String, String> properties) {
+        LogMessage.RECEIVED_CONTEXT_REFRESH_EVENT.log(log, Level.DEBUG);
+        log.info("Active profiles: {}", Arrays.toString(environment.getActiveProfiles()));
+        properties.forEach((name, value) -> {
+            if (value != null) {
+                log.info("{}: {}", name, masked(name, value));
+            }
+            else {
+                log.warn("null propertyValue encountered in {}: {}", name, value);
+            }
+        });
+    }
 
+    private void logChanges(Map<String, String> previous, Map<String, String> current) {
+        current.forEach((name, value) -> {
+            if (!previous.containsKey(name)) {
+                LogMessage.CONFIG_PROPERTY_ADDED.log(log, Level.INFO, name, masked(name, value));
+            }
+            else if (!Objects.equals(previous.get(name), value)) {
+                LogMessage.CONFIG_PROPERTY_CHANGED.log(log, Level.INFO, name, masked(name, previous.get(name)),
+                        masked(name, value));
             }
-            catch (Exception e) {
-                log.warn("### Could not inspect exporter: {}", e.getMessage());
+        });
+        previous.keySet().forEach(name -> {
+            if (!current.containsKey(name)) {
+                LogMessage.CONFIG_PROPERTY_REMOVED.log(log, Level.INFO, name);
             }
+        });
+    }
+
+    private static String masked(String name, String value) {
+        if (value == null) {
+            return null;
+        }
+        return SECRET.matcher(name).find() || SECRET.matcher(value).find() ? MASK : value;
+    }
+
+    private static Timer dumpTimer(MeterRegistry meterRegistry, String mode) {
+        return Timer.builder("config.dump")
+            .description("Duration of the environment dump of the ConfigChangeListener")
+            .tag("mode", mode)
+            .register(meterRegistry);
+    }
+
+    private void showTelemetryPipeline() {
+        TelemetryPipeline.Description pipeline = telemetryPipeline.describe();
+        log.info("### OpenTelemetry impl: {}", pipeline.openTelemetry());
+        log.info("### Sampler: {}", pipeline.sampler());
+        log.info("### TracerProvider: {}", pipeline.tracerProvider());
+        if (pipeline.batchExport() != null) {
+            log.info("### Batch export: {}", pipeline.batchExport());
         }
     }
 
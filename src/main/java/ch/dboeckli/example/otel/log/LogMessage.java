@@ -1,25 +1,139 @@
 package ch.dboeckli.example.otel.log;
 
-import org.slf4j.helpers.MessageFormatter;
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
 
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Catalog of the log events of this application. Every entry has a stable id, which is
+ * logged as key value pair {@link #LOG_ID} next to the message instead of inside it, and
+ * counts how often it was logged.
+ * <p>
+ * The templates are checked once at class initialisation. The arguments are handed to the
+ * logger unformatted, logback formats the message only if the event is logged at all.
+ * With assertions enabled, as in the tests, every call is checked to pass one argument
+ * per placeholder, plus an optional trailing {@link Throwable}.
+ */
 public enum LogMessage {
 
     // System
-    READING_CONFIG_CLASS(10001, "[{}] Reading configuration from {} config map: {}"),
-    RECEIVED_REFRESH_EVENT_FOR_CONFIG_MAP(10002, "[{}] Received Refresh event for Config Map configuration: {}"),
-    RECEIVED_CONTEXT_REFRESH_EVENT(10003, "[{}] ### Environment and configuration ###");
+    READING_CONFIG_CLASS(10001, "Reading configuration from {} config map: {}"),
+    RECEIVED_REFRESH_EVENT_FOR_CONFIG_MAP(10002, "Received Refresh event for Config Map configuration: {}"),
+    RECEIVED_CONTEXT_REFRESH_EVENT(10003, "### Environment and configuration ###"),
+    CONFIG_PROPERTY_ADDED(10004, "Property added: {}: {}"),
+    CONFIG_PROPERTY_REMOVED(10005, "Property removed: {}"),
+    CONFIG_PROPERTY_CHANGED(10006, "Property changed: {}: {} -> {}");
+
+    /**
+     * Key of the catalog id in the key value pairs of a log event.
+     */
+    public static final String LOG_ID = "log.id";
+
+    static {
+        Set<Integer> ids = new HashSet<>();
+        for (LogMessage message : values()) {
+            if (!ids.add(message.id)) {
+                throw new IllegalStateException("Duplicate log id " + message.id + " of " + message);
+            }
+        }
+    }
 
-    private final int id;
+    private final Integer id;
 
     private final String format;
 
+    private final int argumentCount;
+
+    private final LongAdder count = new LongAdder();
+
     LogMessage(final int id, final String format) {
-        this.format = format;
         this.id = id;
+        this.format = format;
+        this.argumentCount = countPlaceholders(format);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * Number of {@code {}} placeholders of the template.
+     */
+    public int getArgumentCount() {
+        return argumentCount;
+    }
+
+    /**
+     * Events of this entry logged since start.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    public void log(Logger logger, Level level) {
+        assert accepts(0, null) : mismatch(0);
+        if (logger.isEnabledForLevel(level)) {
+            count.increment();
+            logger.makeLoggingEventBuilder(level).addKeyValue(LOG_ID, id).log(format);
+        }
+    }
+
+    public void log(Logger logger, Level level, Object argument) {
+        assert accepts(1, argument) : mismatch(1);
+        if (logger.isEnabledForLevel(level)) {
+            count.increment();
+            logger.makeLoggingEventBuilder(level).addKeyValue(LOG_ID, id).log(format, argument);
+        }
+    }
+
+    public void log(Logger logger, Level level, Object argument1, Object argument2) {
+        assert accepts(2, argument2) : mismatch(2);
+        if (logger.isEnabledForLevel(level)) {
+            count.increment();
+            logger.makeLoggingEventBuilder(level).addKeyValue(LOG_ID, id).log(format, argument1, argument2);
+        }
+    }
+
+    public void log(Logger logger, Level level, Object... arguments) {
+        assert accepts(arguments.length, arguments.length > 0 ? arguments[arguments.length - 1] : null)
+                : mismatch(arguments.length);
+        if (logger.isEnabledForLevel(level)) {
+            count.increment();
+            logger.makeLoggingEventBuilder(level).addKeyValue(LOG_ID, id).log(format, arguments);
+        }
+    }
+
+    private boolean accepts(int arguments, Object last) {
+        return arguments == argumentCount || (arguments == argumentCount + 1 && last instanceof Throwable);
+    }
+
+    private String mismatch(int arguments) {
+        return this + " has " + argumentCount + " placeholders but was logged with " + arguments + " arguments";
     }
 
-    public String getMessage() {
-        return MessageFormatter.format(format, "logid=" + id).getMessage();
+    /**
+     * Counts the placeholders the way {@code MessageFormatter} resolves them: {@code \{}}
+     * is a literal, {@code \\{}} a backslash followed by a placeholder.
+     */
+    private static int countPlaceholders(String format) {
+        int placeholders = 0;
+        int index = format.indexOf("{}");
+        while (index >= 0) {
+            boolean escaped = index > 0 && format.charAt(index - 1) == '\\'
+                    && !(index > 1 && format.charAt(index - 2) == '\\');
+            if (!escaped) {
+                placeholders++;
+            }
+            index = format.indexOf("{}", index + 2);
+        }
+        return placeholders;
     }
 
 }
@@ -0,0 +1,26 @@
+package ch.dboeckli.example.otel.log;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Binds the number of logged events of every {@link LogMessage} catalog entry, so event
+ * rates can be alerted on without searching the logs.
+ */
+@Component
+public class LogMessageMetrics implements MeterBinder {
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (LogMessage message : LogMessage.values()) {
+            FunctionCounter.builder("log.events", message, LogMessage::getCount)
+                .description("Log events of the catalog entry")
+                .tag(LogMessage.LOG_ID, String.valueOf(message.getId()))
+                .tag("event", message.name())
+                .register(registry);
+        }
+    }
+
+}
@@ -0,0 +1,38 @@
+package ch.dboeckli.example.otel.log;
+
+import ch.dboeckli.example.otel.log.logback.SampledTraceTurboFilter;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.ILoggerFactory;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Binds the number of log events every {@link SampledTraceTurboFilter} of the logback
+ * context suppressed for unsampled traces.
+ */
+@Component
+public class SampledTraceLogMetrics implements MeterBinder {
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        ILoggerFactory loggerFactory = LoggerFactory.getILoggerFactory();
+        if (!(loggerFactory instanceof LoggerContext loggerContext)) {
+            return;
+        }
+        for (TurboFilter turboFilter : loggerContext.getTurboFilterList()) {
+            if (turboFilter instanceof SampledTraceTurboFilter filter) {
+                FunctionCounter
+                    .builder("logback.sampling.suppressed", filter, SampledTraceTurboFilter::getSuppressedCount)
+                    .description("Log events suppressed because their trace is not sampled")
+                    .tag("filter", filter.getName() == null ? filter.getClass().getSimpleName() : filter.getName())
+                    .tag("action", filter.getAction().name())
+                    .register(registry);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,60 @@
+package ch.dboeckli.example.otel.log.logback;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.slf4j.event.KeyValuePair;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders {@link LogEventFields} in the console layout of this application, equivalent to
+ * the pattern {@code %d{yyyy-MM-dd HH:mm:ss.SSS} [%thread] %-5level <app> %logger -
+ * [%X{trace_id}-%X{span_id}] %msg%replace( %kvp){' $', ''}%n MDC=%X%n} followed by the
+ * stack trace: the key value pairs follow the message as {@code key="value"}.
+ */
+@Getter
+@Setter
+public class ConsoleLineEncoder extends LogEventFieldsEncoder {
+
+    private static final byte[] LINE_SEPARATOR = EncodingBuffer.bytes(System.lineSeparator());
+
+    private static final byte[] MDC = EncodingBuffer.bytes(" MDC=");
+
+    private static final byte[] MDC_SEPARATOR = EncodingBuffer.bytes(", ");
+
+    private String applicationName = "";
+
+    @Override
+    void render(LogEventFields fields, EncodingBuffer buffer) {
+        String level = fields.level().toString();
+        buffer.localMillisTimestamp(fields.instant()).write((byte) ' ').write((byte) '[');
+        buffer.utf8(fields.threadName()).write((byte) ']').write((byte) ' ');
+        buffer.utf8(level).padRight(level.length(), 5).write((byte) ' ');
+        buffer.utf8(applicationName).write((byte) ' ');
+        buffer.utf8(fields.loggerName()).write((byte) ' ').write((byte) '-').write((byte) ' ').write((byte) '[');
+        buffer.utf8(fields.traceId()).write((byte) '-').utf8(fields.spanId()).write((byte) ']').write((byte) ' ');
+        buffer.utf8(fields.message());
+        List<KeyValuePair> keyValuePairs = fields.event().getKeyValuePairs();
+        if (keyValuePairs != null) {
+            for (int i = 0; i < keyValuePairs.size(); i++) {
+                KeyValuePair pair = keyValuePairs.get(i);
+                buffer.write((byte) ' ').utf8(pair.key).write((byte) '=').write((byte) '"');
+                buffer.utf8(String.valueOf(pair.value)).write((byte) '"');
+            }
+        }
+        buffer.write(LINE_SEPARATOR);
+        buffer.write(MDC);
+        boolean first = true;
+        for (Map.Entry<String, String> entry : fields.mdc().entrySet()) {
+            if (!first) {
+                buffer.write(MDC_SEPARATOR);
+            }
+            buffer.utf8(entry.getKey()).write((byte) '=').utf8(String.valueOf(entry.getValue()));
+            first = false;
+        }
+        buffer.write(LINE_SEPARATOR);
+        buffer.utf8(fields.stackTrace());
+    }
+
+}
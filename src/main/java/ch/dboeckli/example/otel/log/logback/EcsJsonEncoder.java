@@ -0,0 +1,116 @@
+package ch.dboeckli.example.otel.log.logback;
+
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import lombok.Getter;
+import lombok.Setter;
+import org.slf4j.Marker;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders {@link LogEventFields} as Elastic Common Schema JSON in the layout of the
+ * {@code EcsEncoder}: {@code @timestamp} in UTC with milliseconds, {@code log.level},
+ * {@code message}, {@code ecs.version}, marker {@code tags}, {@code service.name},
+ * {@code event.dataset}, {@code process.thread.name}, {@code log.logger}, the whole MDC
+ * and the {@code error.*} fields.
+ * <p>
+ * Unlike the {@code EcsEncoder} the key value pairs of the event, e.g. {@code log.id} of
+ * the {@code LogMessage} catalog, are written as fields after the MDC.
+ * <p>
+ * {@code error.stack_trace} uses the shared logback stack trace rendering instead of
+ * {@link Throwable#printStackTrace()}.
+ */
+@Getter
+@Setter
+public class EcsJsonEncoder extends LogEventFieldsEncoder {
+
+    private static final byte[] TIMESTAMP = EncodingBuffer.bytes("{\"@timestamp\":\"");
+
+    private static final byte[] LOG_LEVEL = EncodingBuffer.bytes("\",\"log.level\":");
+
+    private static final byte[] MESSAGE = EncodingBuffer.fieldPrefix("message");
+
+    private static final byte[] ECS_VERSION = EncodingBuffer.bytes(",\"ecs.version\": \"1.2.0\"");
+
+    private static final byte[] TAGS = EncodingBuffer.bytes(",\"tags\":[");
+
+    private static final byte[] THREAD_NAME = EncodingBuffer.fieldPrefix("process.thread.name");
+
+    private static final byte[] LOGGER = EncodingBuffer.fieldPrefix("log.logger");
+
+    private static final byte[] ERROR_TYPE = EncodingBuffer.fieldPrefix("error.type");
+
+    private static final byte[] ERROR_MESSAGE = EncodingBuffer.fieldPrefix("error.message");
+
+    private static final byte[] ERROR_STACK_TRACE = EncodingBuffer.fieldPrefix("error.stack_trace");
+
+    private static final byte[] END = EncodingBuffer.bytes("}\n");
+
+    private String serviceName;
+
+    /**
+     * Defaults to the service name.
+     */
+    private String eventDataset;
+
+    private byte[] serviceBytes = new byte[0];
+
+    @Override
+    public void start() {
+        EncodingBuffer service = new EncodingBuffer(EncodingBuffer.INITIAL_CAPACITY);
+        if (serviceName != null) {
+            service.write(EncodingBuffer.fieldPrefix("service.name")).jsonString(serviceName);
+        }
+        String dataset = eventDataset != null ? eventDataset : serviceName;
+        if (dataset != null) {
+            service.write(EncodingBuffer.fieldPrefix("event.dataset")).jsonString(dataset);
+        }
+        serviceBytes = service.toByteArray();
+        super.start();
+    }
+
+    @Override
+    void render(LogEventFields fields, EncodingBuffer buffer) {
+        buffer.write(TIMESTAMP).utcMillisTimestamp(fields.instant()).write(LOG_LEVEL);
+        String level = fields.level().toString();
+        if (level.length() < 5) {
+            buffer.write((byte) ' ');
+        }
+        buffer.jsonString(level);
+        buffer.write(MESSAGE).jsonString(fields.message());
+        buffer.write(ECS_VERSION);
+        writeTags(fields.event().getMarkerList(), buffer);
+        buffer.write(serviceBytes);
+        buffer.write(THREAD_NAME).jsonString(fields.threadName());
+        buffer.write(LOGGER).jsonString(fields.loggerName());
+        for (Map.Entry<String, String> entry : fields.mdc().entrySet()) {
+            buffer.write((byte) ',').jsonString(entry.getKey()).write((byte) ':').jsonString(entry.getValue());
+        }
+        writeKeyValuePairs(fields.event().getKeyValuePairs(), buffer);
+        IThrowableProxy throwable = fields.throwableProxy();
+        if (throwable != null) {
+            buffer.write(ERROR_TYPE).jsonString(throwable.getClassName());
+            if (throwable.getMessage() != null) {
+                buffer.write(ERROR_MESSAGE).jsonString(throwable.getMessage());
+            }
+            buffer.write(ERROR_STACK_TRACE).jsonString(fields.stackTrace());
+        }
+        buffer.write(END);
+    }
+
+    private static void writeTags(List<Marker> markers, EncodingBuffer buffer) {
+        if (markers == null || markers.isEmpty()) {
+            return;
+        }
+        buffer.write(TAGS);
+        for (int i = 0; i < markers.size(); i++) {
+            if (i > 0) {
+                buffer.write((byte) ',');
+            }
+            buffer.jsonString(markers.get(i).getName());
+        }
+        buffer.write((byte) ']');
+    }
+
+}
@@ -0,0 +1,314 @@
+package ch.dboeckli.example.otel.log.logback;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+/**
+ * Reusable heap {@link ByteBuffer} the encoders write UTF-8 into, one per thread.
+ * <p>
+ * Strings are encoded and JSON escaped char by char straight into the buffer with the
+ * same rules as Jackson, numbers are written digit by digit. Timestamps reuse the
+ * formatted date and time of the current second, so only the fraction is written per
+ * event. Apart from growing the buffer nothing is allocated while writing.
+ */
+final class EncodingBuffer {
+
+    static final int INITIAL_CAPACITY = 1024;
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    private static final int MAX_BYTES_PER_CHAR = 6;
+
+    private final SecondCache isoOffset = new SecondCache(ZoneId.systemDefault(), 'T', true);
+
+    private final SecondCache utc = new SecondCache(ZoneOffset.UTC, 'T', false);
+
+    private final SecondCache local = new SecondCache(ZoneId.systemDefault(), ' ', false);
+
+    private final byte[] digits = new byte[20];
+
+    private ByteBuffer buffer;
+
+    EncodingBuffer(int capacity) {
+        this.buffer = ByteBuffer.allocate(capacity);
+    }
+
+    /**
+     * The encoded bytes of {@code value}, for constant parts that are written verbatim.
+     */
+    static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * {@code ,"name":} with the name escaped, to be cached by the encoders.
+     */
+    static byte[] fieldPrefix(String name) {
+        return new EncodingBuffer(name.length() + 8).write((byte) ',').jsonString(name).write((byte) ':').toByteArray();
+    }
+
+    void reset() {
+        buffer.clear();
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    int length() {
+        return buffer.position();
+    }
+
+    /**
+     * The written bytes, flipped for reading. Valid until the next write on this thread.
+     */
+    ByteBuffer flip() {
+        return buffer.flip();
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    EncodingBuffer write(byte b) {
+        ensure(1);
+        buffer.put(b);
+        return this;
+    }
+
+    EncodingBuffer write(byte[] bytes) {
+        ensure(bytes.length);
+        buffer.put(bytes);
+        return this;
+    }
+
+    /**
+     * UTF-8 without escaping, {@code null} is written as nothing.
+     */
+    EncodingBuffer utf8(CharSequence value) {
+        if (value == null) {
+            return this;
+        }
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                ensure(1);
+                buffer.put((byte) c);
+            }
+            else {
+                i = writeMultiByte(value, i, c);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * A JSON string literal, {@code null} is written as {@code null}.
+     */
+    EncodingBuffer jsonString(CharSequence value) {
+        if (value == null) {
+            return write(NULL);
+        }
+        write((byte) '"');
+        jsonEscaped(value);
+        return write((byte) '"');
+    }
+
+    /**
+     * The content of a JSON string literal, escaped like Jackson does: the short escapes
+     * for quote, backslash, newline, carriage return, tab, backspace and form feed,
+     * <code>&#92;u00XX</code> for the other control characters and everything else as
+     * UTF-8.
+     */
+    EncodingBuffer jsonEscaped(CharSequence value) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                i = writeMultiByte(value, i, c);
+                continue;
+            }
+            ensure(MAX_BYTES_PER_CHAR);
+            switch (c) {
+                case '"' -> buffer.put((byte) '\\').put((byte) '"');
+                case '\\' -> buffer.put((byte) '\\').put((byte) '\\');
+                case '\n' -> buffer.put((byte) '\\').put((byte) 'n');
+                case '\r' -> buffer.put((byte) '\\').put((byte) 'r');
+                case '\t' -> buffer.put((byte) '\\').put((byte) 't');
+                case '\b' -> buffer.put((byte) '\\').put((byte) 'b');
+                case '\f' -> buffer.put((byte) '\\').put((byte) 'f');
+                default -> {
+                    if (c < 0x20) {
+                        buffer.put((byte) '\\')
+                            .put((byte) 'u')
+                            .put((byte) '0')
+                            .put((byte) '0')
+                            .put(HEX[c >> 4])
+                            .put(HEX[c & 0xF]);
+                    }
+                    else {
+                        buffer.put((byte) c);
+                    }
+                }
+            }
+        }
+        return this;
+    }
+
+    EncodingBuffer decimal(long value) {
+        if (value == Long.MIN_VALUE) {
+            return write(MIN_LONG);
+        }
+        if (value < 0) {
+            write((byte) '-');
+            value = -value;
+        }
+        int start = digits.length;
+        do {
+            digits[--start] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        while (value != 0);
+        ensure(digits.length - start);
+        buffer.put(digits, start, digits.length - start);
+        return this;
+    }
+
+    /**
+     * Blank padding to the right up to {@code width} bytes, like {@code %-5level}.
+     */
+    EncodingBuffer padRight(int written, int width) {
+        for (int i = written; i < width; i++) {
+            write((byte) ' ');
+        }
+        return this;
+    }
+
+    /**
+     * ISO-8601 with offset in the default time zone like
+     * {@link DateTimeFormatter#ISO_OFFSET_DATE_TIME}: the fraction has up to nine digits
+     * without trailing zeros and is omitted for whole seconds, e.g.
+     * {@code 2025-01-01T10:15:30.1234+01:00}.
+     */
+    EncodingBuffer isoOffsetTimestamp(Instant instant) {
+        write(isoOffset.dateTime(instant.getEpochSecond()));
+        int nanos = instant.getNano();
+        if (nanos != 0) {
+            int width = 9;
+            while (nanos % 10 == 0) {
+                nanos /= 10;
+                width--;
+            }
+            write((byte) '.');
+            zeroPadded(nanos, width);
+        }
+        return write(isoOffset.offset);
+    }
+
+    /**
+     * ISO-8601 in UTC with milliseconds, e.g. {@code 2025-01-01T10:15:30.123Z}.
+     */
+    EncodingBuffer utcMillisTimestamp(Instant instant) {
+        write(utc.dateTime(instant.getEpochSecond())).write((byte) '.');
+        return zeroPadded(instant.getNano() / 1_000_000, 3).write((byte) 'Z');
+    }
+
+    /**
+     * Local time in the default time zone, e.g. {@code 2025-01-01 10:15:30.123}.
+     */
+    EncodingBuffer localMillisTimestamp(Instant instant) {
+        write(local.dateTime(instant.getEpochSecond())).write((byte) '.');
+        return zeroPadded(instant.getNano() / 1_000_000, 3);
+    }
+
+    private EncodingBuffer zeroPadded(int value, int width) {
+        ensure(width);
+        for (int i = width - 1, divisor = 1; i >= 0; i--, divisor *= 10) {
+            buffer.put(buffer.position() + i, (byte) ('0' + value / divisor % 10));
+        }
+        buffer.position(buffer.position() + width);
+        return this;
+    }
+
+    private int writeMultiByte(CharSequence value, int index, char c) {
+        ensure(4);
+        if (c < 0x800) {
+            buffer.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+            return index;
+        }
+        if (!Character.isSurrogate(c)) {
+            buffer.put((byte) (0xE0 | c >> 12)).put((byte) (0x80 | c >> 6 & 0x3F)).put((byte) (0x80 | c & 0x3F));
+            return index;
+        }
+        if (Character.isHighSurrogate(c) && index + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(index + 1))) {
+            int codePoint = Character.toCodePoint(c, value.charAt(index + 1));
+            buffer.put((byte) (0xF0 | codePoint >> 18))
+                .put((byte) (0x80 | codePoint >> 12 & 0x3F))
+                .put((byte) (0x80 | codePoint >> 6 & 0x3F))
+                .put((byte) (0x80 | codePoint & 0x3F));
+            return index + 1;
+        }
+        // unpaired surrogate, same replacement as String#getBytes
+        buffer.put((byte) '?');
+        return index;
+    }
+
+    private void ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            int capacity = Math.max(buffer.capacity() * 2, buffer.position() + bytes);
+            buffer = ByteBuffer.allocate(capacity).put(buffer.flip());
+        }
+    }
+
+    /**
+     * Date and time up to the seconds and the offset of the last formatted second.
+     * Formatted again only when an event falls into another second.
+     */
+    private static final class SecondCache {
+
+        private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss");
+
+        private final ZoneId zone;
+
+        private final char separator;
+
+        private final boolean withOffset;
+
+        private long epochSecond = Long.MIN_VALUE;
+
+        private byte[] dateTime;
+
+        private byte[] offset;
+
+        SecondCache(ZoneId zone, char separator, boolean withOffset) {
+            this.zone = zone;
+            this.separator = separator;
+            this.withOffset = withOffset;
+        }
+
+        byte[] dateTime(long epochSecond) {
+            if (epochSecond != this.epochSecond) {
+                ZoneOffset zoneOffset = zone.getRules().getOffset(Instant.ofEpochSecond(epochSecond));
+                String formatted = DATE_TIME.format(LocalDateTime.ofEpochSecond(epochSecond, 0, zoneOffset));
+                dateTime = formatted.replace('T', separator).getBytes(StandardCharsets.US_ASCII);
+                offset = withOffset ? zoneOffset.getId().getBytes(StandardCharsets.US_ASCII) : null;
+                this.epochSecond = epochSecond;
+            }
+            return dateTime;
+        }
+
+    }
+
+}
@@ -0,0 +1,144 @@
+package ch.dboeckli.example.otel.log.logback;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.pattern.ThrowableProxyConverter;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Fields of one log event, extracted once and shared by every output format.
+ * <p>
+ * While a {@link MultiFormatAppender} fans an event out, the extracted fields are bound
+ * to the current thread and {@link #of(ILoggingEvent)} hands the same instance to every
+ * encoder. The stack trace is rendered on first use and then reused by the other formats.
+ * Outside of a fan-out every encoder simply extracts its own instance.
+ */
+public final class LogEventFields {
+
+    public static final String TRACE_ID = "trace_id";
+
+    public static final String SPAN_ID = "span_id";
+
+    public static final String TRACE_FLAGS = "trace_flags";
+
+    private static final ThreadLocal<LogEventFields> BOUND = new ThreadLocal<>();
+
+    private static final ThrowableProxyConverter THROWABLE_CONVERTER = new ThrowableProxyConverter();
+
+    static {
+        THROWABLE_CONVERTER.start();
+    }
+
+    private final ILoggingEvent event;
+
+    private final Instant instant;
+
+    private final Level level;
+
+    private final String loggerName;
+
+    private final String threadName;
+
+    private final String message;
+
+    private final Map<String, String> mdc;
+
+    private final String traceId;
+
+    private final String spanId;
+
+    private final String traceFlags;
+
+    private String stackTrace;
+
+    private LogEventFields(ILoggingEvent event) {
+        this.event = event;
+        this.instant = event.getInstant();
+        this.level = event.getLevel();
+        this.loggerName = event.getLoggerName();
+        this.threadName = event.getThreadName();
+        this.message = event.getFormattedMessage();
+        Map<String, String> mdcPropertyMap = event.getMDCPropertyMap();
+        this.mdc = mdcPropertyMap == null ? Map.of() : mdcPropertyMap;
+        this.traceId = mdc.get(TRACE_ID);
+        this.spanId = mdc.get(SPAN_ID);
+        this.traceFlags = mdc.get(TRACE_FLAGS);
+    }
+
+    /**
+     * The fields bound to the current thread for this event, or freshly extracted ones.
+     */
+    public static LogEventFields of(ILoggingEvent event) {
+        LogEventFields bound = BOUND.get();
+        return bound != null && bound.event == event ? bound : new LogEventFields(event);
+    }
+
+    static LogEventFields bind(ILoggingEvent event) {
+        LogEventFields fields = new LogEventFields(event);
+        BOUND.set(fields);
+        return fields;
+    }
+
+    static void unbind() {
+        BOUND.remove();
+    }
+
+    public ILoggingEvent event() {
+        return event;
+    }
+
+    public Instant instant() {
+        return instant;
+    }
+
+    public Level level() {
+        return level;
+    }
+
+    public String loggerName() {
+        return loggerName;
+    }
+
+    public String threadName() {
+        return threadName;
+    }
+
+    public String message() {
+        return message;
+    }
+
+    public Map<String, String> mdc() {
+        return mdc;
+    }
+
+    public String traceId() {
+        return traceId;
+    }
+
+    public String spanId() {
+        return spanId;
+    }
+
+    public String traceFlags() {
+        return traceFlags;
+    }
+
+    public IThrowableProxy throwableProxy() {
+        return event.getThrowableProxy();
+    }
+
+    /**
+     * The stack trace as rendered by logback's {@code %ex}, {@code null} without a
+     * throwable.
+     */
+    public String stackTrace() {
+        if (stackTrace == null && event.getThrowableProxy() != null) {
+            stackTrace = THROWABLE_CONVERTER.convert(event);
+        }
+        return stackTrace;
+    }
+
+}
@@ -0,0 +1,78 @@
+package ch.dboeckli.example.otel.log.logback;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.encoder.EncoderBase;
+import org.slf4j.event.KeyValuePair;
+
+import java.util.List;
+
+/**
+ * Base class of the encoders rendering {@link LogEventFields}. Every thread writes into
+ * its own reusable {@link EncodingBuffer}, the encoders themselves hold configuration and
+ * cached constant bytes only. The returned array is the only allocation per event.
+ */
+public abstract class LogEventFieldsEncoder extends EncoderBase<ILoggingEvent> {
+
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private static final ThreadLocal<EncodingBuffer> BUFFER = ThreadLocal
+        .withInitial(() -> new EncodingBuffer(EncodingBuffer.INITIAL_CAPACITY));
+
+    @Override
+    public byte[] headerBytes() {
+        return null;
+    }
+
+    @Override
+    public byte[] encode(ILoggingEvent event) {
+        EncodingBuffer buffer = BUFFER.get();
+        buffer.reset();
+        render(LogEventFields.of(event), buffer);
+        byte[] bytes = buffer.toByteArray();
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            BUFFER.remove();
+        }
+        return bytes;
+    }
+
+    @Override
+    public byte[] footerBytes() {
+        return null;
+    }
+
+    abstract void render(LogEventFields fields, EncodingBuffer buffer);
+
+    /**
+     * Writes the key value pairs as JSON fields, numbers and booleans as JSON numbers and
+     * booleans, everything else as string. {@code NaN} and the infinities are strings too.
+     */
+    static void writeKeyValuePairs(List<KeyValuePair> keyValuePairs, EncodingBuffer buffer) {
+        if (keyValuePairs == null) {
+            return;
+        }
+        for (int i = 0; i < keyValuePairs.size(); i++) {
+            KeyValuePair pair = keyValuePairs.get(i);
+            buffer.write((byte) ',').jsonString(pair.key).write((byte) ':');
+            Object value = pair.value;
+            if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                buffer.decimal(((Number) value).longValue());
+            }
+            else if (isNonFinite(value)) {
+                // JSON has no NaN or Infinity, quoted like Jackson does
+                buffer.jsonString(value.toString());
+            }
+            else if (value == null || value instanceof Number || value instanceof Boolean) {
+                buffer.utf8(String.valueOf(value));
+            }
+            else {
+                buffer.jsonString(value.toString());
+            }
+        }
+    }
+
+    private static boolean isNonFinite(Object value) {
+        return (value instanceof Double doubleValue && !Double.isFinite(doubleValue))
+                || (value instanceof Float floatValue && !Float.isFinite(floatValue));
+    }
+
+}
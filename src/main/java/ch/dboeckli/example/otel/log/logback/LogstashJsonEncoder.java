@@ -0,0 +1,154 @@
+package ch.dboeckli.example.otel.log.logback;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.Setter;
+import net.logstash.logback.marker.LogstashMarker;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders {@link LogEventFields} in the layout of the {@code LogstashEncoder} with the
+ * field names used by this application: {@code @timestamp}, {@code @version},
+ * {@code message}, {@code logger_name}, {@code thread_name}, {@code level},
+ * {@code level_value}, {@code stack_trace}, the context properties, the included MDC
+ * keys, the key value pairs, the marker {@code tags} and the custom fields.
+ * <p>
+ * The output is byte for byte the one of the {@code LogstashEncoder}. Field names, the
+ * context properties and the custom fields are converted to bytes once at start, the
+ * per-event values are written straight into the thread's {@link EncodingBuffer}.
+ * <p>
+ * Key value pair values are written as JSON numbers and booleans where possible and as
+ * strings otherwise. Logstash markers and structured arguments are not rendered.
+ */
+public class LogstashJsonEncoder extends LogEventFieldsEncoder {
+
+    private static final byte[] TIMESTAMP = EncodingBuffer.bytes("{\"@timestamp\":\"");
+
+    private static final byte[] VERSION_MESSAGE = EncodingBuffer.bytes("\",\"@version\":\"1\",\"message\":");
+
+    private static final byte[] LOGGER_NAME = EncodingBuffer.fieldPrefix("logger_name");
+
+    private static final byte[] THREAD_NAME = EncodingBuffer.fieldPrefix("thread_name");
+
+    private static final byte[] LEVEL = EncodingBuffer.fieldPrefix("level");
+
+    private static final byte[] LEVEL_VALUE = EncodingBuffer.fieldPrefix("level_value");
+
+    private static final byte[] STACK_TRACE = EncodingBuffer.fieldPrefix("stack_trace");
+
+    private static final byte[] TAGS = EncodingBuffer.bytes(",\"tags\":[");
+
+    private static final byte[] END = EncodingBuffer.bytes("}" + System.lineSeparator());
+
+    private final List<String> includeMdcKeyNames = new ArrayList<>();
+
+    /**
+     * Custom fields as JSON object, e.g. {@code {"app_name":"my-app"}}.
+     */
+    @Getter
+    @Setter
+    private String customFields;
+
+    private byte[] customFieldsBytes = new byte[0];
+
+    private byte[] contextPropertiesBytes = new byte[0];
+
+    private Map<String, byte[]> includedMdcKeyPrefixes = Map.of();
+
+    public void addIncludeMdcKeyName(String includeMdcKeyName) {
+        includeMdcKeyNames.add(includeMdcKeyName);
+    }
+
+    public List<String> getIncludeMdcKeyNames() {
+        return List.copyOf(includeMdcKeyNames);
+    }
+
+    @Override
+    public void start() {
+        if (customFields != null && !customFields.isBlank()) {
+            try {
+                JsonNode node = new ObjectMapper().readTree(customFields);
+                if (!node.isObject()) {
+                    addError("customFields must be a JSON object: " + customFields);
+                    return;
+                }
+                String json = node.toString();
+                customFieldsBytes = node.isEmpty() ? new byte[0]
+                        : EncodingBuffer.bytes("," + json.substring(1, json.length() - 1));
+            }
+            catch (Exception e) {
+                addError("Invalid customFields: " + customFields, e);
+                return;
+            }
+        }
+        EncodingBuffer properties = new EncodingBuffer(EncodingBuffer.INITIAL_CAPACITY);
+        if (getContext() != null) {
+            getContext().getCopyOfPropertyMap()
+                .forEach((key, value) -> properties.write(EncodingBuffer.fieldPrefix(key)).jsonString(value));
+        }
+        contextPropertiesBytes = properties.toByteArray();
+        Map<String, byte[]> prefixes = new HashMap<>();
+        includeMdcKeyNames.forEach(key -> prefixes.put(key, EncodingBuffer.fieldPrefix(key)));
+        includedMdcKeyPrefixes = prefixes;
+        super.start();
+    }
+
+    @Override
+    void render(LogEventFields fields, EncodingBuffer buffer) {
+        buffer.write(TIMESTAMP).isoOffsetTimestamp(fields.instant()).write(VERSION_MESSAGE);
+        buffer.jsonString(fields.message());
+        buffer.write(LOGGER_NAME).jsonString(fields.loggerName());
+        buffer.write(THREAD_NAME).jsonString(fields.threadName());
+        buffer.write(LEVEL).jsonString(fields.level().toString());
+        buffer.write(LEVEL_VALUE).decimal(fields.level().toInt());
+        String stackTrace = fields.stackTrace();
+        if (stackTrace != null) {
+            buffer.write(STACK_TRACE).jsonString(stackTrace);
+        }
+        buffer.write(contextPropertiesBytes);
+        if (!includedMdcKeyPrefixes.isEmpty()) {
+            for (Map.Entry<String, String> entry : fields.mdc().entrySet()) {
+                byte[] prefix = includedMdcKeyPrefixes.get(entry.getKey());
+                if (prefix != null) {
+                    buffer.write(prefix).jsonString(entry.getValue());
+                }
+            }
+        }
+        writeKeyValuePairs(fields.event().getKeyValuePairs(), buffer);
+        writeTags(fields.event(), buffer);
+        buffer.write(customFieldsBytes);
+        buffer.write(END);
+    }
+
+    private static void writeTags(ILoggingEvent event, EncodingBuffer buffer) {
+        List<Marker> markers = event.getMarkerList();
+        if (markers == null || markers.isEmpty()) {
+            return;
+        }
+        boolean first = true;
+        for (int i = 0; i < markers.size(); i++) {
+            Marker marker = markers.get(i);
+            if (!(marker instanceof LogstashMarker)) {
+                if (first) {
+                    buffer.write(TAGS);
+                    first = false;
+                }
+                else {
+                    buffer.write((byte) ',');
+                }
+                buffer.jsonString(marker.getName());
+            }
+        }
+        if (!first) {
+            buffer.write((byte) ']');
+        }
+    }
+
+}
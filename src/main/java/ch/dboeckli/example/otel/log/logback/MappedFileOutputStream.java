@@ -0,0 +1,186 @@
+package ch.dboeckli.example.otel.log.logback;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link OutputStream} writing into a memory-mapped window of a file. Writes are plain
+ * memory copies, a new window of {@code mapSize} bytes is mapped when the current one is
+ * full. The file is extended by a whole window at a time and truncated to the written
+ * length on {@link #close()}.
+ * <p>
+ * Every window is mapped in its own {@link Arena} and unmapped when it is replaced or the
+ * stream is closed, not whenever the garbage collector gets to it. The file is no longer
+ * mapped when it is truncated, renamed or compressed by the rolling policy, which Windows
+ * refuses for mapped files.
+ * <p>
+ * {@link #flush()} makes nothing more visible to other processes than a write already
+ * does, it only forces the written pages to disk once {@code forceIntervalMillis} have
+ * passed since the last force. With a negative interval forcing is left to the operating
+ * system. Not thread-safe, the owning appender serialises all calls.
+ */
+final class MappedFileOutputStream extends OutputStream {
+
+    private static final int TAIL_SCAN_BLOCK = 64 * 1024;
+
+    private final FileChannel channel;
+
+    private final long mapSize;
+
+    private final long forceIntervalMillis;
+
+    private Arena arena;
+
+    private MemorySegment window;
+
+    private long windowStart;
+
+    private long windowPosition;
+
+    private long lastForce = System.currentTimeMillis();
+
+    MappedFileOutputStream(File file, boolean append, long mapSize, long forceIntervalMillis) throws IOException {
+        this.mapSize = mapSize;
+        this.forceIntervalMillis = forceIntervalMillis;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            long start = append ? writtenLength(channel) : 0;
+            channel.truncate(start);
+            map(start);
+        }
+        catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Length of the file without the zero-filled rest of the last window, which remains
+     * when the previous writer did not close the file.
+     */
+    static long writtenLength(FileChannel channel) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(TAIL_SCAN_BLOCK);
+        long end = channel.size();
+        while (end > 0) {
+            long blockStart = Math.max(0, end - TAIL_SCAN_BLOCK);
+            block.clear().limit((int) (end - blockStart));
+            while (block.hasRemaining() && channel.read(block, blockStart + block.position()) >= 0) {
+                // fill the block
+            }
+            for (int i = block.position() - 1; i >= 0; i--) {
+                if (block.get(i) != 0) {
+                    return blockStart + i + 1;
+                }
+            }
+            end = blockStart;
+        }
+        return 0;
+    }
+
+    /**
+     * Bytes written to the file so far.
+     */
+    long position() {
+        return windowStart + windowPosition;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (window == null || windowPosition == mapSize) {
+            map(position());
+        }
+        window.set(ValueLayout.JAVA_BYTE, windowPosition++, (byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        ensureOpen();
+        while (length > 0) {
+            if (window == null || windowPosition == mapSize) {
+                map(position());
+            }
+            int chunk = (int) Math.min(length, mapSize - windowPosition);
+            MemorySegment.copy(bytes, offset, window, ValueLayout.JAVA_BYTE, windowPosition, chunk);
+            windowPosition += chunk;
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        if (window != null && forceIntervalMillis >= 0) {
+            long now = System.currentTimeMillis();
+            if (now - lastForce >= forceIntervalMillis) {
+                window.force();
+                lastForce = now;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!channel.isOpen()) {
+            return;
+        }
+        long length = position();
+        try {
+            unmap();
+            channel.truncate(length);
+        }
+        finally {
+            channel.close();
+        }
+    }
+
+    private void map(long start) throws IOException {
+        unmap();
+        arena = Arena.ofShared();
+        try {
+            window = channel.map(FileChannel.MapMode.READ_WRITE, start, mapSize, arena);
+        }
+        catch (IOException | RuntimeException e) {
+            arena.close();
+            arena = null;
+            throw e;
+        }
+        windowStart = start;
+        windowPosition = 0;
+    }
+
+    /**
+     * Forces the current window if configured and unmaps it.
+     */
+    private void unmap() {
+        if (window == null) {
+            return;
+        }
+        try {
+            if (forceIntervalMillis >= 0) {
+                window.force();
+            }
+        }
+        finally {
+            window = null;
+            arena.close();
+            arena = null;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (!channel.isOpen()) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+package ch.dboeckli.example.otel.log.logback;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.rolling.RollingFileAppender;
+import ch.qos.logback.core.util.Duration;
+import ch.qos.logback.core.util.FileSize;
+import ch.qos.logback.core.util.FileUtil;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link RollingFileAppender} writing the active file through a
+ * {@link MappedFileOutputStream} instead of a buffered {@code FileOutputStream}. An event
+ * is a memory copy into the mapped window, system calls happen only when a new window of
+ * {@code mapSize} bytes is mapped and when pages are forced to disk.
+ * <p>
+ * Rolling, compression, {@code maxHistory} and {@code totalSizeCap} are left to the
+ * configured rolling policy unchanged: the rollover closes the stream, which unmaps the
+ * file and truncates it to its written length, before the policy renames and compresses
+ * it.
+ * <p>
+ * {@code forceInterval} is the durability knob. Without it the operating system writes
+ * the dirty pages back on its own schedule, which survives a crash of the JVM but not of
+ * the machine. With it, the pages are forced to disk on flush at most once per interval,
+ * on every remap and on close; {@code 0 seconds} forces on every flush.
+ * <p>
+ * While the file is open it is up to {@code mapSize} bytes longer than its content, the
+ * rest is zero-filled. Starting on a file left behind by a crashed writer drops these
+ * zeros before the rolling policy measures the file. Prudent mode is not supported.
+ */
+@Getter
+@Setter
+public class MappedRollingFileAppender extends RollingFileAppender<ILoggingEvent> {
+
+    private static final long MAX_MAP_SIZE = 1024L * 1024 * 1024;
+
+    private FileSize mapSize = new FileSize(32L * 1024 * 1024);
+
+    private Duration forceInterval;
+
+    @Override
+    public void start() {
+        if (isPrudent()) {
+            addError("Prudent mode is not supported by [" + name + "]");
+            return;
+        }
+        if (mapSize.getSize() <= 0 || mapSize.getSize() > MAX_MAP_SIZE) {
+            addError("mapSize of [" + name + "] must be between 1 byte and 1 GB, was " + mapSize);
+            return;
+        }
+        if (getRollingPolicy() != null) {
+            // the size trigger is seeded from the file length, which must not count the zeros
+            trimCrashedFile(new File(getFile()));
+        }
+        super.start();
+    }
+
+    /**
+     * Truncates the zero-filled rest a crashed writer left in the active file.
+     */
+    private void trimCrashedFile(File file) {
+        if (!file.isFile()) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.READ)) {
+            long writtenLength = MappedFileOutputStream.writtenLength(channel);
+            if (writtenLength < channel.size()) {
+                addInfo("Dropping " + (channel.size() - writtenLength) + " trailing zero bytes of [" + file + "]");
+                channel.truncate(writtenLength);
+            }
+        }
+        catch (IOException e) {
+            addWarn("Failed to trim the trailing zeros of [" + file + "]", e);
+        }
+    }
+
+    @Override
+    public void openFile(String fileName) throws IOException {
+        streamWriteLock.lock();
+        try {
+            File file = new File(fileName);
+            if (!FileUtil.createMissingParentDirectories(file)) {
+                addError("Failed to create parent directories for [" + file.getAbsolutePath() + "]");
+            }
+            long forceIntervalMillis = forceInterval == null ? -1 : forceInterval.getMilliseconds();
+            setOutputStream(new MappedFileOutputStream(file, isAppend(), mapSize.getSize(), forceIntervalMillis));
+        }
+        finally {
+            streamWriteLock.unlock();
+        }
+    }
+
+}
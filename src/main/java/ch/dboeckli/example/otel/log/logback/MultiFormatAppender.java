@@ -0,0 +1,24 @@
+package ch.dboeckli.example.otel.log.logback;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+/**
+ * Extracts the {@link LogEventFields} of an event once and fans the event out to the
+ * attached appenders. Their {@link LogEventFieldsEncoder}s render from the shared fields,
+ * so field extraction, timestamp formatting and stack trace rendering are paid once per
+ * event instead of once per output format.
+ */
+public class MultiFormatAppender extends ForwardingAppenderBase {
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        LogEventFields.bind(event);
+        try {
+            appenders.appendLoopOnAppenders(event);
+        }
+        finally {
+            LogEventFields.unbind();
+        }
+    }
+
+}
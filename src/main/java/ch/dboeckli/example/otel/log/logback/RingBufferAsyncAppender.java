@@ -0,0 +1,276 @@
+package ch.dboeckli.example.otel.log.logback;
+
+import ch.dboeckli.example.otel.concurrent.MpmcRingBuffer;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous appender backed by a preallocated lock-free {@link MpmcRingBuffer}.
+ * <p>
+ * The logging thread only prepares the event for deferred processing and offers it to the
+ * buffer. A single worker thread drains the buffer in batches of up to
+ * {@code maxBatchSize} events, hands them to the attached appenders and flushes every
+ * attached {@link OutputStreamAppender} configured with {@code immediateFlush=false},
+ * also behind a nested {@link MultiFormatAppender}, once per batch instead of once per
+ * event. When the buffer is full the {@link OverflowPolicy} decides whether the caller
+ * waits or an event is dropped.
+ * <p>
+ * The attached appenders must only be referenced by this appender, they are written from
+ * the worker thread without further locking. The appender registers itself with the
+ * logger context, so stopping or resetting the context drains the buffer and stops the
+ * attached appenders.
+ */
+public class RingBufferAsyncAppender extends ForwardingAppenderBase {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    /**
+     * What happens with an event that does not fit into the buffer.
+     */
+    public enum OverflowPolicy {
+
+        /**
+         * The logging thread waits until the worker made room.
+         */
+        BLOCK,
+
+        /**
+         * Events below WARN are dropped, WARN and ERROR wait like {@link #BLOCK}.
+         */
+        DROP_BELOW_WARN,
+
+        /**
+         * The oldest buffered event is dropped to make room for the new one.
+         */
+        DROP_OLDEST
+
+    }
+
+    @Getter
+    @Setter
+    private int capacity = 8192;
+
+    @Getter
+    @Setter
+    private int maxBatchSize = 256;
+
+    @Getter
+    @Setter
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_BELOW_WARN;
+
+    @Getter
+    @Setter
+    private boolean includeCallerData = false;
+
+    /**
+     * Time in milliseconds {@link #stop()} waits for the worker to drain the buffer.
+     */
+    @Getter
+    @Setter
+    private int maxFlushTime = 1000;
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final LongAdder flushes = new LongAdder();
+
+    private final LongAdder flushNanos = new LongAdder();
+
+    private MpmcRingBuffer<ILoggingEvent> buffer;
+
+    private List<OutputStreamAppender<ILoggingEvent>> batchFlushedSinks = List.of();
+
+    private Thread worker;
+
+    private volatile boolean workerParked;
+
+    @Override
+    public void start() {
+        if (isStarted()) {
+            return;
+        }
+        if (maxBatchSize < 1) {
+            addError("maxBatchSize must be positive, was " + maxBatchSize);
+            return;
+        }
+        buffer = new MpmcRingBuffer<>(capacity);
+        batchFlushedSinks = collectBatchFlushedSinks();
+        worker = Thread.ofPlatform().daemon().name("logback-ring-" + name).unstarted(this::drainLoop);
+        super.start();
+        if (!isStarted()) {
+            return;
+        }
+        worker.start();
+        // the OpenTelemetry MDC appender owning the root appenders does not stop them,
+        // registered components are stopped when the logger context is reset or stopped
+        getContext().register(this);
+        addInfo("Started [" + name + "] with capacity " + buffer.capacity() + " and overflow policy " + overflowPolicy);
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        started = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(maxFlushTime);
+            if (worker.isAlive()) {
+                addWarn("Max flush time exceeded, " + buffer.size() + " queued events of [" + name
+                        + "] may be discarded");
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            addError("Interrupted while waiting for the worker of [" + name + "]", e);
+        }
+        super.stop();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        event.prepareForDeferredProcessing();
+        if (includeCallerData) {
+            event.getCallerData();
+        }
+        if (!buffer.offer(event)) {
+            switch (overflowPolicy) {
+                case BLOCK -> offerBlocking(event);
+                case DROP_BELOW_WARN -> {
+                    if (event.getLevel().isGreaterOrEqual(Level.WARN)) {
+                        offerBlocking(event);
+                    }
+                    else {
+                        dropped.increment();
+                    }
+                }
+                case DROP_OLDEST -> {
+                    while (!buffer.offer(event)) {
+                        if (buffer.poll() != null) {
+                            dropped.increment();
+                        }
+                    }
+                }
+            }
+        }
+        if (workerParked) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    public int getQueueDepth() {
+        return buffer == null ? 0 : buffer.size();
+    }
+
+    public int getQueueCapacity() {
+        return buffer == null ? capacity : buffer.capacity();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getFlushCount() {
+        return flushes.sum();
+    }
+
+    public double getFlushTotalNanos() {
+        return flushNanos.sum();
+    }
+
+    private void offerBlocking(ILoggingEvent event) {
+        while (!buffer.offer(event)) {
+            if (!isStarted() || Thread.currentThread().isInterrupted()) {
+                dropped.increment();
+                return;
+            }
+            LockSupport.unpark(worker);
+            LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+        }
+    }
+
+    private void drainLoop() {
+        ILoggingEvent[] batch = new ILoggingEvent[maxBatchSize];
+        while (isStarted()) {
+            int count = buffer.drainTo(batch);
+            if (count > 0) {
+                write(batch, count);
+            }
+            else {
+                workerParked = true;
+                if (isStarted() && buffer.isEmpty()) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                workerParked = false;
+            }
+        }
+        int count;
+        while ((count = buffer.drainTo(batch)) > 0) {
+            write(batch, count);
+        }
+    }
+
+    private void write(ILoggingEvent[] batch, int count) {
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            try {
+                appenders.appendLoopOnAppenders(batch[i]);
+            }
+            catch (RuntimeException e) {
+                addError("Failed to append event in [" + name + "]", e);
+            }
+            batch[i] = null;
+        }
+        for (OutputStreamAppender<ILoggingEvent> sink : batchFlushedSinks) {
+            OutputStream outputStream = sink.getOutputStream();
+            if (outputStream != null) {
+                try {
+                    outputStream.flush();
+                }
+                catch (IOException e) {
+                    addError("Failed to flush [" + sink.getName() + "]", e);
+                }
+            }
+        }
+        flushNanos.add(System.nanoTime() - start);
+        flushes.increment();
+    }
+
+    private List<OutputStreamAppender<ILoggingEvent>> collectBatchFlushedSinks() {
+        List<OutputStreamAppender<ILoggingEvent>> sinks = new ArrayList<>();
+        collectBatchFlushedSinks(appenders.iteratorForAppenders(), sinks);
+        return List.copyOf(sinks);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void collectBatchFlushedSinks(Iterator<Appender<ILoggingEvent>> iterator,
+            List<OutputStreamAppender<ILoggingEvent>> sinks) {
+        while (iterator.hasNext()) {
+            Appender<ILoggingEvent> appender = iterator.next();
+            if (appender instanceof OutputStreamAppender<ILoggingEvent> sink && !sink.isImmediateFlush()) {
+                sinks.add(sink);
+            }
+            else if (appender instanceof AppenderAttachable<?> attachable) {
+                collectBatchFlushedSinks(((AppenderAttachable<ILoggingEvent>) attachable).iteratorForAppenders(),
+                        sinks);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,133 @@
+package ch.dboeckli.example.otel.log.logback;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import io.opentelemetry.api.baggage.Baggage;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import lombok.Getter;
+import lombok.Setter;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lets the log volume of the hot path follow trace sampling: events of the configured
+ * loggers are suppressed while the current span belongs to an unsampled trace, before
+ * logback creates and formats them.
+ * <p>
+ * Events without a valid current span, events of other loggers and events at or above
+ * {@code keepLevel} (default {@code WARN}) are never touched. With {@code baggageKey}
+ * set, a baggage entry of that key with the value {@code true} keeps the events of an
+ * unsampled trace.
+ * <p>
+ * {@link Action#DROP} suppresses every such event below {@code keepLevel},
+ * {@link Action#DOWNGRADE} treats it as one level lower, so an unsampled {@code INFO} is
+ * only logged where {@code DEBUG} is enabled. Events that are logged anyway because of
+ * their level are not counted.
+ */
+public class SampledTraceTurboFilter extends TurboFilter {
+
+    /**
+     * What happens with an event of an unsampled trace.
+     */
+    public enum Action {
+
+        DROP, DOWNGRADE
+
+    }
+
+    private final List<String> loggers = new ArrayList<>();
+
+    private final LongAdder suppressed = new LongAdder();
+
+    @Getter
+    @Setter
+    private Action action = Action.DROP;
+
+    @Getter
+    private Level keepLevel = Level.WARN;
+
+    @Getter
+    @Setter
+    private String baggageKey;
+
+    private String[] loggerPrefixes = new String[0];
+
+    /**
+     * Adds a logger name, the logger and all its descendants are gated.
+     */
+    public void addLogger(String logger) {
+        loggers.add(logger);
+    }
+
+    public List<String> getLoggers() {
+        return List.copyOf(loggers);
+    }
+
+    public void setKeepLevel(String keepLevel) {
+        this.keepLevel = Level.toLevel(keepLevel, Level.WARN);
+    }
+
+    @Override
+    public void start() {
+        if (loggers.isEmpty()) {
+            addError("No logger configured for [" + getName() + "]");
+            return;
+        }
+        loggerPrefixes = loggers.toArray(String[]::new);
+        super.start();
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (!isStarted() || level == null || level.isGreaterOrEqual(keepLevel)
+                || !level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+        SpanContext spanContext = Span.current().getSpanContext();
+        if (!spanContext.isValid() || spanContext.isSampled() || !matches(logger.getName()) || isForced()) {
+            return FilterReply.NEUTRAL;
+        }
+        if (action == Action.DOWNGRADE && downgraded(level).isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+        suppressed.increment();
+        return FilterReply.DENY;
+    }
+
+    /**
+     * Events suppressed since start.
+     */
+    public long getSuppressedCount() {
+        return suppressed.sum();
+    }
+
+    private boolean matches(String loggerName) {
+        for (String prefix : loggerPrefixes) {
+            if (loggerName.startsWith(prefix) && (loggerName.length() == prefix.length()
+                    || loggerName.charAt(prefix.length()) == '.' || loggerName.charAt(prefix.length()) == '$')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isForced() {
+        return baggageKey != null && "true".equals(Baggage.current().getEntryValue(baggageKey));
+    }
+
+    private static Level downgraded(Level level) {
+        return switch (level.toInt()) {
+            case Level.ERROR_INT -> Level.WARN;
+            case Level.WARN_INT -> Level.INFO;
+            case Level.INFO_INT -> Level.DEBUG;
+            default -> Level.TRACE;
+        };
+    }
+
+}
@@ -0,0 +1,136 @@
+package ch.dboeckli.example.otel.log.logback;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.LoggerContextVO;
+import org.slf4j.Marker;
+import org.slf4j.event.KeyValuePair;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Logging event delegating to the original event, with a {@link TraceContextMdcMap} over
+ * the original MDC as MDC. Used when the MDC of the original event cannot be replaced.
+ */
+final class TraceContextLoggingEvent implements ILoggingEvent {
+
+    private final ILoggingEvent delegate;
+
+    private final TraceContextMdcMap mdc;
+
+    TraceContextLoggingEvent(ILoggingEvent delegate, TraceContextMdcMap mdc) {
+        this.delegate = delegate;
+        this.mdc = mdc;
+    }
+
+    @Override
+    public Map<String, String> getMDCPropertyMap() {
+        return mdc;
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public Map<String, String> getMdc() {
+        return getMDCPropertyMap();
+    }
+
+    @Override
+    public void prepareForDeferredProcessing() {
+        delegate.prepareForDeferredProcessing();
+    }
+
+    @Override
+    public String getThreadName() {
+        return delegate.getThreadName();
+    }
+
+    @Override
+    public Level getLevel() {
+        return delegate.getLevel();
+    }
+
+    @Override
+    public String getMessage() {
+        return delegate.getMessage();
+    }
+
+    @Override
+    public Object[] getArgumentArray() {
+        return delegate.getArgumentArray();
+    }
+
+    @Override
+    public String getFormattedMessage() {
+        return delegate.getFormattedMessage();
+    }
+
+    @Override
+    public String getLoggerName() {
+        return delegate.getLoggerName();
+    }
+
+    @Override
+    public LoggerContextVO getLoggerContextVO() {
+        return delegate.getLoggerContextVO();
+    }
+
+    @Override
+    public IThrowableProxy getThrowableProxy() {
+        return delegate.getThrowableProxy();
+    }
+
+    @Override
+    public StackTraceElement[] getCallerData() {
+        return delegate.getCallerData();
+    }
+
+    @Override
+    public boolean hasCallerData() {
+        return delegate.hasCallerData();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public Marker getMarker() {
+        return delegate.getMarker();
+    }
+
+    @Override
+    public List<Marker> getMarkerList() {
+        return delegate.getMarkerList();
+    }
+
+    @Override
+    public long getTimeStamp() {
+        return delegate.getTimeStamp();
+    }
+
+    @Override
+    public int getNanoseconds() {
+        return delegate.getNanoseconds();
+    }
+
+    @Override
+    public Instant getInstant() {
+        return delegate.getInstant();
+    }
+
+    @Override
+    public long getSequenceNumber() {
+        return delegate.getSequenceNumber();
+    }
+
+    @Override
+    public List<KeyValuePair> getKeyValuePairs() {
+        return delegate.getKeyValuePairs();
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+
+}
@@ -0,0 +1,103 @@
+package ch.dboeckli.example.otel.log.logback;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import io.opentelemetry.api.baggage.Baggage;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.context.Context;
+import lombok.Getter;
+import lombok.Setter;
+import org.slf4j.spi.MDCAdapter;
+
+import java.util.Map;
+
+/**
+ * Lazy replacement of the OpenTelemetry logback MDC appender
+ * ({@code otel.instrumentation.logback-mdc}). On the logging thread it only captures the
+ * current {@link SpanContext} and {@link Baggage} and hands the attached appenders an
+ * event whose MDC resolves {@code trace_id}, {@code span_id}, {@code trace_flags} and
+ * {@code baggage.*} from them when an encoder asks for them, instead of copying the MDC
+ * into a new map for every event. Events logged outside of a span and without baggage are
+ * forwarded unchanged.
+ */
+public class TraceContextMdcAppender extends ForwardingAppenderBase {
+
+    /**
+     * MDC keys of the trace context.
+     */
+    record Keys(String traceId, String spanId, String traceFlags) {
+    }
+
+    @Getter
+    @Setter
+    private String traceIdKey = LogEventFields.TRACE_ID;
+
+    @Getter
+    @Setter
+    private String spanIdKey = LogEventFields.SPAN_ID;
+
+    @Getter
+    @Setter
+    private String traceFlagsKey = LogEventFields.TRACE_FLAGS;
+
+    @Getter
+    @Setter
+    private boolean addBaggage = true;
+
+    private Keys keys;
+
+    @Override
+    public void start() {
+        keys = new Keys(traceIdKey, spanIdKey, traceFlagsKey);
+        super.start();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        Context context = Context.current();
+        SpanContext spanContext = Span.fromContext(context).getSpanContext();
+        Baggage baggage = addBaggage ? Baggage.fromContext(context) : Baggage.empty();
+        if (!spanContext.isValid() && baggage.isEmpty()) {
+            appenders.appendLoopOnAppenders(event);
+            return;
+        }
+        if (event instanceof LoggingEvent loggingEvent && replaceMdc(loggingEvent, spanContext, baggage)) {
+            appenders.appendLoopOnAppenders(event);
+            return;
+        }
+        Map<String, String> mdc = event.getMDCPropertyMap();
+        if (mdc != null && mdc.containsKey(keys.traceId())) {
+            appenders.appendLoopOnAppenders(event);
+            return;
+        }
+        appenders.appendLoopOnAppenders(new TraceContextLoggingEvent(event,
+                new TraceContextMdcMap(mdc == null ? Map.of() : mdc, spanContext, baggage, keys)));
+    }
+
+    /**
+     * Sets the lazy MDC on an event whose MDC was not read yet.
+     * @return {@code false} if the MDC of the event is already set
+     */
+    private boolean replaceMdc(LoggingEvent event, SpanContext spanContext, Baggage baggage) {
+        if (!(getContext() instanceof LoggerContext loggerContext)) {
+            return false;
+        }
+        MDCAdapter mdcAdapter = loggerContext.getMDCAdapter();
+        Map<String, String> mdc = mdcAdapter instanceof LogbackMDCAdapter logbackMdcAdapter
+                ? logbackMdcAdapter.getPropertyMap() : mdcAdapter.getCopyOfContextMap();
+        if (mdc != null && mdc.containsKey(keys.traceId())) {
+            return true;
+        }
+        try {
+            event.setMDCPropertyMap(new TraceContextMdcMap(mdc == null ? Map.of() : mdc, spanContext, baggage, keys));
+            return true;
+        }
+        catch (IllegalStateException e) {
+            return false;
+        }
+    }
+
+}
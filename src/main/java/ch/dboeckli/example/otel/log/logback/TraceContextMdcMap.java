@@ -0,0 +1,133 @@
+package ch.dboeckli.example.otel.log.logback;
+
+import io.opentelemetry.api.baggage.Baggage;
+import io.opentelemetry.api.trace.SpanContext;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-only MDC view of the logback MDC plus the trace id, span id, trace flags and
+ * baggage of the span and baggage captured when the event was logged. The same keys and
+ * values as the OpenTelemetry MDC instrumentation, but nothing is copied up front:
+ * {@link #get(Object)} resolves a single key from the captured context and the full entry
+ * list is only built when the map is iterated. The hex ids are the strings the
+ * {@link SpanContext} already holds.
+ */
+final class TraceContextMdcMap extends AbstractMap<String, String> {
+
+    private static final String BAGGAGE_PREFIX = "baggage.";
+
+    private static final int MAX_CACHED_BAGGAGE_KEYS = 256;
+
+    private static final Map<String, String> BAGGAGE_MDC_KEYS = new ConcurrentHashMap<>();
+
+    private final Map<String, String> mdc;
+
+    private final SpanContext spanContext;
+
+    private final Baggage baggage;
+
+    private final TraceContextMdcAppender.Keys keys;
+
+    private List<Entry<String, String>> entries;
+
+    TraceContextMdcMap(Map<String, String> mdc, SpanContext spanContext, Baggage baggage,
+            TraceContextMdcAppender.Keys keys) {
+        this.mdc = mdc;
+        this.spanContext = spanContext;
+        this.baggage = baggage;
+        this.keys = keys;
+    }
+
+    @Override
+    public String get(Object key) {
+        if (!(key instanceof String name)) {
+            return null;
+        }
+        String value = contextValue(name);
+        return value != null ? value : mdc.get(name);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null || mdc.containsKey(key);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return mdc.isEmpty() && !spanContext.isValid() && baggage.isEmpty();
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<>() {
+
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return entries().iterator();
+            }
+
+            @Override
+            public int size() {
+                return entries().size();
+            }
+
+        };
+    }
+
+    /**
+     * The value of a trace or baggage key, these take precedence over the logback MDC.
+     */
+    private String contextValue(String name) {
+        if (spanContext.isValid()) {
+            if (name.equals(keys.traceId())) {
+                return spanContext.getTraceId();
+            }
+            if (name.equals(keys.spanId())) {
+                return spanContext.getSpanId();
+            }
+            if (name.equals(keys.traceFlags())) {
+                return spanContext.getTraceFlags().asHex();
+            }
+        }
+        return name.startsWith(BAGGAGE_PREFIX) ? baggage.getEntryValue(name.substring(BAGGAGE_PREFIX.length())) : null;
+    }
+
+    private List<Entry<String, String>> entries() {
+        if (entries == null) {
+            List<Entry<String, String>> all = new ArrayList<>(mdc.size() + 3 + baggage.size());
+            mdc.forEach((key, value) -> {
+                if (contextValue(key) == null) {
+                    all.add(new SimpleImmutableEntry<>(key, value));
+                }
+            });
+            if (spanContext.isValid()) {
+                all.add(new SimpleImmutableEntry<>(keys.traceId(), spanContext.getTraceId()));
+                all.add(new SimpleImmutableEntry<>(keys.spanId(), spanContext.getSpanId()));
+                all.add(new SimpleImmutableEntry<>(keys.traceFlags(), spanContext.getTraceFlags().asHex()));
+            }
+            baggage.forEach((key, entry) -> all.add(new SimpleImmutableEntry<>(baggageMdcKey(key), entry.getValue())));
+            entries = all;
+        }
+        return entries;
+    }
+
+    private static String baggageMdcKey(String baggageKey) {
+        String mdcKey = BAGGAGE_MDC_KEYS.get(baggageKey);
+        if (mdcKey == null) {
+            mdcKey = BAGGAGE_PREFIX + baggageKey;
+            if (BAGGAGE_MDC_KEYS.size() < MAX_CACHED_BAGGAGE_KEYS) {
+                BAGGAGE_MDC_KEYS.put(baggageKey, mdcKey);
+            }
+        }
+        return mdcKey;
+    }
+
+}
@@ -1,12 +1,14 @@
 package ch.dboeckli.example.otel.rest;
 
 import ch.dboeckli.example.otel.service.HelloService;
+import ch.dboeckli.example.otel.tracing.ScopedValueContextStorage;
 import io.opentelemetry.api.baggage.Baggage;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.context.Context;
-import io.opentelemetry.context.Scope;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -14,14 +16,19 @@ import org.springframework.web.bind.annotation.RestController;
 
 @RestController
 @Slf4j
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class HelloController {
 
     protected final static String HELLO_MESSAGE = "Say Hello...";
 
     private final HelloService helloService;
 
-    public HelloController(HelloService helloService) {
+    private final boolean copyBaggageToSpan;
+
+    public HelloController(HelloService helloService,
+            @Value("${tracing.filter.baggage-tagging.copy-to-span:false}") boolean copyBaggageToSpan) {
         this.helloService = helloService;
+        this.copyBaggageToSpan = copyBaggageToSpan;
     }
 
     @GetMapping("/hello")
@@ -29,12 +36,14 @@ public class HelloController {
         log.info("### HelloController.hello() 1");
         Baggage baggage = Baggage.current().toBuilder().put("addedBaggageByController", "gugus").build();
 
-        try (Scope ignored = baggage.storeInContext(Context.current()).makeCurrent()) {
-            baggage.asMap().forEach((key, entry) -> Span.current().setAttribute(key, entry.getValue()));
+        ScopedValueContextStorage.run(baggage.storeInContext(Context.current()), () -> {
+            if (copyBaggageToSpan) {
+                baggage.asMap().forEach((key, entry) -> Span.current().setAttribute(key, entry.getValue()));
+            }
             log.info(HELLO_MESSAGE);
             log.info("### HelloController.hello() 2");
             helloService.processHello();
-        }
+        });
 
         return new ResponseEntity<>("{\"message\":\"hello\"}", HttpStatus.OK);
     }
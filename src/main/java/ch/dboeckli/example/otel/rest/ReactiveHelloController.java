@@ -0,0 +1,61 @@
+package ch.dboeckli.example.otel.rest;
+
+import ch.dboeckli.example.otel.service.HelloService;
+import ch.dboeckli.example.otel.tracing.ReactorOtelContext;
+import ch.dboeckli.example.otel.tracing.ScopedValueContextStorage;
+import io.opentelemetry.api.baggage.Baggage;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Context;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link HelloController} for the {@code reactive} profile on Netty. The OpenTelemetry
+ * context comes from the Reactor context and is bound only around the log calls.
+ */
+@RestController
+@Slf4j
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveHelloController {
+
+    private final HelloService helloService;
+
+    private final boolean copyBaggageToSpan;
+
+    public ReactiveHelloController(HelloService helloService,
+            @Value("${tracing.filter.baggage-tagging.copy-to-span:false}") boolean copyBaggageToSpan) {
+        this.helloService = helloService;
+        this.copyBaggageToSpan = copyBaggageToSpan;
+    }
+
+    @GetMapping("/hello")
+    public Mono<ResponseEntity<String>> hello() {
+        return Mono.deferContextual(view -> {
+            Context requestContext = ReactorOtelContext.get(view);
+            ScopedValueContextStorage.run(requestContext, () -> log.info("### HelloController.hello() 1"));
+            Baggage baggage = Baggage.fromContext(requestContext)
+                .toBuilder()
+                .put("addedBaggageByController", "gugus")
+                .build();
+            Context controllerContext = requestContext.with(baggage);
+
+            if (copyBaggageToSpan) {
+                Span span = Span.fromContext(controllerContext);
+                baggage.forEach((key, entry) -> span.setAttribute(key, entry.getValue()));
+            }
+            ScopedValueContextStorage.run(controllerContext, () -> {
+                log.info(HelloController.HELLO_MESSAGE);
+                log.info("### HelloController.hello() 2");
+            });
+            return helloService.processHelloReactive()
+                .contextWrite(reactorContext -> ReactorOtelContext.store(reactorContext, controllerContext));
+        }).thenReturn(new ResponseEntity<>("{\"message\":\"hello\"}", HttpStatus.OK));
+    }
+
+}
@@ -1,15 +1,24 @@
 package ch.dboeckli.example.otel.service;
 
+import ch.dboeckli.example.otel.concurrent.StructuredFanOut;
+import ch.dboeckli.example.otel.concurrent.StructuredFanOut.Subtask;
+import ch.dboeckli.example.otel.tracing.ReactorOtelContext;
+import ch.dboeckli.example.otel.tracing.ScopedValueContextStorage;
 import io.opentelemetry.api.OpenTelemetry;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.SpanKind;
 import io.opentelemetry.api.trace.StatusCode;
 import io.opentelemetry.api.trace.Tracer;
-import io.opentelemetry.context.Scope;
+import io.opentelemetry.context.Context;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.info.BuildProperties;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
 
 @Service
 @Slf4j
@@ -19,36 +28,87 @@ public class HelloService {
 
     private final Tracer tracer;
 
+    private final StructuredFanOut fanOut;
+
     public HelloService(OpenTelemetry openTelemetry, @Value("${spring.application.name}") String appName,
-            BuildProperties buildProperties) {
+            BuildProperties buildProperties, @Value("${hello.fan-out.deadline:5s}") Duration fanOutDeadline) {
         this.tracer = openTelemetry.getTracer(appName, buildProperties.getVersion());
+        this.fanOut = new StructuredFanOut(tracer, fanOutDeadline);
     }
 
     public String processHello() {
         // Create a span for the entire service processing operation
-        Span serviceSpan = tracer.spanBuilder("process-hello")
-            .setSpanKind(SpanKind.INTERNAL)
-            .setAttribute("addedSpanAttributeByService", "helloFromService")
-            .startSpan();
+        Span serviceSpan = startServiceSpan(Context.current());
 
         // Make the span current for this execution context
-        try (Scope _s = serviceSpan.makeCurrent()) {
-            // Log events within the span
-            serviceSpan.addEvent("service-started");
+        try {
+            return ScopedValueContextStorage.call(Context.current().with(serviceSpan), () -> {
+                // Log events within the span
+                serviceSpan.addEvent("service-started");
 
-            try {
-                serviceSpan.addEvent("service-completed");
-                serviceSpan.setStatus(StatusCode.OK);
-                return "Hello from the service";
-            }
-            catch (Exception e) {
-                serviceSpan.recordException(e);
-                throw e;
-            }
+                try {
+                    serviceSpan.addEvent("service-completed");
+                    serviceSpan.setStatus(StatusCode.OK);
+                    return "Hello from the service";
+                }
+                catch (Exception e) {
+                    serviceSpan.recordException(e);
+                    throw e;
+                }
+            });
         }
         finally {
             serviceSpan.end();
         }
     }
 
+    /**
+     * Non-blocking counterpart of {@link #processHello()}. The parent is the OpenTelemetry
+     * context in the Reactor context of the subscriber, see {@link ReactorOtelContext}.
+     */
+    public Mono<String> processHelloReactive() {
+        return Mono.deferContextual(view -> {
+            Span serviceSpan = startServiceSpan(ReactorOtelContext.get(view));
+            serviceSpan.addEvent("service-started");
+            return Mono.just("Hello from the service")
+                .doOnSuccess(result -> {
+                    serviceSpan.addEvent("service-completed");
+                    serviceSpan.setStatus(StatusCode.OK);
+                })
+                .doOnError(serviceSpan::recordException)
+                .doFinally(signal -> serviceSpan.end());
+        });
+    }
+
+    /**
+     * Calls all backends in parallel and returns their results in order. The first failure
+     * cancels the other calls.
+     * @param deadline for all calls together, {@code hello.fan-out.deadline} when
+     * {@code null}
+     * @see StructuredFanOut#invokeAll
+     */
+    public <T> List<T> fanOutAll(List<Subtask<T>> backends, @Nullable Duration deadline) throws InterruptedException {
+        return fanOut.invokeAll(backends, deadline);
+    }
+
+    /**
+     * Calls all backends in parallel and returns the first successful result, e.g. for
+     * replicas of the same backend. The other calls are cancelled.
+     * @param deadline for all calls together, {@code hello.fan-out.deadline} when
+     * {@code null}
+     * @see StructuredFanOut#invokeAny
+     */
+    public <T> T fanOutFirstSuccess(List<Subtask<T>> backends, @Nullable Duration deadline)
+            throws InterruptedException {
+        return fanOut.invokeAny(backends, deadline);
+    }
+
+    private Span startServiceSpan(Context parent) {
+        return tracer.spanBuilder("process-hello")
+            .setParent(parent)
+            .setSpanKind(SpanKind.INTERNAL)
+            .setAttribute("addedSpanAttributeByService", "helloFromService")
+            .startSpan();
+    }
+
 }
@@ -0,0 +1,95 @@
+package ch.dboeckli.example.otel.startup;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Actuator endpoint listing the slowest startup steps, exposed as
+ * {@code /actuator/startup-steps}. Steps are ranked by their self time, the duration
+ * without the recorded child steps, so a bean is not blamed for the beans it depends on.
+ * The list is empty unless the application was started with a
+ * {@link BufferingApplicationStartup}.
+ */
+@Component
+@Endpoint(id = "startupsteps")
+public class StartupStepsEndpoint {
+
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final ApplicationStartup applicationStartup;
+
+    public StartupStepsEndpoint(ApplicationStartup applicationStartup) {
+        this.applicationStartup = applicationStartup;
+    }
+
+    @ReadOperation
+    public Summary slowest(@Nullable Integer limit) {
+        if (!(applicationStartup instanceof BufferingApplicationStartup bufferingStartup)) {
+            return new Summary(0, Duration.ZERO, List.of());
+        }
+        return summarize(bufferingStartup.getBufferedTimeline(), limit == null || limit <= 0 ? DEFAULT_LIMIT : limit);
+    }
+
+    static Summary summarize(StartupTimeline timeline, int limit) {
+        List<StartupTimeline.TimelineEvent> events = timeline.getEvents();
+        Map<Long, Duration> childDurations = new HashMap<>();
+        for (StartupTimeline.TimelineEvent event : events) {
+            Long parentId = event.getStartupStep().getParentId();
+            if (parentId != null) {
+                childDurations.merge(parentId, event.getDuration(), Duration::plus);
+            }
+        }
+        Duration total = Duration.ZERO;
+        for (StartupTimeline.TimelineEvent event : events) {
+            if (event.getStartupStep().getParentId() == null) {
+                total = total.plus(event.getDuration());
+            }
+        }
+        List<Step> slowest = events.stream()
+            .map(event -> Step.of(event, childDurations.getOrDefault(event.getStartupStep().getId(), Duration.ZERO)))
+            .sorted(Comparator.comparing(Step::self).reversed())
+            .limit(limit)
+            .toList();
+        return new Summary(events.size(), total, slowest);
+    }
+
+    /**
+     * @param steps number of recorded steps
+     * @param total duration of the recorded top-level steps
+     * @param slowest the steps with the highest self time
+     */
+    public record Summary(int steps, Duration total, List<Step> slowest) {
+    }
+
+    /**
+     * @param duration duration of the step including its child steps
+     * @param self duration of the step without its child steps
+     */
+    public record Step(long id, @Nullable Long parentId, String name, Duration duration, Duration self,
+            Map<String, String> tags) {
+
+        static Step of(StartupTimeline.TimelineEvent event, Duration childDuration) {
+            StartupStep step = event.getStartupStep();
+            Map<String, String> tags = new LinkedHashMap<>();
+            step.getTags().forEach(tag -> tags.put(tag.getKey(), tag.getValue()));
+            Duration self = event.getDuration().minus(childDuration);
+            return new Step(step.getId(), step.getParentId(), step.getName(), event.getDuration(),
+                    self.isNegative() ? Duration.ZERO : self, tags);
+        }
+
+    }
+
+}
@@ -0,0 +1,89 @@
+package ch.dboeckli.example.otel.startup;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replays the steps recorded by a {@link BufferingApplicationStartup} as one trace once
+ * the application is ready: a root span {@code application.startup} from the start of the
+ * recording until readiness, and one span per step (bean instantiation, context refresh,
+ * configuration class parsing, ...) with the step tags as attributes. A step is a child
+ * of its parent step, steps whose parent was not recorded are children of the root span.
+ * <p>
+ * Without a {@link BufferingApplicationStartup}, e.g. in tests not starting through
+ * {@code main}, nothing is exported. The recorded steps are not drained, so the actuator
+ * {@code startup} endpoint still sees them.
+ */
+@Component
+@Slf4j
+public class StartupTrace {
+
+    static final String ROOT_SPAN_NAME = "application.startup";
+
+    static final String STEP_ID = "spring.startup.step.id";
+
+    private final ApplicationStartup applicationStartup;
+
+    private final Tracer tracer;
+
+    public StartupTrace(ApplicationStartup applicationStartup, OpenTelemetry openTelemetry) {
+        this.applicationStartup = applicationStartup;
+        this.tracer = openTelemetry.getTracer(StartupTrace.class.getName());
+    }
+
+    @EventListener
+    public void onApplicationReady(ApplicationReadyEvent event) {
+        if (applicationStartup instanceof BufferingApplicationStartup bufferingStartup) {
+            export(bufferingStartup.getBufferedTimeline(), Instant.now());
+        }
+    }
+
+    void export(StartupTimeline timeline, Instant readyTime) {
+        List<StartupTimeline.TimelineEvent> events = timeline.getEvents()
+            .stream()
+            .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getStartTime))
+            .toList();
+        Span root = tracer.spanBuilder(ROOT_SPAN_NAME)
+            .setSpanKind(SpanKind.INTERNAL)
+            .setNoParent()
+            .setStartTimestamp(timeline.getStartTime())
+            .setAttribute("spring.startup.steps", events.size())
+            .startSpan();
+        Context rootContext = Context.root().with(root);
+        Map<Long, Context> stepContexts = new HashMap<>();
+        for (StartupTimeline.TimelineEvent event : events) {
+            StartupStep step = event.getStartupStep();
+            Context parent = step.getParentId() == null ? rootContext
+                    : stepContexts.getOrDefault(step.getParentId(), rootContext);
+            Span span = tracer.spanBuilder(step.getName())
+                .setSpanKind(SpanKind.INTERNAL)
+                .setParent(parent)
+                .setStartTimestamp(event.getStartTime())
+                .setAttribute(STEP_ID, step.getId())
+                .startSpan();
+            step.getTags().forEach(tag -> span.setAttribute(tag.getKey(), tag.getValue()));
+            span.end(event.getEndTime());
+            stepContexts.put(step.getId(), parent.with(span));
+        }
+        root.end(readyTime);
+        log.info("Exported {} startup steps as trace {}", events.size(), root.getSpanContext().getTraceId());
+    }
+
+}
@@ -0,0 +1,29 @@
+package ch.dboeckli.example.otel.tracing;
+
+import io.opentelemetry.sdk.autoconfigure.spi.AutoConfigurationCustomizerProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Adds the {@link BaggageSpanProcessor} to the tracer provider, switched off with
+ * {@code tracing.baggage-attributes.enabled=false}.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(BaggageAttributesProperties.class)
+@ConditionalOnProperty(prefix = "tracing.baggage-attributes", name = "enabled", matchIfMissing = true)
+public class BaggageAttributesConfiguration {
+
+    @Bean
+    public BaggageSpanProcessor baggageSpanProcessor(BaggageAttributesProperties properties) {
+        return new BaggageSpanProcessor(properties);
+    }
+
+    @Bean
+    public AutoConfigurationCustomizerProvider baggageSpanProcessorCustomizer(BaggageSpanProcessor processor) {
+        return customizer -> customizer
+            .addTracerProviderCustomizer((builder, config) -> builder.addSpanProcessor(processor));
+    }
+
+}
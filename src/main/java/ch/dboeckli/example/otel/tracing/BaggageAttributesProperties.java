@@ -0,0 +1,48 @@
+package ch.dboeckli.example.otel.tracing;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration of the {@link BaggageSpanProcessor} ({@code tracing.baggage-attributes.*}).
+ * Only baggage entries listed in {@link #allowedKeys} or starting with one of
+ * {@link #allowedPrefixes} are copied, baggage is client-supplied.
+ */
+@ConfigurationProperties(prefix = "tracing.baggage-attributes")
+@Getter
+@Setter
+public class BaggageAttributesProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Baggage keys copied as they are.
+     */
+    private List<String> allowedKeys = new ArrayList<>();
+
+    /**
+     * Baggage keys starting with one of these prefixes are copied as well.
+     */
+    private List<String> allowedPrefixes = new ArrayList<>();
+
+    /**
+     * Upper bound for the baggage attributes per span, further entries are dropped.
+     */
+    private int maxAttributes = 16;
+
+    /**
+     * Longer values are truncated.
+     */
+    private int maxValueLength = 256;
+
+    /**
+     * Upper bound for the attribute keys kept for prefix matches, keys beyond it are
+     * dropped so that clients cannot grow the key cache.
+     */
+    private int maxPrefixKeys = 256;
+
+}
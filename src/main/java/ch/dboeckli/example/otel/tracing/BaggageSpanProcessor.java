@@ -0,0 +1,153 @@
+package ch.dboeckli.example.otel.tracing;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.opentelemetry.api.baggage.Baggage;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Copies allowlisted baggage entries of the parent context to every span when it starts,
+ * child spans such as {@code process-hello} included. Replaces the copying of the whole
+ * baggage to the current span on every request in the filters and the controller.
+ * <p>
+ * The attribute keys of {@code allowed-keys} are created once, the ones of
+ * {@code allowed-prefixes} are cached up to {@code max-prefix-keys}. Per span at most
+ * {@code max-attributes} entries are copied and values are truncated to
+ * {@code max-value-length}, so the size of a span stays bounded whatever a client sends.
+ * What was copied, truncated or dropped is counted in {@code tracing.baggage.attributes}.
+ */
+public class BaggageSpanProcessor implements SpanProcessor, MeterBinder {
+
+    private final Map<String, AttributeKey<String>> allowedKeys = new HashMap<>();
+
+    private final String[] allowedPrefixes;
+
+    private final Map<String, AttributeKey<String>> prefixKeys = new ConcurrentHashMap<>();
+
+    private final int maxAttributes;
+
+    private final int maxValueLength;
+
+    private final int maxPrefixKeys;
+
+    private final LongAdder copied = new LongAdder();
+
+    private final LongAdder truncated = new LongAdder();
+
+    private final LongAdder notAllowed = new LongAdder();
+
+    private final LongAdder attributeLimit = new LongAdder();
+
+    private final LongAdder keyLimit = new LongAdder();
+
+    public BaggageSpanProcessor(BaggageAttributesProperties properties) {
+        properties.getAllowedKeys().forEach(key -> allowedKeys.put(key, AttributeKey.stringKey(key)));
+        this.allowedPrefixes = properties.getAllowedPrefixes().toArray(String[]::new);
+        this.maxAttributes = properties.getMaxAttributes();
+        this.maxValueLength = properties.getMaxValueLength();
+        this.maxPrefixKeys = properties.getMaxPrefixKeys();
+    }
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {
+        Baggage baggage = Baggage.fromContext(parentContext);
+        if (baggage.isEmpty()) {
+            return;
+        }
+        int[] count = new int[1];
+        baggage.forEach((key, entry) -> {
+            AttributeKey<String> attributeKey = attributeKey(key);
+            if (attributeKey == null) {
+                return;
+            }
+            if (count[0] == maxAttributes) {
+                attributeLimit.increment();
+                return;
+            }
+            count[0]++;
+            String value = entry.getValue();
+            if (value.length() > maxValueLength) {
+                value = value.substring(0, maxValueLength);
+                truncated.increment();
+            }
+            span.setAttribute(attributeKey, value);
+            copied.increment();
+        });
+    }
+
+    @Override
+    public boolean isStartRequired() {
+        return true;
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return false;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        register(registry, copied, "copied");
+        register(registry, truncated, "truncated");
+        register(registry, notAllowed, "not_allowed");
+        register(registry, attributeLimit, "attribute_limit");
+        register(registry, keyLimit, "key_limit");
+    }
+
+    private AttributeKey<String> attributeKey(String key) {
+        AttributeKey<String> attributeKey = allowedKeys.get(key);
+        if (attributeKey != null) {
+            return attributeKey;
+        }
+        attributeKey = prefixKeys.get(key);
+        if (attributeKey != null) {
+            return attributeKey;
+        }
+        if (!hasAllowedPrefix(key)) {
+            notAllowed.increment();
+            return null;
+        }
+        if (prefixKeys.size() >= maxPrefixKeys) {
+            keyLimit.increment();
+            return null;
+        }
+        return prefixKeys.computeIfAbsent(key, AttributeKey::stringKey);
+    }
+
+    private boolean hasAllowedPrefix(String key) {
+        for (String prefix : allowedPrefixes) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void register(MeterRegistry registry, LongAdder counter, String outcome) {
+        FunctionCounter.builder("tracing.baggage.attributes", counter, LongAdder::sum)
+            .description("Baggage entries handled when copying baggage to span attributes")
+            .tag("outcome", outcome)
+            .register(registry);
+    }
+
+    @Override
+    public String toString() {
+        return "BaggageSpanProcessor{allowedKeys=" + allowedKeys.keySet() + ", allowedPrefixes="
+                + String.join(",", allowedPrefixes) + "}";
+    }
+
+}
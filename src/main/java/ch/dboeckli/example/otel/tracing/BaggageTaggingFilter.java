@@ -8,6 +8,8 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
@@ -15,8 +17,14 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 
+/**
+ * Legacy filter adding baggage and copying it to the current span. Only registered with
+ * {@code tracing.filter.mode=legacy}, otherwise {@link TelemetryFilter} takes over.
+ */
 @Component
 @Slf4j
+@ConditionalOnProperty(prefix = "tracing.filter", name = "mode", havingValue = "legacy")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @Order(Ordered.LOWEST_PRECEDENCE)
 public class BaggageTaggingFilter extends OncePerRequestFilter {
 
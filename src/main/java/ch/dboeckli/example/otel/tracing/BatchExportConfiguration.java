@@ -0,0 +1,102 @@
+package ch.dboeckli.example.otel.tracing;
+
+import io.opentelemetry.sdk.autoconfigure.spi.AutoConfigurationCustomizerProvider;
+import io.opentelemetry.sdk.autoconfigure.spi.ConfigProperties;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Replaces the exporting span processors the SDK builds for {@code otel.traces.exporter}
+ * with one {@link StripedBatchSpanProcessor}, switched on with
+ * {@code tracing.batch-export.enabled=true}.
+ * <p>
+ * The SDK hands its processors only a detached view of the exporters: the last span
+ * exporter customizer takes the exporters, after all other exporter customizers wrapped
+ * them, and the first span processor customizer shuts the SDK processors down before
+ * they saw a span and puts the striped processor in place of the first one. Further
+ * processor customizers such as the tail sampling wrap the striped processor.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(BatchExportProperties.class)
+@ConditionalOnProperty(prefix = "tracing.batch-export", name = "enabled")
+public class BatchExportConfiguration {
+
+    private final List<SpanExporter> exporters = new CopyOnWriteArrayList<>();
+
+    @Bean
+    public BatchExportMetrics batchExportMetrics() {
+        return new BatchExportMetrics();
+    }
+
+    @Bean
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public AutoConfigurationCustomizerProvider stripedBatchExporterCustomizer() {
+        return customizer -> customizer.addSpanExporterCustomizer((exporter, config) -> {
+            exporters.add(exporter);
+            return new DetachedSpanExporter(exporter);
+        });
+    }
+
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public AutoConfigurationCustomizerProvider stripedBatchProcessorCustomizer(BatchExportProperties properties,
+            BatchExportMetrics metrics) {
+        return customizer -> customizer.addSpanProcessorCustomizer((processor, config) -> {
+            if (!(processor instanceof BatchSpanProcessor) && !(processor instanceof SimpleSpanProcessor)) {
+                return processor;
+            }
+            processor.shutdown();
+            if (metrics.getProcessor() != null || exporters.isEmpty()) {
+                return SpanProcessor.composite();
+            }
+            return create(exporters, properties, metrics, config);
+        });
+    }
+
+    private static StripedBatchSpanProcessor create(Collection<SpanExporter> exporters,
+            BatchExportProperties properties, BatchExportMetrics metrics, ConfigProperties config) {
+        return new StripedBatchSpanProcessor(SpanExporter.composite(exporters), properties.getStripes(),
+                config.getInt("otel.bsp.max.queue.size", 2048), config.getInt("otel.bsp.max.export.batch.size", 512),
+                config.getDuration("otel.bsp.schedule.delay", Duration.ofSeconds(5)).toNanos(),
+                config.getDuration("otel.bsp.export.timeout", Duration.ofSeconds(30)).toNanos(), metrics);
+    }
+
+    /**
+     * What the SDK processors get instead of the exporter, they are shut down right away
+     * and must not close the exporter.
+     */
+    private record DetachedSpanExporter(SpanExporter exporter) implements SpanExporter {
+
+        @Override
+        public CompletableResultCode export(Collection<SpanData> spans) {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode flush() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+    }
+
+}
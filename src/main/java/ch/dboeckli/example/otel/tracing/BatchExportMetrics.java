@@ -0,0 +1,120 @@
+package ch.dboeckli.example.otel.tracing;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.lang.Nullable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of the {@link StripedBatchSpanProcessor}: queue depth and capacity, enqueue
+ * latency, dropped spans, export duration and batch size ({@code tracing.export.*}).
+ * <p>
+ * The processor is created while the OpenTelemetry SDK is built, before any
+ * {@link MeterRegistry} exists. Counters are plain {@link LongAdder}s, batch sizes
+ * recorded before the registry is bound are not kept.
+ */
+public class BatchExportMetrics implements MeterBinder {
+
+    final LongAdder dropped = new LongAdder();
+
+    private final LongAdder enqueueCount = new LongAdder();
+
+    private final LongAdder enqueueNanos = new LongAdder();
+
+    private final LongAdder exportCount = new LongAdder();
+
+    private final LongAdder exportNanos = new LongAdder();
+
+    private final LongAdder exportedSpans = new LongAdder();
+
+    private final LongAdder failedSpans = new LongAdder();
+
+    private volatile StripedBatchSpanProcessor processor;
+
+    private volatile DistributionSummary batchSize;
+
+    void attach(StripedBatchSpanProcessor processor) {
+        this.processor = processor;
+    }
+
+    @Nullable
+    public StripedBatchSpanProcessor getProcessor() {
+        return processor;
+    }
+
+    void enqueued(long nanos) {
+        enqueueCount.increment();
+        enqueueNanos.add(nanos);
+    }
+
+    void exported(long nanos, int spans, boolean success) {
+        exportCount.increment();
+        exportNanos.add(nanos);
+        (success ? exportedSpans : failedSpans).add(spans);
+        DistributionSummary summary = batchSize;
+        if (summary != null) {
+            summary.record(spans);
+        }
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getExportedSpanCount() {
+        return exportedSpans.sum();
+    }
+
+    public long getFailedSpanCount() {
+        return failedSpans.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("tracing.export.queue.depth", this, metrics -> queue(metrics, false))
+            .description("Spans waiting in the stripes of the export queue")
+            .register(registry);
+        Gauge.builder("tracing.export.queue.capacity", this, metrics -> queue(metrics, true))
+            .description("Capacity of all stripes of the export queue")
+            .register(registry);
+        FunctionTimer
+            .builder("tracing.export.enqueue", enqueueCount, LongAdder::sum, adder -> enqueueNanos.sum(),
+                    TimeUnit.NANOSECONDS)
+            .description("Time to put an ended span into the export queue")
+            .register(registry);
+        FunctionCounter.builder("tracing.export.dropped", dropped, LongAdder::sum)
+            .description("Spans dropped because their stripe of the export queue was full")
+            .register(registry);
+        FunctionTimer
+            .builder("tracing.export.duration", exportCount, LongAdder::sum, adder -> exportNanos.sum(),
+                    TimeUnit.NANOSECONDS)
+            .description("Time to export one batch")
+            .register(registry);
+        FunctionCounter.builder("tracing.export.spans", exportedSpans, LongAdder::sum)
+            .description("Spans handed to the exporter")
+            .tag("outcome", "success")
+            .register(registry);
+        FunctionCounter.builder("tracing.export.spans", failedSpans, LongAdder::sum)
+            .description("Spans handed to the exporter")
+            .tag("outcome", "failure")
+            .register(registry);
+        batchSize = DistributionSummary.builder("tracing.export.batch.size")
+            .description("Spans per exported batch")
+            .register(registry);
+    }
+
+    private static double queue(BatchExportMetrics metrics, boolean capacity) {
+        StripedBatchSpanProcessor current = metrics.processor;
+        if (current == null) {
+            return 0;
+        }
+        return capacity ? current.getQueueCapacity() : current.getQueueDepth();
+    }
+
+}
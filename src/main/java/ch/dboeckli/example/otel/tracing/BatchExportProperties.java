@@ -0,0 +1,25 @@
+package ch.dboeckli.example.otel.tracing;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the {@link StripedBatchSpanProcessor} ({@code tracing.batch-export.*}).
+ * Queue size, batch size, schedule delay and export timeout are taken from the SDK
+ * properties {@code otel.bsp.*}, as for the {@code BatchSpanProcessor} it replaces.
+ */
+@ConfigurationProperties(prefix = "tracing.batch-export")
+@Getter
+@Setter
+public class BatchExportProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Number of queue stripes, rounded up to a power of two. {@code 0} uses the number of
+     * available processors, at most 64.
+     */
+    private int stripes = 0;
+
+}
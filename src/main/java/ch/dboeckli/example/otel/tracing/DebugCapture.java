@@ -0,0 +1,238 @@
+package ch.dboeckli.example.otel.tracing;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.opentelemetry.api.trace.SpanContext;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * Runtime switch for the trace debug logging of {@link TelemetryFilter},
+ * {@link TraceDebugFilter} and {@link TelemetryWebFilter}.
+ * <p>
+ * Capturing is off by default. {@link #enable} starts a session, typically through the
+ * {@code trace-debug} actuator endpoint, which can be narrowed to a path pattern, a
+ * request header and a trace-id prefix. Every session is capped by a token bucket and
+ * expires on its own. Without an active session the filters only pay for one volatile
+ * read.
+ */
+@Component
+@Slf4j
+public class DebugCapture implements MeterBinder {
+
+    private final AtomicReference<Session> session = new AtomicReference<>();
+
+    private final LongAdder captured = new LongAdder();
+
+    private final LongAdder rateLimited = new LongAdder();
+
+    private final Duration defaultDuration;
+
+    private final Duration maxDuration;
+
+    private final double maxRatePerSecond;
+
+    private final Clock clock;
+
+    @Autowired
+    public DebugCapture(TracingFilterProperties properties) {
+        this(properties, Clock.systemUTC());
+    }
+
+    DebugCapture(TracingFilterProperties properties, Clock clock) {
+        TracingFilterProperties.Debug debug = properties.getDebug();
+        this.defaultDuration = debug.getDefaultDuration();
+        this.maxDuration = debug.getMaxDuration();
+        this.maxRatePerSecond = debug.getMaxRatePerSecond();
+        this.clock = clock;
+    }
+
+    /**
+     * Starts a new capture session and replaces a running one. Missing scopes match every
+     * request, the duration and rate are capped by the configured maxima.
+     */
+    public Status enable(@Nullable String pathPattern, @Nullable String header, @Nullable String headerValue,
+            @Nullable String traceIdPrefix, @Nullable Duration duration, @Nullable Double ratePerSecond) {
+        Duration effectiveDuration = duration == null || duration.isNegative() || duration.isZero() ? defaultDuration
+                : duration;
+        if (effectiveDuration.compareTo(maxDuration) > 0) {
+            effectiveDuration = maxDuration;
+        }
+        double effectiveRate = ratePerSecond == null || ratePerSecond <= 0 ? maxRatePerSecond
+                : Math.min(ratePerSecond, maxRatePerSecond);
+        long now = clock.millis();
+        Session newSession = new Session(
+                hasText(pathPattern) ? PathPatternParser.defaultInstance.parse(pathPattern) : null,
+                hasText(header) ? header : null, hasText(headerValue) ? headerValue : null,
+                hasText(traceIdPrefix) ? traceIdPrefix.toLowerCase() : null, now + effectiveDuration.toMillis(),
+                new TokenBucket(effectiveRate, now));
+        session.set(newSession);
+        log.warn("Trace debug capture enabled: {}", newSession.describe());
+        return status();
+    }
+
+    public Status disable() {
+        Session previous = session.getAndSet(null);
+        if (previous != null) {
+            log.warn("Trace debug capture disabled");
+        }
+        return status();
+    }
+
+    public Status status() {
+        Session current = activeSession(clock.millis());
+        if (current == null) {
+            return new Status(false, null, null, null, null, null, 0, captured.sum(), rateLimited.sum());
+        }
+        return new Status(true, current.pathPattern() == null ? null : current.pathPattern().getPatternString(),
+                current.header(), current.headerValue(), current.traceIdPrefix(),
+                Instant.ofEpochMilli(current.expiresAt()), current.bucket().ratePerSecond(), captured.sum(),
+                rateLimited.sum());
+    }
+
+    /**
+     * Decides whether the given request is captured. Returns {@code false} straight away
+     * when no session is active.
+     */
+    public boolean shouldCapture(HttpServletRequest request, SpanContext spanContext) {
+        return shouldCapture(request.getRequestURI(), request::getHeader, spanContext);
+    }
+
+    /**
+     * Reactive variant of {@link #shouldCapture(HttpServletRequest, SpanContext)}.
+     */
+    public boolean shouldCapture(ServerHttpRequest request, SpanContext spanContext) {
+        return shouldCapture(request.getPath().value(), request.getHeaders()::getFirst, spanContext);
+    }
+
+    private boolean shouldCapture(String path, UnaryOperator<String> headers, SpanContext spanContext) {
+        Session current = session.get();
+        if (current == null) {
+            return false;
+        }
+        long now = clock.millis();
+        if (now >= current.expiresAt()) {
+            if (session.compareAndSet(current, null)) {
+                log.warn("Trace debug capture expired");
+            }
+            return false;
+        }
+        if (!current.matches(path, headers, spanContext)) {
+            return false;
+        }
+        if (!current.bucket().tryAcquire(now)) {
+            rateLimited.increment();
+            return false;
+        }
+        captured.increment();
+        return true;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("tracing.debug.captures", captured, LongAdder::sum)
+            .description("Requests logged by the trace debug capture")
+            .tag("outcome", "captured")
+            .register(registry);
+        FunctionCounter.builder("tracing.debug.captures", rateLimited, LongAdder::sum)
+            .description("Requests logged by the trace debug capture")
+            .tag("outcome", "rate_limited")
+            .register(registry);
+    }
+
+    @Nullable
+    private Session activeSession(long now) {
+        Session current = session.get();
+        return current == null || now >= current.expiresAt() ? null : current;
+    }
+
+    private static boolean hasText(@Nullable String value) {
+        return value != null && !value.isBlank();
+    }
+
+    /**
+     * Snapshot of the capture state as reported by the actuator endpoint.
+     */
+    public record Status(boolean active, String pathPattern, String header, String headerValue, String traceIdPrefix,
+            Instant expiresAt, double ratePerSecond, long captured, long rateLimited) {
+    }
+
+    private record Session(PathPattern pathPattern, String header, String headerValue, String traceIdPrefix,
+            long expiresAt, TokenBucket bucket) {
+
+        boolean matches(String path, UnaryOperator<String> headers, SpanContext spanContext) {
+            if (traceIdPrefix != null && !spanContext.getTraceId().startsWith(traceIdPrefix)) {
+                return false;
+            }
+            if (header != null) {
+                String value = headers.apply(header);
+                if (value == null || (headerValue != null && !headerValue.equals(value))) {
+                    return false;
+                }
+            }
+            return pathPattern == null || pathPattern.matches(PathContainer.parsePath(path));
+        }
+
+        String describe() {
+            return "path=" + (pathPattern == null ? "*" : pathPattern.getPatternString()) + ", header="
+                    + (header == null ? "*" : header + (headerValue == null ? "" : "=" + headerValue))
+                    + ", traceIdPrefix=" + (traceIdPrefix == null ? "*" : traceIdPrefix) + ", rate="
+                    + bucket.ratePerSecond() + "/s, expiresAt=" + Instant.ofEpochMilli(expiresAt);
+        }
+
+    }
+
+    /**
+     * Token bucket holding at most one second worth of tokens.
+     */
+    static final class TokenBucket {
+
+        private final double ratePerSecond;
+
+        private final double capacity;
+
+        private double tokens;
+
+        private long lastRefill;
+
+        TokenBucket(double ratePerSecond, long now) {
+            this.ratePerSecond = ratePerSecond;
+            this.capacity = Math.max(1, ratePerSecond);
+            this.tokens = capacity;
+            this.lastRefill = now;
+        }
+
+        double ratePerSecond() {
+            return ratePerSecond;
+        }
+
+        synchronized boolean tryAcquire(long now) {
+            if (now > lastRefill) {
+                tokens = Math.min(capacity, tokens + (now - lastRefill) * ratePerSecond / 1000d);
+                lastRefill = now;
+            }
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+
+    }
+
+}
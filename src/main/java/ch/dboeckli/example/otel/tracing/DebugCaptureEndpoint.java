@@ -0,0 +1,42 @@
+package ch.dboeckli.example.otel.tracing;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Actuator endpoint switching the {@link DebugCapture} at runtime, exposed as
+ * {@code /actuator/trace-debug}.
+ */
+@Component
+@Endpoint(id = "tracedebug")
+public class DebugCaptureEndpoint {
+
+    private final DebugCapture debugCapture;
+
+    public DebugCaptureEndpoint(DebugCapture debugCapture) {
+        this.debugCapture = debugCapture;
+    }
+
+    @ReadOperation
+    public DebugCapture.Status status() {
+        return debugCapture.status();
+    }
+
+    @WriteOperation
+    public DebugCapture.Status enable(@Nullable String path, @Nullable String header, @Nullable String headerValue,
+            @Nullable String traceIdPrefix, @Nullable Duration duration, @Nullable Double ratePerSecond) {
+        return debugCapture.enable(path, header, headerValue, traceIdPrefix, duration, ratePerSecond);
+    }
+
+    @DeleteOperation
+    public DebugCapture.Status disable() {
+        return debugCapture.disable();
+    }
+
+}
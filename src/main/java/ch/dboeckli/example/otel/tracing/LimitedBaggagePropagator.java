@@ -0,0 +1,70 @@
+package ch.dboeckli.example.otel.tracing;
+
+import ch.dboeckli.example.otel.tracing.W3cTraceContextCodec.Check;
+import io.opentelemetry.api.baggage.Baggage;
+import io.opentelemetry.api.baggage.BaggageBuilder;
+import io.opentelemetry.api.baggage.BaggageEntryMetadata;
+import io.opentelemetry.api.baggage.propagation.W3CBaggagePropagator;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import io.opentelemetry.context.propagation.TextMapSetter;
+
+import java.util.Collection;
+
+/**
+ * W3C baggage propagator that extracts through {@link W3cTraceContextCodec}. Malformed or
+ * oversized headers are counted in {@link TraceHeaderMetrics} and dropped as a whole
+ * instead of being partially accepted. Injection is left to {@link W3CBaggagePropagator}.
+ */
+public class LimitedBaggagePropagator implements TextMapPropagator {
+
+    private final TraceHeaderMetrics metrics;
+
+    public LimitedBaggagePropagator(TraceHeaderMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Collection<String> fields() {
+        return W3CBaggagePropagator.getInstance().fields();
+    }
+
+    @Override
+    public <C> void inject(Context context, C carrier, TextMapSetter<C> setter) {
+        W3CBaggagePropagator.getInstance().inject(context, carrier, setter);
+    }
+
+    @Override
+    public <C> Context extract(Context context, C carrier, TextMapGetter<C> getter) {
+        if (context == null) {
+            return Context.root();
+        }
+        if (getter == null) {
+            return context;
+        }
+        String header = getter.get(carrier, W3cTraceContextCodec.BAGGAGE);
+        Check check = W3cTraceContextCodec.checkBaggage(header);
+        if (check == Check.ABSENT) {
+            return context;
+        }
+        if (check != Check.VALID) {
+            metrics.reject(W3cTraceContextCodec.BAGGAGE, check);
+            return context;
+        }
+        BaggageBuilder builder = Baggage.builder();
+        W3cTraceContextCodec.parseBaggage(header,
+                (baggage, keyStart, keyEnd, valueStart, valueEnd, metadataStart, metadataEnd) -> builder.put(
+                        baggage.subSequence(keyStart, keyEnd).toString(),
+                        W3cTraceContextCodec.decodeBaggageValue(baggage, valueStart, valueEnd),
+                        metadataStart == metadataEnd ? BaggageEntryMetadata.empty() : BaggageEntryMetadata
+                            .create(baggage.subSequence(metadataStart, metadataEnd).toString())));
+        return context.with(builder.build());
+    }
+
+    @Override
+    public String toString() {
+        return "LimitedBaggagePropagator";
+    }
+
+}
@@ -0,0 +1,33 @@
+package ch.dboeckli.example.otel.tracing;
+
+import io.opentelemetry.context.Context;
+import reactor.util.context.ContextView;
+
+/**
+ * Carries the OpenTelemetry {@link Context} in the Reactor context of a reactive request,
+ * so it follows the subscription from thread to thread instead of living in a
+ * thread-local.
+ * <p>
+ * {@link TelemetryWebFilter} stores the context of the server span, everything
+ * downstream reads it with {@link #get} and binds it with
+ * {@link ScopedValueContextStorage#run} only for synchronous callbacks such as logging.
+ */
+public final class ReactorOtelContext {
+
+    private static final Class<Context> KEY = Context.class;
+
+    private ReactorOtelContext() {
+    }
+
+    /**
+     * The stored context, {@link Context#root()} when none was stored.
+     */
+    public static Context get(ContextView view) {
+        return view.getOrDefault(KEY, Context.root());
+    }
+
+    public static reactor.util.context.Context store(reactor.util.context.Context reactorContext, Context context) {
+        return reactorContext.put(KEY, context);
+    }
+
+}
@@ -0,0 +1,285 @@
+package ch.dboeckli.example.otel.tracing;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.data.LinkData;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.opentelemetry.sdk.trace.samplers.SamplingDecision;
+import io.opentelemetry.sdk.trace.samplers.SamplingResult;
+import org.springframework.http.server.PathContainer;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Root sampler deciding per route, method, span kind or attribute with the rules of
+ * {@link SamplingProperties}. A rule samples either a ratio of the trace ids or at most a
+ * number of traces per second, spans matched by no rule go to the fallback sampler.
+ * Wrapped in {@link Sampler#parentBased}, so it only decides for root spans.
+ * <p>
+ * The sampling path is lock-free: the rules are immutable, the ratio is decided on the
+ * trace id and the rate limit is a token bucket kept in one {@link AtomicLong}. Every
+ * decision is counted per rule in {@code tracing.sampler.decisions}.
+ */
+public class RuleBasedSampler implements Sampler, MeterBinder {
+
+    static final String ACTUATOR_RULE = "actuator";
+
+    static final String FALLBACK_RULE = "fallback";
+
+    private static final AttributeKey<String> HTTP_ROUTE = AttributeKey.stringKey("http.route");
+
+    private static final AttributeKey<String> URL_PATH = AttributeKey.stringKey("url.path");
+
+    private static final AttributeKey<String> HTTP_METHOD = AttributeKey.stringKey("http.request.method");
+
+    private final CompiledRule[] rules;
+
+    private final CompiledRule fallback;
+
+    public RuleBasedSampler(SamplingProperties properties, Sampler fallback) {
+        List<CompiledRule> compiled = new ArrayList<>();
+        if (properties.isDropActuator()) {
+            compiled.add(new CompiledRule(ACTUATOR_RULE, PathPatternParser.defaultInstance.parse("/actuator/**"), null,
+                    null, List.of(), Sampler.alwaysOff(), null));
+        }
+        for (SamplingProperties.Rule rule : properties.getRules()) {
+            compiled.add(compile(rule));
+        }
+        this.rules = compiled.toArray(CompiledRule[]::new);
+        this.fallback = new CompiledRule(FALLBACK_RULE, null, null, null, List.of(), fallback, null);
+    }
+
+    private RuleBasedSampler(CompiledRule[] rules, CompiledRule fallback) {
+        this.rules = rules;
+        this.fallback = fallback;
+    }
+
+    /**
+     * The same rules and counters with another fallback sampler, e.g. the one configured
+     * in {@code otel.traces.sampler}.
+     */
+    public RuleBasedSampler withFallback(Sampler fallbackSampler) {
+        return new RuleBasedSampler(rules, fallback.withSampler(fallbackSampler));
+    }
+
+    @Override
+    public SamplingResult shouldSample(Context parentContext, String traceId, String name, SpanKind spanKind,
+            Attributes attributes, List<LinkData> parentLinks) {
+        CompiledRule rule = match(spanKind, attributes);
+        SamplingResult result = rule.sample(parentContext, traceId, name, spanKind, attributes, parentLinks);
+        if (result.getDecision() == SamplingDecision.RECORD_AND_SAMPLE) {
+            rule.sampled.increment();
+        }
+        else {
+            rule.dropped.increment();
+        }
+        return result;
+    }
+
+    @Override
+    public String getDescription() {
+        StringBuilder description = new StringBuilder("RuleBasedSampler{rules=[");
+        for (int i = 0; i < rules.length; i++) {
+            description.append(i == 0 ? "" : ",").append(rules[i].name);
+        }
+        return description.append("],fallback=").append(fallback.sampler.getDescription()).append('}').toString();
+    }
+
+    @Override
+    public String toString() {
+        return getDescription();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (CompiledRule rule : rules) {
+            register(registry, rule);
+        }
+        register(registry, fallback);
+    }
+
+    private CompiledRule match(SpanKind spanKind, Attributes attributes) {
+        PathContainer path = null;
+        for (CompiledRule rule : rules) {
+            if (rule.spanKind != null && rule.spanKind != spanKind) {
+                continue;
+            }
+            if (rule.method != null && !rule.method.equalsIgnoreCase(attributes.get(HTTP_METHOD))) {
+                continue;
+            }
+            if (!rule.matchesAttributes(attributes)) {
+                continue;
+            }
+            if (rule.route != null) {
+                if (path == null) {
+                    path = path(attributes);
+                    if (path == null) {
+                        continue;
+                    }
+                }
+                if (!rule.route.matches(path)) {
+                    continue;
+                }
+            }
+            return rule;
+        }
+        return fallback;
+    }
+
+    @Nullable
+    private static PathContainer path(Attributes attributes) {
+        String route = attributes.get(HTTP_ROUTE);
+        if (route == null) {
+            route = attributes.get(URL_PATH);
+        }
+        return route == null ? null : PathContainer.parsePath(route);
+    }
+
+    private static CompiledRule compile(SamplingProperties.Rule rule) {
+        Assert.hasText(rule.getName(), "tracing.sampling.rules[].name is required");
+        Assert.isTrue(rule.getRatio() == null ^ rule.getRatePerSecond() == null,
+                () -> "Sampling rule " + rule.getName() + " needs either a ratio or a rate-per-second");
+        List<Map.Entry<AttributeKey<String>, String>> attributes = rule.getAttributes()
+            .entrySet()
+            .stream()
+            .map(entry -> Map.entry(AttributeKey.stringKey(entry.getKey()), entry.getValue()))
+            .toList();
+        PathPattern route = rule.getRoute() == null ? null : PathPatternParser.defaultInstance.parse(rule.getRoute());
+        if (rule.getRatio() != null) {
+            return new CompiledRule(rule.getName(), route, rule.getMethod(), rule.getSpanKind(), attributes,
+                    Sampler.traceIdRatioBased(rule.getRatio()), null);
+        }
+        return new CompiledRule(rule.getName(), route, rule.getMethod(), rule.getSpanKind(), attributes, null,
+                new RateLimiter(rule.getRatePerSecond()));
+    }
+
+    private static void register(MeterRegistry registry, CompiledRule rule) {
+        FunctionCounter.builder("tracing.sampler.decisions", rule.sampled, LongAdder::sum)
+            .description("Sampling decisions for new root spans")
+            .tags("rule", rule.name, "decision", "sampled")
+            .register(registry);
+        FunctionCounter.builder("tracing.sampler.decisions", rule.dropped, LongAdder::sum)
+            .description("Sampling decisions for new root spans")
+            .tags("rule", rule.name, "decision", "dropped")
+            .register(registry);
+    }
+
+    /**
+     * A rule with either a sampler or a rate limiter.
+     */
+    private static final class CompiledRule {
+
+        private final String name;
+
+        private final PathPattern route;
+
+        private final String method;
+
+        private final SpanKind spanKind;
+
+        private final List<Map.Entry<AttributeKey<String>, String>> attributes;
+
+        private final Sampler sampler;
+
+        private final RateLimiter rateLimiter;
+
+        private final LongAdder sampled;
+
+        private final LongAdder dropped;
+
+        private CompiledRule(String name, @Nullable PathPattern route, @Nullable String method,
+                @Nullable SpanKind spanKind, List<Map.Entry<AttributeKey<String>, String>> attributes,
+                @Nullable Sampler sampler, @Nullable RateLimiter rateLimiter) {
+            this(name, route, method, spanKind, attributes, sampler, rateLimiter, new LongAdder(), new LongAdder());
+        }
+
+        private CompiledRule(String name, PathPattern route, String method, SpanKind spanKind,
+                List<Map.Entry<AttributeKey<String>, String>> attributes, Sampler sampler, RateLimiter rateLimiter,
+                LongAdder sampled, LongAdder dropped) {
+            this.name = name;
+            this.route = route;
+            this.method = method;
+            this.spanKind = spanKind;
+            this.attributes = attributes;
+            this.sampler = sampler;
+            this.rateLimiter = rateLimiter;
+            this.sampled = sampled;
+            this.dropped = dropped;
+        }
+
+        CompiledRule withSampler(Sampler newSampler) {
+            return new CompiledRule(name, route, method, spanKind, attributes, newSampler, null, sampled, dropped);
+        }
+
+        boolean matchesAttributes(Attributes spanAttributes) {
+            for (Map.Entry<AttributeKey<String>, String> attribute : attributes) {
+                if (!attribute.getValue().equals(spanAttributes.get(attribute.getKey()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        SamplingResult sample(Context parentContext, String traceId, String name, SpanKind spanKind,
+                Attributes attributes, List<LinkData> parentLinks) {
+            if (sampler != null) {
+                return sampler.shouldSample(parentContext, traceId, name, spanKind, attributes, parentLinks);
+            }
+            return rateLimiter.tryAcquire(System.nanoTime()) ? SamplingResult.recordAndSample()
+                    : SamplingResult.drop();
+        }
+
+    }
+
+    /**
+     * Token bucket holding one second worth of tokens, at least one token for rates below
+     * one per second. Only the point in time up to which tokens were taken is kept, at most
+     * one bucket depth in the past, so that one compare-and-set takes a token
+     * ({@code GCRA}).
+     */
+    static final class RateLimiter {
+
+        private static final long BURST_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+        private final long intervalNanos;
+
+        private final long depthNanos;
+
+        private final AtomicLong emptyAt = new AtomicLong(Long.MIN_VALUE);
+
+        RateLimiter(double ratePerSecond) {
+            Assert.isTrue(ratePerSecond > 0, "rate-per-second must be positive");
+            this.intervalNanos = Math.max(1, (long) (BURST_NANOS / ratePerSecond));
+            this.depthNanos = Math.max(BURST_NANOS, intervalNanos);
+        }
+
+        boolean tryAcquire(long now) {
+            while (true) {
+                long current = emptyAt.get();
+                long next = Math.max(current, now - depthNanos) + intervalNanos;
+                if (next - now > 0) {
+                    return false;
+                }
+                if (emptyAt.compareAndSet(current, next)) {
+                    return true;
+                }
+            }
+        }
+
+    }
+
+}
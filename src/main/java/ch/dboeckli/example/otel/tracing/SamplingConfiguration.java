@@ -0,0 +1,35 @@
+package ch.dboeckli.example.otel.tracing;
+
+import io.opentelemetry.sdk.autoconfigure.spi.AutoConfigurationCustomizerProvider;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Replaces the sampler configured in {@code otel.traces.sampler} with the parent-based
+ * {@link RuleBasedSampler}, which falls back to the configured sampler for spans matched
+ * by no rule. Switched off with {@code tracing.sampling.enabled=false}.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(SamplingProperties.class)
+@ConditionalOnProperty(prefix = "tracing.sampling", name = "enabled", matchIfMissing = true)
+public class SamplingConfiguration {
+
+    /**
+     * Holds the rules and their counters, the fallback is replaced by the configured
+     * sampler in {@link #ruleBasedSamplerCustomizer}.
+     */
+    @Bean
+    public RuleBasedSampler ruleBasedSampler(SamplingProperties properties) {
+        return new RuleBasedSampler(properties, Sampler.parentBased(Sampler.alwaysOn()));
+    }
+
+    @Bean
+    public AutoConfigurationCustomizerProvider ruleBasedSamplerCustomizer(RuleBasedSampler ruleBasedSampler) {
+        return customizer -> customizer.addSamplerCustomizer(
+                (configured, config) -> Sampler.parentBased(ruleBasedSampler.withFallback(configured)));
+    }
+
+}
@@ -0,0 +1,76 @@
+package ch.dboeckli.example.otel.tracing;
+
+import io.opentelemetry.api.trace.SpanKind;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Configuration of the {@link RuleBasedSampler} ({@code tracing.sampling.*}).
+ * <p>
+ * The first rule whose conditions all match a new root span decides, spans matched by no
+ * rule are sampled by the sampler configured in {@code otel.traces.sampler}. Spans with a
+ * parent follow the decision of the parent.
+ */
+@ConfigurationProperties(prefix = "tracing.sampling")
+@Getter
+@Setter
+public class SamplingProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Drop every span of {@code /actuator/**} before the other rules are checked, e.g.
+     * the Kubernetes probes.
+     */
+    private boolean dropActuator = true;
+
+    private List<Rule> rules = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Rule {
+
+        /**
+         * Name of the rule in the {@code tracing.sampler.decisions} counter.
+         */
+        private String name;
+
+        /**
+         * Path pattern matched against {@code http.route} or, when the route is not known
+         * yet, {@code url.path}.
+         */
+        private String route;
+
+        /**
+         * HTTP method ({@code http.request.method}).
+         */
+        private String method;
+
+        private SpanKind spanKind;
+
+        /**
+         * Attributes the span has to carry with exactly these values.
+         */
+        private Map<String, String> attributes = new LinkedHashMap<>();
+
+        /**
+         * Sample this share of the matching traces, exclusive with
+         * {@link #ratePerSecond}.
+         */
+        private Double ratio;
+
+        /**
+         * Sample at most this many matching traces per second, exclusive with
+         * {@link #ratio}.
+         */
+        private Double ratePerSecond;
+
+    }
+
+}
@@ -0,0 +1,162 @@
+package ch.dboeckli.example.otel.tracing;
+
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.ContextStorage;
+import io.opentelemetry.context.Scope;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * {@link ContextStorage} keeping the current {@link Context} in a {@link ScopedValue}.
+ * Code that can pass the work as a lambda binds the context with {@link #run} or
+ * {@link #call}: no thread-local is written and the binding ends with the lambda, so it
+ * cannot leak into the next task of a pooled or virtual thread.
+ * <p>
+ * {@link Context#makeCurrent()} and everything else needing an imperative {@link Scope},
+ * e.g. servlet filters, fall back to a stack of frames in a thread-local. A frame
+ * attached inside a scoped binding hides the binding until it is closed, a binding made
+ * while a frame is attached hides the frame until the lambda returns. Closing a frame
+ * that is not the innermost one is counted in {@link #getOutOfOrderCloses()} and, as in
+ * the default storage, restores the context before that frame.
+ * <p>
+ * {@link #current()} reads the thread-local of the frames and then looks up the scoped
+ * binding, so the hot read path costs somewhat more than in the default storage, which
+ * reads a single thread-local. What it saves is the write on every {@link #run} and
+ * {@link #call}.
+ * <p>
+ * Registered via {@link ScopedValueContextStorageProvider}. {@link #run} and {@link #call}
+ * only bind the scoped value while OpenTelemetry actually uses this storage, i.e.
+ * {@link ContextStorage#get()} returns it. With another storage, e.g. the settable one of
+ * {@code opentelemetry-sdk-testing} or a different provider, they fall back to
+ * {@link Context#makeCurrent()}.
+ */
+@Slf4j
+public final class ScopedValueContextStorage implements ContextStorage {
+
+    static final ScopedValueContextStorage INSTANCE = new ScopedValueContextStorage();
+
+    private static final ScopedValue<Binding> BINDING = ScopedValue.newInstance();
+
+    private static final ThreadLocal<Frame> FRAMES = new ThreadLocal<>();
+
+    private static final LongAdder outOfOrderCloses = new LongAdder();
+
+    private ScopedValueContextStorage() {
+    }
+
+    /**
+     * Runs the operation with the context as current context.
+     */
+    public static void run(Context context, Runnable operation) {
+        if (!isActive()) {
+            try (Scope ignored = context.makeCurrent()) {
+                operation.run();
+            }
+            return;
+        }
+        runBound(context, operation);
+    }
+
+    /**
+     * Calls the operation with the context as current context and returns its result.
+     */
+    public static <T> T call(Context context, Supplier<T> operation) {
+        if (!isActive()) {
+            try (Scope ignored = context.makeCurrent()) {
+                return operation.get();
+            }
+        }
+        return callBound(context, operation);
+    }
+
+    /**
+     * Scopes closed while another scope attached later was still open, since start.
+     */
+    public static long getOutOfOrderCloses() {
+        return outOfOrderCloses.sum();
+    }
+
+    /**
+     * Whether OpenTelemetry uses this storage. It picks its storage once, so this is a
+     * read of a constant after the first call.
+     */
+    static boolean isActive() {
+        return ContextStorage.get() == INSTANCE;
+    }
+
+    /**
+     * Binds the context in the scoped value, whether or not this storage is active.
+     */
+    static void runBound(Context context, Runnable operation) {
+        ScopedValue.where(BINDING, new Binding(context, FRAMES.get())).run(operation);
+    }
+
+    static <T> T callBound(Context context, Supplier<T> operation) {
+        return ScopedValue.where(BINDING, new Binding(context, FRAMES.get())).call(operation::get);
+    }
+
+    @Override
+    public Context current() {
+        Frame frame = FRAMES.get();
+        if (BINDING.isBound()) {
+            Binding binding = BINDING.get();
+            if (binding.base() == frame) {
+                return binding.context();
+            }
+        }
+        return frame == null ? null : frame.context;
+    }
+
+    @Override
+    public Scope attach(Context toAttach) {
+        if (toAttach == null || toAttach == current()) {
+            return Scope.noop();
+        }
+        Frame frame = new Frame(toAttach, FRAMES.get());
+        FRAMES.set(frame);
+        return frame;
+    }
+
+    /**
+     * @param base the innermost frame when the binding was made, the binding is current
+     * as long as no other frame was attached on top of it
+     */
+    private record Binding(Context context, Frame base) {
+    }
+
+    private static final class Frame implements Scope {
+
+        private final Context context;
+
+        private final Frame previous;
+
+        private boolean closed;
+
+        private Frame(Context context, Frame previous) {
+            this.context = context;
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (FRAMES.get() != this) {
+                outOfOrderCloses.increment();
+                log.debug("Scope of {} closed out of order, an inner scope is still open", context);
+            }
+            if (previous == null) {
+                FRAMES.remove();
+            }
+            else {
+                FRAMES.set(previous);
+            }
+        }
+
+    }
+
+}
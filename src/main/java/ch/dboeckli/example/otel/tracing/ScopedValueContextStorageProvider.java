@@ -0,0 +1,19 @@
+package ch.dboeckli.example.otel.tracing;
+
+import io.opentelemetry.context.ContextStorage;
+import io.opentelemetry.context.ContextStorageProvider;
+
+/**
+ * Provides the {@link ScopedValueContextStorage}, registered in
+ * {@code META-INF/services}. OpenTelemetry uses it as the only provider on the classpath,
+ * {@code -Dio.opentelemetry.context.contextStorageProvider=default} switches back to the
+ * thread-local storage of the SDK.
+ */
+public class ScopedValueContextStorageProvider implements ContextStorageProvider {
+
+    @Override
+    public ContextStorage get() {
+        return ScopedValueContextStorage.INSTANCE;
+    }
+
+}
@@ -0,0 +1,52 @@
+package ch.dboeckli.example.otel.tracing;
+
+import io.opentelemetry.api.trace.SpanContext;
+
+/**
+ * Renders a {@link SpanContext} for the debug capture without reflection. The layout is
+ * fixed and the builder is sized up front, so a capture costs one buffer and one string.
+ */
+public final class SpanContextFormatter {
+
+    private static final String TRACE_ID = "traceId=";
+
+    private static final String SPAN_ID = ", spanId=";
+
+    private static final String FLAGS = ", flags=";
+
+    private static final String SAMPLED = ", sampled=";
+
+    private static final String REMOTE = ", remote=";
+
+    private static final String TRACE_STATE = ", traceState=";
+
+    private static final int FIXED_LENGTH = TRACE_ID.length() + 32 + SPAN_ID.length() + 16 + FLAGS.length() + 2
+            + SAMPLED.length() + 5 + REMOTE.length() + 5 + TRACE_STATE.length() + 2;
+
+    private SpanContextFormatter() {
+    }
+
+    public static String format(SpanContext spanContext) {
+        StringBuilder builder = new StringBuilder(FIXED_LENGTH + 32);
+        builder.append(TRACE_ID)
+            .append(spanContext.getTraceId())
+            .append(SPAN_ID)
+            .append(spanContext.getSpanId())
+            .append(FLAGS)
+            .append(spanContext.getTraceFlags().asHex())
+            .append(SAMPLED)
+            .append(spanContext.isSampled())
+            .append(REMOTE)
+            .append(spanContext.isRemote())
+            .append(TRACE_STATE)
+            .append('{');
+        spanContext.getTraceState().forEach((key, value) -> {
+            if (builder.charAt(builder.length() - 1) != '{') {
+                builder.append(',');
+            }
+            builder.append(key).append('=').append(value);
+        });
+        return builder.append('}').toString();
+    }
+
+}
@@ -0,0 +1,299 @@
+package ch.dboeckli.example.otel.tracing;
+
+import ch.dboeckli.example.otel.concurrent.MpmcRingBuffer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Batching span processor in place of the SDK {@code BatchSpanProcessor}, which hands
+ * every ended span to its worker through one shared queue.
+ * <p>
+ * Ended spans go to one of several lock-free {@link MpmcRingBuffer} stripes chosen by the
+ * id of the ending thread, so producers on many cores rarely touch the same positions. A
+ * single worker drains the stripes round-robin and exports a batch once it holds
+ * {@code maxExportBatchSize} spans or {@code scheduleDelay} has passed. A span that does
+ * not fit into its stripe is dropped and counted, the ending thread never waits.
+ * <p>
+ * Queue depth, enqueue latency, drops, export duration and batch size are recorded in
+ * {@link BatchExportMetrics}.
+ */
+@Slf4j
+public class StripedBatchSpanProcessor implements SpanProcessor {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final SpanExporter exporter;
+
+    private final BatchExportMetrics metrics;
+
+    private final MpmcRingBuffer<ReadableSpan>[] stripes;
+
+    private final int stripeMask;
+
+    private final int maxExportBatchSize;
+
+    /**
+     * Spans in one stripe that wake the parked worker before the schedule delay is over.
+     */
+    private final int wakeThreshold;
+
+    private final long scheduleDelayNanos;
+
+    private final long exportTimeoutNanos;
+
+    private final Queue<CompletableResultCode> flushRequests = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean shutdown = new AtomicBoolean();
+
+    private final Thread worker;
+
+    private volatile boolean running = true;
+
+    private volatile boolean workerParked;
+
+    /**
+     * When the worker exports the next partial batch, only touched by the worker.
+     */
+    private long exportAtNanos;
+
+    @SuppressWarnings("unchecked")
+    public StripedBatchSpanProcessor(SpanExporter exporter, int stripeCount, int maxQueueSize, int maxExportBatchSize,
+            long scheduleDelayNanos, long exportTimeoutNanos, BatchExportMetrics metrics) {
+        if (maxExportBatchSize < 1 || maxQueueSize < maxExportBatchSize) {
+            throw new IllegalArgumentException("maxExportBatchSize must be positive and at most maxQueueSize, was "
+                    + maxExportBatchSize + " and " + maxQueueSize);
+        }
+        int count = stripeCount > 0 ? stripeCount : Runtime.getRuntime().availableProcessors();
+        count = Integer.highestOneBit(Math.max(1, Math.min(count, 64) - 1)) << 1;
+        this.exporter = exporter;
+        this.metrics = metrics;
+        this.stripes = new MpmcRingBuffer[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new MpmcRingBuffer<>(Math.max(2, maxQueueSize / count));
+        }
+        this.stripeMask = count - 1;
+        this.maxExportBatchSize = maxExportBatchSize;
+        this.wakeThreshold = Math.max(1, maxExportBatchSize / count);
+        this.scheduleDelayNanos = scheduleDelayNanos;
+        this.exportTimeoutNanos = exportTimeoutNanos;
+        this.worker = Thread.ofPlatform().daemon().name("otel-striped-span-export").unstarted(this::exportLoop);
+        metrics.attach(this);
+        worker.start();
+    }
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {
+    }
+
+    @Override
+    public boolean isStartRequired() {
+        return false;
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+        if (!span.getSpanContext().isSampled()) {
+            return;
+        }
+        MpmcRingBuffer<ReadableSpan> stripe = stripes[(int) Thread.currentThread().threadId() & stripeMask];
+        long start = System.nanoTime();
+        boolean queued = running && stripe.offer(span);
+        metrics.enqueued(System.nanoTime() - start);
+        if (!queued) {
+            metrics.dropped.increment();
+            return;
+        }
+        if (workerParked && stripe.size() >= wakeThreshold) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return true;
+    }
+
+    /**
+     * Exports everything queued so far and flushes the exporter.
+     */
+    @Override
+    public CompletableResultCode forceFlush() {
+        if (!running) {
+            return CompletableResultCode.ofSuccess();
+        }
+        CompletableResultCode result = new CompletableResultCode();
+        flushRequests.add(result);
+        LockSupport.unpark(worker);
+        return result;
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        if (!shutdown.compareAndSet(false, true)) {
+            return CompletableResultCode.ofSuccess();
+        }
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(TimeUnit.NANOSECONDS.toMillis(exportTimeoutNanos) + 1);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            log.warn("Span export did not finish within {} ms, {} queued spans may be lost",
+                    TimeUnit.NANOSECONDS.toMillis(exportTimeoutNanos), getQueueDepth());
+        }
+        return exporter.shutdown();
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    public int getQueueDepth() {
+        int depth = 0;
+        for (MpmcRingBuffer<ReadableSpan> stripe : stripes) {
+            depth += stripe.size();
+        }
+        return depth;
+    }
+
+    public int getQueueCapacity() {
+        return stripes.length * stripes[0].capacity();
+    }
+
+    public int getMaxExportBatchSize() {
+        return maxExportBatchSize;
+    }
+
+    public SpanExporter getExporter() {
+        return exporter;
+    }
+
+    private void exportLoop() {
+        List<SpanData> batch = new ArrayList<>(maxExportBatchSize);
+        int next = 0;
+        exportAtNanos = System.nanoTime() + scheduleDelayNanos;
+        while (running) {
+            next = drain(batch, next);
+            CompletableResultCode flushRequest = flushRequests.poll();
+            long now = System.nanoTime();
+            if (flushRequest != null) {
+                next = flush(batch, next, flushRequest);
+            }
+            else if (batch.size() >= maxExportBatchSize || (!batch.isEmpty() && now - exportAtNanos >= 0)) {
+                export(batch);
+                exportAtNanos = System.nanoTime() + scheduleDelayNanos;
+            }
+            else {
+                workerParked = true;
+                if (running && flushRequests.isEmpty() && getQueueDepth() < wakeThreshold) {
+                    // a partial batch is topped up from the stripes at least every idle period
+                    long parkNanos = batch.isEmpty() ? IDLE_PARK_NANOS
+                            : Math.min(IDLE_PARK_NANOS, exportAtNanos - now);
+                    LockSupport.parkNanos(this, parkNanos);
+                }
+                workerParked = false;
+                if (batch.isEmpty()) {
+                    // the schedule delay starts with the first span of the next batch
+                    exportAtNanos = System.nanoTime() + scheduleDelayNanos;
+                }
+            }
+        }
+        // shut down: export what is left and answer pending flushes
+        do {
+            next = drain(batch, next);
+            if (!batch.isEmpty()) {
+                export(batch);
+            }
+        }
+        while (getQueueDepth() > 0);
+        CompletableResultCode flushRequest;
+        while ((flushRequest = flushRequests.poll()) != null) {
+            flushRequest.succeed();
+        }
+    }
+
+    /**
+     * Moves spans round-robin from the stripes into the batch until it is full or all
+     * stripes are empty.
+     * @return the stripe to start with next time
+     */
+    private int drain(List<SpanData> batch, int first) {
+        int empty = 0;
+        int index = first;
+        while (batch.size() < maxExportBatchSize && empty < stripes.length) {
+            ReadableSpan span = stripes[index].poll();
+            if (span == null) {
+                empty++;
+            }
+            else {
+                empty = 0;
+                batch.add(span.toSpanData());
+            }
+            index = (index + 1) & stripeMask;
+        }
+        return index;
+    }
+
+    /**
+     * Exports everything queued and starts the schedule delay over, like a periodic export.
+     * @return the stripe to start with next time
+     */
+    private int flush(List<SpanData> batch, int next, CompletableResultCode flushRequest) {
+        do {
+            next = drain(batch, next);
+            if (!batch.isEmpty()) {
+                export(batch);
+            }
+        }
+        while (getQueueDepth() > 0);
+        exportAtNanos = System.nanoTime() + scheduleDelayNanos;
+        CompletableResultCode exporterFlush = exporter.flush().join(exportTimeoutNanos, TimeUnit.NANOSECONDS);
+        if (exporterFlush.isSuccess()) {
+            flushRequest.succeed();
+        }
+        else {
+            flushRequest.fail();
+        }
+        return next;
+    }
+
+    private void export(List<SpanData> batch) {
+        long start = System.nanoTime();
+        boolean success;
+        try {
+            CompletableResultCode result = exporter.export(batch).join(exportTimeoutNanos, TimeUnit.NANOSECONDS);
+            success = result.isSuccess();
+        }
+        catch (RuntimeException e) {
+            log.warn("Span export failed", e);
+            success = false;
+        }
+        metrics.exported(System.nanoTime() - start, batch.size(), success);
+        batch.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "StripedBatchSpanProcessor{exporter=" + exporter + ", stripes=" + stripes.length + ", queueCapacity="
+                + getQueueCapacity() + ", maxExportBatchSize=" + maxExportBatchSize + ", scheduleDelay="
+                + TimeUnit.NANOSECONDS.toMillis(scheduleDelayNanos) + "ms}";
+    }
+
+}
@@ -0,0 +1,32 @@
+package ch.dboeckli.example.otel.tracing;
+
+import io.opentelemetry.sdk.autoconfigure.spi.AutoConfigurationCustomizerProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Wraps the exporting span processors of {@code otel.traces.exporter} in a
+ * {@link TailSamplingSpanProcessor}, switched on with
+ * {@code tracing.tail-sampling.enabled=true}. Processors added in a tracer provider
+ * customizer, e.g. the {@link BaggageSpanProcessor}, still see every span.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(TailSamplingProperties.class)
+@ConditionalOnProperty(prefix = "tracing.tail-sampling", name = "enabled")
+public class TailSamplingConfiguration {
+
+    @Bean
+    public TailSamplingMetrics tailSamplingMetrics() {
+        return new TailSamplingMetrics();
+    }
+
+    @Bean
+    public AutoConfigurationCustomizerProvider tailSamplingCustomizer(TailSamplingProperties properties,
+            TailSamplingMetrics metrics) {
+        return customizer -> customizer.addSpanProcessorCustomizer(
+                (processor, config) -> new TailSamplingSpanProcessor(properties, processor, metrics));
+    }
+
+}
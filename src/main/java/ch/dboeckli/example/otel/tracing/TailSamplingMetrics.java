@@ -0,0 +1,100 @@
+package ch.dboeckli.example.otel.tracing;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the {@link TailSamplingSpanProcessor}s: buffered traces and bytes
+ * ({@code tracing.tail.sampling.buffered}, {@code tracing.tail.sampling.buffered.bytes})
+ * and the decided traces in {@code tracing.tail.sampling.traces} with tags
+ * {@code decision} ({@code kept}, {@code dropped}, {@code evicted}) and {@code reason}
+ * (the policy or why the trace was evicted).
+ * <p>
+ * Shared by all processors the SDK wraps and bound through {@link MeterBinder}, as the
+ * processors are created while the OpenTelemetry SDK is built.
+ */
+public class TailSamplingMetrics implements MeterBinder {
+
+    static final String POLICY_ERROR = "error";
+
+    static final String POLICY_LATENCY = "latency";
+
+    static final String POLICY_ATTRIBUTE = "attribute";
+
+    static final String POLICY_PROBABILISTIC = "probabilistic";
+
+    static final String EVICTED_BYTE_LIMIT = "byte_limit";
+
+    static final String EVICTED_TIMEOUT = "timeout";
+
+    static final String EVICTED_SHUTDOWN = "shutdown";
+
+    final AtomicLong bufferedTraces = new AtomicLong();
+
+    final AtomicLong bufferedBytes = new AtomicLong();
+
+    final LongAdder keptError = new LongAdder();
+
+    final LongAdder keptLatency = new LongAdder();
+
+    final LongAdder keptAttribute = new LongAdder();
+
+    final LongAdder keptProbabilistic = new LongAdder();
+
+    final LongAdder dropped = new LongAdder();
+
+    final LongAdder evictedByteLimit = new LongAdder();
+
+    final LongAdder evictedTimeout = new LongAdder();
+
+    final LongAdder evictedShutdown = new LongAdder();
+
+    LongAdder kept(String policy) {
+        return switch (policy) {
+            case POLICY_ERROR -> keptError;
+            case POLICY_LATENCY -> keptLatency;
+            case POLICY_ATTRIBUTE -> keptAttribute;
+            default -> keptProbabilistic;
+        };
+    }
+
+    LongAdder evicted(String reason) {
+        return switch (reason) {
+            case EVICTED_BYTE_LIMIT -> evictedByteLimit;
+            case EVICTED_TIMEOUT -> evictedTimeout;
+            default -> evictedShutdown;
+        };
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("tracing.tail.sampling.buffered", bufferedTraces, AtomicLong::get)
+            .description("Traces buffered until their local root span ends")
+            .register(registry);
+        Gauge.builder("tracing.tail.sampling.buffered.bytes", bufferedBytes, AtomicLong::get)
+            .description("Estimated size of the buffered spans")
+            .baseUnit("bytes")
+            .register(registry);
+        register(registry, keptError, "kept", POLICY_ERROR);
+        register(registry, keptLatency, "kept", POLICY_LATENCY);
+        register(registry, keptAttribute, "kept", POLICY_ATTRIBUTE);
+        register(registry, keptProbabilistic, "kept", POLICY_PROBABILISTIC);
+        register(registry, dropped, "dropped", "none");
+        register(registry, evictedByteLimit, "evicted", EVICTED_BYTE_LIMIT);
+        register(registry, evictedTimeout, "evicted", EVICTED_TIMEOUT);
+        register(registry, evictedShutdown, "evicted", EVICTED_SHUTDOWN);
+    }
+
+    private static void register(MeterRegistry registry, LongAdder counter, String decision, String reason) {
+        FunctionCounter.builder("tracing.tail.sampling.traces", counter, LongAdder::sum)
+            .description("Traces decided by the tail sampling span processor")
+            .tags("decision", decision, "reason", reason)
+            .register(registry);
+    }
+
+}
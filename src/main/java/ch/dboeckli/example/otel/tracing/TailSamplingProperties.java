@@ -0,0 +1,64 @@
+package ch.dboeckli.example.otel.tracing;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Configuration of the {@link TailSamplingSpanProcessor} ({@code tracing.tail-sampling.*}).
+ * <p>
+ * A trace is kept when one of the policies matches: it took at least
+ * {@link #latencyThreshold}, a span has status error or recorded an exception, a span
+ * carries one of the {@link #attributes}, or its trace id falls into
+ * {@link #probabilisticRatio}.
+ */
+@ConfigurationProperties(prefix = "tracing.tail-sampling")
+@Getter
+@Setter
+public class TailSamplingProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Keep traces whose local root span took at least this long.
+     */
+    private Duration latencyThreshold = Duration.ofMillis(500);
+
+    /**
+     * Keep traces with a span with status error or an exception event.
+     */
+    private boolean keepErrors = true;
+
+    /**
+     * Keep traces with a span carrying one of these attributes with exactly this value.
+     */
+    private Map<String, String> attributes = new LinkedHashMap<>();
+
+    /**
+     * Share of the remaining traces that is kept anyway, decided on the trace id.
+     */
+    private double probabilisticRatio = 0.1;
+
+    /**
+     * Upper bound for the estimated size of all buffered spans, the oldest traces are
+     * evicted beyond it.
+     */
+    private DataSize maxBufferSize = DataSize.ofMegabytes(16);
+
+    /**
+     * Traces whose local root span has not ended after this time are evicted.
+     */
+    private Duration decisionWait = Duration.ofSeconds(30);
+
+    /**
+     * Number of decided traces remembered, so that spans ending after their local root
+     * follow the decision.
+     */
+    private int decisionCacheSize = 10_000;
+
+}
@@ -0,0 +1,366 @@
+package ch.dboeckli.example.otel.tracing;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.EventData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.opentelemetry.sdk.trace.samplers.SamplingDecision;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Buffers the spans of a trace until its local root span ends and only then passes them
+ * to the exporting {@code delegate}, if one of the policies of
+ * {@link TailSamplingProperties} keeps the trace. Slow and failed traces are kept whatever
+ * the head sampler decided for the rest.
+ * <p>
+ * The buffer is bounded by the estimated size of the spans: beyond
+ * {@code max-buffer-size} the oldest traces are evicted, as are traces whose local root
+ * does not end within {@code decision-wait}. Spans ending after their local root follow
+ * the remembered decision. Evicted traces are dropped, so the heap stays bounded when
+ * requests pile up.
+ * <p>
+ * Buffers and remembered decisions are keyed by trace id only. Several local roots of
+ * one trace in this process, e.g. an async continuation or a second call from the same
+ * remote parent, share one buffer: the root ending first decides for all of them, and a
+ * root ending after that is not evaluated on its own but follows the remembered
+ * decision, even if it is slow or failed.
+ */
+public class TailSamplingSpanProcessor implements SpanProcessor {
+
+    /**
+     * Rough size of a finished span without its name, attributes, events and links.
+     */
+    private static final long SPAN_BYTES = 256;
+
+    private static final long ATTRIBUTE_BYTES = 64;
+
+    private static final long EVENT_BYTES = 128;
+
+    private static final long LINK_BYTES = 96;
+
+    private final SpanProcessor delegate;
+
+    private final TailSamplingMetrics metrics;
+
+    private final long latencyThresholdNanos;
+
+    private final boolean keepErrors;
+
+    private final List<Map.Entry<AttributeKey<String>, String>> attributes;
+
+    private final Sampler probabilistic;
+
+    private final long maxBufferBytes;
+
+    private final long decisionWaitNanos;
+
+    private final int decisionCacheSize;
+
+    private final Map<String, TraceBuffer> traces = new ConcurrentHashMap<>();
+
+    /**
+     * Buffered traces, oldest first. Decided traces are skipped when they reach the head.
+     */
+    private final ConcurrentLinkedQueue<TraceBuffer> order = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong bufferedBytes = new AtomicLong();
+
+    private final Map<String, Boolean> decisions = new ConcurrentHashMap<>();
+
+    private final ConcurrentLinkedQueue<String> decisionOrder = new ConcurrentLinkedQueue<>();
+
+    public TailSamplingSpanProcessor(TailSamplingProperties properties, SpanProcessor delegate,
+            TailSamplingMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.latencyThresholdNanos = properties.getLatencyThreshold().toNanos();
+        this.keepErrors = properties.isKeepErrors();
+        this.attributes = properties.getAttributes()
+            .entrySet()
+            .stream()
+            .map(entry -> Map.entry(AttributeKey.stringKey(entry.getKey()), entry.getValue()))
+            .toList();
+        this.probabilistic = Sampler.traceIdRatioBased(properties.getProbabilisticRatio());
+        this.maxBufferBytes = properties.getMaxBufferSize().toBytes();
+        this.decisionWaitNanos = properties.getDecisionWait().toNanos();
+        this.decisionCacheSize = properties.getDecisionCacheSize();
+    }
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {
+        delegate.onStart(parentContext, span);
+    }
+
+    @Override
+    public boolean isStartRequired() {
+        return delegate.isStartRequired();
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+        SpanContext spanContext = span.getSpanContext();
+        if (!spanContext.isSampled()) {
+            return;
+        }
+        long now = System.nanoTime();
+        evictExpired(now);
+
+        String traceId = spanContext.getTraceId();
+        Boolean decision = decisions.get(traceId);
+        if (decision != null) {
+            forwardLate(span, decision);
+            return;
+        }
+        SpanData data = span.toSpanData();
+        long bytes = estimateBytes(data);
+        TraceBuffer buffer = traces.get(traceId);
+        if (buffer == null) {
+            TraceBuffer created = new TraceBuffer(traceId, now);
+            buffer = traces.putIfAbsent(traceId, created);
+            if (buffer == null) {
+                buffer = created;
+                order.add(created);
+                metrics.bufferedTraces.incrementAndGet();
+            }
+        }
+        if (!buffer.add(span, bytes, flags(data))) {
+            // decided between the lookup and now
+            forwardLate(span, decisions.getOrDefault(traceId, Boolean.FALSE));
+            return;
+        }
+        bufferedBytes.addAndGet(bytes);
+        metrics.bufferedBytes.addAndGet(bytes);
+
+        if (isLocalRoot(span)) {
+            decide(buffer, data);
+        }
+        evictOverLimit();
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return true;
+    }
+
+    /**
+     * Buffered traces are incomplete, only what was already kept is flushed.
+     */
+    @Override
+    public CompletableResultCode forceFlush() {
+        return delegate.forceFlush();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        TraceBuffer buffer;
+        while ((buffer = order.poll()) != null) {
+            evict(buffer, TailSamplingMetrics.EVICTED_SHUTDOWN);
+        }
+        return delegate.shutdown();
+    }
+
+    private void decide(TraceBuffer buffer, SpanData root) {
+        List<ReadableSpan> spans = buffer.close();
+        if (spans == null) {
+            return;
+        }
+        // the buffer is closed, its flags no longer change
+        String policy = policy(buffer, root);
+        release(buffer, policy != null);
+        if (policy == null) {
+            metrics.dropped.increment();
+            return;
+        }
+        metrics.kept(policy).increment();
+        for (ReadableSpan span : spans) {
+            delegate.onEnd(span);
+        }
+    }
+
+    /**
+     * The first policy keeping the trace, {@code null} to drop it.
+     */
+    private String policy(TraceBuffer buffer, SpanData root) {
+        if (keepErrors && buffer.error) {
+            return TailSamplingMetrics.POLICY_ERROR;
+        }
+        if (root.getEndEpochNanos() - root.getStartEpochNanos() >= latencyThresholdNanos) {
+            return TailSamplingMetrics.POLICY_LATENCY;
+        }
+        if (buffer.attributeMatch) {
+            return TailSamplingMetrics.POLICY_ATTRIBUTE;
+        }
+        if (probabilistic
+            .shouldSample(Context.root(), buffer.traceId, root.getName(), root.getKind(), Attributes.empty(),
+                    List.of())
+            .getDecision() == SamplingDecision.RECORD_AND_SAMPLE) {
+            return TailSamplingMetrics.POLICY_PROBABILISTIC;
+        }
+        return null;
+    }
+
+    /**
+     * Flags of one span, {@code ERROR} and {@code ATTRIBUTE} combined.
+     */
+    private int flags(SpanData data) {
+        int flags = 0;
+        if (keepErrors && isError(data)) {
+            flags |= TraceBuffer.ERROR;
+        }
+        for (Map.Entry<AttributeKey<String>, String> attribute : attributes) {
+            if (attribute.getValue().equals(data.getAttributes().get(attribute.getKey()))) {
+                flags |= TraceBuffer.ATTRIBUTE;
+                break;
+            }
+        }
+        return flags;
+    }
+
+    private static boolean isError(SpanData data) {
+        if (data.getStatus().getStatusCode() == StatusCode.ERROR) {
+            return true;
+        }
+        for (EventData event : data.getEvents()) {
+            if ("exception".equals(event.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void forwardLate(ReadableSpan span, boolean kept) {
+        if (kept) {
+            delegate.onEnd(span);
+        }
+    }
+
+    private void evictExpired(long now) {
+        TraceBuffer head;
+        while ((head = order.peek()) != null && (head.isClosed() || now - head.createdNanos >= decisionWaitNanos)) {
+            if (order.remove(head)) {
+                evict(head, TailSamplingMetrics.EVICTED_TIMEOUT);
+            }
+        }
+    }
+
+    private void evictOverLimit() {
+        while (bufferedBytes.get() > maxBufferBytes) {
+            TraceBuffer oldest = order.poll();
+            if (oldest == null) {
+                return;
+            }
+            evict(oldest, TailSamplingMetrics.EVICTED_BYTE_LIMIT);
+        }
+    }
+
+    private void evict(TraceBuffer buffer, String reason) {
+        if (buffer.close() != null) {
+            release(buffer, false);
+            metrics.evicted(reason).increment();
+        }
+    }
+
+    /**
+     * Removes a closed trace from the buffer and remembers the decision for late spans.
+     */
+    private void release(TraceBuffer buffer, boolean kept) {
+        traces.remove(buffer.traceId, buffer);
+        remember(buffer.traceId, kept);
+        bufferedBytes.addAndGet(-buffer.bytes);
+        metrics.bufferedBytes.addAndGet(-buffer.bytes);
+        metrics.bufferedTraces.decrementAndGet();
+    }
+
+    private void remember(String traceId, boolean kept) {
+        if (decisions.put(traceId, kept) == null) {
+            decisionOrder.add(traceId);
+            while (decisions.size() > decisionCacheSize) {
+                String oldest = decisionOrder.poll();
+                if (oldest == null) {
+                    return;
+                }
+                decisions.remove(oldest);
+            }
+        }
+    }
+
+    private static boolean isLocalRoot(ReadableSpan span) {
+        SpanContext parent = span.getParentSpanContext();
+        return !parent.isValid() || parent.isRemote();
+    }
+
+    static long estimateBytes(SpanData data) {
+        return SPAN_BYTES + 2L * data.getName().length() + ATTRIBUTE_BYTES * data.getTotalAttributeCount()
+                + EVENT_BYTES * data.getTotalRecordedEvents() + LINK_BYTES * data.getTotalRecordedLinks();
+    }
+
+    @Override
+    public String toString() {
+        return "TailSamplingSpanProcessor{delegate=" + delegate + ", maxBufferBytes=" + maxBufferBytes + "}";
+    }
+
+    /**
+     * The spans of one trace. Closed once decided or evicted, spans added afterwards are
+     * refused.
+     */
+    private static final class TraceBuffer {
+
+        static final int ERROR = 1;
+
+        static final int ATTRIBUTE = 2;
+
+        private final String traceId;
+
+        private final long createdNanos;
+
+        private List<ReadableSpan> spans = new ArrayList<>(4);
+
+        private long bytes;
+
+        private boolean error;
+
+        private boolean attributeMatch;
+
+        private TraceBuffer(String traceId, long createdNanos) {
+            this.traceId = traceId;
+            this.createdNanos = createdNanos;
+        }
+
+        synchronized boolean add(ReadableSpan span, long spanBytes, int flags) {
+            if (spans == null) {
+                return false;
+            }
+            spans.add(span);
+            bytes += spanBytes;
+            error |= (flags & ERROR) != 0;
+            attributeMatch |= (flags & ATTRIBUTE) != 0;
+            return true;
+        }
+
+        synchronized boolean isClosed() {
+            return spans == null;
+        }
+
+        synchronized List<ReadableSpan> close() {
+            List<ReadableSpan> closed = spans;
+            spans = null;
+            return closed;
+        }
+
+    }
+
+}
@@ -0,0 +1,108 @@
+package ch.dboeckli.example.otel.tracing;
+
+import ch.dboeckli.example.otel.tracing.W3cTraceContextCodec.Check;
+import io.opentelemetry.api.baggage.Baggage;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.context.Scope;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Single-pass replacement for {@link TraceParentFilter}, {@link TraceDebugFilter} and
+ * {@link BaggageTaggingFilter}.
+ * <p>
+ * The current span and the incoming {@code traceparent} header are looked up once and
+ * shared by all concerns, and only one filter dispatch and at most one baggage scope is
+ * paid per request. Each concern is switched through {@link TracingFilterProperties}, the
+ * debug logging additionally only runs for requests selected by the {@link DebugCapture}.
+ */
+@Component
+@Slf4j
+@Order(Ordered.LOWEST_PRECEDENCE)
+@ConditionalOnProperty(prefix = "tracing.filter", name = "mode", havingValue = "fused", matchIfMissing = true)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class TelemetryFilter extends OncePerRequestFilter {
+
+    static final String FILTER_BAGGAGE_KEY = "addedBaggageByFilter";
+
+    private final boolean traceparentEcho;
+
+    private final boolean debug;
+
+    private final boolean baggageTagging;
+
+    private final boolean copyBaggageToSpan;
+
+    private final DebugCapture debugCapture;
+
+    public TelemetryFilter(TracingFilterProperties properties, DebugCapture debugCapture) {
+        this.debugCapture = debugCapture;
+        this.traceparentEcho = properties.getTraceparentEcho().isEnabled();
+        this.debug = properties.getDebug().isEnabled();
+        this.baggageTagging = properties.getBaggageTagging().isEnabled();
+        this.copyBaggageToSpan = properties.getBaggageTagging().isCopyToSpan();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        Span currentSpan = Span.current();
+        SpanContext spanContext = currentSpan.getSpanContext();
+        String incomingTraceparent = request.getHeader(W3cTraceContextCodec.TRACEPARENT);
+
+        if (traceparentEcho) {
+            echoTraceparent(incomingTraceparent, spanContext, response);
+        }
+        if (debug && debugCapture.shouldCapture(request, spanContext)) {
+            logTraceContext(request, incomingTraceparent, spanContext);
+        }
+        if (!baggageTagging) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        Baggage updatedBaggage = Baggage.current().toBuilder().put(FILTER_BAGGAGE_KEY, "echo").build();
+        try (Scope ignored = updatedBaggage.makeCurrent()) {
+            if (copyBaggageToSpan) {
+                updatedBaggage.forEach((key, entry) -> currentSpan.setAttribute(key, entry.getValue()));
+            }
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    private void echoTraceparent(String incomingTraceparent, SpanContext spanContext, HttpServletResponse response) {
+        if (W3cTraceContextCodec.checkTraceparent(incomingTraceparent) == Check.VALID) {
+            log.info("Traceparent already present: {}", incomingTraceparent);
+        }
+        else if (spanContext.isValid()) {
+            String traceParentValue = W3cTraceContextCodec.encodeTraceparent(spanContext);
+            log.info("Traceparent was missing or invalid, setting traceparent header: {}", traceParentValue);
+            response.setHeader(W3cTraceContextCodec.TRACEPARENT, traceParentValue);
+        }
+    }
+
+    private void logTraceContext(HttpServletRequest request, String incomingTraceparent, SpanContext spanContext) {
+        log.info("### {} {} incoming traceparent: {}", request.getMethod(), request.getRequestURI(),
+                incomingTraceparent);
+        if (spanContext.isValid()) {
+            log.info("### Current trace context: {}", SpanContextFormatter.format(spanContext));
+        }
+        else {
+            log.warn("### No valid span context found: {}", SpanContextFormatter.format(spanContext));
+        }
+    }
+
+}
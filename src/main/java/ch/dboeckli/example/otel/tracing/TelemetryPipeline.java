@@ -0,0 +1,65 @@
+package ch.dboeckli.example.otel.tracing;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Describes the configured OpenTelemetry pipeline: sampler, span processors and
+ * exporters as the SDK providers describe themselves, and the state of the
+ * {@link StripedBatchSpanProcessor} when it is enabled.
+ */
+@Component
+public class TelemetryPipeline {
+
+    private final OpenTelemetry openTelemetry;
+
+    private final BatchExportMetrics batchExportMetrics;
+
+    public TelemetryPipeline(OpenTelemetry openTelemetry, @Nullable BatchExportMetrics batchExportMetrics) {
+        this.openTelemetry = openTelemetry;
+        this.batchExportMetrics = batchExportMetrics;
+    }
+
+    public Description describe() {
+        if (!(openTelemetry instanceof OpenTelemetrySdk sdk)) {
+            return new Description(openTelemetry.getClass().getName(), null, null, null, null, null);
+        }
+        SdkTracerProvider tracerProvider = sdk.getSdkTracerProvider();
+        return new Description(sdk.getClass().getName(), tracerProvider.getSampler().getDescription(),
+                tracerProvider.toString(), sdk.getSdkMeterProvider().toString(), sdk.getSdkLoggerProvider().toString(),
+                batchExport());
+    }
+
+    @Nullable
+    private BatchExport batchExport() {
+        StripedBatchSpanProcessor processor = batchExportMetrics == null ? null : batchExportMetrics.getProcessor();
+        if (processor == null) {
+            return null;
+        }
+        return new BatchExport(processor.getExporter().toString(), processor.getStripeCount(),
+                processor.getQueueCapacity(), processor.getQueueDepth(), processor.getMaxExportBatchSize(),
+                batchExportMetrics.getDroppedCount(), batchExportMetrics.getExportedSpanCount(),
+                batchExportMetrics.getFailedSpanCount());
+    }
+
+    /**
+     * @param openTelemetry implementation of the {@link OpenTelemetry} bean
+     * @param tracerProvider span processors and exporters, {@code null} without SDK
+     * @param batchExport {@code null} unless {@code tracing.batch-export.enabled}
+     */
+    public record Description(String openTelemetry, @Nullable String sampler, @Nullable String tracerProvider,
+            @Nullable String meterProvider, @Nullable String loggerProvider, @Nullable BatchExport batchExport) {
+    }
+
+    /**
+     * @param exported spans the exporter accepted
+     * @param failed spans of batches the exporter rejected or did not answer in time
+     */
+    public record BatchExport(String exporter, int stripes, int queueCapacity, int queueDepth,
+            int maxExportBatchSize, long dropped, long exported, long failed) {
+    }
+
+}
@@ -0,0 +1,26 @@
+package ch.dboeckli.example.otel.tracing;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint describing the {@link TelemetryPipeline}, exposed as
+ * {@code /actuator/telemetry-pipeline}.
+ */
+@Component
+@Endpoint(id = "telemetrypipeline")
+public class TelemetryPipelineEndpoint {
+
+    private final TelemetryPipeline telemetryPipeline;
+
+    public TelemetryPipelineEndpoint(TelemetryPipeline telemetryPipeline) {
+        this.telemetryPipeline = telemetryPipeline;
+    }
+
+    @ReadOperation
+    public TelemetryPipeline.Description pipeline() {
+        return telemetryPipeline.describe();
+    }
+
+}
@@ -0,0 +1,111 @@
+package ch.dboeckli.example.otel.tracing;
+
+import ch.dboeckli.example.otel.tracing.W3cTraceContextCodec.Check;
+import io.opentelemetry.api.baggage.Baggage;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.context.Context;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of {@link TelemetryFilter} for the {@code reactive} profile:
+ * traceparent echo, debug logging and baggage tagging in one pass, switched through the
+ * same {@link TracingFilterProperties}.
+ * <p>
+ * The server span is current while the OpenTelemetry web filter assembles the chain, so
+ * it is picked up once here and, together with the filter baggage, stored in the Reactor
+ * context with {@link ReactorOtelContext}. Nothing downstream relies on a thread-local.
+ */
+@Component
+@Slf4j
+@Order(Ordered.LOWEST_PRECEDENCE)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class TelemetryWebFilter implements WebFilter {
+
+    private final boolean traceparentEcho;
+
+    private final boolean debug;
+
+    private final boolean baggageTagging;
+
+    private final boolean copyBaggageToSpan;
+
+    private final DebugCapture debugCapture;
+
+    public TelemetryWebFilter(TracingFilterProperties properties, DebugCapture debugCapture) {
+        this.debugCapture = debugCapture;
+        this.traceparentEcho = properties.getTraceparentEcho().isEnabled();
+        this.debug = properties.getDebug().isEnabled();
+        this.baggageTagging = properties.getBaggageTagging().isEnabled();
+        this.copyBaggageToSpan = properties.getBaggageTagging().isCopyToSpan();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        Context context = Context.current();
+        Span currentSpan = Span.fromContext(context);
+        SpanContext spanContext = currentSpan.getSpanContext();
+        ServerHttpRequest request = exchange.getRequest();
+        String incomingTraceparent = request.getHeaders().getFirst(W3cTraceContextCodec.TRACEPARENT);
+
+        boolean capture = debug && debugCapture.shouldCapture(request, spanContext);
+        if (traceparentEcho || capture) {
+            ScopedValueContextStorage.run(context, () -> {
+                if (traceparentEcho) {
+                    echoTraceparent(incomingTraceparent, spanContext, exchange.getResponse());
+                }
+                if (capture) {
+                    logTraceContext(request, incomingTraceparent, spanContext);
+                }
+            });
+        }
+
+        Context requestContext = context;
+        if (baggageTagging) {
+            Baggage updatedBaggage = Baggage.fromContext(context)
+                .toBuilder()
+                .put(TelemetryFilter.FILTER_BAGGAGE_KEY, "echo")
+                .build();
+            if (copyBaggageToSpan) {
+                updatedBaggage.forEach((key, entry) -> currentSpan.setAttribute(key, entry.getValue()));
+            }
+            requestContext = context.with(updatedBaggage);
+        }
+        Context otelContext = requestContext;
+        return chain.filter(exchange)
+            .contextWrite(reactorContext -> ReactorOtelContext.store(reactorContext, otelContext));
+    }
+
+    private void echoTraceparent(String incomingTraceparent, SpanContext spanContext, ServerHttpResponse response) {
+        if (W3cTraceContextCodec.checkTraceparent(incomingTraceparent) == Check.VALID) {
+            log.info("Traceparent already present: {}", incomingTraceparent);
+        }
+        else if (spanContext.isValid()) {
+            String traceParentValue = W3cTraceContextCodec.encodeTraceparent(spanContext);
+            log.info("Traceparent was missing or invalid, setting traceparent header: {}", traceParentValue);
+            response.getHeaders().set(W3cTraceContextCodec.TRACEPARENT, traceParentValue);
+        }
+    }
+
+    private void logTraceContext(ServerHttpRequest request, String incomingTraceparent, SpanContext spanContext) {
+        log.info("### {} {} incoming traceparent: {}", request.getMethod(), request.getPath().value(),
+                incomingTraceparent);
+        if (spanContext.isValid()) {
+            log.info("### Current trace context: {}", SpanContextFormatter.format(spanContext));
+        }
+        else {
+            log.warn("### No valid span context found: {}", SpanContextFormatter.format(spanContext));
+        }
+    }
+
+}
@@ -7,34 +7,47 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
-import org.apache.commons.lang3.builder.ToStringStyle;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 
+/**
+ * Legacy filter logging the incoming traceparent and the current span context for
+ * requests selected by the {@link DebugCapture}. Only registered with
+ * {@code tracing.filter.mode=legacy}, otherwise {@link TelemetryFilter} takes over.
+ */
 @Component
 @Slf4j
+@ConditionalOnProperty(prefix = "tracing.filter", name = "mode", havingValue = "legacy")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class TraceDebugFilter extends OncePerRequestFilter {
 
+    private final DebugCapture debugCapture;
+
+    public TraceDebugFilter(DebugCapture debugCapture) {
+        this.debugCapture = debugCapture;
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
 
-        // Log incoming traceparent header
-        String incomingTraceparent = request.getHeader("traceparent");
-        log.info("### Incoming traceparent: {}", incomingTraceparent);
-
-        // Log current span context
         SpanContext traceContext = Span.current().getSpanContext();
-        if (traceContext.isValid()) {
-            log.info("### Current trace context: {}",
-                    ReflectionToStringBuilder.toString(traceContext, ToStringStyle.MULTI_LINE_STYLE));
-        }
-        else {
-            log.warn("### No valid span context found: {}",
-                    ReflectionToStringBuilder.toString(traceContext, ToStringStyle.MULTI_LINE_STYLE));
+        if (debugCapture.shouldCapture(request, traceContext)) {
+            // Log incoming traceparent header
+            String incomingTraceparent = request.getHeader("traceparent");
+            log.info("### Incoming traceparent: {}", incomingTraceparent);
+
+            // Log current span context
+            if (traceContext.isValid()) {
+                log.info("### Current trace context: {}", SpanContextFormatter.format(traceContext));
+            }
+            else {
+                log.warn("### No valid span context found: {}", SpanContextFormatter.format(traceContext));
+            }
         }
 
         filterChain.doFilter(request, response);
@@ -0,0 +1,30 @@
+package ch.dboeckli.example.otel.tracing;
+
+import io.opentelemetry.api.baggage.propagation.W3CBaggagePropagator;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.sdk.autoconfigure.spi.AutoConfigurationCustomizerProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Replaces the {@code baggage} and {@code tracecontext} propagators configured in
+ * {@code otel.propagators} with the limit-enforcing variants based on
+ * {@link W3cTraceContextCodec}. Other propagators are left untouched.
+ */
+@Configuration(proxyBeanMethods = false)
+public class TraceHeaderConfiguration {
+
+    @Bean
+    public AutoConfigurationCustomizerProvider traceHeaderPropagatorCustomizer(TraceHeaderMetrics metrics) {
+        return customizer -> customizer.addPropagatorCustomizer((propagator, config) -> {
+            if (propagator == W3CBaggagePropagator.getInstance()) {
+                return new LimitedBaggagePropagator(metrics);
+            }
+            if (propagator == W3CTraceContextPropagator.getInstance()) {
+                return new ValidatingTraceContextPropagator(propagator, metrics);
+            }
+            return propagator;
+        });
+    }
+
+}
@@ -0,0 +1,76 @@
+package ch.dboeckli.example.otel.tracing;
+
+import ch.dboeckli.example.otel.tracing.W3cTraceContextCodec.Check;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts incoming W3C headers that were rejected as malformed or oversized
+ * ({@code tracing.headers.rejected}).
+ * <p>
+ * The counters are plain {@link LongAdder}s bound through {@link MeterBinder}, so the
+ * propagators can use them while the OpenTelemetry SDK is still being built, before any
+ * {@link MeterRegistry} exists.
+ */
+@Component
+public class TraceHeaderMetrics implements MeterBinder {
+
+    private static final List<String> HEADERS = List.of(W3cTraceContextCodec.TRACEPARENT,
+            W3cTraceContextCodec.TRACESTATE, W3cTraceContextCodec.BAGGAGE);
+
+    private final LongAdder[] malformed = newAdders();
+
+    private final LongAdder[] oversized = newAdders();
+
+    public void reject(String header, Check check) {
+        int index = HEADERS.indexOf(header);
+        if (index < 0) {
+            return;
+        }
+        if (check == Check.MALFORMED) {
+            malformed[index].increment();
+        }
+        else if (check == Check.OVERSIZED) {
+            oversized[index].increment();
+        }
+    }
+
+    public long rejected(String header, Check check) {
+        int index = HEADERS.indexOf(header);
+        return switch (check) {
+            case MALFORMED -> malformed[index].sum();
+            case OVERSIZED -> oversized[index].sum();
+            default -> 0;
+        };
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (int i = 0; i < HEADERS.size(); i++) {
+            register(registry, HEADERS.get(i), "malformed", malformed[i]);
+            register(registry, HEADERS.get(i), "oversized", oversized[i]);
+        }
+    }
+
+    private static void register(MeterRegistry registry, String header, String reason, LongAdder adder) {
+        FunctionCounter.builder("tracing.headers.rejected", adder, LongAdder::sum)
+            .description("Incoming W3C trace headers rejected by the header codec")
+            .tag("header", header)
+            .tag("reason", reason)
+            .register(registry);
+    }
+
+    private static LongAdder[] newAdders() {
+        LongAdder[] adders = new LongAdder[HEADERS.size()];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+}
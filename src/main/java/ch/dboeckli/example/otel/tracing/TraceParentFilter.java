@@ -1,18 +1,27 @@
 package ch.dboeckli.example.otel.tracing;
 
+import ch.dboeckli.example.otel.tracing.W3cTraceContextCodec.Check;
 import io.opentelemetry.api.trace.Span;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 
+/**
+ * Legacy filter echoing a {@code traceparent} response header. Only registered with
+ * {@code tracing.filter.mode=legacy}, otherwise {@link TelemetryFilter} takes over.
+ */
 @Component
 @Slf4j
+@ConditionalOnProperty(prefix = "tracing.filter", name = "mode", havingValue = "legacy")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class TraceParentFilter extends OncePerRequestFilter {
 
     @Override
@@ -28,20 +37,20 @@ public class TraceParentFilter extends OncePerRequestFilter {
             return;
         }
 
-        String traceParent = request.getHeader("traceparent");
-        if (traceParent == null || traceParent.isBlank()) {
-            log.info("Traceparent was null or empty, setting traceparent header.");
-
-            String traceId = currentSpan.getSpanContext().getTraceId();
-            String spanId = currentSpan.getSpanContext().getSpanId();
+        String traceParent = request.getHeader(W3cTraceContextCodec.TRACEPARENT);
+        if (W3cTraceContextCodec.checkTraceparent(traceParent) == Check.VALID) {
+            log.info("Traceparent already present: {}", traceParent);
+        }
+        else if (currentSpan.getSpanContext().isValid()) {
+            log.info("Traceparent was missing or invalid, setting traceparent header.");
 
-            String traceParentValue = String.format("00-%s-%s-01", traceId, spanId);
+            String traceParentValue = W3cTraceContextCodec.encodeTraceparent(currentSpan.getSpanContext());
             log.info("Setting traceparent header: {}", traceParentValue);
 
-            response.setHeader("traceparent", traceParentValue);
+            response.setHeader(W3cTraceContextCodec.TRACEPARENT, traceParentValue);
         }
         else {
-            log.info("Traceparent already present: {}", traceParent);
+            log.info("No valid span context, skipping traceparent header.");
         }
 
         filterChain.doFilter(request, response);
@@ -0,0 +1,10 @@
+package ch.dboeckli.example.otel.tracing;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(TracingFilterProperties.class)
+public class TracingFilterConfiguration {
+
+}
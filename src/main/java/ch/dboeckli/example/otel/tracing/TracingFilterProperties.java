@@ -0,0 +1,93 @@
+package ch.dboeckli.example.otel.tracing;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the tracing servlet filters ({@code tracing.filter.*}).
+ * <p>
+ * In {@link Mode#FUSED} mode a single {@link TelemetryFilter} handles all concerns in one
+ * pass and every concern can be switched on and off on its own. {@link Mode#LEGACY}
+ * registers the original three filters ({@link TraceParentFilter},
+ * {@link TraceDebugFilter}, {@link BaggageTaggingFilter}) unchanged.
+ */
+@ConfigurationProperties(prefix = "tracing.filter")
+@Getter
+@Setter
+public class TracingFilterProperties {
+
+    private Mode mode = Mode.FUSED;
+
+    /**
+     * Echo a {@code traceparent} response header when the request did not carry a valid
+     * one.
+     */
+    private final Concern traceparentEcho = new Concern();
+
+    /**
+     * Log the incoming traceparent and the current span context for requests selected by
+     * the {@link DebugCapture}.
+     */
+    private final Debug debug = new Debug();
+
+    /**
+     * Add the filter baggage entry.
+     */
+    private final BaggageTagging baggageTagging = new BaggageTagging();
+
+    public enum Mode {
+
+        FUSED, LEGACY
+
+    }
+
+    @Getter
+    @Setter
+    public static class Concern {
+
+        private boolean enabled = true;
+
+    }
+
+    @Getter
+    @Setter
+    public static class BaggageTagging extends Concern {
+
+        /**
+         * Also copy the whole baggage to the current span on every request, in the filter
+         * and in the controller. Off by default, the {@link BaggageSpanProcessor} copies
+         * the allowlisted entries to every span instead.
+         */
+        private boolean copyToSpan = false;
+
+    }
+
+    /**
+     * The debug concern only decides whether the filter consults the
+     * {@link DebugCapture}; capturing itself stays off until it is enabled at runtime.
+     */
+    @Getter
+    @Setter
+    public static class Debug extends Concern {
+
+        /**
+         * Session length when the enable request does not specify one.
+         */
+        private Duration defaultDuration = Duration.ofMinutes(1);
+
+        /**
+         * Upper bound for the session length.
+         */
+        private Duration maxDuration = Duration.ofMinutes(15);
+
+        /**
+         * Upper bound for the number of captured requests per second.
+         */
+        private double maxRatePerSecond = 10;
+
+    }
+
+}
@@ -0,0 +1,61 @@
+package ch.dboeckli.example.otel.tracing;
+
+import ch.dboeckli.example.otel.tracing.W3cTraceContextCodec.Check;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import io.opentelemetry.context.propagation.TextMapSetter;
+
+import java.util.Collection;
+
+/**
+ * Wraps the W3C trace context propagator and counts malformed or oversized
+ * {@code traceparent} and {@code tracestate} headers in {@link TraceHeaderMetrics}. The
+ * delegate already ignores invalid headers, this wrapper makes that visible.
+ */
+public class ValidatingTraceContextPropagator implements TextMapPropagator {
+
+    private final TextMapPropagator delegate;
+
+    private final TraceHeaderMetrics metrics;
+
+    public ValidatingTraceContextPropagator(TextMapPropagator delegate, TraceHeaderMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Collection<String> fields() {
+        return delegate.fields();
+    }
+
+    @Override
+    public <C> void inject(Context context, C carrier, TextMapSetter<C> setter) {
+        delegate.inject(context, carrier, setter);
+    }
+
+    @Override
+    public <C> Context extract(Context context, C carrier, TextMapGetter<C> getter) {
+        if (getter != null) {
+            Check traceparent = W3cTraceContextCodec
+                .checkTraceparent(getter.get(carrier, W3cTraceContextCodec.TRACEPARENT));
+            if (traceparent == Check.MALFORMED || traceparent == Check.OVERSIZED) {
+                metrics.reject(W3cTraceContextCodec.TRACEPARENT, traceparent);
+            }
+            else if (traceparent == Check.VALID) {
+                Check tracestate = W3cTraceContextCodec
+                    .checkTracestate(getter.get(carrier, W3cTraceContextCodec.TRACESTATE));
+                if (tracestate == Check.MALFORMED || tracestate == Check.OVERSIZED) {
+                    metrics.reject(W3cTraceContextCodec.TRACESTATE, tracestate);
+                }
+            }
+        }
+        return delegate.extract(context, carrier, getter);
+    }
+
+    @Override
+    public String toString() {
+        return "ValidatingTraceContextPropagator{" + delegate + "}";
+    }
+
+}
@@ -0,0 +1,371 @@
+package ch.dboeckli.example.otel.tracing;
+
+import io.opentelemetry.api.trace.SpanContext;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Codec for the W3C {@code traceparent}, {@code tracestate} and {@code baggage} headers
+ * that allocates little more than the strings it returns. Scratch buffers are local and
+ * sized to the header, so no thread keeps one alive.
+ * <p>
+ * Headers are checked character by character, without regular expressions or substrings,
+ * and the W3C limits are enforced: {@code tracestate} at most
+ * {@value #TRACESTATE_MAX_MEMBERS} members and {@value #TRACESTATE_MAX_LENGTH}
+ * characters, {@code baggage} at most {@value #BAGGAGE_MAX_MEMBERS} members and
+ * {@value #BAGGAGE_MAX_LENGTH} characters. Baggage entries are reported as offsets into
+ * the header through a {@link BaggageEntryVisitor}, so the caller only allocates the
+ * strings it keeps.
+ */
+public final class W3cTraceContextCodec {
+
+    public static final String TRACEPARENT = "traceparent";
+
+    public static final String TRACESTATE = "tracestate";
+
+    public static final String BAGGAGE = "baggage";
+
+    public static final int TRACEPARENT_LENGTH = 55;
+
+    /**
+     * Upper bound for future traceparent versions, which may append fields after the
+     * version 00 layout.
+     */
+    public static final int TRACEPARENT_MAX_LENGTH = 512;
+
+    public static final int TRACESTATE_MAX_LENGTH = 512;
+
+    public static final int TRACESTATE_MAX_MEMBERS = 32;
+
+    public static final int BAGGAGE_MAX_LENGTH = 8192;
+
+    public static final int BAGGAGE_MAX_MEMBERS = 64;
+
+    private static final int TRACE_ID_OFFSET = 3;
+
+    private static final int SPAN_ID_OFFSET = 36;
+
+    private static final int FLAGS_OFFSET = 53;
+
+    private static final int TRACESTATE_MAX_KEY_LENGTH = 256;
+
+    private static final int TRACESTATE_MAX_VALUE_LENGTH = 256;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private W3cTraceContextCodec() {
+    }
+
+    /**
+     * Outcome of a header check.
+     */
+    public enum Check {
+
+        VALID, ABSENT, MALFORMED, OVERSIZED
+
+    }
+
+    /**
+     * Receives one baggage list member as offsets into the header. The value range still
+     * contains percent escapes, see {@link #decodeBaggageValue(CharSequence, int, int)}.
+     * Without properties the metadata range is empty.
+     */
+    @FunctionalInterface
+    public interface BaggageEntryVisitor {
+
+        void visit(CharSequence header, int keyStart, int keyEnd, int valueStart, int valueEnd, int metadataStart,
+                int metadataEnd);
+
+    }
+
+    /**
+     * Renders the traceparent of the given span context. The flags reflect the real
+     * sampled bit of the context.
+     */
+    public static String encodeTraceparent(SpanContext spanContext) {
+        char[] buffer = new char[TRACEPARENT_LENGTH];
+        writeTraceparent(spanContext, buffer, 0);
+        return new String(buffer, 0, TRACEPARENT_LENGTH);
+    }
+
+    /**
+     * Writes the {@value #TRACEPARENT_LENGTH} characters of the traceparent into
+     * {@code buffer} at {@code offset}.
+     */
+    public static void writeTraceparent(SpanContext spanContext, char[] buffer, int offset) {
+        buffer[offset] = '0';
+        buffer[offset + 1] = '0';
+        buffer[offset + 2] = '-';
+        spanContext.getTraceId().getChars(0, 32, buffer, offset + TRACE_ID_OFFSET);
+        buffer[offset + SPAN_ID_OFFSET - 1] = '-';
+        spanContext.getSpanId().getChars(0, 16, buffer, offset + SPAN_ID_OFFSET);
+        buffer[offset + FLAGS_OFFSET - 1] = '-';
+        byte flags = spanContext.getTraceFlags().asByte();
+        buffer[offset + FLAGS_OFFSET] = HEX[(flags >> 4) & 0xF];
+        buffer[offset + FLAGS_OFFSET + 1] = HEX[flags & 0xF];
+    }
+
+    public static Check checkTraceparent(CharSequence header) {
+        if (isBlank(header)) {
+            return Check.ABSENT;
+        }
+        int length = header.length();
+        if (length > TRACEPARENT_MAX_LENGTH) {
+            return Check.OVERSIZED;
+        }
+        if (length < TRACEPARENT_LENGTH || !isLowerHex(header, 0, 2)
+                || (header.charAt(0) == 'f' && header.charAt(1) == 'f')) {
+            return Check.MALFORMED;
+        }
+        boolean version00 = header.charAt(0) == '0' && header.charAt(1) == '0';
+        if ((version00 && length != TRACEPARENT_LENGTH)
+                || (!version00 && length > TRACEPARENT_LENGTH && header.charAt(TRACEPARENT_LENGTH) != '-')) {
+            return Check.MALFORMED;
+        }
+        if (header.charAt(TRACE_ID_OFFSET - 1) != '-' || header.charAt(SPAN_ID_OFFSET - 1) != '-'
+                || header.charAt(FLAGS_OFFSET - 1) != '-') {
+            return Check.MALFORMED;
+        }
+        if (!isLowerHex(header, TRACE_ID_OFFSET, SPAN_ID_OFFSET - 1) || isZero(header, TRACE_ID_OFFSET, 32)
+                || !isLowerHex(header, SPAN_ID_OFFSET, FLAGS_OFFSET - 1) || isZero(header, SPAN_ID_OFFSET, 16)
+                || !isLowerHex(header, FLAGS_OFFSET, TRACEPARENT_LENGTH)) {
+            return Check.MALFORMED;
+        }
+        return Check.VALID;
+    }
+
+    public static Check checkTracestate(CharSequence header) {
+        if (isBlank(header)) {
+            return Check.ABSENT;
+        }
+        int length = header.length();
+        if (length > TRACESTATE_MAX_LENGTH) {
+            return Check.OVERSIZED;
+        }
+        int members = 0;
+        int position = 0;
+        while (position <= length) {
+            int end = indexOf(header, ',', position, length);
+            int start = skipOws(header, position, end);
+            int stop = trimOws(header, start, end);
+            if (start < stop) {
+                if (++members > TRACESTATE_MAX_MEMBERS) {
+                    return Check.OVERSIZED;
+                }
+                if (!isTracestateMember(header, start, stop)) {
+                    return Check.MALFORMED;
+                }
+            }
+            position = end + 1;
+        }
+        return Check.VALID;
+    }
+
+    /**
+     * Checks the baggage header without reporting its entries.
+     */
+    public static Check checkBaggage(CharSequence header) {
+        return parseBaggage(header, null);
+    }
+
+    /**
+     * Checks the baggage header and, only if it is {@link Check#VALID}, reports every
+     * list member to the visitor. Invalid headers are rejected as a whole, the visitor is
+     * not called for them.
+     */
+    public static Check parseBaggage(CharSequence header, BaggageEntryVisitor visitor) {
+        if (isBlank(header)) {
+            return Check.ABSENT;
+        }
+        if (header.length() > BAGGAGE_MAX_LENGTH) {
+            return Check.OVERSIZED;
+        }
+        Check check = scanBaggage(header, null);
+        if (check == Check.VALID && visitor != null) {
+            scanBaggage(header, visitor);
+        }
+        return check;
+    }
+
+    /**
+     * Percent-decodes a baggage value range. Values without escapes are copied straight
+     * out of the header.
+     */
+    public static String decodeBaggageValue(CharSequence header, int start, int end) {
+        if (indexOf(header, '%', start, end) == end) {
+            return header.subSequence(start, end).toString();
+        }
+        // never longer than the escaped range, every escape shrinks three chars to one byte
+        byte[] buffer = new byte[end - start];
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            char c = header.charAt(i);
+            if (c == '%') {
+                buffer[length++] = (byte) ((hexValue(header.charAt(i + 1)) << 4) | hexValue(header.charAt(i + 2)));
+                i += 2;
+            }
+            else {
+                buffer[length++] = (byte) c;
+            }
+        }
+        return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static Check scanBaggage(CharSequence header, BaggageEntryVisitor visitor) {
+        int length = header.length();
+        int members = 0;
+        int position = 0;
+        while (position <= length) {
+            int end = indexOf(header, ',', position, length);
+            int start = skipOws(header, position, end);
+            int stop = trimOws(header, start, end);
+            if (start < stop) {
+                if (++members > BAGGAGE_MAX_MEMBERS) {
+                    return Check.OVERSIZED;
+                }
+                int equals = indexOf(header, '=', start, stop);
+                int keyEnd = trimOws(header, start, equals);
+                int semicolon = indexOf(header, ';', equals, stop);
+                int valueStart = skipOws(header, equals + 1, semicolon);
+                int valueEnd = trimOws(header, valueStart, semicolon);
+                if (equals == stop || !isToken(header, start, keyEnd)
+                        || !isBaggageValue(header, valueStart, valueEnd)) {
+                    return Check.MALFORMED;
+                }
+                if (visitor != null) {
+                    int metadataStart = semicolon == stop ? stop : skipOws(header, semicolon + 1, stop);
+                    visitor.visit(header, start, keyEnd, valueStart, valueEnd, metadataStart, stop);
+                }
+            }
+            position = end + 1;
+        }
+        return Check.VALID;
+    }
+
+    private static boolean isTracestateMember(CharSequence header, int start, int end) {
+        int equals = indexOf(header, '=', start, end);
+        int keyLength = equals - start;
+        int valueLength = end - equals - 1;
+        if (equals == end || keyLength == 0 || keyLength > TRACESTATE_MAX_KEY_LENGTH || valueLength == 0
+                || valueLength > TRACESTATE_MAX_VALUE_LENGTH) {
+            return false;
+        }
+        int at = -1;
+        for (int i = start; i < equals; i++) {
+            char c = header.charAt(i);
+            if (c == '@' && at < 0 && i > start) {
+                at = i;
+            }
+            else if (!((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_' || c == '-' || c == '*'
+                    || c == '/')) {
+                return false;
+            }
+        }
+        if (at == equals - 1) {
+            return false;
+        }
+        for (int i = equals + 1; i < end; i++) {
+            char c = header.charAt(i);
+            if (c < 0x20 || c > 0x7E || c == ',' || c == '=') {
+                return false;
+            }
+        }
+        return header.charAt(end - 1) != ' ';
+    }
+
+    private static boolean isToken(CharSequence header, int start, int end) {
+        if (start >= end) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            char c = header.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || "!#$%&'*+-.^_`|~".indexOf(c) >= 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isBaggageValue(CharSequence header, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = header.charAt(i);
+            if (c == '%') {
+                if (i + 2 >= end || hexValue(header.charAt(i + 1)) < 0 || hexValue(header.charAt(i + 2)) < 0) {
+                    return false;
+                }
+                i += 2;
+            }
+            else if (c < 0x21 || c > 0x7E || c == '"' || c == ',' || c == ';' || c == '\\') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLowerHex(CharSequence header, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = header.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isZero(CharSequence header, int start, int length) {
+        for (int i = start; i < start + length; i++) {
+            if (header.charAt(i) != '0') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    private static int indexOf(CharSequence header, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (header.charAt(i) == c) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private static int skipOws(CharSequence header, int start, int end) {
+        int i = start;
+        while (i < end && isOws(header.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int trimOws(CharSequence header, int start, int end) {
+        int i = end;
+        while (i > start && isOws(header.charAt(i - 1))) {
+            i--;
+        }
+        return i;
+    }
+
+    private static boolean isOws(char c) {
+        return c == ' ' || c == '\t';
+    }
+
+    private static boolean isBlank(CharSequence header) {
+        return header == null || skipOws(header, 0, header.length()) == header.length();
+    }
+
+}
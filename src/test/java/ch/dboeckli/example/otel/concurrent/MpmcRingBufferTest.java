@@ -0,0 +1,111 @@
+package ch.dboeckli.example.otel.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+class MpmcRingBufferTest {
+
+    @Test
+    void offerAndPoll_keepFifoOrderAndRespectCapacity() {
+        MpmcRingBuffer<Integer> buffer = new MpmcRingBuffer<>(3);
+
+        List<Boolean> offered = List.of(buffer.offer(1), buffer.offer(2), buffer.offer(3), buffer.offer(4),
+                buffer.offer(5));
+        int sizeWhenFull = buffer.size();
+        List<Integer> polled = new ArrayList<>();
+        Integer element;
+        while ((element = buffer.poll()) != null) {
+            polled.add(element);
+        }
+
+        assertAll(() -> assertThat(buffer.capacity()).isEqualTo(4),
+                () -> assertThat(offered).containsExactly(true, true, true, true, false),
+                () -> assertThat(sizeWhenFull).isEqualTo(4), () -> assertThat(polled).containsExactly(1, 2, 3, 4),
+                () -> assertThat(buffer.isEmpty()).isTrue());
+    }
+
+    @Test
+    void drainTo_movesAtMostTheTargetLength() {
+        MpmcRingBuffer<String> buffer = new MpmcRingBuffer<>(8);
+        for (int i = 0; i < 5; i++) {
+            buffer.offer("e" + i);
+        }
+        String[] batch = new String[3];
+
+        int first = buffer.drainTo(batch);
+        int second = buffer.drainTo(batch);
+
+        assertAll(() -> assertThat(first).isEqualTo(3), () -> assertThat(second).isEqualTo(2),
+                () -> assertThat(batch).containsExactly("e3", "e4", "e2"));
+    }
+
+    @Test
+    void concurrentProducersAndConsumers_loseNothing() throws Exception {
+        int producers = 4;
+        int consumers = 2;
+        int perProducer = 20_000;
+        MpmcRingBuffer<Integer> buffer = new MpmcRingBuffer<>(64);
+        Set<Integer> seen = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicates = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(producers + consumers);
+        try {
+            List<Future<?>> producerFutures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                int base = p * perProducer;
+                producerFutures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perProducer; i++) {
+                        while (!buffer.offer(base + i)) {
+                            Thread.yield();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            List<Future<?>> consumerFutures = new ArrayList<>();
+            for (int c = 0; c < consumers; c++) {
+                consumerFutures.add(executor.submit(() -> {
+                    start.await();
+                    while (seen.size() < producers * perProducer) {
+                        Integer element = buffer.poll();
+                        if (element == null) {
+                            Thread.yield();
+                        }
+                        else if (!seen.add(element)) {
+                            duplicates.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : producerFutures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+            for (Future<?> future : consumerFutures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        assertAll(() -> assertThat(seen.size()).isEqualTo(producers * perProducer),
+                () -> assertThat(duplicates).hasValue(0), () -> assertThat(buffer.isEmpty()).isTrue());
+    }
+
+}
@@ -0,0 +1,170 @@
+package ch.dboeckli.example.otel.concurrent;
+
+import ch.dboeckli.example.otel.concurrent.StructuredFanOut.Subtask;
+import io.opentelemetry.api.baggage.Baggage;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.EventData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+class StructuredFanOutTest {
+
+    private InMemorySpanExporter spanExporter;
+
+    private SdkTracerProvider tracerProvider;
+
+    private Tracer tracer;
+
+    private StructuredFanOut fanOut;
+
+    @BeforeEach
+    void setUp() {
+        spanExporter = InMemorySpanExporter.create();
+        tracerProvider = SdkTracerProvider.builder().addSpanProcessor(SimpleSpanProcessor.create(spanExporter)).build();
+        tracer = tracerProvider.get("test-tracer");
+        fanOut = new StructuredFanOut(tracer, Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracerProvider.close();
+        spanExporter.reset();
+    }
+
+    @Test
+    void invokeAll_runsSubtasksInParallelWithParentSpanAndBaggage() throws InterruptedException {
+        // every subtask waits for all others, so they can only complete when run in
+        // parallel
+        CountDownLatch allStarted = new CountDownLatch(3);
+        Span parent = tracer.spanBuilder("process-hello").startSpan();
+        Context context = Context.root().with(parent).with(Baggage.builder().put("tenant", "acme").build());
+
+        List<String> results;
+        try (Scope ignored = context.makeCurrent()) {
+            results = fanOut.invokeAll(List.of(backend("a", allStarted), backend("b", allStarted),
+                    backend("c", allStarted)), Duration.ofSeconds(5));
+        }
+        parent.end();
+
+        SpanData fanOutSpan = span("fan-out");
+        assertAll(() -> assertThat(results).containsExactly("a:acme", "b:acme", "c:acme"),
+                () -> assertThat(fanOutSpan.getParentSpanId()).isEqualTo(parent.getSpanContext().getSpanId()),
+                () -> assertThat(List.of(span("a"), span("b"), span("c"))).allSatisfy(subtask -> {
+                    assertThat(subtask.getParentSpanId()).isEqualTo(fanOutSpan.getSpanId());
+                    assertThat(subtask.getTraceId()).isEqualTo(parent.getSpanContext().getTraceId());
+                }), () -> assertThat(fanOutSpan.getEvents()).isEmpty());
+    }
+
+    @Test
+    void invokeAll_failureCancelsOtherSubtasks() {
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        Subtask<String> slow = new Subtask<>("slow", () -> {
+            slowStarted.countDown();
+            Thread.sleep(Duration.ofSeconds(30));
+            return "slow";
+        });
+        Subtask<String> failing = new Subtask<>("failing", () -> {
+            slowStarted.await();
+            throw new IllegalStateException("backend down");
+        });
+
+        assertThatThrownBy(() -> fanOut.invokeAll(List.of(failing, slow), null))
+            .isInstanceOf(StructuredFanOut.FailedException.class)
+            .hasRootCauseMessage("backend down");
+
+        assertAll(() -> assertThat(span("fan-out").getStatus().getStatusCode()).isEqualTo(StatusCode.ERROR),
+                () -> assertThat(span("failing").getStatus().getStatusCode()).isEqualTo(StatusCode.ERROR),
+                () -> assertThat(span("slow").getAttributes().get(StructuredFanOut.CANCELLED)).isTrue(),
+                () -> assertCancelled("slow", "failure"));
+    }
+
+    @Test
+    void invokeAny_returnsFirstSuccessAndCancelsTheRest() throws InterruptedException {
+        Subtask<String> failing = new Subtask<>("failing", () -> {
+            throw new IllegalStateException("replica down");
+        });
+
+        String result = fanOut.invokeAny(List.of(failing, slow("slow"), new Subtask<>("fast", () -> "fast")), null);
+
+        assertAll(() -> assertThat(result).isEqualTo("fast"),
+                () -> assertThat(span("fan-out").getStatus().getStatusCode()).isEqualTo(StatusCode.OK),
+                () -> assertCancelled("slow", "first-success"));
+    }
+
+    @Test
+    void invokeAny_failsWhenAllSubtasksFail() {
+        Subtask<String> first = new Subtask<>("first", () -> {
+            throw new IllegalStateException("first down");
+        });
+        Subtask<String> second = new Subtask<>("second", () -> {
+            throw new IllegalStateException("second down");
+        });
+
+        assertThatThrownBy(() -> fanOut.invokeAny(List.of(first, second), null))
+            .isInstanceOf(StructuredFanOut.FailedException.class)
+            .hasRootCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void deadline_cancelsPendingSubtasks() {
+        Subtask<String> fast = new Subtask<>("fast", () -> "fast");
+
+        assertThatThrownBy(() -> fanOut.invokeAll(List.of(fast, slow("slow")), Duration.ofMillis(100)))
+            .isInstanceOf(StructuredFanOut.TimeoutException.class);
+
+        assertAll(() -> assertCancelled("slow", "deadline"),
+                // the call only returns after the cancelled subtask has ended
+                () -> assertThat(span("slow").hasEnded()).isTrue());
+    }
+
+    private static Subtask<String> backend(String name, CountDownLatch allStarted) {
+        return new Subtask<>(name, () -> {
+            allStarted.countDown();
+            allStarted.await();
+            assertThat(Span.current().getSpanContext().isValid()).isTrue();
+            return name + ":" + Baggage.current().getEntryValue("tenant");
+        });
+    }
+
+    private static Subtask<String> slow(String name) {
+        return new Subtask<>(name, () -> {
+            Thread.sleep(Duration.ofSeconds(30));
+            return name;
+        });
+    }
+
+    private void assertCancelled(String subtask, String reason) {
+        List<EventData> events = span("fan-out").getEvents();
+        assertThat(events).singleElement().satisfies(event -> {
+            assertThat(event.getName()).isEqualTo("subtask-cancelled");
+            assertThat(event.getAttributes().get(StructuredFanOut.SUBTASK)).isEqualTo(subtask);
+            assertThat(event.getAttributes().get(StructuredFanOut.CANCEL_REASON)).isEqualTo(reason);
+        });
+    }
+
+    private SpanData span(String name) {
+        return spanExporter.getFinishedSpanItems()
+            .stream()
+            .filter(span -> span.getName().equals(name))
+            .findFirst()
+            .orElseThrow();
+    }
+
+}
@@ -0,0 +1,91 @@
+package ch.dboeckli.example.otel.concurrent;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+class VirtualThreadPinningMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final VirtualThreadPinningMetrics metrics = new VirtualThreadPinningMetrics(Duration.ofMillis(10));
+
+    @AfterEach
+    void tearDown() {
+        metrics.close();
+    }
+
+    @Test
+    void bindTo_recordsVirtualThreadBlockedWhilePinned() throws InterruptedException {
+        metrics.bindTo(registry);
+        Timer pinned = registry.get("jvm.threads.virtual.pinned").timer();
+
+        // blocking inside a class initializer pins the virtual thread on every JDK
+        Thread.ofVirtual().start(() -> BlockingInitializer.VALUE.length()).join();
+
+        await().atMost(10, TimeUnit.SECONDS).until(() -> pinned.count() > 0);
+        assertAll(() -> assertThat(pinned.count()).isEqualTo(1),
+                () -> assertThat(pinned.totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(50));
+    }
+
+    @Test
+    void bindTo_ignoresVirtualThreadBlockedWithoutPinning() throws InterruptedException {
+        metrics.bindTo(registry);
+        Timer pinned = registry.get("jvm.threads.virtual.pinned").timer();
+
+        Thread.ofVirtual().start(() -> {
+            try {
+                Thread.sleep(50);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }).join();
+        // JFR delivers in order: once this pinning is recorded, one of the sleep above would have been too
+        Thread.ofVirtual().start(() -> MarkerInitializer.VALUE.length()).join();
+
+        await().atMost(10, TimeUnit.SECONDS).until(() -> pinned.count() > 0);
+        assertThat(pinned.count()).isEqualTo(1);
+    }
+
+    private static final class BlockingInitializer {
+
+        static final String VALUE;
+
+        static {
+            try {
+                Thread.sleep(60);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            VALUE = "initialized";
+        }
+
+    }
+
+    private static final class MarkerInitializer {
+
+        static final String VALUE;
+
+        static {
+            try {
+                Thread.sleep(60);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            VALUE = "initialized";
+        }
+
+    }
+
+}
@@ -0,0 +1,220 @@
+package ch.dboeckli.example.otel.export;
+
+import ch.dboeckli.example.otel.test.otlp.OtlpReceiver;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.exporter.otlp.http.trace.OtlpHttpSpanExporter;
+import io.opentelemetry.proto.trace.v1.Span;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.testing.trace.TestSpanData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.data.StatusData;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+class AdaptiveExportTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final List<Integer> chunkSizes = new ArrayList<>();
+
+    @Test
+    void export_splitsBatchIntoChunksOfTheLimit() {
+        AdaptiveExport adaptive = adaptive(properties());
+
+        CompletableResultCode result = adaptive.export(items(10), succeeding());
+
+        assertAll(() -> assertThat(result.isSuccess()).isTrue(),
+                () -> assertThat(chunkSizes).containsExactly(4, 4, 2));
+    }
+
+    @Test
+    void export_failsWithTheItemsNotYetExported() {
+        AdaptiveExport adaptive = adaptive(properties());
+        List<Integer> batch = items(10);
+
+        CompletableResultCode result = adaptive.export(batch,
+                chunk -> chunkSizes.size() < 1 ? succeeding().apply(chunk) : CompletableResultCode.ofFailure());
+
+        assertAll(() -> assertThat(result.isSuccess()).isFalse(),
+                () -> assertThat(result.getFailureThrowable()).isInstanceOf(PartialExportException.class),
+                () -> assertThat(((PartialExportException) result.getFailureThrowable()).getUnexported())
+                    .isEqualTo(batch.subList(4, 10)));
+    }
+
+    @Test
+    void record_decreasesLimitMultiplicativelyAndIncreasesItAdditively() {
+        AdaptiveExport adaptive = adaptive(properties());
+
+        adaptive.record(AdaptiveExport.Outcome.OVERLOADED);
+        int afterOverload = adaptive.getBatchLimit();
+        adaptive.record(AdaptiveExport.Outcome.OVERLOADED);
+        int atMinimum = adaptive.getBatchLimit();
+        adaptive.record(AdaptiveExport.Outcome.SUCCESS);
+
+        assertAll(() -> assertThat(afterOverload).isEqualTo(2), () -> assertThat(atMinimum).isEqualTo(1),
+                () -> assertThat(adaptive.getBatchLimit()).isEqualTo(2),
+                () -> assertThat(adaptive.overloaded.sum()).isEqualTo(2));
+    }
+
+    @Test
+    void export_refusesWhileBackingOff() {
+        AdaptiveExport adaptive = adaptive(properties());
+
+        CompletableResultCode failed = adaptive.export(items(3), failing());
+        CompletableResultCode refused = adaptive.export(items(3), succeeding());
+        Duration backoff = adaptive.getRemainingBackoff();
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        CompletableResultCode afterBackoff = adaptive.export(items(3), succeeding());
+
+        assertAll(() -> assertThat(failed.isSuccess()).isFalse(), () -> assertThat(refused.isSuccess()).isFalse(),
+                () -> assertThat(backoff).isBetween(Duration.ofMillis(500), Duration.ofSeconds(1)),
+                () -> assertThat(adaptive.droppedBackoff.sum()).isEqualTo(3),
+                () -> assertThat(afterBackoff.isSuccess()).isTrue(), () -> assertThat(chunkSizes).hasSize(1));
+    }
+
+    @Test
+    void export_opensCircuitAfterThresholdAndProbesAfterOpenDuration() {
+        AdaptiveExport adaptive = adaptive(properties());
+        for (int i = 0; i < 3; i++) {
+            adaptive.export(items(1), failing());
+            clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        }
+        AdaptiveExport.Circuit afterFailures = adaptive.getCircuit();
+        CompletableResultCode whileOpen = adaptive.export(items(2), succeeding());
+
+        clock.addAndGet(Duration.ofSeconds(60).toNanos());
+        CompletableResultCode pendingProbe = new CompletableResultCode();
+        adaptive.export(items(1), chunk -> pendingProbe);
+        CompletableResultCode duringProbe = adaptive.export(items(2), succeeding());
+        pendingProbe.succeed();
+
+        assertAll(() -> assertThat(afterFailures).isEqualTo(AdaptiveExport.Circuit.OPEN),
+                () -> assertThat(whileOpen.isSuccess()).isFalse(),
+                () -> assertThat(duringProbe.isSuccess()).isFalse(),
+                () -> assertThat(adaptive.droppedOpen.sum()).isEqualTo(4),
+                () -> assertThat(adaptive.opened.sum()).isEqualTo(1),
+                () -> assertThat(adaptive.getCircuit()).isEqualTo(AdaptiveExport.Circuit.CLOSED),
+                () -> assertThat(adaptive.getConsecutiveFailures()).isZero());
+    }
+
+    @Test
+    void export_reopensCircuitWhenProbeFails() {
+        AdaptiveExport adaptive = adaptive(properties());
+        for (int i = 0; i < 3; i++) {
+            adaptive.export(items(1), failing());
+            clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        }
+        clock.addAndGet(Duration.ofSeconds(60).toNanos());
+
+        adaptive.export(items(1), failing());
+
+        assertAll(() -> assertThat(adaptive.getCircuit()).isEqualTo(AdaptiveExport.Circuit.OPEN),
+                () -> assertThat(adaptive.opened.sum()).isEqualTo(2));
+    }
+
+    @Test
+    void record_rejectedBatchDoesNotCountAsFailure() {
+        AdaptiveExport adaptive = adaptive(properties());
+
+        adaptive.record(AdaptiveExport.Outcome.FAILED);
+        adaptive.record(AdaptiveExport.Outcome.REJECTED);
+
+        assertAll(() -> assertThat(adaptive.getConsecutiveFailures()).isZero(),
+                () -> assertThat(adaptive.rejected.sum()).isEqualTo(1));
+    }
+
+    @Test
+    void classify_mapsHttpStatus() {
+        assertAll(() -> assertThat(AdaptiveExport.classify(200)).isEqualTo(AdaptiveExport.Outcome.SUCCESS),
+                () -> assertThat(AdaptiveExport.classify(429)).isEqualTo(AdaptiveExport.Outcome.OVERLOADED),
+                () -> assertThat(AdaptiveExport.classify(503)).isEqualTo(AdaptiveExport.Outcome.OVERLOADED),
+                () -> assertThat(AdaptiveExport.classify(413)).isEqualTo(AdaptiveExport.Outcome.OVERLOADED),
+                () -> assertThat(AdaptiveExport.classify(400)).isEqualTo(AdaptiveExport.Outcome.REJECTED),
+                () -> assertThat(AdaptiveExport.classify(500)).isEqualTo(AdaptiveExport.Outcome.FAILED),
+                () -> assertThat(AdaptiveExport.classify(CompletableResultCode.ofFailure()))
+                    .isEqualTo(AdaptiveExport.Outcome.FAILED));
+    }
+
+    @Test
+    void export_shrinksLimitWhenCollectorIsOverloaded() {
+        AdaptiveExportProperties properties = properties();
+        properties.setMaxBatchSize(2);
+        AdaptiveExport adaptive = adaptive(properties);
+        try (OtlpReceiver receiver = OtlpReceiver.start()) {
+            receiver.failNext(1, 429);
+            AdaptiveSpanExporter exporter = new AdaptiveSpanExporter(OtlpHttpSpanExporter.builder()
+                .setEndpoint(receiver.endpoint(OtlpSpill.Signal.TRACES).toString())
+                .setRetryPolicy(null)
+                .build(), adaptive);
+
+            CompletableResultCode overloaded = exporter.export(List.of(span("first"))).join(5, TimeUnit.SECONDS);
+            clock.addAndGet(Duration.ofSeconds(1).toNanos());
+            CompletableResultCode accepted = exporter.export(List.of(span("second"), span("third")))
+                .join(5, TimeUnit.SECONDS);
+
+            assertAll(() -> assertThat(overloaded.isSuccess()).isFalse(),
+                    () -> assertThat(adaptive.overloaded.sum()).isEqualTo(1),
+                    () -> assertThat(accepted.isSuccess()).isTrue(),
+                    () -> assertThat(receiver.accepted(OtlpSpill.Signal.TRACES)).isEqualTo(2),
+                    () -> assertThat(receiver.spans()).extracting(Span::getName).containsExactly("second", "third"),
+                    () -> assertThat(adaptive.getBatchLimit()).isEqualTo(2));
+            exporter.shutdown();
+        }
+    }
+
+    private AdaptiveExport adaptive(AdaptiveExportProperties properties) {
+        return new AdaptiveExport(OtlpSpill.Signal.TRACES, properties, clock::get);
+    }
+
+    private static AdaptiveExportProperties properties() {
+        AdaptiveExportProperties properties = new AdaptiveExportProperties();
+        properties.setMinBatchSize(1);
+        properties.setMaxBatchSize(4);
+        properties.setAdditiveIncrease(1);
+        properties.setInitialBackoff(Duration.ofSeconds(1));
+        properties.setMaxBackoff(Duration.ofSeconds(8));
+        properties.setFailureThreshold(3);
+        properties.setOpenDuration(Duration.ofSeconds(30));
+        return properties;
+    }
+
+    private Function<Collection<Integer>, CompletableResultCode> succeeding() {
+        return chunk -> {
+            chunkSizes.add(chunk.size());
+            return CompletableResultCode.ofSuccess();
+        };
+    }
+
+    private static Function<Collection<Integer>, CompletableResultCode> failing() {
+        return chunk -> CompletableResultCode.ofFailure();
+    }
+
+    static SpanData span(String name) {
+        return TestSpanData.builder()
+            .setName(name)
+            .setKind(SpanKind.INTERNAL)
+            .setStartEpochNanos(1)
+            .setEndEpochNanos(2)
+            .setHasEnded(true)
+            .setStatus(StatusData.unset())
+            .setTotalRecordedEvents(0)
+            .setTotalRecordedLinks(0)
+            .build();
+    }
+
+    private static List<Integer> items(int count) {
+        return IntStream.range(0, count).boxed().toList();
+    }
+
+}
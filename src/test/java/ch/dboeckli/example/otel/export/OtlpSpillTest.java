@@ -0,0 +1,76 @@
+package ch.dboeckli.example.otel.export;
+
+import ch.dboeckli.example.otel.test.otlp.OtlpReceiver;
+import io.opentelemetry.exporter.otlp.http.trace.OtlpHttpSpanExporter;
+import io.opentelemetry.proto.trace.v1.Span;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+class OtlpSpillTest {
+
+    private static final Instant NOW = Instant.parse("2026-10-17T12:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void export_spillsWhileCollectorFailsAndReplaysInOrder() throws IOException {
+        try (OtlpReceiver receiver = OtlpReceiver.start()) {
+            // the live export and the first replay attempt fail
+            receiver.failNext(2, 503);
+            OtlpSpill spill = new OtlpSpill(OtlpSpill.Signal.TRACES, new SpillQueue(directory, 4096, 16 * 4096),
+                    receiver.endpoint(OtlpSpill.Signal.TRACES), Map.of(), Duration.ofSeconds(5), 100,
+                    Duration.ofMillis(50), Duration.ofHours(1));
+            SpillingSpanExporter exporter = new SpillingSpanExporter(OtlpHttpSpanExporter.builder()
+                .setEndpoint(receiver.endpoint(OtlpSpill.Signal.TRACES).toString())
+                .setRetryPolicy(null)
+                .build(), spill);
+
+            CompletableResultCode live = exporter.export(List.of(AdaptiveExportTest.span("first")))
+                .join(5, TimeUnit.SECONDS);
+            CompletableResultCode spilled = exporter.export(List.of(AdaptiveExportTest.span("second")));
+
+            await().untilAsserted(() -> assertThat(receiver.spans()).extracting(Span::getName)
+                .containsExactly("first", "second"));
+            assertAll(() -> assertThat(live.isSuccess()).isTrue(), () -> assertThat(spilled.isSuccess()).isTrue(),
+                    () -> assertThat(spill.spilled.sum()).isEqualTo(2),
+                    () -> assertThat(spill.replayed.sum()).isEqualTo(2),
+                    () -> assertThat(receiver.refused(OtlpSpill.Signal.TRACES)).isEqualTo(2));
+            await().untilAsserted(() -> assertThat(spill.isSpilling()).isFalse());
+            exporter.shutdown();
+        }
+    }
+
+    @Test
+    void retryAfter_readsSecondsAndHttpDate() {
+        assertAll(() -> assertThat(OtlpSpill.retryAfter("30", NOW)).isEqualTo(Duration.ofSeconds(30)),
+                () -> assertThat(OtlpSpill.retryAfter("Sat, 17 Oct 2026 12:01:00 GMT", NOW))
+                    .isEqualTo(Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void retryAfter_ignoresMissingInvalidAndPastValues() {
+        assertAll(() -> assertThat(OtlpSpill.retryAfter(null, NOW)).isZero(),
+                () -> assertThat(OtlpSpill.retryAfter("soon", NOW)).isZero(),
+                () -> assertThat(OtlpSpill.retryAfter("Sat, 17 Oct 2026 11:00:00 GMT", NOW)).isZero());
+    }
+
+    @Test
+    void retryAfter_isCapped() {
+        assertThat(OtlpSpill.retryAfter("86400", NOW)).isEqualTo(OtlpSpill.MAX_RETRY_AFTER);
+    }
+
+}
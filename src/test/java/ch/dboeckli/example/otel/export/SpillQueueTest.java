@@ -0,0 +1,140 @@
+package ch.dboeckli.example.otel.export;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+class SpillQueueTest {
+
+    private static final int SEGMENT_SIZE = 64;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void peekAndCommit_returnRecordsInOrder() throws IOException {
+        try (SpillQueue queue = new SpillQueue(directory, SEGMENT_SIZE, 4 * SEGMENT_SIZE)) {
+            append(queue, "first");
+            append(queue, "second");
+
+            assertAll(() -> assertThat(queue.backlogRecords()).isEqualTo(2),
+                    () -> assertThat(queue.backlogBytes())
+                        .isEqualTo(2L * SpillQueue.HEADER_BYTES + "first".length() + "second".length()),
+                    () -> assertThat(drain(queue)).containsExactly("first", "second"),
+                    () -> assertThat(queue.isEmpty()).isTrue(), () -> assertThat(queue.peek()).isNull());
+        }
+    }
+
+    @Test
+    void append_rollsOverToNewSegmentsAndDeletesReadOnes() throws IOException {
+        try (SpillQueue queue = new SpillQueue(directory, SEGMENT_SIZE, 4 * SEGMENT_SIZE)) {
+            for (int i = 0; i < 6; i++) {
+                append(queue, record(i));
+            }
+            // two records per segment
+            assertThat(segmentFiles()).hasSize(3);
+
+            assertAll(() -> assertThat(drain(queue)).hasSize(6).first().isEqualTo(record(0)),
+                    () -> assertThat(segmentFiles()).hasSize(1));
+        }
+    }
+
+    @Test
+    void append_evictsOldestSegmentWhenFull() throws IOException {
+        try (SpillQueue queue = new SpillQueue(directory, SEGMENT_SIZE, 2 * SEGMENT_SIZE)) {
+            for (int i = 0; i < 8; i++) {
+                append(queue, record(i));
+            }
+
+            // two records per segment, the two oldest segments were deleted
+            assertAll(() -> assertThat(queue.evictedRecords()).isEqualTo(4),
+                    () -> assertThat(queue.backlogRecords()).isEqualTo(4),
+                    () -> assertThat(drain(queue)).containsExactly(record(4), record(5), record(6), record(7)));
+        }
+    }
+
+    @Test
+    void append_rejectsRecordLargerThanSegment() throws IOException {
+        try (SpillQueue queue = new SpillQueue(directory, SEGMENT_SIZE, 2 * SEGMENT_SIZE)) {
+            assertThat(queue.append(SEGMENT_SIZE, 0, target -> {
+            })).isFalse();
+        }
+    }
+
+    @Test
+    void open_continuesAfterLastCommit() throws IOException {
+        try (SpillQueue queue = new SpillQueue(directory, SEGMENT_SIZE, 4 * SEGMENT_SIZE)) {
+            append(queue, "delivered");
+            append(queue, "pending-1");
+            append(queue, "pending-2");
+            queue.commit(queue.peek());
+        }
+
+        try (SpillQueue reopened = new SpillQueue(directory, SEGMENT_SIZE, 4 * SEGMENT_SIZE)) {
+            assertAll(() -> assertThat(reopened.backlogRecords()).isEqualTo(2),
+                    () -> assertThat(drain(reopened)).containsExactly("pending-1", "pending-2"));
+        }
+    }
+
+    @Test
+    void open_ignoresTornRecordAndBrokenIndex() throws IOException {
+        try (SpillQueue queue = new SpillQueue(directory, SEGMENT_SIZE, 4 * SEGMENT_SIZE)) {
+            append(queue, "intact");
+            append(queue, "torn");
+        }
+        Path segment = segmentFiles().getFirst();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            // flip a payload byte of the second record
+            channel.write(ByteBuffer.wrap(new byte[] { 'X' }), 2L * SpillQueue.HEADER_BYTES + "intact".length());
+        }
+        Files.write(directory.resolve("index"), new byte[16]);
+
+        try (SpillQueue reopened = new SpillQueue(directory, SEGMENT_SIZE, 4 * SEGMENT_SIZE)) {
+            append(reopened, "after-crash");
+
+            assertThat(drain(reopened)).containsExactly("intact", "after-crash");
+        }
+    }
+
+    /**
+     * A record of 16 bytes, two of them fill a segment.
+     */
+    private static String record(int i) {
+        return "record-%d-16bytes".formatted(i);
+    }
+
+    private static void append(SpillQueue queue, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        assertThat(queue.append(bytes.length, System.currentTimeMillis(), target -> target.put(bytes))).isTrue();
+    }
+
+    private static List<String> drain(SpillQueue queue) throws IOException {
+        List<String> values = new ArrayList<>();
+        SpillQueue.Record record;
+        while ((record = queue.peek()) != null) {
+            values.add(new String(record.payload(), StandardCharsets.UTF_8));
+            queue.commit(record);
+        }
+        return values;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".seg")).sorted().toList();
+        }
+    }
+
+}
@@ -8,11 +8,15 @@ import org.springframework.boot.info.BuildProperties;
 import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -59,6 +63,35 @@ class ActuatorInfoIT {
             .andDo(result -> log.info("Response:\n{}", result.getResponse().getContentAsString()));
     }
 
+    @Test
+    void actuatorTraceDebugTest() throws Exception {
+        mockMvc.perform(get("/actuator/trace-debug"))
+            .andExpect(status().isOk())
+            .andDo(result -> log.info("Response (pretty):\n{}", pretty(result.getResponse().getContentAsString())))
+            .andExpect(jsonPath("$.active").value(false));
+
+        mockMvc
+            .perform(post("/actuator/trace-debug").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"path\": \"/hello/**\", \"duration\": \"30s\", \"ratePerSecond\": 2}"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.active").value(true))
+            .andExpect(jsonPath("$.pathPattern").value("/hello/**"))
+            .andExpect(jsonPath("$.ratePerSecond").value(2.0));
+
+        mockMvc.perform(delete("/actuator/trace-debug"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.active").value(false));
+    }
+
+    @Test
+    void actuatorTelemetryPipelineTest() throws Exception {
+        mockMvc.perform(get("/actuator/telemetry-pipeline"))
+            .andExpect(status().isOk())
+            .andDo(result -> log.info("Response (pretty):\n{}", pretty(result.getResponse().getContentAsString())))
+            .andExpect(jsonPath("$.sampler").value(containsString("RuleBasedSampler")))
+            .andExpect(jsonPath("$.tracerProvider").isString());
+    }
+
     private String pretty(String body) {
         try {
             Object json = OBJECT_MAPPER.readValue(body, Object.class);
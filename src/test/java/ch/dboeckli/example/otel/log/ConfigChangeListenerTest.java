@@ -0,0 +1,121 @@
+package ch.dboeckli.example.otel.log;
+
+import ch.dboeckli.example.otel.tracing.TelemetryPipeline;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+class ConfigChangeListenerTest {
+
+    private final Map<String, Object> properties = new HashMap<>();
+
+    private final StandardEnvironment environment = new StandardEnvironment();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final StaticApplicationContext applicationContext = new StaticApplicationContext();
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(ConfigChangeListener.class);
+
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    private ConfigChangeListener listener;
+
+    @BeforeEach
+    void setUp() {
+        properties.put("app.name", "spring-with-otel");
+        properties.put("db.password", "geheim");
+        properties.put("app.token", "my-secret-token");
+        properties.put("app.greeting", "hello");
+        environment.getPropertySources().addFirst(new MapPropertySource("test", properties));
+        listener = new ConfigChangeListener(environment, OpenTelemetry.noop(),
+                new TelemetryPipeline(OpenTelemetry.noop(), null), meterRegistry, Runnable::run);
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(appender);
+        appender.stop();
+    }
+
+    @Test
+    void readiness_dumpsAllPropertiesMasked() {
+        listener.onReadiness(readiness(ReadinessState.ACCEPTING_TRAFFIC));
+
+        assertAll(
+                () -> assertThat(messages()).contains("app.name: spring-with-otel", "app.greeting: hello",
+                        "db.password: **************************", "app.token: **************************"),
+                () -> assertThat(messages()).noneMatch(message -> message.contains("geheim")),
+                () -> assertThat(meterRegistry.get("config.dump").tag("mode", "full").timer().count()).isEqualTo(1));
+    }
+
+    @Test
+    void refresh_beforeReadinessIsIgnored() {
+        listener.doHandleContextRefresh(new ContextRefreshedEvent(applicationContext));
+        listener.onReadiness(readiness(ReadinessState.REFUSING_TRAFFIC));
+
+        assertThat(appender.list).isEmpty();
+    }
+
+    @Test
+    void refresh_afterReadinessLogsOnlyChanges() {
+        listener.onReadiness(readiness(ReadinessState.ACCEPTING_TRAFFIC));
+        appender.list.clear();
+        properties.put("app.greeting", "servus");
+        properties.put("app.added", "new");
+        properties.put("db.password", "anders");
+        properties.remove("app.token");
+
+        listener.doHandleContextRefresh(new ContextRefreshedEvent(applicationContext));
+
+        List<ILoggingEvent> events = appender.list;
+        assertAll(
+                () -> assertThat(messages()).containsExactlyInAnyOrder(
+                        "Received Refresh event for Config Map configuration: " + applicationContext.getId(),
+                        "Property changed: app.greeting: hello -> servus", "Property added: app.added: new",
+                        "Property changed: db.password: ************************** -> **************************",
+                        "Property removed: app.token"),
+                () -> assertThat(events).allSatisfy(event -> assertThat(event.getKeyValuePairs()).isNotEmpty()),
+                () -> assertThat(meterRegistry.get("config.dump").tag("mode", "diff").timer().count()).isEqualTo(1));
+    }
+
+    @Test
+    void refresh_withoutChangesLogsNoProperty() {
+        listener.onReadiness(readiness(ReadinessState.ACCEPTING_TRAFFIC));
+        appender.list.clear();
+
+        listener.doHandleContextRefresh(new ContextRefreshedEvent(applicationContext));
+
+        assertThat(messages()).singleElement().asString().startsWith("Received Refresh event");
+    }
+
+    private AvailabilityChangeEvent<ReadinessState> readiness(ReadinessState state) {
+        return new AvailabilityChangeEvent<>(applicationContext, state);
+    }
+
+    private List<String> messages() {
+        return appender.list.stream().map(ILoggingEvent::getFormattedMessage).toList();
+    }
+
+}
@@ -0,0 +1,112 @@
+package ch.dboeckli.example.otel.log;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.read.ListAppender;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+class LogMessageTest {
+
+    private final LoggerContext loggerContext = new LoggerContext();
+
+    private final Logger logger = loggerContext.getLogger(LogMessageTest.class);
+
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @BeforeEach
+    void setUp() {
+        loggerContext.setMDCAdapter(new LogbackMDCAdapter());
+        logger.setLevel(Level.INFO);
+        appender.setContext(loggerContext);
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @Test
+    void log_passesIdAsKeyValueAndArgumentsUnformatted() {
+        Object configMap = new Object() {
+
+            @Override
+            public String toString() {
+                return "application-config";
+            }
+
+        };
+
+        LogMessage.READING_CONFIG_CLASS.log(logger, org.slf4j.event.Level.INFO, "kube", configMap);
+
+        ILoggingEvent event = appender.list.getFirst();
+        assertAll(() -> assertThat(event.getMessage()).isEqualTo(LogMessage.READING_CONFIG_CLASS.getFormat()),
+                () -> assertThat(event.getArgumentArray()).containsExactly("kube", configMap),
+                () -> assertThat(event.getFormattedMessage())
+                    .isEqualTo("Reading configuration from kube config map: application-config"),
+                () -> assertThat(event.getKeyValuePairs()).singleElement()
+                    .satisfies(pair -> assertThat(pair.key).isEqualTo(LogMessage.LOG_ID))
+                    .extracting(pair -> pair.value)
+                    .isEqualTo(10001));
+    }
+
+    @Test
+    void log_countsOnlyEnabledEvents() {
+        long before = LogMessage.RECEIVED_REFRESH_EVENT_FOR_CONFIG_MAP.getCount();
+
+        LogMessage.RECEIVED_REFRESH_EVENT_FOR_CONFIG_MAP.log(logger, org.slf4j.event.Level.DEBUG, "ignored");
+        LogMessage.RECEIVED_REFRESH_EVENT_FOR_CONFIG_MAP.log(logger, org.slf4j.event.Level.INFO, "config");
+        LogMessage.RECEIVED_REFRESH_EVENT_FOR_CONFIG_MAP.log(logger, org.slf4j.event.Level.WARN, "config");
+
+        assertAll(() -> assertThat(appender.list).hasSize(2),
+                () -> assertThat(LogMessage.RECEIVED_REFRESH_EVENT_FOR_CONFIG_MAP.getCount() - before).isEqualTo(2));
+    }
+
+    @Test
+    void catalog_hasUniqueIdsAndParsedTemplates() {
+        assertAll(() -> assertThat(Arrays.stream(LogMessage.values()).map(LogMessage::getId)).doesNotHaveDuplicates(),
+                () -> assertThat(LogMessage.READING_CONFIG_CLASS.getArgumentCount()).isEqualTo(2),
+                () -> assertThat(LogMessage.RECEIVED_REFRESH_EVENT_FOR_CONFIG_MAP.getArgumentCount()).isEqualTo(1),
+                () -> assertThat(LogMessage.RECEIVED_CONTEXT_REFRESH_EVENT.getArgumentCount()).isZero(),
+                () -> assertThat(LogMessage.CONFIG_PROPERTY_ADDED.getArgumentCount()).isEqualTo(2),
+                () -> assertThat(LogMessage.CONFIG_PROPERTY_REMOVED.getArgumentCount()).isEqualTo(1),
+                () -> assertThat(LogMessage.CONFIG_PROPERTY_CHANGED.getArgumentCount()).isEqualTo(3));
+    }
+
+    @Test
+    void log_assertsArgumentCount() {
+        IllegalStateException failure = new IllegalStateException("boom");
+        LogMessage.CONFIG_PROPERTY_REMOVED.log(logger, org.slf4j.event.Level.INFO, "name", failure);
+
+        assertAll(() -> assertThat(appender.list.getFirst().getThrowableProxy()).isNotNull(),
+                () -> assertThatThrownBy(
+                        () -> LogMessage.CONFIG_PROPERTY_REMOVED.log(logger, org.slf4j.event.Level.DEBUG, "a", "b"))
+                    .isInstanceOf(AssertionError.class)
+                    .hasMessageContaining("CONFIG_PROPERTY_REMOVED"),
+                () -> assertThatThrownBy(() -> LogMessage.CONFIG_PROPERTY_CHANGED.log(logger,
+                        org.slf4j.event.Level.INFO, "a", "b"))
+                    .isInstanceOf(AssertionError.class));
+    }
+
+    @Test
+    void metrics_exportCounterPerId() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new LogMessageMetrics().bindTo(registry);
+        LogMessage.RECEIVED_CONTEXT_REFRESH_EVENT.log(logger, org.slf4j.event.Level.INFO);
+
+        assertAll(() -> assertThat(registry.find("log.events").functionCounters()).hasSize(LogMessage.values().length),
+                () -> assertThat(registry.get("log.events")
+                    .tag(LogMessage.LOG_ID, "10003")
+                    .tag("event", "RECEIVED_CONTEXT_REFRESH_EVENT")
+                    .functionCounter()
+                    .count()).isPositive());
+    }
+
+}
@@ -0,0 +1,124 @@
+package ch.dboeckli.example.otel.log.logback;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import net.logstash.logback.encoder.LogstashEncoder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.MarkerFactory;
+import org.slf4j.event.KeyValuePair;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LogstashJsonEncoderTest {
+
+    private static final List<String> INCLUDED_MDC_KEYS = List.of("traceId", "spanId", "trace_id", "span_id",
+            "trace.id", "transaction.id", "span.id");
+
+    private final LoggerContext loggerContext = new LoggerContext();
+
+    private final Logger logger = loggerContext.getLogger("ch.dboeckli.example.otel.rest.HelloController");
+
+    private final LogstashEncoder expected = new LogstashEncoder();
+
+    private final LogstashJsonEncoder actual = new LogstashJsonEncoder();
+
+    @BeforeEach
+    void setUp() {
+        loggerContext.setMDCAdapter(new LogbackMDCAdapter());
+        loggerContext.putProperty("application_name", "spring-with-otel");
+        expected.setContext(loggerContext);
+        expected.setCustomFields("{\"app_name\":\"spring-with-otel\"}");
+        INCLUDED_MDC_KEYS.forEach(expected::addIncludeMdcKeyName);
+        expected.start();
+        actual.setContext(loggerContext);
+        actual.setCustomFields("\n    {\"app_name\":\"spring-with-otel\"}\n");
+        INCLUDED_MDC_KEYS.forEach(actual::addIncludeMdcKeyName);
+        actual.start();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 0, 100_000_000, 120_000_000, 123_000_000, 123_456_000, 123_456_789, 1 })
+    void encode_timestampPrecision(int nanos) {
+        LoggingEvent event = event("Say Hello", null);
+        event.setInstant(Instant.ofEpochSecond(1_767_225_599L, nanos));
+
+        assertSameBytes(event);
+    }
+
+    @Test
+    void encode_escapesInPlace() {
+        assertSameBytes(event("quote \" backslash \\ slash / ctrl \u0001\u001f\u007f tab\t nl\n cr\r bs\b ff\f "
+                + "ümlaut € emoji 😀 end", null));
+    }
+
+    @Test
+    void encode_stackTraceAndNonAsciiMdc() {
+        LoggingEvent event = event("failed", new IllegalStateException("boom \"quoted\"\n"));
+        event.getMDCPropertyMap().put("span.id", "spän");
+
+        assertSameBytes(event);
+    }
+
+    @Test
+    void encode_keyValuePairsAndTags() {
+        LoggingEvent event = event("kv", null);
+        event.setKeyValuePairs(List.of(new KeyValuePair("count", 42), new KeyValuePair("negative", -7L),
+                new KeyValuePair("enabled", true), new KeyValuePair("user", "al\"ice")));
+        event.addMarker(MarkerFactory.getMarker("AUDIT"));
+        event.addMarker(MarkerFactory.getMarker("SECURITY"));
+
+        assertSameBytes(event);
+    }
+
+    @Test
+    void encode_nonFiniteNumbersAsStrings() {
+        LoggingEvent event = event("kv", null);
+        event.setKeyValuePairs(List.of(new KeyValuePair("nan", Double.NaN),
+                new KeyValuePair("positive", Double.POSITIVE_INFINITY),
+                new KeyValuePair("negative", Float.NEGATIVE_INFINITY)));
+
+        assertSameBytes(event);
+        assertThat(new String(actual.encode(event), StandardCharsets.UTF_8))
+            .contains("\"nan\":\"NaN\"", "\"positive\":\"Infinity\"", "\"negative\":\"-Infinity\"");
+    }
+
+    @Test
+    void encode_reusesBufferAcrossEvents() {
+        String large = "x".repeat(100_000);
+
+        assertSameBytes(event(large, null));
+        assertSameBytes(event("small again", null));
+    }
+
+    private void assertSameBytes(LoggingEvent event) {
+        byte[] expectedBytes = expected.encode(event);
+        byte[] actualBytes = actual.encode(event);
+        assertThat(new String(actualBytes, StandardCharsets.UTF_8))
+            .isEqualTo(new String(expectedBytes, StandardCharsets.UTF_8));
+        assertThat(actualBytes).isEqualTo(expectedBytes);
+    }
+
+    private LoggingEvent event(String message, Throwable throwable) {
+        LoggingEvent event = new LoggingEvent(Logger.class.getName(), logger, Level.WARN, message, throwable, null);
+        Map<String, String> mdc = new LinkedHashMap<>();
+        mdc.put("trace_id", "4bf92f3577b34da6a3ce929d0e0e4736");
+        mdc.put("baggage.addedBaggageByFilter", "echo");
+        mdc.put("span_id", "00f067aa0ba902b7");
+        mdc.put("span.id", "00f067aa0ba902b7");
+        event.setMDCPropertyMap(mdc);
+        return event;
+    }
+
+}
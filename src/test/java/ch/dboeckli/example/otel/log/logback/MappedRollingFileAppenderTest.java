@@ -0,0 +1,168 @@
+package ch.dboeckli.example.otel.log.logback;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.rolling.SizeAndTimeBasedRollingPolicy;
+import ch.qos.logback.core.util.Duration;
+import ch.qos.logback.core.util.FileSize;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+class MappedRollingFileAppenderTest {
+
+    private final LoggerContext loggerContext = new LoggerContext();
+
+    private final Logger logger = loggerContext.getLogger(MappedRollingFileAppenderTest.class);
+
+    @TempDir
+    private Path dir;
+
+    @BeforeEach
+    void setUp() {
+        loggerContext.setMDCAdapter(new LogbackMDCAdapter());
+    }
+
+    @Test
+    void stop_truncatesToWrittenLengthAcrossWindows() throws IOException {
+        Path file = dir.resolve("spring.log");
+        MappedRollingFileAppender appender = appender(file, "1KB", "100MB");
+        appender.setForceInterval(Duration.buildByMilliseconds(0));
+        appender.start();
+
+        IntStream.range(0, 200).forEach(i -> appender.doAppend(event("event " + i)));
+        appender.stop();
+
+        assertThat(Files.readAllLines(file)).containsExactlyElementsOf(expectedLines(0, 200));
+    }
+
+    @Test
+    void rollover_compressesArchivesWithoutZeroPadding() throws IOException {
+        Path file = dir.resolve("spring.log");
+        MappedRollingFileAppender appender = appender(file, "64KB", "10KB");
+        appender.start();
+
+        IntStream.range(0, 2000).forEach(i -> appender.doAppend(event("event " + i)));
+        appender.stop();
+
+        List<String> lines = new ArrayList<>();
+        List<Path> archives;
+        try (Stream<Path> files = Files.list(dir)) {
+            archives = files.filter(path -> path.toString().endsWith(".gz")).sorted(this::byIndex).toList();
+        }
+        for (Path archive : archives) {
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(archive))) {
+                lines.addAll(new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().toList());
+            }
+        }
+        lines.addAll(Files.readAllLines(file));
+
+        assertAll(() -> assertThat(archives).isNotEmpty(),
+                () -> assertThat(lines).containsExactlyElementsOf(expectedLines(0, 2000)));
+    }
+
+    @Test
+    void start_appendsAfterZerosLeftByCrashedWriter() throws IOException {
+        Path file = dir.resolve("spring.log");
+        byte[] content = "before crash\n".getBytes(StandardCharsets.UTF_8);
+        byte[] crashed = new byte[content.length + 100_000];
+        System.arraycopy(content, 0, crashed, 0, content.length);
+        Files.write(file, crashed);
+        MappedRollingFileAppender appender = appender(file, "1KB", "100MB");
+        appender.start();
+
+        appender.doAppend(event("event 0"));
+        appender.stop();
+
+        assertThat(Files.readAllLines(file)).containsExactly("before crash", "event 0");
+    }
+
+    @Test
+    void start_doesNotCountZerosLeftByCrashedWriterTowardsMaxFileSize() throws IOException {
+        Path file = dir.resolve("spring.log");
+        byte[] crashed = new byte[100_000];
+        byte[] content = "before crash\n".getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(content, 0, crashed, 0, content.length);
+        Files.write(file, crashed);
+        MappedRollingFileAppender appender = appender(file, "1KB", "50KB");
+        appender.start();
+
+        appender.doAppend(event("event 0"));
+        appender.stop();
+
+        try (Stream<Path> files = Files.list(dir)) {
+            assertAll(() -> assertThat(Files.readAllLines(file)).containsExactly("before crash", "event 0"),
+                    () -> assertThat(files.filter(path -> path.toString().endsWith(".gz"))).isEmpty());
+        }
+    }
+
+    @Test
+    void start_rejectsPrudentMode() {
+        MappedRollingFileAppender appender = appender(dir.resolve("spring.log"), "1KB", "100MB");
+        appender.setPrudent(true);
+
+        appender.start();
+
+        assertThat(appender.isStarted()).isFalse();
+    }
+
+    private MappedRollingFileAppender appender(Path file, String mapSize, String maxFileSize) {
+        MappedRollingFileAppender appender = new MappedRollingFileAppender();
+        appender.setContext(loggerContext);
+        appender.setName("MAPPED");
+        appender.setFile(file.toString());
+        appender.setMapSize(FileSize.valueOf(mapSize));
+
+        SizeAndTimeBasedRollingPolicy<?> policy = new SizeAndTimeBasedRollingPolicy<>();
+        policy.setContext(loggerContext);
+        policy.setParent(appender);
+        policy.setFileNamePattern(dir.resolve("application.%d{yyyy-MM-dd}.%i.json.gz").toString());
+        policy.setMaxFileSize(FileSize.valueOf(maxFileSize));
+        policy.start();
+        appender.setRollingPolicy(policy);
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(loggerContext);
+        encoder.setPattern("%msg%n");
+        encoder.start();
+        appender.setEncoder(encoder);
+        return appender;
+    }
+
+    private int byIndex(Path first, Path second) {
+        return Integer.compare(index(first), index(second));
+    }
+
+    private static int index(Path archive) {
+        String name = archive.getFileName().toString();
+        String withoutSuffix = name.substring(0, name.length() - ".json.gz".length());
+        return Integer.parseInt(withoutSuffix.substring(withoutSuffix.lastIndexOf('.') + 1));
+    }
+
+    private static List<String> expectedLines(int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> "event " + i).toList();
+    }
+
+    private LoggingEvent event(String message) {
+        return new LoggingEvent(Logger.class.getName(), logger, Level.INFO, message, null, null);
+    }
+
+}
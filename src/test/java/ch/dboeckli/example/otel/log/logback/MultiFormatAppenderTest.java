@@ -0,0 +1,146 @@
+package ch.dboeckli.example.otel.log.logback;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.AppenderBase;
+import ch.qos.logback.core.encoder.Encoder;
+import co.elastic.logging.logback.EcsEncoder;
+import net.logstash.logback.encoder.LogstashEncoder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.event.KeyValuePair;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+class MultiFormatAppenderTest {
+
+    private static final String APPLICATION_NAME = "spring-with-otel";
+
+    private final LoggerContext loggerContext = new LoggerContext();
+
+    private final Logger logger = loggerContext.getLogger("ch.dboeckli.example.otel.rest.HelloController");
+
+    @BeforeEach
+    void setUp() {
+        loggerContext.setMDCAdapter(new LogbackMDCAdapter());
+        loggerContext.putProperty("application_name", APPLICATION_NAME);
+    }
+
+    @Test
+    void append_sharesExtractedFieldsWithEveryAppender() {
+        List<LogEventFields> seen = new ArrayList<>();
+        MultiFormatAppender appender = new MultiFormatAppender();
+        appender.setContext(loggerContext);
+        appender.addAppender(fieldsRecorder(seen));
+        appender.addAppender(fieldsRecorder(seen));
+        appender.start();
+
+        LoggingEvent event = event(null);
+        appender.doAppend(event);
+
+        assertAll(() -> assertThat(seen).hasSize(2), () -> assertThat(seen.get(0)).isSameAs(seen.get(1)),
+                () -> assertThat(LogEventFields.of(event)).isNotSameAs(seen.getFirst()));
+    }
+
+    @Test
+    void logstashJsonEncoder_matchesLogstashEncoder() {
+        LogstashEncoder expected = new LogstashEncoder();
+        expected.setCustomFields("{\"app_name\":\"" + APPLICATION_NAME + "\"}");
+        expected.addIncludeMdcKeyName("trace_id");
+        expected.addIncludeMdcKeyName("span_id");
+        LogstashJsonEncoder actual = new LogstashJsonEncoder();
+        actual.setCustomFields("{\"app_name\": \"" + APPLICATION_NAME + "\"}");
+        actual.addIncludeMdcKeyName("trace_id");
+        actual.addIncludeMdcKeyName("span_id");
+
+        assertAll(() -> assertSameOutput(expected, actual, event(null)),
+                () -> assertSameOutput(expected, actual, event(new IllegalStateException("boom \"quoted\"\n"))));
+    }
+
+    @Test
+    void ecsJsonEncoder_matchesEcsEncoder() {
+        EcsEncoder expected = new EcsEncoder();
+        expected.setServiceName(APPLICATION_NAME);
+        EcsJsonEncoder actual = new EcsJsonEncoder();
+        actual.setServiceName(APPLICATION_NAME);
+
+        assertSameOutput(expected, actual, event(null));
+    }
+
+    @Test
+    void consoleLineEncoder_matchesPattern() {
+        PatternLayoutEncoder expected = new PatternLayoutEncoder();
+        expected.setPattern("%d{yyyy-MM-dd HH:mm:ss.SSS} [%thread] %-5level " + APPLICATION_NAME
+                + " %logger - [%X{trace_id}-%X{span_id}] %msg%replace( %kvp){' $', ''}%n MDC=%X%n");
+        ConsoleLineEncoder actual = new ConsoleLineEncoder();
+        actual.setApplicationName(APPLICATION_NAME);
+
+        assertAll(() -> assertSameOutput(expected, actual, event(null)),
+                () -> assertSameOutput(expected, actual, event(new IllegalStateException("boom"))),
+                () -> assertSameOutput(expected, actual, keyValueEvent()));
+    }
+
+    @Test
+    void ecsJsonEncoder_writesKeyValuePairsAfterMdc() {
+        EcsJsonEncoder encoder = new EcsJsonEncoder();
+        encoder.setContext(loggerContext);
+        encoder.start();
+
+        assertThat(new String(encoder.encode(keyValueEvent()), StandardCharsets.UTF_8))
+            .contains("\"span_id\":\"00f067aa0ba902b7\",\"log.id\":10003,\"source\":\"config map\"}");
+    }
+
+    private LoggingEvent keyValueEvent() {
+        LoggingEvent event = event(null);
+        event.setKeyValuePairs(List.of(new KeyValuePair("log.id", 10003), new KeyValuePair("source", "config map")));
+        return event;
+    }
+
+    private void assertSameOutput(Encoder<ILoggingEvent> expected, Encoder<ILoggingEvent> actual, ILoggingEvent event) {
+        expected.setContext(loggerContext);
+        expected.start();
+        actual.setContext(loggerContext);
+        actual.start();
+        assertThat(new String(actual.encode(event), StandardCharsets.UTF_8))
+            .isEqualTo(new String(expected.encode(event), StandardCharsets.UTF_8));
+    }
+
+    private LoggingEvent event(Throwable throwable) {
+        LoggingEvent event = new LoggingEvent(Logger.class.getName(), logger, Level.INFO,
+                "Say Hello to {} with ümlaut and \t tab", throwable, new Object[] { "world" });
+        Map<String, String> mdc = new LinkedHashMap<>();
+        mdc.put("trace_id", "4bf92f3577b34da6a3ce929d0e0e4736");
+        mdc.put("baggage.addedBaggageByFilter", "echo");
+        mdc.put("trace_flags", "01");
+        mdc.put("span_id", "00f067aa0ba902b7");
+        event.setMDCPropertyMap(mdc);
+        return event;
+    }
+
+    private AppenderBase<ILoggingEvent> fieldsRecorder(List<LogEventFields> seen) {
+        AppenderBase<ILoggingEvent> recorder = new AppenderBase<>() {
+
+            @Override
+            protected void append(ILoggingEvent event) {
+                seen.add(LogEventFields.of(event));
+            }
+
+        };
+        recorder.setContext(loggerContext);
+        recorder.start();
+        return recorder;
+    }
+
+}
@@ -0,0 +1,177 @@
+package ch.dboeckli.example.otel.log.logback;
+
+import ch.dboeckli.example.otel.log.logback.RingBufferAsyncAppender.OverflowPolicy;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.AppenderBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+class RingBufferAsyncAppenderTest {
+
+    private final LoggerContext loggerContext = new LoggerContext();
+
+    private final Logger logger = loggerContext.getLogger(RingBufferAsyncAppenderTest.class);
+
+    private final BlockingListAppender sink = new BlockingListAppender();
+
+    private RingBufferAsyncAppender appender;
+
+    @BeforeEach
+    void setUp() {
+        loggerContext.setMDCAdapter(new LogbackMDCAdapter());
+    }
+
+    @AfterEach
+    void tearDown() {
+        sink.release.countDown();
+        appender.stop();
+    }
+
+    @Test
+    void append_deliversEventsWithMdcInOrder() {
+        appender = start(OverflowPolicy.BLOCK, 16);
+        sink.release.countDown();
+
+        for (int i = 0; i < 100; i++) {
+            LoggingEvent event = event(Level.INFO, "message " + i);
+            event.setMDCPropertyMap(Map.of("trace_id", "4bf92f3577b34da6a3ce929d0e0e4736"));
+            appender.doAppend(event);
+        }
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> sink.events.size() == 100);
+        assertAll(() -> assertThat(sink.events.getFirst().getFormattedMessage()).isEqualTo("message 0"),
+                () -> assertThat(sink.events.getLast().getFormattedMessage()).isEqualTo("message 99"),
+                () -> assertThat(sink.events.getLast().getMDCPropertyMap()).containsKey("trace_id"),
+                () -> assertThat(appender.getDroppedCount()).isZero(),
+                () -> assertThat(appender.getFlushCount()).isPositive());
+    }
+
+    @Test
+    void dropBelowWarn_dropsInfoButKeepsWarnWhenFull() throws Exception {
+        appender = start(OverflowPolicy.DROP_BELOW_WARN, 4);
+        fillWhileWorkerIsBlocked();
+
+        appender.doAppend(event(Level.INFO, "dropped"));
+        CompletableFuture<Void> warn = CompletableFuture.runAsync(() -> appender.doAppend(event(Level.WARN, "kept")));
+        assertThatThrownBy(() -> warn.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+        sink.release.countDown();
+        warn.get(5, TimeUnit.SECONDS);
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> sink.events.size() == 6);
+        assertAll(() -> assertThat(appender.getDroppedCount()).isEqualTo(1),
+                () -> assertThat(messages()).containsExactly("blocker", "e0", "e1", "e2", "e3", "kept"));
+    }
+
+    @Test
+    void dropOldest_evictsOldestBufferedEvent() {
+        appender = start(OverflowPolicy.DROP_OLDEST, 4);
+        fillWhileWorkerIsBlocked();
+
+        appender.doAppend(event(Level.INFO, "newest"));
+        sink.release.countDown();
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> sink.events.size() == 5);
+        assertAll(() -> assertThat(appender.getDroppedCount()).isEqualTo(1),
+                () -> assertThat(messages()).containsExactly("blocker", "e1", "e2", "e3", "newest"));
+    }
+
+    @Test
+    void stop_drainsBufferedEvents() {
+        appender = start(OverflowPolicy.BLOCK, 16);
+        fillWhileWorkerIsBlocked();
+
+        sink.release.countDown();
+        appender.stop();
+
+        assertAll(() -> assertThat(sink.events).hasSize(5), () -> assertThat(sink.isStarted()).isFalse());
+    }
+
+    @Test
+    void loggerContextStop_stopsAppenderNotAttachedToALogger() {
+        appender = start(OverflowPolicy.BLOCK, 16);
+        fillWhileWorkerIsBlocked();
+
+        sink.release.countDown();
+        loggerContext.stop();
+
+        assertAll(() -> assertThat(appender.isStarted()).isFalse(), () -> assertThat(sink.events).hasSize(5),
+                () -> assertThat(sink.isStarted()).isFalse());
+    }
+
+    private RingBufferAsyncAppender start(OverflowPolicy policy, int capacity) {
+        sink.setContext(loggerContext);
+        sink.start();
+        RingBufferAsyncAppender asyncAppender = new RingBufferAsyncAppender();
+        asyncAppender.setContext(loggerContext);
+        asyncAppender.setName("ASYNC");
+        asyncAppender.setCapacity(capacity);
+        asyncAppender.setMaxBatchSize(1);
+        asyncAppender.setOverflowPolicy(policy);
+        asyncAppender.addAppender(sink);
+        asyncAppender.start();
+        return asyncAppender;
+    }
+
+    /**
+     * Parks the worker inside the sink with a first event and fills the buffer with four
+     * more.
+     */
+    private void fillWhileWorkerIsBlocked() {
+        appender.doAppend(event(Level.INFO, "blocker"));
+        await().atMost(5, TimeUnit.SECONDS).until(() -> sink.entered.getCount() == 0);
+        for (int i = 0; i < 4; i++) {
+            appender.doAppend(event(Level.INFO, "e" + i));
+        }
+        assertThat(appender.getQueueDepth()).isEqualTo(Math.min(4, appender.getQueueCapacity()));
+    }
+
+    private LoggingEvent event(Level level, String message) {
+        return new LoggingEvent(Logger.class.getName(), logger, level, message, null, null);
+    }
+
+    private List<String> messages() {
+        return sink.events.stream().map(ILoggingEvent::getFormattedMessage).toList();
+    }
+
+    private static final class BlockingListAppender extends AppenderBase<ILoggingEvent> {
+
+        private final List<ILoggingEvent> events = new CopyOnWriteArrayList<>();
+
+        private final CountDownLatch entered = new CountDownLatch(1);
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        protected void append(ILoggingEvent event) {
+            entered.countDown();
+            try {
+                release.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            events.add(event);
+        }
+
+    }
+
+}
@@ -0,0 +1,106 @@
+package ch.dboeckli.example.otel.log.logback;
+
+import ch.dboeckli.example.otel.log.logback.SampledTraceTurboFilter.Action;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import io.opentelemetry.api.baggage.Baggage;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+class SampledTraceTurboFilterTest {
+
+    private final LoggerContext loggerContext = new LoggerContext();
+
+    private final Logger hotPath = loggerContext.getLogger("ch.dboeckli.example.otel.rest.HelloController");
+
+    private final Logger other = loggerContext.getLogger("ch.dboeckli.example.otel.restricted.Other");
+
+    private final SampledTraceTurboFilter filter = new SampledTraceTurboFilter();
+
+    @BeforeEach
+    void setUp() {
+        loggerContext.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.INFO);
+        filter.setContext(loggerContext);
+        filter.addLogger("ch.dboeckli.example.otel.rest");
+        filter.setBaggageKey("log.force");
+    }
+
+    @Test
+    void decide_dropsBelowKeepLevelOfUnsampledTraces() {
+        filter.start();
+
+        assertAll(() -> assertThat(inTrace(false, () -> decide(hotPath, Level.INFO))).isEqualTo(FilterReply.DENY),
+                () -> assertThat(inTrace(false, () -> decide(hotPath, Level.WARN))).isEqualTo(FilterReply.NEUTRAL),
+                () -> assertThat(inTrace(false, () -> decide(hotPath, Level.ERROR))).isEqualTo(FilterReply.NEUTRAL),
+                () -> assertThat(inTrace(true, () -> decide(hotPath, Level.INFO))).isEqualTo(FilterReply.NEUTRAL),
+                () -> assertThat(decide(hotPath, Level.INFO)).isEqualTo(FilterReply.NEUTRAL),
+                () -> assertThat(inTrace(false, () -> decide(other, Level.INFO))).isEqualTo(FilterReply.NEUTRAL),
+                () -> assertThat(filter.getSuppressedCount()).isEqualTo(1));
+    }
+
+    @Test
+    void decide_doesNotCountEventsDisabledByLevel() {
+        filter.start();
+
+        assertThat(inTrace(false, () -> decide(hotPath, Level.DEBUG))).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(filter.getSuppressedCount()).isZero();
+    }
+
+    @Test
+    void decide_keepsUnsampledTraceForcedByBaggage() {
+        filter.start();
+        Baggage baggage = Baggage.builder().put("log.force", "true").build();
+
+        try (Scope ignored = baggage.storeInContext(Context.current()).makeCurrent()) {
+            assertThat(inTrace(false, () -> decide(hotPath, Level.INFO))).isEqualTo(FilterReply.NEUTRAL);
+        }
+    }
+
+    @Test
+    void downgrade_keepsInfoWhereDebugIsEnabled() {
+        filter.setAction(Action.DOWNGRADE);
+        filter.start();
+        Logger debugEnabled = loggerContext.getLogger("ch.dboeckli.example.otel.rest.Debugged");
+        debugEnabled.setLevel(Level.DEBUG);
+
+        assertAll(() -> assertThat(inTrace(false, () -> decide(hotPath, Level.INFO))).isEqualTo(FilterReply.DENY),
+                () -> assertThat(inTrace(false, () -> decide(debugEnabled, Level.INFO))).isEqualTo(FilterReply.NEUTRAL),
+                () -> assertThat(inTrace(false, () -> decide(debugEnabled, Level.DEBUG))).isEqualTo(FilterReply.DENY));
+    }
+
+    @Test
+    void start_requiresLogger() {
+        SampledTraceTurboFilter unconfigured = new SampledTraceTurboFilter();
+        unconfigured.setContext(loggerContext);
+
+        unconfigured.start();
+
+        assertThat(unconfigured.isStarted()).isFalse();
+    }
+
+    private FilterReply decide(Logger logger, Level level) {
+        return filter.decide(null, logger, level, "message", null, null);
+    }
+
+    private static <T> T inTrace(boolean sampled, Supplier<T> action) {
+        SpanContext spanContext = SpanContext.create("4bf92f3577b34da6a3ce929d0e0e4736", "00f067aa0ba902b7",
+                sampled ? TraceFlags.getSampled() : TraceFlags.getDefault(), TraceState.getDefault());
+        try (Scope ignored = Span.wrap(spanContext).makeCurrent()) {
+            return action.get();
+        }
+    }
+
+}
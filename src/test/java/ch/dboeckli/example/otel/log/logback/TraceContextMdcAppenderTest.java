@@ -0,0 +1,160 @@
+package ch.dboeckli.example.otel.log.logback;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.read.ListAppender;
+import io.opentelemetry.api.baggage.Baggage;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.instrumentation.logback.mdc.v1_0.OpenTelemetryAppender;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+class TraceContextMdcAppenderTest {
+
+    private static final SpanContext SPAN_CONTEXT = SpanContext.create("4bf92f3577b34da6a3ce929d0e0e4736",
+            "00f067aa0ba902b7", TraceFlags.getSampled(), TraceState.getDefault());
+
+    private final LoggerContext loggerContext = new LoggerContext();
+
+    private final Logger logger = loggerContext.getLogger("ch.dboeckli.example.otel.rest.HelloController");
+
+    private final ListAppender<ILoggingEvent> lazy = new ListAppender<>();
+
+    private final ListAppender<ILoggingEvent> otel = new ListAppender<>();
+
+    private final TraceContextMdcAppender appender = new TraceContextMdcAppender();
+
+    private final OpenTelemetryAppender otelAppender = new OpenTelemetryAppender();
+
+    @BeforeEach
+    void setUp() {
+        loggerContext.setMDCAdapter(new LogbackMDCAdapter());
+        lazy.setContext(loggerContext);
+        lazy.start();
+        otel.setContext(loggerContext);
+        otel.start();
+        appender.setContext(loggerContext);
+        appender.addAppender(lazy);
+        appender.start();
+        otelAppender.setContext(loggerContext);
+        otelAppender.setAddBaggage(true);
+        otelAppender.addAppender(otel);
+        otelAppender.start();
+    }
+
+    @Test
+    void append_resolvesTheSameMdcAsTheOpenTelemetryAppender() {
+        loggerContext.getMDCAdapter().put("request", "42");
+        loggerContext.getMDCAdapter().put("baggage.tenant", "overridden");
+        Baggage baggage = Baggage.builder().put("tenant", "acme").put("user", "jane").build();
+
+        try (Scope ignored = Context.current().with(Span.wrap(SPAN_CONTEXT)).with(baggage).makeCurrent()) {
+            appender.doAppend(event());
+            otelAppender.doAppend(event());
+        }
+
+        Map<String, String> mdc = lazy.list.getFirst().getMDCPropertyMap();
+        assertAll(() -> assertThat(mdc).isInstanceOf(TraceContextMdcMap.class),
+                () -> assertThat(mdc).isEqualTo(otel.list.getFirst().getMDCPropertyMap()),
+                () -> assertThat(mdc).containsEntry("trace_id", SPAN_CONTEXT.getTraceId())
+                    .containsEntry("span_id", SPAN_CONTEXT.getSpanId())
+                    .containsEntry("trace_flags", "01")
+                    .containsEntry("baggage.tenant", "acme")
+                    .containsEntry("request", "42")
+                    .hasSize(6));
+    }
+
+    @Test
+    void append_resolvesSingleKeysFromTheCapturedContext() {
+        Baggage baggage = Baggage.builder().put("tenant", "acme").build();
+
+        try (Scope ignored = Context.current().with(Span.wrap(SPAN_CONTEXT)).with(baggage).makeCurrent()) {
+            appender.doAppend(event());
+        }
+
+        Map<String, String> mdc = lazy.list.getFirst().getMDCPropertyMap();
+        assertAll(() -> assertThat(mdc.get("trace_id")).isEqualTo(SPAN_CONTEXT.getTraceId()),
+                () -> assertThat(mdc.get("baggage.tenant")).isEqualTo("acme"),
+                () -> assertThat(mdc.get("baggage.unknown")).isNull(),
+                () -> assertThat(mdc.containsKey("span_id")).isTrue(), () -> assertThat(mdc.isEmpty()).isFalse());
+    }
+
+    @Test
+    void append_keepsTraceIdOfTheApplicationMdc() {
+        loggerContext.getMDCAdapter().put("trace_id", "application");
+
+        try (Scope ignored = Context.current().with(Span.wrap(SPAN_CONTEXT)).makeCurrent()) {
+            appender.doAppend(event());
+            otelAppender.doAppend(event());
+        }
+
+        assertThat(lazy.list.getFirst().getMDCPropertyMap()).isEqualTo(otel.list.getFirst().getMDCPropertyMap())
+            .containsEntry("trace_id", "application")
+            .doesNotContainKey("span_id");
+    }
+
+    @Test
+    void append_wrapsEventWhoseMdcWasAlreadyRead() {
+        loggerContext.getMDCAdapter().put("request", "42");
+        LoggingEvent event = event();
+        event.getMDCPropertyMap();
+
+        try (Scope ignored = Context.current().with(Span.wrap(SPAN_CONTEXT)).makeCurrent()) {
+            appender.doAppend(event);
+        }
+
+        ILoggingEvent forwarded = lazy.list.getFirst();
+        assertAll(() -> assertThat(forwarded).isNotSameAs(event),
+                () -> assertThat(forwarded.getFormattedMessage()).isEqualTo(event.getFormattedMessage()),
+                () -> assertThat(forwarded.getMDCPropertyMap()).containsEntry("request", "42")
+                    .containsEntry("trace_id", SPAN_CONTEXT.getTraceId()),
+                () -> assertThat(event.getMDCPropertyMap()).doesNotContainKey("trace_id"));
+    }
+
+    @Test
+    void append_forwardsEventOutsideOfSpanAndBaggageUnchanged() {
+        ILoggingEvent event = event();
+
+        appender.doAppend(event);
+
+        assertThat(lazy.list).containsExactly(event);
+    }
+
+    @Test
+    void append_usesConfiguredKeysAndSkipsBaggage() {
+        TraceContextMdcAppender configured = new TraceContextMdcAppender();
+        configured.setContext(loggerContext);
+        configured.setTraceIdKey("traceId");
+        configured.setAddBaggage(false);
+        configured.addAppender(lazy);
+        configured.start();
+        Baggage baggage = Baggage.builder().put("tenant", "acme").build();
+
+        try (Scope ignored = Context.current().with(Span.wrap(SPAN_CONTEXT)).with(baggage).makeCurrent()) {
+            configured.doAppend(event());
+        }
+
+        assertThat(lazy.list.getFirst().getMDCPropertyMap()).containsEntry("traceId", SPAN_CONTEXT.getTraceId())
+            .doesNotContainKey("trace_id")
+            .doesNotContainKey("baggage.tenant");
+    }
+
+    private LoggingEvent event() {
+        return new LoggingEvent(Logger.class.getName(), logger, Level.INFO, "Say Hello", null, null);
+    }
+
+}
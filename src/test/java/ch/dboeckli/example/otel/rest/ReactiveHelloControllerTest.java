@@ -0,0 +1,119 @@
+package ch.dboeckli.example.otel.rest;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.sdk.autoconfigure.spi.AutoConfigurationCustomizerProvider;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+/**
+ * {@code /hello} with the {@code reactive} profile on Netty: the trace context and baggage
+ * reach the service span through the Reactor context only.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = { "otel.traces.exporter=none", "otel.metrics.exporter=none", "otel.logs.exporter=none" })
+@ActiveProfiles({ "local", "reactive" })
+@Import(ReactiveHelloControllerTest.TestTracingConfig.class)
+class ReactiveHelloControllerTest {
+
+    private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    InMemorySpanExporter spanExporter;
+
+    @Autowired
+    ApplicationContext ctx;
+
+    @TestConfiguration
+    static class TestTracingConfig {
+
+        @Bean
+        public InMemorySpanExporter inMemorySpanExporter() {
+            return InMemorySpanExporter.create();
+        }
+
+        @Bean
+        public AutoConfigurationCustomizerProvider inMemoryTracerCustomizer(InMemorySpanExporter exporter) {
+            return customizer -> customizer.addTracerProviderCustomizer(
+                    (builder, config) -> builder.addSpanProcessor(SimpleSpanProcessor.create(exporter)));
+        }
+
+    }
+
+    @BeforeEach
+    void setUp() {
+        spanExporter.reset();
+    }
+
+    @AfterEach
+    void tearDown() {
+        spanExporter.reset();
+    }
+
+    @Test
+    void hello_runsOnNettyWithTheReactiveController() {
+        assertAll(() -> assertThat(ctx.getBeanNamesForType(ReactiveHelloController.class)).hasSize(1),
+                () -> assertThat(ctx.getBeanNamesForType(HelloController.class)).isEmpty());
+    }
+
+    @Test
+    void hello_propagatesTraceAndBaggageThroughReactorContext() throws IOException, InterruptedException {
+        try (HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()) {
+            HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:" + port + "/hello"))
+                .GET()
+                .header("traceparent", "00-" + TRACE_ID + "-00f067aa0ba902b7-01")
+                .header("baggage", "testBaggage=hallo")
+                .build();
+
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+            assertAll(() -> assertThat(response.statusCode()).isEqualTo(200),
+                    () -> assertThat(response.body()).isEqualTo("{\"message\":\"hello\"}"));
+        }
+
+        // the server span ends after the response was written
+        await().untilAsserted(() -> assertThat(spanExporter.getFinishedSpanItems()).hasSize(2));
+        List<SpanData> spans = spanExporter.getFinishedSpanItems();
+        SpanData serviceSpan = spans.stream().filter(span -> span.getName().equals("process-hello")).findFirst().get();
+        SpanData serverSpan = spans.stream().filter(span -> span != serviceSpan).findFirst().get();
+
+        assertAll(() -> assertThat(serviceSpan.getTraceId()).isEqualTo(TRACE_ID),
+                () -> assertThat(serviceSpan.getParentSpanId()).isEqualTo(serverSpan.getSpanId()),
+                () -> assertThat(serviceSpan.getStatus().getStatusCode().name()).isEqualTo("OK"),
+                () -> assertThat(serverSpan.getAttributes().get(AttributeKey.stringKey("testBaggage")))
+                    .isEqualTo("hallo"),
+                () -> assertThat(serviceSpan.getAttributes().get(AttributeKey.stringKey("testBaggage")))
+                    .isEqualTo("hallo"),
+                () -> assertThat(serviceSpan.getAttributes().get(AttributeKey.stringKey("addedBaggageByFilter")))
+                    .isEqualTo("echo"),
+                () -> assertThat(serviceSpan.getAttributes().get(AttributeKey.stringKey("addedBaggageByController")))
+                    .isEqualTo("gugus"));
+    }
+
+}
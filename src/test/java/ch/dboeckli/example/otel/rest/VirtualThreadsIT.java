@@ -0,0 +1,132 @@
+package ch.dboeckli.example.otel.rest;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+/**
+ * Concurrent requests with {@code spring.threads.virtual.enabled=true}: every request
+ * sends its own trace and baggage, the log events of {@link HelloController} have to
+ * carry exactly the trace and baggage of their request and the scopes opened by the
+ * filters and the controller must not leak into other requests.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = { "spring.threads.virtual.enabled=true", "otel.traces.exporter=none", "otel.metrics.exporter=none",
+                "otel.logs.exporter=none" })
+@ActiveProfiles("local")
+class VirtualThreadsIT {
+
+    private static final int REQUESTS = 50;
+
+    @LocalServerPort
+    int port;
+
+    /**
+     * Not instrumented, so the trace context sent is the one of the test.
+     */
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(HelloController.class);
+
+    private final CapturingAppender appender = new CapturingAppender();
+
+    @BeforeEach
+    void setUp() {
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(appender);
+        appender.stop();
+        httpClient.close();
+    }
+
+    @Test
+    void hello_keepsTraceContextBaggageAndMdcPerRequest() throws Exception {
+
+        List<String> traceIds = new ArrayList<>();
+        List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            String traceId = HexFormat.of().formatHex(new byte[15]) + "%02x".formatted(i + 1);
+            traceIds.add(traceId);
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/hello"))
+                .header("traceparent", "00-" + traceId + "-00f067aa0ba902b7-01")
+                .header("baggage", "request=" + traceId)
+                .build();
+            responses.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()));
+        }
+        for (CompletableFuture<HttpResponse<Void>> response : responses) {
+            assertThat(response.get().statusCode()).isEqualTo(200);
+        }
+
+        Map<String, List<CapturedEvent>> eventsByTrace = appender.events.stream()
+            .collect(Collectors.groupingBy(captured -> captured.event().getMDCPropertyMap().get("trace_id")));
+        assertThat(eventsByTrace).containsOnlyKeys(traceIds);
+        eventsByTrace.forEach((traceId, events) -> {
+            Map<String, String> first = events.getFirst().event().getMDCPropertyMap();
+            assertAll(() -> assertThat(events).hasSize(3),
+                    () -> assertThat(events).allMatch(CapturedEvent::virtual, "logged on a virtual thread"),
+                    () -> assertThat(events).extracting(captured -> captured.event().getMDCPropertyMap())
+                        .allSatisfy(mdc -> assertThat(mdc).containsEntry("baggage.request", traceId)
+                            .containsEntry("baggage.addedBaggageByFilter", "echo")
+                            .containsEntry("span_id", first.get("span_id"))),
+                    () -> assertThat(first).doesNotContainKey("baggage.addedBaggageByController"),
+                    () -> assertThat(events.subList(1, 3)).extracting(
+                            captured -> captured.event().getMDCPropertyMap().get("baggage.addedBaggageByController"))
+                        .containsOnly("gugus"));
+        });
+    }
+
+    @Test
+    void pinnedVirtualThreadsAreMeasured() {
+        assertThat(meterRegistry.find("jvm.threads.virtual.pinned").timer()).isNotNull();
+    }
+
+    record CapturedEvent(ILoggingEvent event, boolean virtual) {
+    }
+
+    /**
+     * Remembers whether the event was logged on a virtual thread. The MDC is read after
+     * the request only, so the trace context is the one resolved by the root appenders.
+     */
+    static final class CapturingAppender extends AppenderBase<ILoggingEvent> {
+
+        final ConcurrentLinkedQueue<CapturedEvent> events = new ConcurrentLinkedQueue<>();
+
+        @Override
+        protected void append(ILoggingEvent event) {
+            events.add(new CapturedEvent(event, Thread.currentThread().isVirtual()));
+        }
+
+    }
+
+}
@@ -0,0 +1,13 @@
+package ch.dboeckli.example.otel.rest;
+
+import ch.dboeckli.example.otel.tracing.BaggageTaggingFilter;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * {@link VirtualThreadsIT} with the legacy filter chain, whose
+ * {@link BaggageTaggingFilter} opens its own baggage scope.
+ */
+@TestPropertySource(properties = "tracing.filter.mode=legacy")
+class VirtualThreadsLegacyFiltersIT extends VirtualThreadsIT {
+
+}
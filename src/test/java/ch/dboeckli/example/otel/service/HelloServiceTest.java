@@ -1,7 +1,10 @@
 package ch.dboeckli.example.otel.service;
 
+import ch.dboeckli.example.otel.tracing.ReactorOtelContext;
 import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
 import io.opentelemetry.sdk.OpenTelemetrySdk;
 import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
 import io.opentelemetry.sdk.trace.SdkTracerProvider;
@@ -15,6 +18,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.info.BuildProperties;
 
+import java.time.Duration;
 import java.util.List;
 
 import static io.opentelemetry.api.GlobalOpenTelemetry.resetForTest;
@@ -50,7 +54,8 @@ class HelloServiceTest {
         log.info("Tracer: {}", tracer);
 
         // HelloService so anpassen, dass er entweder Tracer injiziert bekommt
-        helloService = new HelloService(openTelemetry, "test-service", mockedBuildProperties);
+        helloService = new HelloService(openTelemetry, "test-service", mockedBuildProperties,
+                Duration.ofSeconds(5));
     }
 
     @AfterEach
@@ -100,4 +105,22 @@ class HelloServiceTest {
                 });
     }
 
-}
\ No newline at end of file
+    @Test
+    void processHelloReactive_createsChildSpanOfTheContextInTheReactorContext() {
+        Span parent = tracerProvider.get("test-tracer").spanBuilder("GET /hello").startSpan();
+
+        String result = helloService.processHelloReactive()
+            .contextWrite(reactorContext -> ReactorOtelContext.store(reactorContext, Context.root().with(parent)))
+            .block();
+        parent.end();
+
+        SpanData span = spanExporter.getFinishedSpanItems().getFirst();
+        assertAll(() -> assertThat(result).isEqualTo("Hello from the service"),
+                () -> assertThat(span.getName()).isEqualTo("process-hello"),
+                () -> assertThat(span.getParentSpanId()).isEqualTo(parent.getSpanContext().getSpanId()),
+                () -> assertThat(span.getStatus().getStatusCode().name()).isEqualTo("OK"),
+                () -> assertThat(span.getEvents()).extracting(EventData::getName)
+                    .containsExactly("service-started", "service-completed"));
+    }
+
+}
@@ -0,0 +1,60 @@
+package ch.dboeckli.example.otel.startup;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+class StartupStepsEndpointTest {
+
+    @Test
+    void slowest_ranksStepsBySelfTime() throws InterruptedException {
+        BufferingApplicationStartup applicationStartup = new BufferingApplicationStartup(16);
+        StartupStep refresh = applicationStartup.start("spring.context.refresh");
+        StartupStep slow = applicationStartup.start("spring.beans.instantiate").tag("beanName", "slow");
+        Thread.sleep(50);
+        slow.end();
+        StartupStep fast = applicationStartup.start("spring.beans.instantiate").tag("beanName", "fast");
+        fast.end();
+        refresh.end();
+
+        StartupStepsEndpoint.Summary summary = new StartupStepsEndpoint(applicationStartup).slowest(null);
+
+        StartupStepsEndpoint.Step first = summary.slowest().getFirst();
+        StartupStepsEndpoint.Step refreshStep = summary.slowest()
+            .stream()
+            .filter(step -> step.name().equals("spring.context.refresh"))
+            .findFirst()
+            .orElseThrow();
+        assertAll(() -> assertThat(summary.steps()).isEqualTo(3), () -> assertThat(summary.slowest()).hasSize(3),
+                () -> assertThat(first.tags()).containsEntry("beanName", "slow"),
+                () -> assertThat(first.self()).isGreaterThanOrEqualTo(Duration.ofMillis(50)),
+                () -> assertThat(first.parentId()).isEqualTo(refreshStep.id()),
+                () -> assertThat(refreshStep.duration()).isGreaterThanOrEqualTo(first.duration()),
+                () -> assertThat(refreshStep.self()).isLessThan(first.self()),
+                () -> assertThat(summary.total()).isEqualTo(refreshStep.duration()));
+    }
+
+    @Test
+    void slowest_limitsTheNumberOfSteps() {
+        BufferingApplicationStartup applicationStartup = new BufferingApplicationStartup(16);
+        for (int i = 0; i < 3; i++) {
+            applicationStartup.start("spring.beans.instantiate").end();
+        }
+
+        assertThat(new StartupStepsEndpoint(applicationStartup).slowest(2).slowest()).hasSize(2);
+    }
+
+    @Test
+    void slowest_isEmptyWithoutBufferingStartup() {
+        StartupStepsEndpoint.Summary summary = new StartupStepsEndpoint(ApplicationStartup.DEFAULT).slowest(null);
+
+        assertAll(() -> assertThat(summary.steps()).isZero(), () -> assertThat(summary.slowest()).isEmpty());
+    }
+
+}
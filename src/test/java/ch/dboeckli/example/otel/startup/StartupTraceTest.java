@@ -0,0 +1,93 @@
+package ch.dboeckli.example.otel.startup;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+class StartupTraceTest {
+
+    private InMemorySpanExporter spanExporter;
+
+    private SdkTracerProvider tracerProvider;
+
+    private OpenTelemetrySdk openTelemetry;
+
+    @BeforeEach
+    void setUp() {
+        spanExporter = InMemorySpanExporter.create();
+        tracerProvider = SdkTracerProvider.builder().addSpanProcessor(SimpleSpanProcessor.create(spanExporter)).build();
+        openTelemetry = OpenTelemetrySdk.builder().setTracerProvider(tracerProvider).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracerProvider.close();
+        spanExporter.reset();
+    }
+
+    @Test
+    void export_replaysStepsAsOneTraceBelowTheRootSpan() {
+        BufferingApplicationStartup applicationStartup = new BufferingApplicationStartup(16);
+        StartupStep refresh = applicationStartup.start("spring.context.refresh");
+        StartupStep bean = applicationStartup.start("spring.beans.instantiate").tag("beanName", "helloService");
+        StartupStep dependency = applicationStartup.start("spring.beans.instantiate")
+            .tag("beanName", "buildProperties");
+        dependency.end();
+        bean.end();
+        refresh.end();
+
+        new StartupTrace(applicationStartup, openTelemetry).export(applicationStartup.getBufferedTimeline(),
+                Instant.now());
+
+        Map<String, SpanData> spans = spanExporter.getFinishedSpanItems()
+            .stream()
+            .collect(Collectors.toMap(StartupTraceTest::key, Function.identity()));
+        SpanData root = spans.get(StartupTrace.ROOT_SPAN_NAME);
+        SpanData refreshSpan = spans.get("spring.context.refresh");
+        SpanData beanSpan = spans.get("helloService");
+        SpanData dependencySpan = spans.get("buildProperties");
+        assertAll(() -> assertThat(spans).hasSize(4), () -> assertThat(root.getParentSpanContext().isValid()).isFalse(),
+                () -> assertThat(root.getAttributes().get(AttributeKey.longKey("spring.startup.steps"))).isEqualTo(3),
+                () -> assertThat(spans.values()).extracting(SpanData::getTraceId).containsOnly(root.getTraceId()),
+                () -> assertThat(refreshSpan.getParentSpanId()).isEqualTo(root.getSpanId()),
+                () -> assertThat(beanSpan.getParentSpanId()).isEqualTo(refreshSpan.getSpanId()),
+                () -> assertThat(dependencySpan.getParentSpanId()).isEqualTo(beanSpan.getSpanId()),
+                () -> assertThat(dependencySpan.getName()).isEqualTo("spring.beans.instantiate"),
+                () -> assertThat(dependencySpan.getAttributes().get(AttributeKey.stringKey("beanName")))
+                    .isEqualTo("buildProperties"),
+                () -> assertThat(dependencySpan.getAttributes().get(AttributeKey.longKey(StartupTrace.STEP_ID)))
+                    .isNotNull(),
+                () -> assertThat(root.getEndEpochNanos()).isGreaterThanOrEqualTo(refreshSpan.getEndEpochNanos()));
+    }
+
+    @Test
+    void onApplicationReady_exportsNothingWithoutBufferingStartup() {
+        new StartupTrace(ApplicationStartup.DEFAULT, openTelemetry).onApplicationReady(null);
+
+        assertThat(spanExporter.getFinishedSpanItems()).isEmpty();
+    }
+
+    private static String key(SpanData span) {
+        String beanName = span.getAttributes().get(AttributeKey.stringKey("beanName"));
+        return beanName == null ? span.getName() : beanName;
+    }
+
+}
@@ -0,0 +1,422 @@
+package ch.dboeckli.example.otel.test.otlp;
+
+import ch.dboeckli.example.otel.export.OtlpSpill;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.google.protobuf.util.JsonFormat;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.opentelemetry.proto.collector.logs.v1.ExportLogsServiceRequest;
+import io.opentelemetry.proto.collector.metrics.v1.ExportMetricsServiceRequest;
+import io.opentelemetry.proto.collector.trace.v1.ExportTraceServiceRequest;
+import io.opentelemetry.proto.common.v1.AnyValue;
+import io.opentelemetry.proto.common.v1.KeyValue;
+import io.opentelemetry.proto.logs.v1.LogRecord;
+import io.opentelemetry.proto.metrics.v1.Metric;
+import io.opentelemetry.proto.trace.v1.Span;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * OTLP/HTTP receiver inside the test JVM, on an ephemeral loopback port. Accepts
+ * traces, metrics and logs as {@code application/x-protobuf} or {@code application/json},
+ * optionally gzip compressed, and keeps the decoded requests in memory.
+ * <p>
+ * Faults are injected per request, in this order: {@link #setLatency latency},
+ * {@link #failNext failures}, then {@link #throttle throttling} with 429. Refused requests
+ * carry a {@code Retry-After} header if one is {@link #setRetryAfter set} and are not
+ * stored. {@link #reset()} clears the stores and the faults.
+ */
+public final class OtlpReceiver implements AutoCloseable {
+
+    private static final Pattern HEX_ID = Pattern
+        .compile("\"(traceId|spanId|parentSpanId)\"\\s*:\\s*\"([0-9a-fA-F]*)\"");
+
+    private final HttpServer server;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final List<ExportTraceServiceRequest> traces = new CopyOnWriteArrayList<>();
+
+    private final List<ExportMetricsServiceRequest> metrics = new CopyOnWriteArrayList<>();
+
+    private final List<ExportLogsServiceRequest> logs = new CopyOnWriteArrayList<>();
+
+    private final Map<OtlpSpill.Signal, LongAdder> accepted = counters();
+
+    private final Map<OtlpSpill.Signal, LongAdder> refused = counters();
+
+    private final Map<OtlpSpill.Signal, LongAdder> bytes = counters();
+
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+
+    private volatile int failureStatus = 503;
+
+    private volatile Duration latency = Duration.ZERO;
+
+    private volatile Duration retryAfter;
+
+    private double permitsPerSecond;
+
+    private double permits;
+
+    private long refilledNanos;
+
+    private OtlpReceiver(HttpServer server) {
+        this.server = server;
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * Starts a receiver on an ephemeral port.
+     */
+    public static OtlpReceiver start() {
+        return start(0);
+    }
+
+    /**
+     * Starts a receiver on the given port, e.g. the port of a stopped receiver to let
+     * the collector come back.
+     */
+    public static OtlpReceiver start(int port) {
+        try {
+            return new OtlpReceiver(
+                    HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Base endpoint as for {@code otel.exporter.otlp.endpoint}.
+     */
+    public URI endpoint() {
+        return URI.create("http://127.0.0.1:" + port());
+    }
+
+    /**
+     * Endpoint of the signal as for the {@code setEndpoint} of the OTLP/HTTP exporters.
+     */
+    public URI endpoint(OtlpSpill.Signal signal) {
+        return endpoint().resolve(signal.path());
+    }
+
+    /**
+     * Delay before every answer, also before refusals.
+     */
+    public OtlpReceiver setLatency(Duration latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * Answers the next {@code requests} requests with {@code status}.
+     */
+    public OtlpReceiver failNext(int requests, int status) {
+        this.failureStatus = status;
+        this.failuresLeft.set(requests);
+        return this;
+    }
+
+    /**
+     * Answers requests beyond {@code requestsPerSecond} with 429, bursts of up to one
+     * second worth of requests pass. {@code 0} switches throttling off.
+     */
+    public synchronized OtlpReceiver throttle(double requestsPerSecond) {
+        this.permitsPerSecond = requestsPerSecond;
+        this.permits = requestsPerSecond;
+        this.refilledNanos = System.nanoTime();
+        return this;
+    }
+
+    /**
+     * {@code Retry-After} of refused requests, {@code null} for none.
+     */
+    public OtlpReceiver setRetryAfter(Duration retryAfter) {
+        this.retryAfter = retryAfter;
+        return this;
+    }
+
+    public void reset() {
+        traces.clear();
+        metrics.clear();
+        logs.clear();
+        List.of(accepted, refused, bytes).forEach(counters -> counters.values().forEach(LongAdder::reset));
+        failuresLeft.set(0);
+        latency = Duration.ZERO;
+        retryAfter = null;
+        throttle(0);
+    }
+
+    public List<ExportTraceServiceRequest> traceRequests() {
+        return List.copyOf(traces);
+    }
+
+    public List<ExportMetricsServiceRequest> metricRequests() {
+        return List.copyOf(metrics);
+    }
+
+    public List<ExportLogsServiceRequest> logRequests() {
+        return List.copyOf(logs);
+    }
+
+    public List<Span> spans() {
+        return traces.stream()
+            .flatMap(request -> request.getResourceSpansList().stream())
+            .flatMap(resource -> resource.getScopeSpansList().stream())
+            .flatMap(scope -> scope.getSpansList().stream())
+            .toList();
+    }
+
+    public List<Span> spans(Predicate<Span> filter) {
+        return spans().stream().filter(filter).toList();
+    }
+
+    public List<Span> spans(String name) {
+        return spans(span -> span.getName().equals(name));
+    }
+
+    /**
+     * Spans of the trace with the given hex trace id.
+     */
+    public List<Span> trace(String traceId) {
+        return spans(span -> traceId(span).equals(traceId));
+    }
+
+    public List<Metric> metrics() {
+        return metrics.stream()
+            .flatMap(request -> request.getResourceMetricsList().stream())
+            .flatMap(resource -> resource.getScopeMetricsList().stream())
+            .flatMap(scope -> scope.getMetricsList().stream())
+            .toList();
+    }
+
+    /**
+     * The last received data of the metric.
+     */
+    public Optional<Metric> metric(String name) {
+        return metrics().stream().filter(metric -> metric.getName().equals(name)).reduce((first, second) -> second);
+    }
+
+    public List<LogRecord> logRecords() {
+        return logs.stream()
+            .flatMap(request -> request.getResourceLogsList().stream())
+            .flatMap(resource -> resource.getScopeLogsList().stream())
+            .flatMap(scope -> scope.getLogRecordsList().stream())
+            .toList();
+    }
+
+    public List<LogRecord> logRecords(Predicate<LogRecord> filter) {
+        return logRecords().stream().filter(filter).toList();
+    }
+
+    /**
+     * Requests stored for the signal.
+     */
+    public long accepted(OtlpSpill.Signal signal) {
+        return accepted.get(signal).sum();
+    }
+
+    /**
+     * Requests answered with an injected failure or throttled.
+     */
+    public long refused(OtlpSpill.Signal signal) {
+        return refused.get(signal).sum();
+    }
+
+    /**
+     * Request body bytes received for the signal, as sent, of accepted and refused
+     * requests.
+     */
+    public long receivedBytes(OtlpSpill.Signal signal) {
+        return bytes.get(signal).sum();
+    }
+
+    public static String traceId(Span span) {
+        return HexFormat.of().formatHex(span.getTraceId().toByteArray());
+    }
+
+    public static String spanId(Span span) {
+        return HexFormat.of().formatHex(span.getSpanId().toByteArray());
+    }
+
+    /**
+     * String value of the attribute, {@code null} if there is none.
+     */
+    public static String attribute(List<KeyValue> attributes, String key) {
+        return attributes.stream()
+            .filter(attribute -> attribute.getKey().equals(key))
+            .map(KeyValue::getValue)
+            .map(AnyValue::getStringValue)
+            .findFirst()
+            .orElse(null);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            Optional<OtlpSpill.Signal> signal = OtlpSpill.Signal.ofPath(exchange.getRequestURI().getPath());
+            if (signal.isEmpty()) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            bytes.get(signal.get()).add(body.length);
+            sleep(latency);
+            int status = refusal();
+            if (status != 0) {
+                refused.get(signal.get()).increment();
+                Duration wait = retryAfter;
+                if (wait != null) {
+                    exchange.getResponseHeaders().set("Retry-After", Long.toString(wait.toSeconds()));
+                }
+                exchange.sendResponseHeaders(status, -1);
+                return;
+            }
+            boolean json = String.valueOf(exchange.getRequestHeaders().getFirst("Content-Type"))
+                .startsWith("application/json");
+            try {
+                store(signal.get(), decompress(exchange, body), json);
+            }
+            catch (InvalidProtocolBufferException e) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            accepted.get(signal.get()).increment();
+            // an empty Export*ServiceResponse, no partial success
+            if (json) {
+                byte[] response = "{}".getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, response.length);
+                exchange.getResponseBody().write(response);
+            }
+            else {
+                exchange.getResponseHeaders().set("Content-Type", "application/x-protobuf");
+                exchange.sendResponseHeaders(200, -1);
+            }
+        }
+    }
+
+    /**
+     * @return the status to refuse the request with, {@code 0} to accept it
+     */
+    private int refusal() {
+        if (failuresLeft.getAndUpdate(left -> Math.max(0, left - 1)) > 0) {
+            return failureStatus;
+        }
+        return acquirePermit() ? 0 : 429;
+    }
+
+    private synchronized boolean acquirePermit() {
+        if (permitsPerSecond <= 0) {
+            return true;
+        }
+        long now = System.nanoTime();
+        permits = Math.min(permitsPerSecond, permits + (now - refilledNanos) * permitsPerSecond / 1e9);
+        refilledNanos = now;
+        if (permits < 1) {
+            return false;
+        }
+        permits--;
+        return true;
+    }
+
+    private void store(OtlpSpill.Signal signal, byte[] body, boolean json) throws IOException {
+        switch (signal) {
+            case TRACES -> traces.add(parse(body, json, ExportTraceServiceRequest.newBuilder()).build());
+            case METRICS -> metrics.add(parse(body, json, ExportMetricsServiceRequest.newBuilder()).build());
+            case LOGS -> logs.add(parse(body, json, ExportLogsServiceRequest.newBuilder()).build());
+        }
+    }
+
+    private static <B extends Message.Builder> B parse(byte[] body, boolean json, B builder) throws IOException {
+        if (json) {
+            JsonFormat.parser().ignoringUnknownFields().merge(hexIdsToBase64(new String(body, StandardCharsets.UTF_8)),
+                    builder);
+        }
+        else {
+            builder.mergeFrom(body);
+        }
+        return builder;
+    }
+
+    /**
+     * OTLP/JSON writes trace and span ids as hex, the protobuf JSON mapping expects base64
+     * for bytes fields.
+     */
+    static String hexIdsToBase64(String json) {
+        Matcher matcher = HEX_ID.matcher(json);
+        return matcher.replaceAll(match -> Matcher.quoteReplacement("\"" + match.group(1) + "\":\""
+                + Base64.getEncoder().encodeToString(HexFormat.of().parseHex(match.group(2))) + "\""));
+    }
+
+    private static byte[] decompress(HttpExchange exchange, byte[] body) throws IOException {
+        if (!"gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+            return body;
+        }
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        if (duration.isZero()) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(duration.toNanos());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Map<OtlpSpill.Signal, LongAdder> counters() {
+        Map<OtlpSpill.Signal, LongAdder> counters = new EnumMap<>(OtlpSpill.Signal.class);
+        for (OtlpSpill.Signal signal : OtlpSpill.Signal.values()) {
+            counters.put(signal, new LongAdder());
+        }
+        return counters;
+    }
+
+}
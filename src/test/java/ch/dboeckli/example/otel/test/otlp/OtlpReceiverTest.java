@@ -0,0 +1,161 @@
+package ch.dboeckli.example.otel.test.otlp;
+
+import ch.dboeckli.example.otel.export.OtlpSpill;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.exporter.otlp.http.logs.OtlpHttpLogRecordExporter;
+import io.opentelemetry.exporter.otlp.http.metrics.OtlpHttpMetricExporter;
+import io.opentelemetry.exporter.otlp.http.trace.OtlpHttpSpanExporter;
+import io.opentelemetry.sdk.logs.SdkLoggerProvider;
+import io.opentelemetry.sdk.logs.export.SimpleLogRecordProcessor;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.export.PeriodicMetricReader;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+class OtlpReceiverTest {
+
+    private final OtlpReceiver receiver = OtlpReceiver.start();
+
+    @AfterEach
+    void tearDown() {
+        receiver.close();
+    }
+
+    @Test
+    void receivesProtobufSpans() {
+        String traceId;
+        try (SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+            .addSpanProcessor(SimpleSpanProcessor.create(OtlpHttpSpanExporter.builder()
+                .setEndpoint(receiver.endpoint(OtlpSpill.Signal.TRACES).toString())
+                .build()))
+            .build()) {
+            Span parent = tracerProvider.get("test").spanBuilder("parent").startSpan();
+            traceId = parent.getSpanContext().getTraceId();
+            tracerProvider.get("test")
+                .spanBuilder("child")
+                .setParent(Context.root().with(parent))
+                .setAttribute("tenant", "acme")
+                .startSpan()
+                .end();
+            parent.end();
+            tracerProvider.forceFlush().join(5, TimeUnit.SECONDS);
+        }
+
+        assertAll(() -> assertThat(receiver.trace(traceId)).hasSize(2),
+                () -> assertThat(receiver.spans("child")).singleElement()
+                    .satisfies(span -> assertThat(OtlpReceiver.attribute(span.getAttributesList(), "tenant"))
+                        .isEqualTo("acme")),
+                () -> assertThat(receiver.accepted(OtlpSpill.Signal.TRACES)).isEqualTo(2),
+                () -> assertThat(receiver.receivedBytes(OtlpSpill.Signal.TRACES)).isPositive());
+    }
+
+    @Test
+    void receivesProtobufMetricsAndLogs() {
+        try (SdkMeterProvider meterProvider = SdkMeterProvider.builder()
+            .registerMetricReader(PeriodicMetricReader.create(OtlpHttpMetricExporter.builder()
+                .setEndpoint(receiver.endpoint(OtlpSpill.Signal.METRICS).toString())
+                .build()));
+                SdkLoggerProvider loggerProvider = SdkLoggerProvider.builder()
+                    .addLogRecordProcessor(SimpleLogRecordProcessor.create(OtlpHttpLogRecordExporter.builder()
+                        .setEndpoint(receiver.endpoint(OtlpSpill.Signal.LOGS).toString())
+                        .build()))
+                    .build()) {
+            meterProvider.get("test").counterBuilder("orders").build().add(3);
+            loggerProvider.get("test")
+                .logRecordBuilder()
+                .setBody("order placed")
+                .setAttribute(AttributeKey.stringKey("tenant"), "acme")
+                .emit();
+            meterProvider.forceFlush().join(5, TimeUnit.SECONDS);
+            loggerProvider.forceFlush().join(5, TimeUnit.SECONDS);
+        }
+
+        assertAll(() -> assertThat(receiver.metric("orders")).hasValueSatisfying(
+                metric -> assertThat(metric.getSum().getDataPoints(0).getAsInt()).isEqualTo(3)),
+                () -> assertThat(receiver.logRecords()).singleElement()
+                    .satisfies(log -> assertAll(
+                            () -> assertThat(log.getBody().getStringValue()).isEqualTo("order placed"),
+                            () -> assertThat(OtlpReceiver.attribute(log.getAttributesList(), "tenant"))
+                                .isEqualTo("acme"))));
+    }
+
+    @Test
+    void receivesJsonWithHexIds() throws IOException, InterruptedException {
+        String json = """
+                {"resourceSpans":[{"scopeSpans":[{"spans":[{
+                  "traceId":"4bf92f3577b34da6a3ce929d0e0e4736","spanId":"00f067aa0ba902b7",
+                  "name":"json-span","kind":2,"startTimeUnixNano":"1","endTimeUnixNano":"2"}]}]}]}
+                """;
+
+        HttpResponse<String> response = post(receiver.endpoint(OtlpSpill.Signal.TRACES), "application/json", json);
+
+        assertAll(() -> assertThat(response.statusCode()).isEqualTo(200),
+                () -> assertThat(response.body()).isEqualTo("{}"),
+                () -> assertThat(receiver.trace("4bf92f3577b34da6a3ce929d0e0e4736")).singleElement()
+                    .satisfies(span -> assertAll(() -> assertThat(span.getName()).isEqualTo("json-span"),
+                            () -> assertThat(OtlpReceiver.spanId(span)).isEqualTo("00f067aa0ba902b7"))));
+    }
+
+    @Test
+    void failNext_refusesWithStatusAndRetryAfter() throws IOException, InterruptedException {
+        receiver.failNext(1, 503).setRetryAfter(Duration.ofSeconds(7));
+        URI endpoint = receiver.endpoint(OtlpSpill.Signal.LOGS);
+
+        HttpResponse<String> refused = post(endpoint, "application/json", "{}");
+        HttpResponse<String> accepted = post(endpoint, "application/json", "{}");
+
+        assertAll(() -> assertThat(refused.statusCode()).isEqualTo(503),
+                () -> assertThat(refused.headers().firstValue("Retry-After")).hasValue("7"),
+                () -> assertThat(accepted.statusCode()).isEqualTo(200),
+                () -> assertThat(receiver.refused(OtlpSpill.Signal.LOGS)).isEqualTo(1),
+                () -> assertThat(receiver.accepted(OtlpSpill.Signal.LOGS)).isEqualTo(1));
+    }
+
+    @Test
+    void throttle_refusesRequestsBeyondTheRate() throws IOException, InterruptedException {
+        receiver.throttle(1);
+        URI endpoint = receiver.endpoint(OtlpSpill.Signal.METRICS);
+
+        int[] statuses = new int[2];
+        for (int i = 0; i < statuses.length; i++) {
+            statuses[i] = post(endpoint, "application/json", "{}").statusCode();
+        }
+
+        assertThat(statuses).containsExactly(200, 429);
+    }
+
+    @Test
+    void rejectsUndecodableBody() throws IOException, InterruptedException {
+        HttpResponse<String> response = post(receiver.endpoint(OtlpSpill.Signal.TRACES), "application/json",
+                "not json");
+
+        assertAll(() -> assertThat(response.statusCode()).isEqualTo(400),
+                () -> assertThat(receiver.spans()).isEmpty());
+    }
+
+    private static HttpResponse<String> post(URI endpoint, String contentType, String body)
+            throws IOException, InterruptedException {
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            return client.send(HttpRequest.newBuilder(endpoint)
+                .header("Content-Type", contentType)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+package ch.dboeckli.example.otel.tracing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.baggage.Baggage;
+import io.opentelemetry.api.baggage.BaggageBuilder;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+class BaggageSpanProcessorTest {
+
+    private final BaggageAttributesProperties properties = new BaggageAttributesProperties();
+
+    private InMemorySpanExporter spanExporter;
+
+    private SdkTracerProvider tracerProvider;
+
+    private BaggageSpanProcessor processor;
+
+    private Tracer tracer;
+
+    @BeforeEach
+    void setUp() {
+        properties.setAllowedKeys(List.of("tenant", "addedBaggageByController"));
+        properties.setAllowedPrefixes(List.of("app."));
+        properties.setMaxAttributes(3);
+        properties.setMaxValueLength(8);
+        properties.setMaxPrefixKeys(2);
+        processor = new BaggageSpanProcessor(properties);
+        spanExporter = InMemorySpanExporter.create();
+        tracerProvider = SdkTracerProvider.builder()
+            .addSpanProcessor(processor)
+            .addSpanProcessor(SimpleSpanProcessor.create(spanExporter))
+            .build();
+        tracer = tracerProvider.get("test-tracer");
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracerProvider.close();
+        spanExporter.reset();
+    }
+
+    @Test
+    void onStart_copiesAllowlistedEntriesToServerAndChildSpans() {
+        Baggage baggage = Baggage.builder().put("tenant", "acme").put("secret", "token").put("app.region", "eu").build();
+
+        try (Scope ignored = Context.root().with(baggage).makeCurrent()) {
+            Span server = tracer.spanBuilder("GET /hello").startSpan();
+            try (Scope serverScope = server.makeCurrent();
+                    Scope controllerScope = Baggage.current()
+                        .toBuilder()
+                        .put("addedBaggageByController", "gugus")
+                        .build()
+                        .makeCurrent()) {
+                tracer.spanBuilder("process-hello").startSpan().end();
+            }
+            server.end();
+        }
+
+        assertAll(
+                () -> assertThat(attributes("GET /hello")).isEqualTo(Attributes.builder()
+                    .put("tenant", "acme")
+                    .put("app.region", "eu")
+                    .build()),
+                () -> assertThat(attributes("process-hello")).isEqualTo(Attributes.builder()
+                    .put("tenant", "acme")
+                    .put("app.region", "eu")
+                    .put("addedBaggageByController", "gugus")
+                    .build()),
+                () -> assertThat(count("not_allowed")).isEqualTo(2));
+    }
+
+    @Test
+    void onStart_truncatesLongValues() {
+        startAndEnd(Baggage.builder().put("tenant", "a-very-long-tenant-name").build());
+
+        assertAll(() -> assertThat(attributes("span").get(AttributeKey.stringKey("tenant"))).isEqualTo("a-very-l"),
+                () -> assertThat(count("truncated")).isEqualTo(1));
+    }
+
+    @Test
+    void onStart_capsAttributeCount() {
+        Baggage baggage = Baggage.builder()
+            .put("tenant", "acme")
+            .put("app.a", "1")
+            .put("app.b", "2")
+            .put("addedBaggageByController", "gugus")
+            .build();
+
+        startAndEnd(baggage);
+
+        assertAll(() -> assertThat(attributes("span").size()).isEqualTo(3),
+                () -> assertThat(count("attribute_limit")).isEqualTo(1));
+    }
+
+    @Test
+    void onStart_capsKeysCachedForPrefixes() {
+        BaggageBuilder builder = Baggage.builder();
+        for (int i = 0; i < 3; i++) {
+            builder.put("app.key" + i, "value");
+        }
+
+        startAndEnd(builder.build());
+
+        assertAll(() -> assertThat(attributes("span").size()).isEqualTo(2),
+                () -> assertThat(count("key_limit")).isEqualTo(1));
+    }
+
+    private void startAndEnd(Baggage baggage) {
+        try (Scope ignored = Context.root().with(baggage).makeCurrent()) {
+            tracer.spanBuilder("span").startSpan().end();
+        }
+    }
+
+    private Attributes attributes(String spanName) {
+        return spanExporter.getFinishedSpanItems()
+            .stream()
+            .filter(span -> span.getName().equals(spanName))
+            .findFirst()
+            .map(SpanData::getAttributes)
+            .orElseThrow();
+    }
+
+    private double count(String outcome) {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        processor.bindTo(registry);
+        return registry.get("tracing.baggage.attributes").tag("outcome", outcome).functionCounter().count();
+    }
+
+}
@@ -0,0 +1,119 @@
+package ch.dboeckli.example.otel.tracing;
+
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+class DebugCaptureTest {
+
+    private static final SpanContext SPAN_CONTEXT = SpanContext.create("4bf92f3577b34da6a3ce929d0e0e4736",
+            "00f067aa0ba902b7", TraceFlags.getSampled(), TraceState.getDefault());
+
+    private final MutableClock clock = new MutableClock();
+
+    private final DebugCapture debugCapture = new DebugCapture(new TracingFilterProperties(), clock);
+
+    @Test
+    void shouldCapture_isOffByDefault() {
+        assertAll(() -> assertThat(debugCapture.shouldCapture(request("/hello"), SPAN_CONTEXT)).isFalse(),
+                () -> assertThat(debugCapture.status().active()).isFalse());
+    }
+
+    @Test
+    void shouldCapture_matchesAllScopes() {
+        debugCapture.enable("/hello/**", "X-Debug", "on", "4BF9", null, null);
+        MockHttpServletRequest matching = request("/hello/world");
+        matching.addHeader("X-Debug", "on");
+        MockHttpServletRequest wrongHeaderValue = request("/hello/world");
+        wrongHeaderValue.addHeader("X-Debug", "off");
+        MockHttpServletRequest wrongPath = request("/actuator/health");
+        wrongPath.addHeader("X-Debug", "on");
+        SpanContext otherTrace = SpanContext.create("0af7651916cd43dd8448eb211c80319c", "b7ad6b7169203331",
+                TraceFlags.getSampled(), TraceState.getDefault());
+
+        assertAll(() -> assertThat(debugCapture.shouldCapture(matching, SPAN_CONTEXT)).isTrue(),
+                () -> assertThat(debugCapture.shouldCapture(wrongHeaderValue, SPAN_CONTEXT)).isFalse(),
+                () -> assertThat(debugCapture.shouldCapture(wrongPath, SPAN_CONTEXT)).isFalse(),
+                () -> assertThat(debugCapture.shouldCapture(matching, otherTrace)).isFalse());
+    }
+
+    @Test
+    void shouldCapture_isRateLimited() {
+        debugCapture.enable(null, null, null, null, null, 2.0);
+
+        long capturedInBurst = IntStream.range(0, 10)
+            .filter(i -> debugCapture.shouldCapture(request("/hello"), SPAN_CONTEXT))
+            .count();
+        clock.advance(Duration.ofMillis(500));
+        boolean capturedAfterRefill = debugCapture.shouldCapture(request("/hello"), SPAN_CONTEXT);
+
+        DebugCapture.Status status = debugCapture.status();
+        assertAll(() -> assertThat(capturedInBurst).isEqualTo(2), () -> assertThat(capturedAfterRefill).isTrue(),
+                () -> assertThat(status.captured()).isEqualTo(3), () -> assertThat(status.rateLimited()).isEqualTo(8));
+    }
+
+    @Test
+    void shouldCapture_expiresAndCapsDuration() {
+        DebugCapture.Status status = debugCapture.enable(null, null, null, null, Duration.ofHours(2), 100.0);
+        boolean capturedBeforeExpiry = debugCapture.shouldCapture(request("/hello"), SPAN_CONTEXT);
+        clock.advance(Duration.ofMinutes(15));
+
+        assertAll(() -> assertThat(status.expiresAt()).isEqualTo(clock.start.plus(Duration.ofMinutes(15))),
+                () -> assertThat(status.ratePerSecond()).isEqualTo(10.0),
+                () -> assertThat(capturedBeforeExpiry).isTrue(),
+                () -> assertThat(debugCapture.shouldCapture(request("/hello"), SPAN_CONTEXT)).isFalse(),
+                () -> assertThat(debugCapture.status().active()).isFalse());
+    }
+
+    @Test
+    void disable_stopsCapturing() {
+        debugCapture.enable(null, null, null, null, null, null);
+        debugCapture.disable();
+
+        assertThat(debugCapture.shouldCapture(request("/hello"), SPAN_CONTEXT)).isFalse();
+    }
+
+    private static MockHttpServletRequest request(String uri) {
+        return new MockHttpServletRequest("GET", uri);
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private final Instant start = Instant.parse("2025-01-01T00:00:00Z");
+
+        private Instant now = start;
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+    }
+
+}
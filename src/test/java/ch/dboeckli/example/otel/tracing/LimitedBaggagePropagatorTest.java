@@ -0,0 +1,53 @@
+package ch.dboeckli.example.otel.tracing;
+
+import ch.dboeckli.example.otel.tracing.W3cTraceContextCodec.Check;
+import io.opentelemetry.api.baggage.Baggage;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+class LimitedBaggagePropagatorTest {
+
+    private static final TextMapGetter<Map<String, String>> GETTER = new TextMapGetter<>() {
+
+        @Override
+        public Iterable<String> keys(Map<String, String> carrier) {
+            return carrier.keySet();
+        }
+
+        @Override
+        public String get(Map<String, String> carrier, String key) {
+            return carrier == null ? null : carrier.get(key);
+        }
+
+    };
+
+    private final TraceHeaderMetrics metrics = new TraceHeaderMetrics();
+
+    private final LimitedBaggagePropagator propagator = new LimitedBaggagePropagator(metrics);
+
+    @Test
+    void extract_buildsBaggageFromValidHeader() {
+        Context context = propagator.extract(Context.root(), Map.of("baggage", "testBaggage=hallo,tenant=acme;ttl=60"),
+                GETTER);
+
+        Baggage baggage = Baggage.fromContext(context);
+        assertAll(() -> assertThat(baggage.size()).isEqualTo(2),
+                () -> assertThat(baggage.getEntryValue("testBaggage")).isEqualTo("hallo"),
+                () -> assertThat(baggage.asMap().get("tenant").getMetadata().getValue()).isEqualTo("ttl=60"));
+    }
+
+    @Test
+    void extract_dropsAndCountsOversizedHeader() {
+        Context context = propagator.extract(Context.root(), Map.of("baggage", "k=" + "v".repeat(9000)), GETTER);
+
+        assertAll(() -> assertThat(Baggage.fromContext(context).isEmpty()).isTrue(),
+                () -> assertThat(metrics.rejected(W3cTraceContextCodec.BAGGAGE, Check.OVERSIZED)).isEqualTo(1));
+    }
+
+}
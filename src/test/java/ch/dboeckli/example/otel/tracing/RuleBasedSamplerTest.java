@@ -0,0 +1,198 @@
+package ch.dboeckli.example.otel.tracing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.opentelemetry.sdk.trace.samplers.SamplingDecision;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+class RuleBasedSamplerTest {
+
+    private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+
+    private final SamplingProperties properties = new SamplingProperties();
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldSample_dropsActuatorAndCountsPerRule() {
+        RuleBasedSampler sampler = sampler(Sampler.alwaysOn());
+
+        assertAll(
+                () -> assertThat(decide(sampler, SpanKind.SERVER, http("GET", "/actuator/health")))
+                    .isEqualTo(SamplingDecision.DROP),
+                () -> assertThat(decide(sampler, SpanKind.SERVER, http("GET", "/hello")))
+                    .isEqualTo(SamplingDecision.RECORD_AND_SAMPLE),
+                () -> assertThat(count(RuleBasedSampler.ACTUATOR_RULE, "dropped")).isEqualTo(1),
+                () -> assertThat(count(RuleBasedSampler.FALLBACK_RULE, "sampled")).isEqualTo(1));
+    }
+
+    @Test
+    void shouldSample_keepsActuatorWhenNotDropped() {
+        properties.setDropActuator(false);
+        RuleBasedSampler sampler = sampler(Sampler.alwaysOn());
+
+        assertThat(decide(sampler, SpanKind.SERVER, http("GET", "/actuator/health")))
+            .isEqualTo(SamplingDecision.RECORD_AND_SAMPLE);
+    }
+
+    @Test
+    void shouldSample_matchesRouteMethodKindAndAttributes() {
+        SamplingProperties.Rule rule = rule("hello-get", 1.0, null);
+        rule.setRoute("/hello/**");
+        rule.setMethod("GET");
+        rule.setSpanKind(SpanKind.SERVER);
+        rule.setAttributes(Map.of("tenant", "gold"));
+        properties.getRules().add(rule);
+        RuleBasedSampler sampler = sampler(Sampler.alwaysOff());
+
+        assertAll(
+                () -> assertThat(decide(sampler, SpanKind.SERVER, http("GET", "/hello/world").toBuilder()
+                    .put("tenant", "gold")
+                    .build())).isEqualTo(SamplingDecision.RECORD_AND_SAMPLE),
+                () -> assertThat(decide(sampler, SpanKind.SERVER,
+                        http("POST", "/hello").toBuilder().put("tenant", "gold").build()))
+                    .isEqualTo(SamplingDecision.DROP),
+                () -> assertThat(decide(sampler, SpanKind.CLIENT,
+                        http("GET", "/hello").toBuilder().put("tenant", "gold").build()))
+                    .isEqualTo(SamplingDecision.DROP),
+                () -> assertThat(decide(sampler, SpanKind.SERVER, http("GET", "/hello")))
+                    .isEqualTo(SamplingDecision.DROP),
+                () -> assertThat(count("hello-get", "sampled")).isEqualTo(1),
+                () -> assertThat(count(RuleBasedSampler.FALLBACK_RULE, "dropped")).isEqualTo(3));
+    }
+
+    @Test
+    void shouldSample_prefersHttpRouteOverUrlPath() {
+        SamplingProperties.Rule rule = rule("users", 0.0, null);
+        rule.setRoute("/users/{id}");
+        properties.getRules().add(rule);
+        RuleBasedSampler sampler = sampler(Sampler.alwaysOn());
+
+        Attributes attributes = Attributes.builder()
+            .put("http.route", "/users/{id}")
+            .put("url.path", "/users/42/details")
+            .build();
+
+        assertThat(decide(sampler, SpanKind.SERVER, attributes)).isEqualTo(SamplingDecision.DROP);
+    }
+
+    @Test
+    void shouldSample_appliesTheRateLimit() {
+        properties.getRules().add(rule("limited", null, 2.0));
+        RuleBasedSampler sampler = sampler(Sampler.alwaysOn());
+
+        List<SamplingDecision> decisions = List.of(decide(sampler, SpanKind.SERVER, Attributes.empty()),
+                decide(sampler, SpanKind.SERVER, Attributes.empty()),
+                decide(sampler, SpanKind.SERVER, Attributes.empty()));
+
+        assertAll(() -> assertThat(decisions).containsExactly(SamplingDecision.RECORD_AND_SAMPLE,
+                SamplingDecision.RECORD_AND_SAMPLE, SamplingDecision.DROP),
+                () -> assertThat(count("limited", "dropped")).isEqualTo(1));
+    }
+
+    @Test
+    void rateLimiter_refillsOverTime() {
+        RuleBasedSampler.RateLimiter limiter = new RuleBasedSampler.RateLimiter(4);
+        long now = TimeUnit.SECONDS.toNanos(100);
+
+        assertAll(() -> assertThat(limiter.tryAcquire(now)).isTrue(),
+                () -> assertThat(limiter.tryAcquire(now)).isTrue(),
+                () -> assertThat(limiter.tryAcquire(now)).isTrue(),
+                () -> assertThat(limiter.tryAcquire(now)).isTrue(),
+                () -> assertThat(limiter.tryAcquire(now)).isFalse(),
+                () -> assertThat(limiter.tryAcquire(now + TimeUnit.MILLISECONDS.toNanos(249))).isFalse(),
+                () -> assertThat(limiter.tryAcquire(now + TimeUnit.MILLISECONDS.toNanos(250))).isTrue(),
+                () -> assertThat(limiter.tryAcquire(now + TimeUnit.MILLISECONDS.toNanos(250))).isFalse());
+    }
+
+    @Test
+    void rateLimiter_samplesFractionalRate() {
+        RuleBasedSampler.RateLimiter limiter = new RuleBasedSampler.RateLimiter(0.5);
+        long now = TimeUnit.SECONDS.toNanos(100);
+
+        assertAll(() -> assertThat(limiter.tryAcquire(now)).isTrue(),
+                () -> assertThat(limiter.tryAcquire(now)).isFalse(),
+                () -> assertThat(limiter.tryAcquire(now + TimeUnit.MILLISECONDS.toNanos(1999))).isFalse(),
+                () -> assertThat(limiter.tryAcquire(now + TimeUnit.SECONDS.toNanos(2))).isTrue(),
+                () -> assertThat(limiter.tryAcquire(now + TimeUnit.SECONDS.toNanos(3))).isFalse(),
+                () -> assertThat(limiter.tryAcquire(now + TimeUnit.SECONDS.toNanos(60))).isTrue(),
+                () -> assertThat(limiter.tryAcquire(now + TimeUnit.SECONDS.toNanos(60))).isFalse());
+    }
+
+    @Test
+    void shouldSample_followsSampledParentUnderParentBased() {
+        Sampler sampler = Sampler.parentBased(sampler(Sampler.alwaysOff()));
+        Context parent = Context.root()
+            .with(Span.wrap(SpanContext.createFromRemoteParent(TRACE_ID, "00f067aa0ba902b7", TraceFlags.getSampled(),
+                    TraceState.getDefault())));
+
+        assertAll(
+                () -> assertThat(sampler
+                    .shouldSample(parent, TRACE_ID, "GET", SpanKind.SERVER, http("GET", "/actuator/health"), List.of())
+                    .getDecision()).isEqualTo(SamplingDecision.RECORD_AND_SAMPLE),
+                // the rules only ran for the root span
+                () -> assertThat(count(RuleBasedSampler.ACTUATOR_RULE, "dropped")).isZero());
+    }
+
+    @Test
+    void withFallback_sharesTheCounters() {
+        RuleBasedSampler sampler = sampler(Sampler.alwaysOff()).withFallback(Sampler.alwaysOn());
+
+        assertAll(
+                () -> assertThat(decide(sampler, SpanKind.SERVER, http("GET", "/hello")))
+                    .isEqualTo(SamplingDecision.RECORD_AND_SAMPLE),
+                () -> assertThat(count(RuleBasedSampler.FALLBACK_RULE, "sampled")).isEqualTo(1),
+                () -> assertThat(sampler.getDescription()).contains("actuator", "AlwaysOnSampler"));
+    }
+
+    @Test
+    void constructor_rejectsRuleWithRatioAndRate() {
+        properties.getRules().add(rule("both", 0.5, 10.0));
+
+        assertThatIllegalArgumentException().isThrownBy(() -> new RuleBasedSampler(properties, Sampler.alwaysOn()))
+            .withMessageContaining("both");
+    }
+
+    private RuleBasedSampler sampler(Sampler fallback) {
+        RuleBasedSampler sampler = new RuleBasedSampler(properties, fallback);
+        sampler.bindTo(registry);
+        return sampler;
+    }
+
+    private static SamplingDecision decide(Sampler sampler, SpanKind kind, Attributes attributes) {
+        return sampler.shouldSample(Context.root(), TRACE_ID, "span", kind, attributes, List.of()).getDecision();
+    }
+
+    private static Attributes http(String method, String path) {
+        return Attributes.builder().put("http.request.method", method).put("url.path", path).build();
+    }
+
+    private static SamplingProperties.Rule rule(String name, Double ratio, Double ratePerSecond) {
+        SamplingProperties.Rule rule = new SamplingProperties.Rule();
+        rule.setName(name);
+        rule.setRatio(ratio);
+        rule.setRatePerSecond(ratePerSecond);
+        return rule;
+    }
+
+    private double count(String rule, String decision) {
+        return registry.get("tracing.sampler.decisions").tags("rule", rule, "decision", decision).functionCounter()
+            .count();
+    }
+
+}
@@ -0,0 +1,160 @@
+package ch.dboeckli.example.otel.tracing;
+
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.ContextKey;
+import io.opentelemetry.context.ContextStorageProvider;
+import io.opentelemetry.context.Scope;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ServiceLoader;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+class ScopedValueContextStorageTest {
+
+    private static final ContextKey<String> KEY = ContextKey.named("test");
+
+    private static final Context A = Context.root().with(KEY, "a");
+
+    private static final Context B = Context.root().with(KEY, "b");
+
+    private static final Context C = Context.root().with(KEY, "c");
+
+    private final ScopedValueContextStorage storage = ScopedValueContextStorage.INSTANCE;
+
+    @BeforeEach
+    void setUp() {
+        assertThat(storage.current()).as("context leaked from another test").isNull();
+    }
+
+    @Test
+    void contextStorage_isRegisteredViaSpi() {
+        assertThat(ServiceLoader.load(ContextStorageProvider.class))
+            .hasAtLeastOneElementOfType(ScopedValueContextStorageProvider.class);
+    }
+
+    @Test
+    void run_makesContextCurrentInTheStorageOpenTelemetryUses() {
+        // opentelemetry-sdk-testing brings its own storage, which OpenTelemetry prefers
+        AtomicReference<String> inner = new AtomicReference<>();
+        ScopedValueContextStorage.run(A, () -> inner.set(Context.current().get(KEY)));
+
+        assertAll(() -> assertThat(ScopedValueContextStorage.isActive()).isFalse(),
+                () -> assertThat(inner.get()).isEqualTo("a"), () -> assertThat(storage.current()).isNull(),
+                () -> assertThat(ScopedValueContextStorage.call(B, () -> Context.current().get(KEY))).isEqualTo("b"));
+    }
+
+    @Test
+    void attach_restoresPreviousContextOnClose() {
+        try (Scope ignored = storage.attach(A)) {
+            try (Scope nested = storage.attach(B)) {
+                assertThat(storage.current()).isSameAs(B);
+            }
+            assertThat(storage.current()).isSameAs(A);
+        }
+        assertThat(storage.current()).isNull();
+    }
+
+    @Test
+    void attach_ofCurrentContextIsNoop() {
+        try (Scope ignored = storage.attach(A)) {
+            assertThat(storage.attach(A)).isSameAs(Scope.noop());
+        }
+    }
+
+    @Test
+    void run_bindsContextForTheOperationOnly() {
+        AtomicReference<Context> inner = new AtomicReference<>();
+        ScopedValueContextStorage.runBound(A, () -> {
+            ScopedValueContextStorage.runBound(B, () -> inner.set(storage.current()));
+            assertThat(storage.current()).isSameAs(A);
+        });
+
+        assertAll(() -> assertThat(inner.get()).isSameAs(B), () -> assertThat(storage.current()).isNull());
+    }
+
+    @Test
+    void call_returnsResultWithinBinding() {
+        assertThat(ScopedValueContextStorage.callBound(A, () -> storage.current().get(KEY))).isEqualTo("a");
+    }
+
+    @Test
+    void attach_insideBindingHidesBindingUntilClosed() {
+        ScopedValueContextStorage.runBound(A, () -> {
+            try (Scope ignored = storage.attach(B)) {
+                assertThat(storage.current()).isSameAs(B);
+                ScopedValueContextStorage.runBound(C, () -> assertThat(storage.current()).isSameAs(C));
+                assertThat(storage.current()).isSameAs(B);
+            }
+            assertThat(storage.current()).isSameAs(A);
+        });
+    }
+
+    @Test
+    void run_insideAttachedScopeHidesScopeUntilReturned() {
+        try (Scope ignored = storage.attach(A)) {
+            ScopedValueContextStorage.runBound(B, () -> {
+                assertThat(storage.current()).isSameAs(B);
+                try (Scope nested = storage.attach(C)) {
+                    assertThat(storage.current()).isSameAs(C);
+                }
+                assertThat(storage.current()).isSameAs(B);
+            });
+            assertThat(storage.current()).isSameAs(A);
+        }
+    }
+
+    @Test
+    void close_outOfOrderIsDetectedAndRestoresContextBeforeTheScope() throws InterruptedException {
+        long before = ScopedValueContextStorage.getOutOfOrderCloses();
+        AtomicReference<Context> afterOuterClose = new AtomicReference<>(C);
+        AtomicReference<Context> afterInnerClose = new AtomicReference<>();
+
+        // on its own thread, the misuse leaves the outer context attached
+        Thread.ofVirtual().start(() -> {
+            Scope outer = storage.attach(A);
+            Scope inner = storage.attach(B);
+            outer.close();
+            afterOuterClose.set(storage.current());
+            inner.close();
+            afterInnerClose.set(storage.current());
+        }).join();
+
+        assertAll(() -> assertThat(ScopedValueContextStorage.getOutOfOrderCloses()).isEqualTo(before + 2),
+                () -> assertThat(afterOuterClose.get()).isNull(),
+                // as in the default storage, closing the inner scope restores the context
+                // before it
+                () -> assertThat(afterInnerClose.get()).isSameAs(A));
+    }
+
+    @Test
+    void close_twiceIsIgnored() {
+        Scope outer = storage.attach(A);
+        Scope inner = storage.attach(B);
+        inner.close();
+        inner.close();
+
+        assertThat(storage.current()).isSameAs(A);
+        outer.close();
+    }
+
+    @Test
+    void binding_isNotVisibleOnOtherThreads() throws InterruptedException {
+        AtomicReference<Context> other = new AtomicReference<>(A);
+        ScopedValueContextStorage.runBound(B, () -> {
+            Thread thread = Thread.ofVirtual().start(() -> other.set(storage.current()));
+            try {
+                thread.join();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        assertThat(other.get()).isNull();
+    }
+
+}
@@ -0,0 +1,145 @@
+package ch.dboeckli.example.otel.tracing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+class StripedBatchSpanProcessorTest {
+
+    private static final long LONG_DELAY = TimeUnit.MINUTES.toNanos(1);
+
+    private static final long TIMEOUT = TimeUnit.SECONDS.toNanos(5);
+
+    private final InMemorySpanExporter spanExporter = InMemorySpanExporter.create();
+
+    private final BatchExportMetrics metrics = new BatchExportMetrics();
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private SdkTracerProvider tracerProvider;
+
+    @AfterEach
+    void tearDown() {
+        if (tracerProvider != null) {
+            tracerProvider.close();
+        }
+    }
+
+    @Test
+    void onEnd_exportsFullBatchWithoutWaitingForTheDelay() {
+        Tracer tracer = start(spanExporter, 4, 64, 8);
+
+        for (int i = 0; i < 8; i++) {
+            tracer.spanBuilder("span-" + i).startSpan().end();
+        }
+
+        await().untilAsserted(() -> assertThat(spanExporter.getFinishedSpanItems()).hasSize(8));
+        assertAll(() -> assertThat(registry.get("tracing.export.batch.size").summary().max()).isEqualTo(8),
+                () -> assertThat(registry.get("tracing.export.spans").tag("outcome", "success").functionCounter()
+                    .count()).isEqualTo(8),
+                () -> assertThat(registry.get("tracing.export.enqueue").functionTimer().count()).isEqualTo(8),
+                () -> assertThat(registry.get("tracing.export.queue.depth").gauge().value()).isZero());
+    }
+
+    @Test
+    void forceFlush_exportsPartialBatch() {
+        Tracer tracer = start(spanExporter, 2, 64, 32);
+
+        tracer.spanBuilder("span").startSpan().end();
+        tracerProvider.forceFlush().join(5, TimeUnit.SECONDS);
+
+        assertAll(() -> assertThat(spanExporter.getFinishedSpanItems()).hasSize(1),
+                () -> assertThat(registry.get("tracing.export.duration").functionTimer().count()).isEqualTo(1));
+    }
+
+    @Test
+    void onEnd_dropsWhenStripeIsFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger exported = new AtomicInteger();
+        Tracer tracer = start(new BlockingExporter(release, exported), 1, 4, 2);
+
+        // the first batch blocks the worker in the exporter, the stripe of 4 spans fills up
+        for (int i = 0; i < 2; i++) {
+            tracer.spanBuilder("span-" + i).startSpan().end();
+        }
+        await().until(() -> metrics.getProcessor().getQueueDepth() == 0);
+        for (int i = 0; i < 6; i++) {
+            tracer.spanBuilder("queued-" + i).startSpan().end();
+        }
+        release.countDown();
+        tracerProvider.close();
+        tracerProvider = null;
+
+        assertAll(() -> assertThat(metrics.getDroppedCount()).isEqualTo(2),
+                () -> assertThat(exported.get()).isEqualTo(6),
+                () -> assertThat(registry.get("tracing.export.dropped").functionCounter().count()).isEqualTo(2));
+    }
+
+    @Test
+    void shutdown_exportsQueuedSpans() {
+        Tracer tracer = start(spanExporter, 4, 64, 32);
+
+        for (int i = 0; i < 5; i++) {
+            tracer.spanBuilder("span-" + i).startSpan().end();
+        }
+        tracerProvider.close();
+        tracerProvider = null;
+
+        // the in-memory exporter forgets its spans on shutdown
+        assertThat(metrics.getExportedSpanCount()).isEqualTo(5);
+    }
+
+    private Tracer start(SpanExporter exporter, int stripes, int maxQueueSize, int maxExportBatchSize) {
+        metrics.bindTo(registry);
+        tracerProvider = SdkTracerProvider.builder()
+            .addSpanProcessor(new StripedBatchSpanProcessor(exporter, stripes, maxQueueSize, maxExportBatchSize,
+                    LONG_DELAY, TIMEOUT, metrics))
+            .build();
+        return tracerProvider.get("test-tracer");
+    }
+
+    /**
+     * Blocks the first export until released.
+     */
+    private record BlockingExporter(CountDownLatch release, AtomicInteger exported) implements SpanExporter {
+
+        @Override
+        public CompletableResultCode export(Collection<SpanData> spans) {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exported.addAndGet(spans.size());
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode flush() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+    }
+
+}
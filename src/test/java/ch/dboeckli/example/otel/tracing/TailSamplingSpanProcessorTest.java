@@ -0,0 +1,213 @@
+package ch.dboeckli.example.otel.tracing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+class TailSamplingSpanProcessorTest {
+
+    private static final long START = TimeUnit.SECONDS.toNanos(1_700_000_000L);
+
+    private final TailSamplingProperties properties = new TailSamplingProperties();
+
+    private final TailSamplingMetrics metrics = new TailSamplingMetrics();
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final InMemorySpanExporter spanExporter = InMemorySpanExporter.create();
+
+    private SdkTracerProvider tracerProvider;
+
+    private Tracer tracer;
+
+    @AfterEach
+    void tearDown() {
+        if (tracerProvider != null) {
+            tracerProvider.close();
+        }
+    }
+
+    @Test
+    void onEnd_dropsFastTraceWithoutMatch() {
+        properties.setProbabilisticRatio(0.0);
+        start();
+
+        Span root = root();
+        child(root).end(START + millis(5), TimeUnit.NANOSECONDS);
+        root.end(START + millis(10), TimeUnit.NANOSECONDS);
+
+        assertAll(() -> assertThat(spanExporter.getFinishedSpanItems()).isEmpty(),
+                () -> assertThat(count("dropped", "none")).isEqualTo(1),
+                () -> assertThat(registry.get("tracing.tail.sampling.buffered").gauge().value()).isZero(),
+                () -> assertThat(registry.get("tracing.tail.sampling.buffered.bytes").gauge().value()).isZero());
+    }
+
+    @Test
+    void onEnd_keepsWholeTraceWithErrorInChild() {
+        properties.setProbabilisticRatio(0.0);
+        start();
+
+        Span root = root();
+        Span child = child(root);
+        child.recordException(new IllegalStateException("boom"));
+        child.end(START + millis(5), TimeUnit.NANOSECONDS);
+        assertThat(spanExporter.getFinishedSpanItems()).isEmpty();
+        root.end(START + millis(10), TimeUnit.NANOSECONDS);
+
+        assertAll(
+                () -> assertThat(spanExporter.getFinishedSpanItems()).extracting(SpanData::getName)
+                    .containsExactly("process-hello", "GET /hello"),
+                () -> assertThat(count("kept", TailSamplingMetrics.POLICY_ERROR)).isEqualTo(1));
+    }
+
+    @Test
+    void onEnd_keepsSlowTrace() {
+        properties.setProbabilisticRatio(0.0);
+        properties.setLatencyThreshold(Duration.ofMillis(500));
+        start();
+
+        root().end(START + millis(750), TimeUnit.NANOSECONDS);
+
+        assertAll(() -> assertThat(spanExporter.getFinishedSpanItems()).hasSize(1),
+                () -> assertThat(count("kept", TailSamplingMetrics.POLICY_LATENCY)).isEqualTo(1));
+    }
+
+    @Test
+    void onEnd_keepsTraceWithMatchingAttribute() {
+        properties.setProbabilisticRatio(0.0);
+        properties.setAttributes(Map.of("debug", "true"));
+        start();
+
+        Span root = root();
+        child(root).setAttribute("debug", "true").end(START + millis(5), TimeUnit.NANOSECONDS);
+        root.end(START + millis(10), TimeUnit.NANOSECONDS);
+
+        assertAll(() -> assertThat(spanExporter.getFinishedSpanItems()).hasSize(2),
+                () -> assertThat(count("kept", TailSamplingMetrics.POLICY_ATTRIBUTE)).isEqualTo(1));
+    }
+
+    @Test
+    void onEnd_keepsRemainderByRatio() {
+        properties.setProbabilisticRatio(1.0);
+        start();
+
+        Span root = root();
+        root.setStatus(StatusCode.OK);
+        root.end(START + millis(10), TimeUnit.NANOSECONDS);
+
+        assertAll(() -> assertThat(spanExporter.getFinishedSpanItems()).hasSize(1),
+                () -> assertThat(count("kept", TailSamplingMetrics.POLICY_PROBABILISTIC)).isEqualTo(1));
+    }
+
+    @Test
+    void onEnd_lateSpanFollowsDecision() {
+        properties.setProbabilisticRatio(0.0);
+        start();
+
+        Span root = root();
+        root.setStatus(StatusCode.ERROR);
+        Span late = child(root);
+        root.end(START + millis(10), TimeUnit.NANOSECONDS);
+        late.end(START + millis(20), TimeUnit.NANOSECONDS);
+
+        assertThat(spanExporter.getFinishedSpanItems()).extracting(SpanData::getName)
+            .containsExactly("GET /hello", "process-hello");
+    }
+
+    @Test
+    void onEnd_evictsOldestTraceOverByteLimit() {
+        properties.setProbabilisticRatio(1.0);
+        properties.setMaxBufferSize(DataSize.ofBytes(700));
+        start();
+
+        Span first = root();
+        child(first).end(START + millis(5), TimeUnit.NANOSECONDS);
+        Span second = root();
+        child(second).end(START + millis(5), TimeUnit.NANOSECONDS);
+        child(second).end(START + millis(5), TimeUnit.NANOSECONDS);
+        first.end(START + millis(10), TimeUnit.NANOSECONDS);
+        second.end(START + millis(10), TimeUnit.NANOSECONDS);
+
+        assertAll(
+                () -> assertThat(spanExporter.getFinishedSpanItems()).extracting(SpanData::getTraceId)
+                    .containsOnly(second.getSpanContext().getTraceId())
+                    .hasSize(3),
+                () -> assertThat(count("evicted", TailSamplingMetrics.EVICTED_BYTE_LIMIT)).isEqualTo(1));
+    }
+
+    @Test
+    void onEnd_evictsTraceWhoseRootDoesNotEnd() {
+        properties.setProbabilisticRatio(1.0);
+        properties.setDecisionWait(Duration.ZERO);
+        start();
+
+        Span stuck = root();
+        child(stuck).end(START + millis(5), TimeUnit.NANOSECONDS);
+        root().end(START + millis(10), TimeUnit.NANOSECONDS);
+
+        assertAll(() -> assertThat(spanExporter.getFinishedSpanItems()).hasSize(1),
+                () -> assertThat(count("evicted", TailSamplingMetrics.EVICTED_TIMEOUT)).isEqualTo(1));
+    }
+
+    @Test
+    void shutdown_evictsBufferedTraces() {
+        start();
+
+        child(root()).end(START + millis(5), TimeUnit.NANOSECONDS);
+        tracerProvider.close();
+        tracerProvider = null;
+
+        assertAll(() -> assertThat(spanExporter.getFinishedSpanItems()).isEmpty(),
+                () -> assertThat(count("evicted", TailSamplingMetrics.EVICTED_SHUTDOWN)).isEqualTo(1));
+    }
+
+    private void start() {
+        metrics.bindTo(registry);
+        tracerProvider = SdkTracerProvider.builder()
+            .addSpanProcessor(
+                    new TailSamplingSpanProcessor(properties, SimpleSpanProcessor.create(spanExporter), metrics))
+            .build();
+        tracer = tracerProvider.get("test-tracer");
+    }
+
+    private Span root() {
+        return tracer.spanBuilder("GET /hello")
+            .setNoParent()
+            .setStartTimestamp(START, TimeUnit.NANOSECONDS)
+            .startSpan();
+    }
+
+    private Span child(Span parent) {
+        return tracer.spanBuilder("process-hello")
+            .setParent(Context.root().with(parent))
+            .setStartTimestamp(START + millis(1), TimeUnit.NANOSECONDS)
+            .startSpan();
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private double count(String decision, String reason) {
+        return registry.get("tracing.tail.sampling.traces").tags("decision", decision, "reason", reason)
+            .functionCounter()
+            .count();
+    }
+
+}
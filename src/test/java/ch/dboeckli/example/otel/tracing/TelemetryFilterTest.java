@@ -0,0 +1,149 @@
+package ch.dboeckli.example.otel.tracing;
+
+import io.opentelemetry.api.baggage.Baggage;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+class TelemetryFilterTest {
+
+    private static final String INCOMING_TRACEPARENT = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+
+    private final TracingFilterProperties properties = new TracingFilterProperties();
+
+    private InMemorySpanExporter spanExporter;
+
+    private SdkTracerProvider tracerProvider;
+
+    private Tracer tracer;
+
+    @BeforeEach
+    void setUp() {
+        spanExporter = InMemorySpanExporter.create();
+        tracerProvider = SdkTracerProvider.builder().addSpanProcessor(SimpleSpanProcessor.create(spanExporter)).build();
+        tracer = tracerProvider.get("test-tracer");
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracerProvider.close();
+        spanExporter.reset();
+    }
+
+    @Test
+    void doFilter_echoesTraceparentAndTagsBaggage() throws ServletException, IOException {
+        properties.getBaggageTagging().setCopyToSpan(true);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/hello");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<Baggage> baggageInChain = new AtomicReference<>();
+
+        Span span = runInServerSpan(new TelemetryFilter(properties, new DebugCapture(properties)), request, response,
+                (req, res) -> baggageInChain.set(Baggage.current()));
+
+        SpanData spanData = spanExporter.getFinishedSpanItems().getFirst();
+        assertAll(
+                () -> assertThat(response.getHeader("traceparent"))
+                    .isEqualTo("00-" + span.getSpanContext().getTraceId() + "-" + span.getSpanContext().getSpanId()
+                            + "-" + span.getSpanContext().getTraceFlags().asHex()),
+                () -> assertThat(baggageInChain.get().getEntryValue("addedBaggageByFilter")).isEqualTo("echo"),
+                () -> assertThat(spanData.getAttributes().get(AttributeKey.stringKey("addedBaggageByFilter")))
+                    .isEqualTo("echo"));
+    }
+
+    @Test
+    void doFilter_leavesCopyingBaggageToTheSpanProcessorByDefault() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/hello");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<Baggage> baggageInChain = new AtomicReference<>();
+
+        runInServerSpan(new TelemetryFilter(properties, new DebugCapture(properties)), request, response,
+                (req, res) -> baggageInChain.set(Baggage.current()));
+
+        SpanData spanData = spanExporter.getFinishedSpanItems().getFirst();
+        assertAll(() -> assertThat(baggageInChain.get().getEntryValue("addedBaggageByFilter")).isEqualTo("echo"),
+                () -> assertThat(spanData.getAttributes().isEmpty()).isTrue());
+    }
+
+    @Test
+    void doFilter_echoesUnsampledFlagAndReplacesMalformedTraceparent() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/hello");
+        request.addHeader("traceparent", "00-not-a-valid-traceparent");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        TelemetryFilter filter = new TelemetryFilter(properties, new DebugCapture(properties));
+
+        Span span = Span.wrap(SpanContext.create("4bf92f3577b34da6a3ce929d0e0e4736", "00f067aa0ba902b7",
+                TraceFlags.getDefault(), TraceState.getDefault()));
+        try (Scope ignored = span.makeCurrent()) {
+            filter.doFilter(request, response, (req, res) -> {
+            });
+        }
+
+        assertThat(response.getHeader("traceparent"))
+            .isEqualTo("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-00");
+    }
+
+    @Test
+    void doFilter_keepsIncomingTraceparent() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/hello");
+        request.addHeader("traceparent", INCOMING_TRACEPARENT);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        runInServerSpan(new TelemetryFilter(properties, new DebugCapture(properties)), request, response,
+                (req, res) -> {
+                });
+
+        assertThat(response.getHeader("traceparent")).isNull();
+    }
+
+    @Test
+    void doFilter_skipsDisabledConcerns() throws ServletException, IOException {
+        properties.getTraceparentEcho().setEnabled(false);
+        properties.getDebug().setEnabled(false);
+        properties.getBaggageTagging().setEnabled(false);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/hello");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<Baggage> baggageInChain = new AtomicReference<>();
+
+        runInServerSpan(new TelemetryFilter(properties, new DebugCapture(properties)), request, response,
+                (req, res) -> baggageInChain.set(Baggage.current()));
+
+        SpanData spanData = spanExporter.getFinishedSpanItems().getFirst();
+        assertAll(() -> assertThat(response.getHeader("traceparent")).isNull(),
+                () -> assertThat(baggageInChain.get().isEmpty()).isTrue(),
+                () -> assertThat(spanData.getAttributes().isEmpty()).isTrue());
+    }
+
+    private Span runInServerSpan(TelemetryFilter filter, MockHttpServletRequest request,
+            MockHttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        Span span = tracer.spanBuilder("GET /hello").startSpan();
+        try (Scope ignored = span.makeCurrent()) {
+            filter.doFilter(request, response, chain);
+        }
+        finally {
+            span.end();
+        }
+        return span;
+    }
+
+}
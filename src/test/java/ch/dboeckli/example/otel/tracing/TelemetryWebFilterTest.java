@@ -0,0 +1,127 @@
+package ch.dboeckli.example.otel.tracing;
+
+import io.opentelemetry.api.baggage.Baggage;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+class TelemetryWebFilterTest {
+
+    private static final String INCOMING_TRACEPARENT = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+
+    private final TracingFilterProperties properties = new TracingFilterProperties();
+
+    private InMemorySpanExporter spanExporter;
+
+    private SdkTracerProvider tracerProvider;
+
+    private Tracer tracer;
+
+    @BeforeEach
+    void setUp() {
+        spanExporter = InMemorySpanExporter.create();
+        tracerProvider = SdkTracerProvider.builder().addSpanProcessor(SimpleSpanProcessor.create(spanExporter)).build();
+        tracer = tracerProvider.get("test-tracer");
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracerProvider.close();
+        spanExporter.reset();
+    }
+
+    @Test
+    void filter_echoesTraceparentAndStoresContextInReactorContext() {
+        properties.getBaggageTagging().setCopyToSpan(true);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/hello"));
+        AtomicReference<Context> contextInChain = new AtomicReference<>();
+
+        Span span = runInServerSpan(new TelemetryWebFilter(properties, new DebugCapture(properties)), exchange,
+                ex -> Mono.deferContextual(view -> {
+                    contextInChain.set(ReactorOtelContext.get(view));
+                    return Mono.empty();
+                }));
+
+        SpanData spanData = spanExporter.getFinishedSpanItems().getFirst();
+        assertAll(
+                () -> assertThat(exchange.getResponse().getHeaders().getFirst("traceparent"))
+                    .isEqualTo("00-" + span.getSpanContext().getTraceId() + "-" + span.getSpanContext().getSpanId()
+                            + "-" + span.getSpanContext().getTraceFlags().asHex()),
+                () -> assertThat(Span.fromContext(contextInChain.get())).isSameAs(span),
+                () -> assertThat(Baggage.fromContext(contextInChain.get()).getEntryValue("addedBaggageByFilter"))
+                    .isEqualTo("echo"),
+                () -> assertThat(spanData.getAttributes().get(AttributeKey.stringKey("addedBaggageByFilter")))
+                    .isEqualTo("echo"),
+                // nothing is left in the thread-local storage for the next request
+                () -> assertThat(Baggage.current().isEmpty()).isTrue());
+    }
+
+    @Test
+    void filter_keepsIncomingTraceparent() {
+        MockServerWebExchange exchange = MockServerWebExchange
+            .from(MockServerHttpRequest.get("/hello").header("traceparent", INCOMING_TRACEPARENT));
+
+        runInServerSpan(new TelemetryWebFilter(properties, new DebugCapture(properties)), exchange,
+                ex -> Mono.empty());
+
+        assertThat(exchange.getResponse().getHeaders().getFirst("traceparent")).isNull();
+    }
+
+    @Test
+    void filter_skipsDisabledConcerns() {
+        properties.getTraceparentEcho().setEnabled(false);
+        properties.getDebug().setEnabled(false);
+        properties.getBaggageTagging().setEnabled(false);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/hello"));
+        AtomicReference<Context> contextInChain = new AtomicReference<>();
+
+        runInServerSpan(new TelemetryWebFilter(properties, new DebugCapture(properties)), exchange,
+                ex -> Mono.deferContextual(view -> {
+                    contextInChain.set(ReactorOtelContext.get(view));
+                    return Mono.empty();
+                }));
+
+        SpanData spanData = spanExporter.getFinishedSpanItems().getFirst();
+        assertAll(() -> assertThat(exchange.getResponse().getHeaders().getFirst("traceparent")).isNull(),
+                () -> assertThat(Baggage.fromContext(contextInChain.get()).isEmpty()).isTrue(),
+                () -> assertThat(spanData.getAttributes().isEmpty()).isTrue());
+    }
+
+    /**
+     * As the OpenTelemetry web filter: the server span is current while the chain is
+     * assembled, the chain is subscribed afterwards.
+     */
+    private Span runInServerSpan(TelemetryWebFilter filter, MockServerWebExchange exchange, WebFilterChain chain) {
+        Span span = tracer.spanBuilder("GET /hello").startSpan();
+        Mono<Void> result;
+        try (Scope ignored = span.makeCurrent()) {
+            result = filter.filter(exchange, chain);
+        }
+        try {
+            result.block();
+        }
+        finally {
+            span.end();
+        }
+        return span;
+    }
+
+}
@@ -0,0 +1,109 @@
+package ch.dboeckli.example.otel.tracing;
+
+import ch.dboeckli.example.otel.tracing.W3cTraceContextCodec.Check;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+class W3cTraceContextCodecTest {
+
+    private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+
+    private static final String SPAN_ID = "00f067aa0ba902b7";
+
+    @Test
+    void encodeTraceparent_reflectsSampledFlag() {
+        SpanContext sampled = SpanContext.create(TRACE_ID, SPAN_ID, TraceFlags.getSampled(), TraceState.getDefault());
+        SpanContext notSampled = SpanContext.create(TRACE_ID, SPAN_ID, TraceFlags.getDefault(),
+                TraceState.getDefault());
+
+        assertAll(
+                () -> assertThat(W3cTraceContextCodec.encodeTraceparent(sampled))
+                    .isEqualTo("00-" + TRACE_ID + "-" + SPAN_ID + "-01"),
+                () -> assertThat(W3cTraceContextCodec.encodeTraceparent(notSampled))
+                    .isEqualTo("00-" + TRACE_ID + "-" + SPAN_ID + "-00"));
+    }
+
+    @Test
+    void checkTraceparent_acceptsValidHeaders() {
+        assertAll(
+                () -> assertThat(W3cTraceContextCodec.checkTraceparent("00-" + TRACE_ID + "-" + SPAN_ID + "-01"))
+                    .isEqualTo(Check.VALID),
+                () -> assertThat(W3cTraceContextCodec.checkTraceparent("01-" + TRACE_ID + "-" + SPAN_ID + "-01-ext"))
+                    .isEqualTo(Check.VALID),
+                () -> assertThat(W3cTraceContextCodec.checkTraceparent(null)).isEqualTo(Check.ABSENT),
+                () -> assertThat(W3cTraceContextCodec.checkTraceparent(" ")).isEqualTo(Check.ABSENT));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "00-4BF92F3577B34DA6A3CE929D0E0E4736-00f067aa0ba902b7-01",
+            "00-00000000000000000000000000000000-00f067aa0ba902b7-01",
+            "00-4bf92f3577b34da6a3ce929d0e0e4736-0000000000000000-01",
+            "ff-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01",
+            "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01-",
+            "00-4bf92f3577b34da6a3ce929d0e0e4736_00f067aa0ba902b7-01", "00-4bf92f35" })
+    void checkTraceparent_rejectsMalformedHeaders(String header) {
+        assertThat(W3cTraceContextCodec.checkTraceparent(header)).isEqualTo(Check.MALFORMED);
+    }
+
+    @Test
+    void checkTracestate_enforcesLimits() {
+        String maxMembers = IntStream.range(0, 32).mapToObj(i -> "k" + i + "=v").collect(Collectors.joining(","));
+
+        assertAll(
+                () -> assertThat(W3cTraceContextCodec.checkTracestate("rojo=00f067aa0ba902b7, congo=t61rcWkgMzE"))
+                    .isEqualTo(Check.VALID),
+                () -> assertThat(W3cTraceContextCodec.checkTracestate("tenant@vendor=value")).isEqualTo(Check.VALID),
+                () -> assertThat(W3cTraceContextCodec.checkTracestate(maxMembers)).isEqualTo(Check.VALID),
+                () -> assertThat(W3cTraceContextCodec.checkTracestate(maxMembers + ",k32=v"))
+                    .isEqualTo(Check.OVERSIZED),
+                () -> assertThat(W3cTraceContextCodec.checkTracestate("k=" + "v".repeat(511)))
+                    .isEqualTo(Check.OVERSIZED),
+                () -> assertThat(W3cTraceContextCodec.checkTracestate("Upper=value")).isEqualTo(Check.MALFORMED),
+                () -> assertThat(W3cTraceContextCodec.checkTracestate("novalue")).isEqualTo(Check.MALFORMED));
+    }
+
+    @Test
+    void parseBaggage_reportsEntriesAsOffsets() {
+        String header = "testBaggage=hallo, tenant = acme;ttl=60,encoded=a%20b%C3%A4";
+        List<String> entries = new ArrayList<>();
+
+        Check check = W3cTraceContextCodec.parseBaggage(header,
+                (baggage, keyStart, keyEnd, valueStart, valueEnd, metadataStart,
+                        metadataEnd) -> entries.add(baggage.subSequence(keyStart, keyEnd) + "|"
+                                + W3cTraceContextCodec.decodeBaggageValue(baggage, valueStart, valueEnd) + "|"
+                                + baggage.subSequence(metadataStart, metadataEnd)));
+
+        assertAll(() -> assertThat(check).isEqualTo(Check.VALID),
+                () -> assertThat(entries).containsExactly("testBaggage|hallo|", "tenant|acme|ttl=60", "encoded|a bä|"));
+    }
+
+    @Test
+    void parseBaggage_rejectsInvalidHeadersAsAWhole() {
+        String tooManyMembers = IntStream.range(0, 65).mapToObj(i -> "k" + i + "=v").collect(Collectors.joining(","));
+        List<String> visited = new ArrayList<>();
+
+        assertAll(
+                () -> assertThat(W3cTraceContextCodec.parseBaggage(tooManyMembers,
+                        (baggage, ks, ke, vs, ve, ms, me) -> visited.add("entry")))
+                    .isEqualTo(Check.OVERSIZED),
+                () -> assertThat(W3cTraceContextCodec.checkBaggage("k=" + "v".repeat(8191))).isEqualTo(Check.OVERSIZED),
+                () -> assertThat(W3cTraceContextCodec.checkBaggage("good=1,bad key=2")).isEqualTo(Check.MALFORMED),
+                () -> assertThat(W3cTraceContextCodec.checkBaggage("key=\"quoted\"")).isEqualTo(Check.MALFORMED),
+                () -> assertThat(W3cTraceContextCodec.checkBaggage("key=%zz")).isEqualTo(Check.MALFORMED),
+                () -> assertThat(W3cTraceContextCodec.checkBaggage("noequals")).isEqualTo(Check.MALFORMED),
+                () -> assertThat(visited).isEmpty());
+    }
+
+}